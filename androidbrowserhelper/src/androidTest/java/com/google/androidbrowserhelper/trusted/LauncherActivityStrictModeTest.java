@@ -0,0 +1,131 @@
+// Copyright 2026 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.androidbrowserhelper.trusted;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import static androidx.browser.customtabs.TrustedWebUtils.EXTRA_LAUNCH_AS_TRUSTED_WEB_ACTIVITY;
+
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.os.Bundle;
+import android.os.StrictMode;
+
+import com.google.androidbrowserhelper.trusted.testcomponents.TestBrowser;
+import com.google.androidbrowserhelper.trusted.testcomponents.TestCustomTabsService;
+import com.google.androidbrowserhelper.trusted.testcomponents.TestCustomTabsServiceSupportsTwas;
+import com.google.androidbrowserhelper.trusted.testutils.EnableComponentsTestRule;
+import com.google.androidbrowserhelper.trusted.testutils.TestUtil;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Collections;
+
+import androidx.test.InstrumentationRegistry;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.MediumTest;
+import androidx.test.rule.ActivityTestRule;
+
+/**
+ * Runs the whole {@link LauncherActivity} flow with a StrictMode policy that kills the process on
+ * any disk read or write on the main thread, and on any wait on the main thread for state to be
+ * read in the background (see {@link BackgroundExecutors#noteWait}).
+ */
+@RunWith(AndroidJUnit4.class)
+@MediumTest
+public class LauncherActivityStrictModeTest {
+    private Context mContext = InstrumentationRegistry.getContext();
+
+    private StrictMode.ThreadPolicy mOldPolicy;
+
+    @Rule
+    public final EnableComponentsTestRule mEnableComponents = new EnableComponentsTestRule(
+            LauncherActivity.class,
+            TestBrowser.class,
+            TestCustomTabsServiceSupportsTwas.class,
+            TestCustomTabsService.class
+    );
+    @Rule
+    public final ActivityTestRule<LauncherActivity> mActivityTestRule =
+            new ActivityTestRule<>(LauncherActivity.class, false, false);
+
+    @Before
+    public void setUp() {
+        TwaProviderPicker.restrictToPackageForTesting(mContext.getPackageName());
+        LaunchPlan.clear(mContext);
+        // Have the launch read the plan, as it does on a cold start.
+        LaunchPlan.resetForTesting();
+        TestUtil.runOnUiThreadBlocking(() -> {
+            RunningTwaSession.release();
+            mOldPolicy = StrictMode.getThreadPolicy();
+            StrictMode.setThreadPolicy(new StrictMode.ThreadPolicy.Builder()
+                    .detectDiskReads()
+                    .detectDiskWrites()
+                    .detectCustomSlowCalls()
+                    .penaltyLog()
+                    .penaltyDeath()
+                    .build());
+        });
+    }
+
+    @After
+    public void tearDown() {
+        TestUtil.runOnUiThreadBlocking(() -> StrictMode.setThreadPolicy(mOldPolicy));
+        TwaProviderPicker.restrictToPackageForTesting(null);
+    }
+
+    @Test
+    public void launchesTwa() {
+        TestBrowser browser = launch();
+
+        assertTrue(browser.getIntent().hasExtra(EXTRA_LAUNCH_AS_TRUSTED_WEB_ACTIVITY));
+    }
+
+    @Test
+    public void launchesTwa_withLaunchPlan() throws PackageManager.NameNotFoundException {
+        ComponentName componentName = new ComponentName(mContext, LauncherActivity.class);
+        Bundle metaData = mContext.getPackageManager()
+                .getActivityInfo(componentName, PackageManager.GET_META_DATA).metaData;
+        LaunchPlan.save(mContext, componentName, metaData != null ? metaData : new Bundle(),
+                mContext.getPackageName(), TwaProviderPicker.LaunchMode.TRUSTED_WEB_ACTIVITY,
+                Collections.emptyList());
+        assertTrue(TestUtil.waitFor(
+                () -> LaunchStateStore.getInstance(mContext).getLaunchPlan() != null, 3000));
+        LaunchPlan.resetForTesting();
+
+        TestBrowser browser = launch();
+
+        assertTrue(browser.getIntent().hasExtra(EXTRA_LAUNCH_AS_TRUSTED_WEB_ACTIVITY));
+    }
+
+    @Test
+    public void fallsBackToCustomTab() {
+        mEnableComponents.manuallyDisable(TestCustomTabsServiceSupportsTwas.class);
+        TestBrowser browser = launch();
+
+        assertFalse(browser.getIntent().hasExtra(EXTRA_LAUNCH_AS_TRUSTED_WEB_ACTIVITY));
+    }
+
+    private TestBrowser launch() {
+        return TestUtil.getBrowserActivityWhenLaunched(() ->
+                mActivityTestRule.launchActivity(null));
+    }
+}
@@ -17,6 +17,7 @@ package com.google.androidbrowserhelper.trusted;
 import static com.google.androidbrowserhelper.trusted.ManageDataLauncherActivity.SITE_SETTINGS_SHORTCUT_ID;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 import static androidx.browser.customtabs.TrustedWebUtils.EXTRA_LAUNCH_AS_TRUSTED_WEB_ACTIVITY;
 import android.content.Context;
@@ -69,6 +70,9 @@ public class LauncherActivityTest {
     @Before
     public void setUp() {
         TwaProviderPicker.restrictToPackageForTesting(mContext.getPackageName());
+        // Each test decides which providers are available, don't reuse a previous test's choice.
+        LaunchPlan.clear(mContext);
+        TestUtil.runOnUiThreadBlocking(RunningTwaSession::release);
     }
 
     @After
@@ -114,6 +118,8 @@ public class LauncherActivityTest {
     public void addsSiteSettingsShortcut() {
         TestBrowser browser = launch();
         ShortcutManager shortcutManager = mContext.getSystemService(ShortcutManager.class);
+        // The shortcut is added in the background.
+        assertTrue(TestUtil.waitFor(() -> !shortcutManager.getDynamicShortcuts().isEmpty(), 3000));
         assertEquals(1, shortcutManager.getDynamicShortcuts().size());
         assertEquals(SITE_SETTINGS_SHORTCUT_ID, shortcutManager.getDynamicShortcuts().get(0).getId());
     }
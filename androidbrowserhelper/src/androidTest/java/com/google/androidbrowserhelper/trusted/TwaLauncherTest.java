@@ -20,6 +20,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
@@ -44,6 +45,7 @@ import com.google.androidbrowserhelper.trusted.testcomponents.TestActivity;
 import com.google.androidbrowserhelper.trusted.testcomponents.TestBrowser;
 import com.google.androidbrowserhelper.trusted.testcomponents.TestCustomTabsService;
 import com.google.androidbrowserhelper.trusted.testcomponents.TestCustomTabsServiceSupportsTwas;
+import com.google.common.util.concurrent.ListenableFuture;
 
 import org.junit.After;
 import org.junit.Before;
@@ -64,6 +66,7 @@ import java.util.Collections;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Instrumentation tests for {@link TwaLauncher}
@@ -232,6 +235,35 @@ public class TwaLauncherTest {
         twaLauncher.destroy();
     }
 
+    @Test
+    public void launchAsync_resolvesWithTwaResult() throws Exception {
+        AtomicReference<ListenableFuture<LaunchResult>> future = new AtomicReference<>();
+        getBrowserActivityWhenLaunched(() -> future.set(mTwaLauncher.launchAsync(makeBuilder(),
+                mCustomTabsCallback, null, TwaLauncher.CCT_FALLBACK_STRATEGY)));
+
+        LaunchResult result = future.get().get(3, TimeUnit.SECONDS);
+        assertEquals(LaunchResult.Mode.TRUSTED_WEB_ACTIVITY, result.getMode());
+        assertEquals(mContext.getPackageName(), result.getProvider());
+        assertTrue(result.getStageDurations().containsKey(LaunchResult.STAGE_CONNECT));
+        assertTrue(result.getStageDurations().containsKey(LaunchResult.STAGE_LAUNCH));
+        assertNull(result.getError());
+    }
+
+    @Test
+    public void launchAsync_resolvesWithFallbackResult() throws Exception {
+        mEnableComponents.manuallyDisable(TestCustomTabsServiceSupportsTwas.class);
+        TwaLauncher twaLauncher = new TwaLauncher(mActivity);
+
+        AtomicReference<ListenableFuture<LaunchResult>> future = new AtomicReference<>();
+        getBrowserActivityWhenLaunched(() -> future.set(twaLauncher.launchAsync(makeBuilder(),
+                mCustomTabsCallback, null, TwaLauncher.CCT_FALLBACK_STRATEGY)));
+
+        LaunchResult result = future.get().get(3, TimeUnit.SECONDS);
+        assertEquals(LaunchResult.Mode.CUSTOM_TAB, result.getMode());
+        assertTrue(result.getStageDurations().containsKey(LaunchResult.STAGE_FALLBACK));
+        twaLauncher.destroy();
+    }
+
     @Test
     public void notifiesSplashScreenStrategyOfLaunchInitiation() {
         SplashScreenStrategy strategy = mock(SplashScreenStrategy.class);
@@ -14,6 +14,7 @@
 
 package com.google.androidbrowserhelper.trusted.testcomponents;
 
+import android.app.Activity;
 import android.os.Bundle;
 import android.os.Looper;
 
@@ -21,12 +22,11 @@ import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 
 import androidx.annotation.Nullable;
-import androidx.appcompat.app.AppCompatActivity;
 
 /**
  * A fake Browser that accepts browsable Intents.
  */
-public class TestBrowser extends AppCompatActivity {
+public class TestBrowser extends Activity {
 
     private final CountDownLatch mResumeLatch = new CountDownLatch(1);
 
@@ -20,6 +20,7 @@ import static org.junit.Assert.assertTrue;
 import android.app.Instrumentation;
 import android.os.Handler;
 import android.os.Looper;
+import android.os.SystemClock;
 
 import com.google.androidbrowserhelper.trusted.testcomponents.TestBrowser;
 
@@ -82,4 +83,21 @@ public class TestUtil {
             return null;
         });
     }
-}
\ No newline at end of file
+
+    /**
+     * Waits until the condition holds, for work that the code under test does in the background.
+     * Returns whether it held before the timeout.
+     */
+    public static boolean waitFor(Callable<Boolean> condition, long timeoutMillis) {
+        long deadline = SystemClock.uptimeMillis() + timeoutMillis;
+        try {
+            while (!condition.call()) {
+                if (SystemClock.uptimeMillis() > deadline) return false;
+                Thread.sleep(50);
+            }
+            return true;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,145 @@
+// Copyright 2026 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.androidbrowserhelper.trusted;
+
+import android.os.Looper;
+import android.os.StrictMode;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The library's background threads. All of its background work runs on one small pool, whose
+ * threads go away once they have been idle for a while, so that an app that has finished
+ * launching doesn't keep threads around for the rest of its life.
+ *
+ * Work that must run in order, e.g. writes to a file, uses a {@link #newSequentialExecutor
+ * sequential executor}, and work that may block for long, e.g. extra commands from the browser,
+ * uses a {@link #newLimitedExecutor limited executor}, so that it can't take up the whole pool.
+ * Work that tasks on the pool wait for doesn't run on the pool, see {@link #startThread}.
+ */
+class BackgroundExecutors {
+    private static final int POOL_SIZE = 4;
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    private static final ThreadPoolExecutor sPool = createPool();
+
+    private BackgroundExecutors() {}
+
+    /** Returns the shared pool, which runs tasks in parallel. */
+    @NonNull
+    static Executor getPool() {
+        return sPool;
+    }
+
+    /** Returns an executor that runs its tasks on the shared pool one at a time, in order. */
+    @NonNull
+    static Executor newSequentialExecutor() {
+        return newLimitedExecutor(1);
+    }
+
+    /**
+     * Returns an executor that runs its tasks on the shared pool, no more than the given number at
+     * a time. Tasks are started in the order they were submitted.
+     */
+    @NonNull
+    static Executor newLimitedExecutor(int maxConcurrentTasks) {
+        return new LimitedExecutor(sPool, maxConcurrentTasks);
+    }
+
+    /**
+     * Runs the given task on a thread of its own rather than on the pool. Use this for one-off
+     * work that tasks on the pool wait for, such as loading state from disk, so that it can't be
+     * queued behind them while they take up all of the pool's threads.
+     */
+    static void startThread(String name, Runnable task) {
+        Thread thread = new Thread(task, "androidbrowserhelper-" + name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Reports that the calling thread is about to wait for background work, e.g. for state to be
+     * read from disk. Waits on the main thread are reported to StrictMode as slow calls, so that
+     * they are caught by a policy that {@link StrictMode.ThreadPolicy.Builder#detectCustomSlowCalls
+     * detects custom slow calls}, like disk reads are.
+     */
+    static void noteWait(String name) {
+        if (Looper.myLooper() == Looper.getMainLooper()) StrictMode.noteSlowCall(name);
+    }
+
+    /** Runs tasks on another executor, holding back the ones that would exceed its limit. */
+    private static class LimitedExecutor implements Executor {
+        private final Executor mExecutor;
+        private final int mMaxConcurrentTasks;
+
+        // Guarded by this.
+        private final Queue<Runnable> mQueue = new ArrayDeque<>();
+        private int mRunningTasks;
+
+        LimitedExecutor(Executor executor, int maxConcurrentTasks) {
+            mExecutor = executor;
+            mMaxConcurrentTasks = maxConcurrentTasks;
+        }
+
+        @Override
+        public synchronized void execute(@NonNull Runnable task) {
+            mQueue.add(task);
+            if (mRunningTasks < mMaxConcurrentTasks) scheduleNext();
+        }
+
+        private synchronized void scheduleNext() {
+            Runnable task = mQueue.poll();
+            if (task == null) return;
+
+            mRunningTasks++;
+            mExecutor.execute(() -> {
+                try {
+                    task.run();
+                } finally {
+                    onTaskFinished();
+                }
+            });
+        }
+
+        private synchronized void onTaskFinished() {
+            mRunningTasks--;
+            scheduleNext();
+        }
+    }
+
+    private static ThreadPoolExecutor createPool() {
+        AtomicInteger threadCount = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable,
+                    "androidbrowserhelper-" + threadCount.incrementAndGet());
+            // Don't keep a process that is shutting down alive for our sake.
+            thread.setDaemon(true);
+            return thread;
+        };
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(POOL_SIZE, POOL_SIZE, KEEP_ALIVE_SECONDS,
+                TimeUnit.SECONDS, new LinkedBlockingQueue<>(), threadFactory);
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+}
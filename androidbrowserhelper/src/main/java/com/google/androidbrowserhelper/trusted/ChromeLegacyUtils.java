@@ -154,6 +154,7 @@ public class ChromeLegacyUtils {
 
     @SuppressWarnings("deprecation")
     static int getVersionCode(PackageManager pm, String packageName) {
+        long ipcStart = LaunchTracer.startIpc();
         try {
             if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.P) {
                 // getLongVersionCode contains versionCode in the lower 32bits and versionCodeMajor
@@ -163,6 +164,8 @@ public class ChromeLegacyUtils {
             return pm.getPackageInfo(packageName, 0).versionCode;
         } catch (PackageManager.NameNotFoundException e) {
             return 0;
+        } finally {
+            LaunchTracer.endIpc("PackageManager.getPackageInfo", ipcStart);
         }
     }
 }
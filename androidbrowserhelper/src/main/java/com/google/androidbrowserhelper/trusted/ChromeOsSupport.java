@@ -16,6 +16,8 @@ package com.google.androidbrowserhelper.trusted;
 
 import android.content.pm.PackageManager;
 
+import androidx.annotation.Nullable;
+
 public class ChromeOsSupport {
     /** Feature name for ARC++ (App Runtime for Chrome running on Chrome OS). */
     public static final String ARC_FEATURE = "org.chromium.arc";
@@ -23,13 +25,25 @@ public class ChromeOsSupport {
     /** The ARC++ package that quries for payments on behalf of TWAs on Chrome OS */
     public static final String ARC_PAYMENT_APP = "org.chromium.arc.payment_app";
 
+    /** System features don't change while the process runs, so we only ask once. */
+    @Nullable
+    private static volatile Boolean sRunningOnArc;
+
     /**
-     * Checks if the application is running on ARC++.
+     * Checks if the application is running on ARC++. Prefer
+     * {@link DeviceProfile#isRunningOnArc} where a Context is at hand.
      *
      * @param pm A {@link PackageManager}.
      * @return True if running on ARC++.
      */
     public static boolean isRunningOnArc(PackageManager pm) {
-        return pm.hasSystemFeature(ARC_FEATURE);
+        Boolean runningOnArc = sRunningOnArc;
+        if (runningOnArc == null) {
+            long ipcStart = LaunchTracer.startIpc();
+            runningOnArc = pm.hasSystemFeature(ARC_FEATURE);
+            LaunchTracer.endIpc("PackageManager.hasSystemFeature", ipcStart);
+            sRunningOnArc = runningOnArc;
+        }
+        return runningOnArc;
     }
 }
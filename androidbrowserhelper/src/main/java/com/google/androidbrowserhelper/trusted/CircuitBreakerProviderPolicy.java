@@ -0,0 +1,73 @@
+// Copyright 2026 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.androidbrowserhelper.trusted;
+
+import android.util.Log;
+
+/**
+ * A {@link TwaProviderPicker.ProviderPolicy} that stops using a provider for Trusted Web
+ * Activities once it has failed to create a session a number of times in a row. After a cool-down
+ * period the provider is given another chance; a single further failure trips the breaker again,
+ * while a success resets it.
+ *
+ * While the breaker is tripped the provider may still be used to launch a Custom Tab.
+ */
+public class CircuitBreakerProviderPolicy implements TwaProviderPicker.ProviderPolicy {
+    private static final String TAG = "CircuitBreakerPolicy";
+
+    /** Default number of consecutive failures that trip the breaker. */
+    public static final int DEFAULT_FAILURE_THRESHOLD = 3;
+
+    /** Default time a tripped breaker stays open. */
+    public static final long DEFAULT_COOL_DOWN_MILLIS = 24 * 60 * 60 * 1000L;
+
+    private final ProviderHealth mProviderHealth;
+    private final int mFailureThreshold;
+    private final long mCoolDownMillis;
+
+    /**
+     * Creates a policy with {@link #DEFAULT_FAILURE_THRESHOLD} and
+     * {@link #DEFAULT_COOL_DOWN_MILLIS}.
+     */
+    public CircuitBreakerProviderPolicy(ProviderHealth providerHealth) {
+        this(providerHealth, DEFAULT_FAILURE_THRESHOLD, DEFAULT_COOL_DOWN_MILLIS);
+    }
+
+    /**
+     * @param providerHealth Where the provider statistics are read from.
+     * @param failureThreshold Number of consecutive failures that trip the breaker.
+     * @param coolDownMillis How long the provider is skipped once the breaker has tripped.
+     */
+    public CircuitBreakerProviderPolicy(ProviderHealth providerHealth, int failureThreshold,
+            long coolDownMillis) {
+        mProviderHealth = providerHealth;
+        mFailureThreshold = failureThreshold;
+        mCoolDownMillis = coolDownMillis;
+    }
+
+    @Override
+    public boolean canLaunchTwa(String providerPackage) {
+        ProviderHealth.Stats stats = mProviderHealth.getStats(providerPackage);
+        if (stats.consecutiveFailures < mFailureThreshold) return true;
+
+        long sinceLastFailure = mProviderHealth.currentTimeMillis() - stats.lastFailureTimeMillis;
+        // A negative value means the clock has been changed, don't lock the provider out.
+        if (sinceLastFailure < 0 || sinceLastFailure >= mCoolDownMillis) return true;
+
+        Log.d(TAG, "Skipping " + providerPackage + " after " + stats.consecutiveFailures
+                + " consecutive failures.");
+        return false;
+    }
+}
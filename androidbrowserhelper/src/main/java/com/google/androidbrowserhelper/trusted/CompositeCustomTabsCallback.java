@@ -0,0 +1,112 @@
+// Copyright 2026 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.androidbrowserhelper.trusted;
+
+import android.net.Uri;
+import android.os.Bundle;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.browser.customtabs.CustomTabsCallback;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A {@link CustomTabsCallback} that passes the messages from the browser on to several callbacks,
+ * in order, since a session only takes one. For example a {@link QualityEnforcer} and a
+ * {@link FirstPaintTracker}.
+ *
+ * {@link #extraCallbackWithResult} returns the first result that isn't empty, or else the first
+ * one that isn't null.
+ */
+public class CompositeCustomTabsCallback extends CustomTabsCallback {
+    private final List<CustomTabsCallback> mCallbacks;
+
+    public CompositeCustomTabsCallback(@NonNull CustomTabsCallback... callbacks) {
+        mCallbacks = Collections.unmodifiableList(new ArrayList<>(Arrays.asList(callbacks)));
+    }
+
+    /** Returns the callbacks the messages are passed on to. */
+    @NonNull
+    public List<CustomTabsCallback> getCallbacks() {
+        return mCallbacks;
+    }
+
+    @Override
+    public void onNavigationEvent(int navigationEvent, @Nullable Bundle extras) {
+        for (CustomTabsCallback callback : mCallbacks) {
+            callback.onNavigationEvent(navigationEvent, extras);
+        }
+    }
+
+    @Override
+    public void extraCallback(@NonNull String callbackName, @Nullable Bundle args) {
+        for (CustomTabsCallback callback : mCallbacks) {
+            callback.extraCallback(callbackName, args);
+        }
+    }
+
+    @Nullable
+    @Override
+    public Bundle extraCallbackWithResult(@NonNull String callbackName, @Nullable Bundle args) {
+        Bundle result = null;
+        for (CustomTabsCallback callback : mCallbacks) {
+            Bundle callbackResult = callback.extraCallbackWithResult(callbackName, args);
+            if (result == null || (result.isEmpty() && callbackResult != null)) {
+                result = callbackResult;
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void onMessageChannelReady(@Nullable Bundle extras) {
+        for (CustomTabsCallback callback : mCallbacks) {
+            callback.onMessageChannelReady(extras);
+        }
+    }
+
+    @Override
+    public void onPostMessage(@NonNull String message, @Nullable Bundle extras) {
+        for (CustomTabsCallback callback : mCallbacks) {
+            callback.onPostMessage(message, extras);
+        }
+    }
+
+    @Override
+    public void onRelationshipValidationResult(int relation, @NonNull Uri requestedOrigin,
+            boolean result, @Nullable Bundle extras) {
+        for (CustomTabsCallback callback : mCallbacks) {
+            callback.onRelationshipValidationResult(relation, requestedOrigin, result, extras);
+        }
+    }
+
+    @Override
+    public void onActivityResized(int height, int width, @NonNull Bundle extras) {
+        for (CustomTabsCallback callback : mCallbacks) {
+            callback.onActivityResized(height, width, extras);
+        }
+    }
+
+    @Override
+    public void onWarmupCompleted(@NonNull Bundle extras) {
+        for (CustomTabsCallback callback : mCallbacks) {
+            callback.onWarmupCompleted(extras);
+        }
+    }
+}
@@ -0,0 +1,282 @@
+// Copyright 2026 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.androidbrowserhelper.trusted;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Records what the browser asks of the {@link DelegationService}: how often each extra command
+ * and notification call is made, how long it takes and how often it fails. The counts are kept
+ * for the life of the process, across instances of the service.
+ *
+ * Calls are recorded on the binder threads they arrive on, so recording doesn't take a lock,
+ * and {@link Listener}s are told about each one as it happens. The counts are printed by
+ * {@code adb shell dumpsys activity service <your DelegationService>}.
+ */
+public class DelegationMetrics {
+    /** {@link DelegationService#onNotifyNotificationWithChannel}. */
+    public static final String OPERATION_NOTIFY_NOTIFICATION = "onNotifyNotificationWithChannel";
+    /** {@link DelegationService#onCancelNotification}. */
+    public static final String OPERATION_CANCEL_NOTIFICATION = "onCancelNotification";
+    /** {@link DelegationService#onAreNotificationsEnabled}. */
+    public static final String OPERATION_ARE_NOTIFICATIONS_ENABLED = "onAreNotificationsEnabled";
+    /** Loading the token that the browser's identity is checked against on every call. */
+    public static final String OPERATION_LOAD_TOKEN = "TokenStore.load";
+    /**
+     * Extra commands are recorded under this prefix followed by the command name, including those
+     * taken by handlers that don't declare their commands.
+     */
+    public static final String OPERATION_EXTRA_COMMAND_PREFIX = "extraCommand:";
+    /**
+     * Extra commands that no handler took, neither one that declared them nor one of those that
+     * don't declare their commands. They're recorded together, as the browser can send any
+     * command name.
+     */
+    public static final String OPERATION_UNKNOWN_EXTRA_COMMAND = "extraCommand (unknown)";
+
+    /**
+     * The upper bounds, in milliseconds, of the latency histogram buckets. A last bucket holds
+     * everything slower.
+     */
+    private static final long[] BUCKET_BOUNDS_MILLIS =
+            {1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000};
+
+    private static final DelegationMetrics sInstance = new DelegationMetrics();
+
+    private final ConcurrentMap<String, Counters> mCounters = new ConcurrentHashMap<>();
+    private final List<Listener> mListeners = new CopyOnWriteArrayList<>();
+
+    /** Is told about every call the {@link DelegationService} handles. */
+    public interface Listener {
+        /**
+         * Called on the thread the call was handled on, once it has finished.
+         *
+         * @param operation One of the OPERATION_ constants, for extra commands
+         *                  {@link #OPERATION_EXTRA_COMMAND_PREFIX} followed by the command name.
+         * @param durationMillis How long the call took.
+         * @param success Whether the call succeeded.
+         */
+        void onOperation(@NonNull String operation, long durationMillis, boolean success);
+    }
+
+    /** A snapshot of the counts for an operation. */
+    public static final class OperationStats {
+        private final String mOperation;
+        private final long mCount;
+        private final long mErrors;
+        private final long mBusy;
+        private final long mTotalDurationMillis;
+        private final long[] mHistogram;
+
+        OperationStats(String operation, long count, long errors, long busy,
+                long totalDurationMillis, long[] histogram) {
+            mOperation = operation;
+            mCount = count;
+            mErrors = errors;
+            mBusy = busy;
+            mTotalDurationMillis = totalDurationMillis;
+            mHistogram = histogram;
+        }
+
+        @NonNull
+        public String getOperation() {
+            return mOperation;
+        }
+
+        /** The number of calls, including the failed ones. */
+        public long getCount() {
+            return mCount;
+        }
+
+        /** The number of calls that failed. */
+        public long getErrorCount() {
+            return mErrors;
+        }
+
+        /** The number of extra commands that were turned down because too many were pending. */
+        public long getBusyCount() {
+            return mBusy;
+        }
+
+        /** The fraction of calls that failed, 0 if there were none. */
+        public float getErrorRate() {
+            return mCount == 0 ? 0 : (float) mErrors / mCount;
+        }
+
+        public long getAverageDurationMillis() {
+            return mCount == 0 ? 0 : mTotalDurationMillis / mCount;
+        }
+
+        /**
+         * The number of calls by latency. Entry i counts the calls that took no longer than
+         * {@link #getBucketBoundsMillis()}[i] (and longer than the previous bound), the last
+         * entry counts the calls that took longer than all bounds.
+         */
+        @NonNull
+        public long[] getHistogram() {
+            return mHistogram.clone();
+        }
+
+        /** Estimates the latency below which the given fraction (e.g. 0.9) of calls finished. */
+        public long getPercentileMillis(float fraction) {
+            long target = (long) Math.ceil(mCount * fraction);
+            long seen = 0;
+            for (int i = 0; i < BUCKET_BOUNDS_MILLIS.length; i++) {
+                seen += mHistogram[i];
+                if (seen >= target) return BUCKET_BOUNDS_MILLIS[i];
+            }
+            return Long.MAX_VALUE;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder()
+                    .append(mOperation)
+                    .append(": ").append(mCount).append(" calls")
+                    .append(", ").append(mErrors).append(" errors");
+            if (mBusy > 0) builder.append(", ").append(mBusy).append(" busy");
+            if (mCount > 0) {
+                builder.append(", avg ").append(getAverageDurationMillis()).append("ms")
+                        .append(", p50 ").append(formatBound(getPercentileMillis(0.5f)))
+                        .append(", p90 ").append(formatBound(getPercentileMillis(0.9f)))
+                        .append(", p99 ").append(formatBound(getPercentileMillis(0.99f)));
+            }
+            return builder.toString();
+        }
+
+        private static String formatBound(long boundMillis) {
+            long last = BUCKET_BOUNDS_MILLIS[BUCKET_BOUNDS_MILLIS.length - 1];
+            return boundMillis == Long.MAX_VALUE ? ">" + last + "ms" : "<=" + boundMillis + "ms";
+        }
+    }
+
+    /** The live counters of an operation. */
+    private static class Counters {
+        final AtomicLong count = new AtomicLong();
+        final AtomicLong errors = new AtomicLong();
+        final AtomicLong busy = new AtomicLong();
+        final AtomicLong totalDurationMillis = new AtomicLong();
+        final AtomicLongArray histogram = new AtomicLongArray(BUCKET_BOUNDS_MILLIS.length + 1);
+    }
+
+    @VisibleForTesting
+    DelegationMetrics() {}
+
+    /** Returns the metrics of this process. */
+    @NonNull
+    public static DelegationMetrics getInstance() {
+        return sInstance;
+    }
+
+    /** Returns the upper bounds of the latency histogram buckets, see {@link OperationStats}. */
+    @NonNull
+    public static long[] getBucketBoundsMillis() {
+        return BUCKET_BOUNDS_MILLIS.clone();
+    }
+
+    public void addListener(@NonNull Listener listener) {
+        mListeners.add(listener);
+    }
+
+    public void removeListener(@NonNull Listener listener) {
+        mListeners.remove(listener);
+    }
+
+    /** Returns the counts of every operation recorded so far, ordered by operation name. */
+    @NonNull
+    public List<OperationStats> getSnapshot() {
+        Map<String, Counters> sorted = new TreeMap<>(mCounters);
+        List<OperationStats> snapshot = new ArrayList<>(sorted.size());
+        for (Map.Entry<String, Counters> entry : sorted.entrySet()) {
+            Counters counters = entry.getValue();
+            long[] histogram = new long[counters.histogram.length()];
+            for (int i = 0; i < histogram.length; i++) histogram[i] = counters.histogram.get(i);
+            snapshot.add(new OperationStats(entry.getKey(), counters.count.get(),
+                    counters.errors.get(), counters.busy.get(),
+                    counters.totalDurationMillis.get(), histogram));
+        }
+        return Collections.unmodifiableList(snapshot);
+    }
+
+    /** Prints the counts of every operation, one per line. */
+    public void dump(@NonNull PrintWriter writer) {
+        List<OperationStats> snapshot = getSnapshot();
+        writer.println("Delegation metrics:");
+        if (snapshot.isEmpty()) writer.println("  (no calls)");
+        for (OperationStats stats : snapshot) {
+            writer.print("  ");
+            writer.println(stats);
+        }
+    }
+
+    /** Call before handling a call, passing the result to {@link #record}. */
+    static long start() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Records a call.
+     *
+     * @param startNanos The value returned by {@link #start}.
+     */
+    void record(@NonNull String operation, long startNanos, boolean success) {
+        long durationMillis = (System.nanoTime() - startNanos) / 1000000;
+        Counters counters = getCounters(operation);
+        counters.count.incrementAndGet();
+        if (!success) counters.errors.incrementAndGet();
+        counters.totalDurationMillis.addAndGet(durationMillis);
+        counters.histogram.incrementAndGet(getBucket(durationMillis));
+
+        for (Listener listener : mListeners) {
+            listener.onOperation(operation, durationMillis, success);
+        }
+    }
+
+    /** Records an extra command that was turned down because too many were pending. */
+    void recordBusy(@NonNull String operation) {
+        getCounters(operation).busy.incrementAndGet();
+    }
+
+    @VisibleForTesting
+    static int getBucket(long durationMillis) {
+        for (int i = 0; i < BUCKET_BOUNDS_MILLIS.length; i++) {
+            if (durationMillis <= BUCKET_BOUNDS_MILLIS[i]) return i;
+        }
+        return BUCKET_BOUNDS_MILLIS.length;
+    }
+
+    private Counters getCounters(String operation) {
+        Counters counters = mCounters.get(operation);
+        if (counters != null) return counters;
+
+        // ConcurrentHashMap#computeIfAbsent needs API 24.
+        Counters created = new Counters();
+        counters = mCounters.putIfAbsent(operation, created);
+        return counters == null ? created : counters;
+    }
+}
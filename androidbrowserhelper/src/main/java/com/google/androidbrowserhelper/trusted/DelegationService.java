@@ -15,27 +15,66 @@
 package com.google.androidbrowserhelper.trusted;
 
 import android.annotation.SuppressLint;
+import android.app.Notification;
 import android.content.pm.PackageManager;
 import android.os.Bundle;
+import android.util.Log;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
 import androidx.browser.trusted.Token;
 import androidx.browser.trusted.TokenStore;
 import androidx.browser.trusted.TrustedWebActivityCallbackRemote;
 import androidx.browser.trusted.TrustedWebActivityService;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.io.FileDescriptor;
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * An extension of {@link TrustedWebActivityService} that implements
  * {@link TrustedWebActivityService#getTokenStore()} using a
  * {@link SharedPreferencesTokenStore}.
+ *
+ * Extra commands are passed to the {@link ExtraCommandHandler} that declared them in
+ * {@link ExtraCommandHandler#getCommandNames()}, looked up in a map that is rebuilt whenever a
+ * handler is registered. Handlers that don't declare their commands are asked in the order they
+ * were registered, as before.
+ *
+ * Commands are handled on the binder thread they arrive on, and the Bundle the handler returns is
+ * passed back to the browser. Commands whose result the browser doesn't read from that Bundle can
+ * be run off the binder thread instead with the experimental
+ * {@link #registerExtraCommandHandler(ExtraCommandHandler, Set, int)}, see
+ * {@link ExtraCommandExecutor}.
+ *
+ * Handlers that are expensive to create, e.g. because they connect to another service, can be
+ * registered with an {@link ExtraCommandHandler.Factory} instead, so that they are only created
+ * once one of their commands arrives. The browser binds to this service for every notification,
+ * and those shouldn't have to wait for billing or location to be set up.
+ *
+ * How often each call is made, how long it takes and how often it fails is recorded in
+ * {@link DelegationMetrics} and printed by
+ * {@code adb shell dumpsys activity service <your DelegationService>}.
  */
 public class DelegationService extends TrustedWebActivityService {
-    private final List<ExtraCommandHandler> mExtraCommandHandlers = new ArrayList<>();
+    private static final String TAG = "DelegationService";
+
+    // Registration happens on the main thread while commands arrive on binder threads, so both
+    // are replaced rather than modified, and only while holding the lock on this.
+    private volatile Map<String, Route> mRoutesByCommand = Collections.emptyMap();
+    private volatile ExtraCommandHandler[] mUnroutedHandlers = new ExtraCommandHandler[0];
+
+    private final AtomicInteger mUnknownCommandCount = new AtomicInteger();
+    private ExtraCommandExecutor mCommandExecutor = new ExtraCommandExecutor();
+    private DelegationMetrics mMetrics = DelegationMetrics.getInstance();
     private SharedPreferencesTokenStore mTokenStore;
+    private TokenStore mMeteredTokenStore;
 
     public DelegationService() {
         registerExtraCommandHandler(new NotificationDelegationExtraCommandHandler());
@@ -51,31 +90,313 @@ public class DelegationService extends TrustedWebActivityService {
             mTokenStore = new SharedPreferencesTokenStore(this);
 
             PackageManager pm = getPackageManager();
-            if (ChromeOsSupport.isRunningOnArc(pm)) {
+            if (DeviceProfile.getInstance(this).isRunningOnArc()) {
                 // TWAs launched on ChromeOS may not always go through the normal launch flow
                 // (LauncherActivity, TwaLauncher, etc), so setting the verified browser there
                 // won't work. We must set it here instead.
                 mTokenStore.store(Token.create(ChromeOsSupport.ARC_PAYMENT_APP, pm));
             }
+            mMeteredTokenStore = new MeteredTokenStore(mTokenStore, mMetrics);
+        }
+
+        return mMeteredTokenStore;
+    }
+
+    @Override
+    public boolean onNotifyNotificationWithChannel(@NonNull String platformTag, int platformId,
+            @NonNull Notification notification, @NonNull String channelName) {
+        long start = DelegationMetrics.start();
+        boolean success = false;
+        try {
+            success = super.onNotifyNotificationWithChannel(
+                    platformTag, platformId, notification, channelName);
+            return success;
+        } finally {
+            mMetrics.record(DelegationMetrics.OPERATION_NOTIFY_NOTIFICATION, start, success);
         }
+    }
 
-        return mTokenStore;
+    @Override
+    public void onCancelNotification(@NonNull String platformTag, int platformId) {
+        long start = DelegationMetrics.start();
+        boolean success = false;
+        try {
+            super.onCancelNotification(platformTag, platformId);
+            success = true;
+        } finally {
+            mMetrics.record(DelegationMetrics.OPERATION_CANCEL_NOTIFICATION, start, success);
+        }
+    }
+
+    @Override
+    public boolean onAreNotificationsEnabled(@NonNull String channelName) {
+        long start = DelegationMetrics.start();
+        boolean success = false;
+        try {
+            boolean enabled = super.onAreNotificationsEnabled(channelName);
+            success = true;
+            return enabled;
+        } finally {
+            mMetrics.record(DelegationMetrics.OPERATION_ARE_NOTIFICATIONS_ENABLED, start, success);
+        }
     }
 
     @Nullable
     @Override
     public Bundle onExtraCommand(
         @NonNull String commandName, @NonNull Bundle args, @Nullable TrustedWebActivityCallbackRemote callback) {
-        for (ExtraCommandHandler handler : mExtraCommandHandlers) {
+        Route route = mRoutesByCommand.get(commandName);
+        if (route != null) {
+            Bundle result;
+            if (route.maxConcurrentCommands > 0 && callback != null) {
+                // The executor records the command once it has run.
+                result = mCommandExecutor.execute(this, route.handler::get,
+                        route.maxConcurrentCommands, commandName, args, callback,
+                        route.operation);
+            } else {
+                // Without a callback there'd be no way to tell the browser the result later.
+                result = handleOnBinderThread(route, commandName, args, callback);
+            }
+            if (isSuccess(result) || isBusy(result)) return result;
+        }
+
+        long start = DelegationMetrics.start();
+        for (ExtraCommandHandler handler : mUnroutedHandlers) {
             Bundle result = handler.handleExtraCommand(this, commandName, args, callback);
-            if (result.getBoolean(ExtraCommandHandler.EXTRA_COMMAND_SUCCESS)) {
+            if (isSuccess(result)) {
+                // A handler that doesn't declare its commands took it, so it's not unknown.
+                mMetrics.record(DelegationMetrics.OPERATION_EXTRA_COMMAND_PREFIX + commandName,
+                        start, true);
                 return result;
             }
         }
+
+        if (route == null) {
+            mMetrics.record(DelegationMetrics.OPERATION_UNKNOWN_EXTRA_COMMAND, start, false);
+            if (mUnknownCommandCount.getAndIncrement() == 0) {
+                // Only log the first one, an older browser may send the same command over and over.
+                Log.d(TAG, "No handler for extra command: " + commandName);
+            }
+        }
         return Bundle.EMPTY;
     }
 
+    @Override
+    protected void dump(FileDescriptor fd, PrintWriter writer, String[] args) {
+        mMetrics.dump(writer);
+        writer.println("Unknown extra commands: " + mUnknownCommandCount.get());
+        writer.println("Pending extra commands: " + mCommandExecutor.getPendingCommandCount());
+    }
+
+    /**
+     * Registers a handler for extra commands. If several handlers declare the same command, the
+     * one registered first gets it.
+     */
     public void registerExtraCommandHandler(ExtraCommandHandler handler) {
-        mExtraCommandHandlers.add(handler);
+        addHandler(handler);
+    }
+
+    /**
+     * Registers a handler some of whose commands are run on a background thread rather than on
+     * the binder thread they arrive on. The browser is answered straight away with a Bundle that
+     * only has {@link ExtraCommandHandler#EXTRA_COMMAND_SUCCESS} and
+     * {@link ExtraCommandHandler#EXTRA_COMMAND_ASYNC} set, and the handler's result follows in an
+     * {@link ExtraCommandHandler#CALLBACK_EXTRA_COMMAND_RESULT} callback.
+     *
+     * This is experimental: no browser handles that callback yet, so only list commands whose
+     * result the browser doesn't read from the returned Bundle, i.e. commands whose handler sends
+     * everything the browser needs through callbacks of its own. The others are handled on the
+     * binder thread as with {@link #registerExtraCommandHandler(ExtraCommandHandler)}.
+     *
+     * The handler must declare its commands with {@link ExtraCommandHandler#getCommandNames()}.
+     * It may be called on several threads at once, for different commands as well as for the
+     * same one.
+     *
+     * @param asyncCommandNames The commands to run on a background thread.
+     * @param maxConcurrentCommands How many commands of each name may be queued or running at
+     *                              once. The browser is told that we're busy when it sends more.
+     *                              0 handles all commands on the binder thread.
+     */
+    public void registerExtraCommandHandler(@NonNull ExtraCommandHandler handler,
+            @NonNull Set<String> asyncCommandNames, int maxConcurrentCommands) {
+        if (maxConcurrentCommands < 0) {
+            throw new IllegalArgumentException("maxConcurrentCommands must not be negative");
+        }
+        if (handler.getCommandNames() == null) {
+            throw new IllegalArgumentException(
+                    "Handlers run off the binder thread must declare their commands");
+        }
+        addRoutes(handler.getCommandNames(), new LazyHandler(handler), asyncCommandNames,
+                maxConcurrentCommands);
+    }
+
+    /**
+     * Registers a handler for the given commands that is only created, by the factory, once the
+     * first of them arrives. The handler is created on the thread the command runs on.
+     *
+     * @param commandNames The commands the handler handles. The handler's
+     *                     {@link ExtraCommandHandler#getCommandNames()} isn't consulted.
+     */
+    public void registerExtraCommandHandler(@NonNull Set<String> commandNames,
+            @NonNull ExtraCommandHandler.Factory factory) {
+        addRoutes(commandNames, new LazyHandler(factory), Collections.emptySet(), 0);
+    }
+
+    /**
+     * Registers a handler for the given commands like
+     * {@link #registerExtraCommandHandler(Set, ExtraCommandHandler.Factory)}, some of whose
+     * commands are run off the binder thread like with the experimental
+     * {@link #registerExtraCommandHandler(ExtraCommandHandler, Set, int)}. A handler that is
+     * first needed for one of those is created on a background thread too.
+     */
+    public void registerExtraCommandHandler(@NonNull Set<String> commandNames,
+            @NonNull ExtraCommandHandler.Factory factory, @NonNull Set<String> asyncCommandNames,
+            int maxConcurrentCommands) {
+        if (maxConcurrentCommands < 0) {
+            throw new IllegalArgumentException("maxConcurrentCommands must not be negative");
+        }
+        addRoutes(commandNames, new LazyHandler(factory), asyncCommandNames,
+                maxConcurrentCommands);
+    }
+
+    @VisibleForTesting
+    void setExtraCommandExecutorForTesting(ExtraCommandExecutor executor) {
+        mCommandExecutor = executor;
+    }
+
+    @VisibleForTesting
+    void setMetricsForTesting(DelegationMetrics metrics) {
+        mMetrics = metrics;
+    }
+
+    private Bundle handleOnBinderThread(Route route, String commandName, Bundle args,
+            @Nullable TrustedWebActivityCallbackRemote callback) {
+        long start = DelegationMetrics.start();
+        boolean success = false;
+        try {
+            Bundle result = route.handler.get().handleExtraCommand(this, commandName, args,
+                    callback);
+            success = isSuccess(result);
+            return result;
+        } finally {
+            mMetrics.record(route.operation, start, success);
+        }
+    }
+
+    private synchronized void addHandler(ExtraCommandHandler handler) {
+        Set<String> commandNames = handler.getCommandNames();
+        if (commandNames == null) {
+            ExtraCommandHandler[] handlers =
+                    Arrays.copyOf(mUnroutedHandlers, mUnroutedHandlers.length + 1);
+            handlers[handlers.length - 1] = handler;
+            mUnroutedHandlers = handlers;
+            return;
+        }
+
+        addRoutes(commandNames, new LazyHandler(handler), Collections.emptySet(), 0);
+    }
+
+    private synchronized void addRoutes(Set<String> commandNames, LazyHandler handler,
+            Set<String> asyncCommandNames, int maxConcurrentCommands) {
+        Map<String, Route> routesByCommand = new HashMap<>(mRoutesByCommand);
+        for (String commandName : commandNames) {
+            if (!routesByCommand.containsKey(commandName)) {
+                int maxConcurrent =
+                        asyncCommandNames.contains(commandName) ? maxConcurrentCommands : 0;
+                routesByCommand.put(commandName, new Route(commandName, handler, maxConcurrent));
+            }
+        }
+        mRoutesByCommand = routesByCommand;
+    }
+
+    /**
+     * Returns how many extra commands were received that no handler declared and none of the
+     * handlers that don't declare their commands handled.
+     */
+    public int getUnknownCommandCount() {
+        return mUnknownCommandCount.get();
+    }
+
+    private static boolean isSuccess(@Nullable Bundle result) {
+        return result != null && result.getBoolean(ExtraCommandHandler.EXTRA_COMMAND_SUCCESS);
+    }
+
+    private static boolean isBusy(@Nullable Bundle result) {
+        return result != null && result.getBoolean(ExtraCommandHandler.EXTRA_COMMAND_BUSY);
+    }
+
+    /** The handler of a command, how it is run and what it is recorded as. */
+    private static class Route {
+        final LazyHandler handler;
+        /** 0 if the command is handled on the binder thread. */
+        final int maxConcurrentCommands;
+        /** Built once here rather than for every command. */
+        final String operation;
+
+        Route(String commandName, LazyHandler handler, int maxConcurrentCommands) {
+            this.handler = handler;
+            this.maxConcurrentCommands = maxConcurrentCommands;
+            operation = DelegationMetrics.OPERATION_EXTRA_COMMAND_PREFIX + commandName;
+        }
+    }
+
+    /** A handler, or the factory that creates it, shared by the routes of its commands. */
+    private static class LazyHandler {
+        @Nullable
+        private ExtraCommandHandler.Factory mFactory;
+        @Nullable
+        private volatile ExtraCommandHandler mHandler;
+
+        LazyHandler(ExtraCommandHandler handler) {
+            mHandler = handler;
+        }
+
+        LazyHandler(ExtraCommandHandler.Factory factory) {
+            mFactory = factory;
+        }
+
+        /** Returns the handler, creating it if this is the first command for it. */
+        ExtraCommandHandler get() {
+            ExtraCommandHandler handler = mHandler;
+            if (handler != null) return handler;
+
+            synchronized (this) {
+                if (mHandler == null) {
+                    mHandler = mFactory.create();
+                    mFactory = null;
+                }
+                return mHandler;
+            }
+        }
+    }
+
+    /** Records how long loading the token takes, the browser's every call waits for it. */
+    private static class MeteredTokenStore implements TokenStore {
+        private final TokenStore mTokenStore;
+        private final DelegationMetrics mMetrics;
+
+        MeteredTokenStore(TokenStore tokenStore, DelegationMetrics metrics) {
+            mTokenStore = tokenStore;
+            mMetrics = metrics;
+        }
+
+        @Override
+        public void store(@Nullable Token token) {
+            mTokenStore.store(token);
+        }
+
+        @Nullable
+        @Override
+        public Token load() {
+            long start = DelegationMetrics.start();
+            boolean success = false;
+            try {
+                Token token = mTokenStore.load();
+                success = true;
+                return token;
+            } finally {
+                mMetrics.record(DelegationMetrics.OPERATION_LOAD_TOKEN, start, success);
+            }
+        }
     }
 }
@@ -0,0 +1,142 @@
+// Copyright 2026 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.androidbrowserhelper.trusted;
+
+import android.app.ActivityManager;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.os.Build;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+/**
+ * A snapshot of the properties of the device that the launch adapts to, taken once per process so
+ * that the launch doesn't query the system for them again and again.
+ *
+ * On {@link #isConstrained constrained} devices, such as Android Go devices, the launch does less
+ * work that it can do without: the splash image is rasterized at a lower resolution when it is
+ * scaled to the screen anyway, the URL isn't preloaded speculatively and the browser isn't warmed
+ * up ahead of launches.
+ *
+ * Night mode can change while the process is running. It is read from the {@link Configuration}
+ * of the Context passed to {@link #getInstance}, which doesn't involve the system, and the
+ * snapshot is replaced when it has changed.
+ */
+public class DeviceProfile {
+    /**
+     * Devices whose apps get a heap of at most this size (see
+     * {@link ActivityManager#getMemoryClass}) are treated as constrained, even if they don't
+     * declare themselves as low-RAM devices.
+     */
+    @VisibleForTesting
+    static final int CONSTRAINED_MEMORY_CLASS_MB = 96;
+
+    @Nullable
+    private static volatile DeviceProfile sInstance;
+
+    private final boolean mRunningOnArc;
+    private final int mSdkInt;
+    private final boolean mLowRamDevice;
+    private final int mMemoryClassMb;
+    private final boolean mNightMode;
+
+    /** Returns the snapshot for this process, taking it if it hasn't been taken yet. */
+    @NonNull
+    public static DeviceProfile getInstance(@NonNull Context context) {
+        DeviceProfile profile = sInstance;
+        boolean nightMode = isNightMode(context.getResources().getConfiguration());
+        if (profile == null) {
+            profile = create(context, nightMode);
+        } else if (profile.mNightMode != nightMode) {
+            profile = profile.withNightMode(nightMode);
+        } else {
+            return profile;
+        }
+        // Racing threads take equal snapshots, so it doesn't matter which one is kept.
+        sInstance = profile;
+        return profile;
+    }
+
+    /** Replaces the snapshot, {@code null} makes the next {@link #getInstance} take a new one. */
+    @VisibleForTesting
+    public static void setInstanceForTesting(@Nullable DeviceProfile profile) {
+        sInstance = profile;
+    }
+
+    @VisibleForTesting
+    public DeviceProfile(boolean runningOnArc, int sdkInt, boolean lowRamDevice,
+            int memoryClassMb, boolean nightMode) {
+        mRunningOnArc = runningOnArc;
+        mSdkInt = sdkInt;
+        mLowRamDevice = lowRamDevice;
+        mMemoryClassMb = memoryClassMb;
+        mNightMode = nightMode;
+    }
+
+    private static DeviceProfile create(Context context, boolean nightMode) {
+        ActivityManager activityManager =
+                (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        return new DeviceProfile(
+                ChromeOsSupport.isRunningOnArc(context.getPackageManager()),
+                Build.VERSION.SDK_INT,
+                activityManager.isLowRamDevice(),
+                activityManager.getMemoryClass(),
+                nightMode);
+    }
+
+    private DeviceProfile withNightMode(boolean nightMode) {
+        return new DeviceProfile(mRunningOnArc, mSdkInt, mLowRamDevice, mMemoryClassMb, nightMode);
+    }
+
+    private static boolean isNightMode(Configuration configuration) {
+        return (configuration.uiMode & Configuration.UI_MODE_NIGHT_MASK)
+                == Configuration.UI_MODE_NIGHT_YES;
+    }
+
+    /** Whether the app is running on ARC++ (App Runtime for Chrome, on Chrome OS). */
+    public boolean isRunningOnArc() {
+        return mRunningOnArc;
+    }
+
+    /** The SDK level of the device, see {@link Build.VERSION#SDK_INT}. */
+    public int getSdkInt() {
+        return mSdkInt;
+    }
+
+    /** Whether the device declares itself as a low-RAM device, e.g. an Android Go device. */
+    public boolean isLowRamDevice() {
+        return mLowRamDevice;
+    }
+
+    /** The heap size the app should stay within, in megabytes. */
+    public int getMemoryClassMb() {
+        return mMemoryClassMb;
+    }
+
+    /** Whether the night (dark) theme is in use. */
+    public boolean isNightMode() {
+        return mNightMode;
+    }
+
+    /**
+     * Whether the launch should do as little as it can, because the device is a low-RAM device or
+     * gives apps little memory.
+     */
+    public boolean isConstrained() {
+        return mLowRamDevice || mMemoryClassMb <= CONSTRAINED_MEMORY_CLASS_MB;
+    }
+}
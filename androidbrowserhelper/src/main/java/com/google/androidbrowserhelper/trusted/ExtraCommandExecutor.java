@@ -0,0 +1,178 @@
+// Copyright 2026 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.androidbrowserhelper.trusted;
+
+import android.content.Context;
+import android.os.Bundle;
+import android.os.RemoteException;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
+import androidx.browser.trusted.TrustedWebActivityCallbackRemote;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * Runs extra commands for {@link DelegationService} on the library's background threads instead
+ * of the binder thread they arrive on, so that a slow {@link ExtraCommandHandler} doesn't hold up
+ * the process's other IPC.
+ *
+ * A command is accepted right away and its handler's result is sent to the browser through the
+ * {@link TrustedWebActivityCallbackRemote} once it has run, see the experimental
+ * {@link ExtraCommandHandler#CALLBACK_EXTRA_COMMAND_RESULT}. Only commands that the app listed when
+ * registering their handler come here, the browser reads the results of all others from the
+ * Bundle returned on the binder thread. A command is turned down as busy,
+ * see {@link ExtraCommandHandler#EXTRA_COMMAND_BUSY}, when too many commands of its name are
+ * already in flight, or when too many commands are in flight altogether.
+ *
+ * Commands are recorded in {@link DelegationMetrics} once they have run, with the time they spent
+ * waiting to run included.
+ */
+class ExtraCommandExecutor {
+    private static final String TAG = "ExtraCommandExecutor";
+
+    /** How many commands may be queued or running at once, across all command names. */
+    @VisibleForTesting
+    static final int DEFAULT_MAX_PENDING_COMMANDS = 16;
+
+    /** How many commands may run at once, so that slow handlers can't take up the whole pool. */
+    private static final int MAX_RUNNING_COMMANDS = 2;
+
+    private static final Executor sDefaultExecutor =
+            BackgroundExecutors.newLimitedExecutor(MAX_RUNNING_COMMANDS);
+
+    /** Returns the handler to run a command with, creating it if needed. */
+    interface HandlerSupplier {
+        @NonNull
+        ExtraCommandHandler get();
+    }
+
+    private final Executor mExecutor;
+    private final int mMaxPendingCommands;
+    private final DelegationMetrics mMetrics;
+
+    // Guarded by this.
+    private final Map<String, Integer> mPendingByCommand = new HashMap<>();
+    private int mPendingCommands;
+
+    ExtraCommandExecutor() {
+        this(sDefaultExecutor, DEFAULT_MAX_PENDING_COMMANDS, DelegationMetrics.getInstance());
+    }
+
+    @VisibleForTesting
+    ExtraCommandExecutor(@NonNull Executor executor, int maxPendingCommands,
+            @NonNull DelegationMetrics metrics) {
+        mExecutor = executor;
+        mMaxPendingCommands = maxPendingCommands;
+        mMetrics = metrics;
+    }
+
+    /**
+     * Queues the command to be run by the supplied handler and returns the Bundle to answer the
+     * browser with straight away: one that acknowledges the command, or one that reports being
+     * busy.
+     *
+     * @param maxConcurrentCommands How many commands with this name may be queued or running at
+     *                              once.
+     * @param operation What to record the command as in {@link DelegationMetrics}.
+     */
+    @NonNull
+    Bundle execute(@NonNull Context context, @NonNull HandlerSupplier handlerSupplier,
+            int maxConcurrentCommands, @NonNull String commandName, @NonNull Bundle args,
+            @NonNull TrustedWebActivityCallbackRemote callback, @NonNull String operation) {
+        if (!tryAcquire(commandName, maxConcurrentCommands)) {
+            mMetrics.recordBusy(operation);
+            Bundle busy = new Bundle();
+            busy.putBoolean(ExtraCommandHandler.EXTRA_COMMAND_SUCCESS, false);
+            busy.putBoolean(ExtraCommandHandler.EXTRA_COMMAND_BUSY, true);
+            return busy;
+        }
+
+        long start = DelegationMetrics.start();
+        mExecutor.execute(() -> {
+            boolean success = false;
+            try {
+                success = run(context, handlerSupplier, commandName, args, callback);
+            } finally {
+                mMetrics.record(operation, start, success);
+                release(commandName);
+            }
+        });
+
+        Bundle accepted = new Bundle();
+        accepted.putBoolean(ExtraCommandHandler.EXTRA_COMMAND_SUCCESS, true);
+        accepted.putBoolean(ExtraCommandHandler.EXTRA_COMMAND_ASYNC, true);
+        return accepted;
+    }
+
+    /** Returns how many commands are queued or running. */
+    synchronized int getPendingCommandCount() {
+        return mPendingCommands;
+    }
+
+    /** Runs the command and sends its result to the browser, returns whether it succeeded. */
+    private static boolean run(Context context, HandlerSupplier handlerSupplier,
+            String commandName, Bundle args, TrustedWebActivityCallbackRemote callback) {
+        Bundle result = null;
+        try {
+            // Getting the handler may create it, which is one of the slow things we're avoiding.
+            result = handlerSupplier.get()
+                    .handleExtraCommand(context, commandName, args, callback);
+        } catch (RuntimeException e) {
+            // The binder thread would have passed this on to the browser, we tell it instead.
+            Log.e(TAG, "Extra command " + commandName + " failed", e);
+        }
+
+        Bundle callbackArgs = new Bundle();
+        if (result != null) callbackArgs.putAll(result);
+        callbackArgs.putString(ExtraCommandHandler.EXTRA_COMMAND_NAME, commandName);
+        if (result == null) {
+            callbackArgs.putBoolean(ExtraCommandHandler.EXTRA_COMMAND_SUCCESS, false);
+        }
+
+        try {
+            callback.runExtraCallback(ExtraCommandHandler.CALLBACK_EXTRA_COMMAND_RESULT,
+                    callbackArgs);
+        } catch (RemoteException e) {
+            // The browser has gone away, there's nobody left to tell.
+        }
+        return callbackArgs.getBoolean(ExtraCommandHandler.EXTRA_COMMAND_SUCCESS);
+    }
+
+    private synchronized boolean tryAcquire(String commandName, int maxConcurrentCommands) {
+        if (mPendingCommands >= mMaxPendingCommands) return false;
+
+        Integer pending = mPendingByCommand.get(commandName);
+        int pendingForCommand = pending == null ? 0 : pending;
+        if (pendingForCommand >= maxConcurrentCommands) return false;
+
+        mPendingByCommand.put(commandName, pendingForCommand + 1);
+        mPendingCommands++;
+        return true;
+    }
+
+    private synchronized void release(String commandName) {
+        Integer pending = mPendingByCommand.get(commandName);
+        if (pending == null || pending <= 1) {
+            mPendingByCommand.remove(commandName);
+        } else {
+            mPendingByCommand.put(commandName, pending - 1);
+        }
+        mPendingCommands--;
+    }
+}
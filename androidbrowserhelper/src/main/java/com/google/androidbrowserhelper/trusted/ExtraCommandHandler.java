@@ -21,12 +21,39 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.browser.trusted.TrustedWebActivityCallbackRemote;
 
+import java.util.Set;
+
 /**
  * An interface for handling extraCommand in {@link androidx.browser.trusted.TrustedWebActivityService}.
  */
 public interface ExtraCommandHandler {
     String EXTRA_COMMAND_SUCCESS = "success";
 
+    /**
+     * Experimental. Set to {@code true} in the result when the command is run off the binder
+     * thread, its handler's result follows in a {@link #CALLBACK_EXTRA_COMMAND_RESULT} callback.
+     */
+    String EXTRA_COMMAND_ASYNC = "async";
+
+    /**
+     * Set to {@code true} in the result when the command was turned down because too many
+     * commands are waiting to run. The browser may try again later.
+     */
+    String EXTRA_COMMAND_BUSY = "busy";
+
+    /**
+     * Experimental. The callback that carries the result of a command run off the binder thread.
+     * Its arguments are the handler's result with {@link #EXTRA_COMMAND_NAME} added. No browser
+     * handles it yet, and its name and arguments may change.
+     */
+    String CALLBACK_EXTRA_COMMAND_RESULT = "extraCommandResult";
+
+    /**
+     * Experimental. The name of the command a {@link #CALLBACK_EXTRA_COMMAND_RESULT} callback is
+     * for.
+     */
+    String EXTRA_COMMAND_NAME = "commandName";
+
     /**
      * Handles the free form command from the browser. The return bundle should contain a boolean
      * {@code EXTRA_COMMAND_SUCCESS}, if the command is handled, set the value to {@code true};
@@ -35,4 +62,25 @@ public interface ExtraCommandHandler {
     @NonNull
     Bundle handleExtraCommand(Context context, String commandName, Bundle args,
                               @Nullable TrustedWebActivityCallbackRemote callback);
+
+    /**
+     * Returns the names of the commands this handler handles. {@link DelegationService} uses them
+     * to pass each command straight to its handler, instead of asking every handler in turn.
+     * Handlers that return {@code null}, the default, are asked about every command that no other
+     * handler has claimed.
+     */
+    @Nullable
+    default Set<String> getCommandNames() {
+        return null;
+    }
+
+    /**
+     * Creates an {@link ExtraCommandHandler} when the first of its commands arrives, see
+     * {@link DelegationService#registerExtraCommandHandler(Set, Factory)}.
+     */
+    interface Factory {
+        /** Creates the handler. This is called at most once, on a binder or background thread. */
+        @NonNull
+        ExtraCommandHandler create();
+    }
 }
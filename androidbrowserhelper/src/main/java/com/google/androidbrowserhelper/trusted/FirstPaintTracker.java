@@ -0,0 +1,285 @@
+// Copyright 2026 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.androidbrowserhelper.trusted;
+
+import android.os.Bundle;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import androidx.browser.customtabs.CustomTabsCallback;
+
+/**
+ * Measures how long it takes from the user launching the app until the Trusted Web Activity shows
+ * the page, by timestamping the navigation events the browser sends for the first navigation of
+ * the session.
+ *
+ * Once the first navigation has finished (or failed), a {@link Report} is passed to the
+ * {@link Listener} set with {@link #setListener}. The report tells how the launch was done (the
+ * provider, the splash screen and whether it was the first launch in the process) so that the
+ * times can be broken down by those, and carries the {@link LaunchTracer} of the launch.
+ *
+ * {@link LauncherActivity} chains one with its {@link QualityEnforcer}, see
+ * {@link CompositeCustomTabsCallback}.
+ */
+public class FirstPaintTracker extends CustomTabsCallback {
+    private static final String TAG = "FirstPaintTracker";
+
+    /** No splash screen was shown. */
+    public static final String SPLASH_NONE = "none";
+    /** The splash screen was shown in the app, but not transferred to the browser. */
+    public static final String SPLASH_IN_APP = "inApp";
+    /** The splash screen was shown in the app and transferred to the browser. */
+    public static final String SPLASH_TRANSFERRED = "transferred";
+
+    /**
+     * The extra callback the browser may send page load metrics in, with times relative to
+     * {@link #KEY_NAVIGATION_START}, which is in {@link SystemClock#uptimeMillis} time.
+     */
+    @VisibleForTesting
+    static final String NAVIGATION_METRICS_CALLBACK = "NavigationMetrics";
+    @VisibleForTesting
+    static final String KEY_NAVIGATION_START = "navigationStart";
+    @VisibleForTesting
+    static final String KEY_FIRST_CONTENTFUL_PAINT = "firstContentfulPaint";
+
+    /** Receives the report of each tracked launch, on the main thread. */
+    public interface Listener {
+        void onReport(@NonNull Report report);
+    }
+
+    @Nullable
+    private static volatile Listener sListener;
+
+    private final long mLaunchUptimeMillis;
+    private final boolean mColdStart;
+    @Nullable
+    private final LaunchTracer mLaunchTracer;
+
+    // Guarded by this.
+    @Nullable
+    private String mProvider;
+    private String mSplashMode = SPLASH_NONE;
+    private long mLaunchedUptimeMillis = -1;
+    private long mNavigationStartedUptimeMillis = -1;
+    private long mTabShownUptimeMillis = -1;
+    private long mFirstContentfulPaintUptimeMillis = -1;
+    private boolean mReported;
+
+    /** The times of a launch, in milliseconds since the launch started, -1 if unknown. */
+    public static final class Report {
+        @Nullable
+        private final String mProvider;
+        private final String mSplashMode;
+        private final boolean mColdStart;
+        private final boolean mNavigationSucceeded;
+        private final long mLaunchedMillis;
+        private final long mNavigationStartedMillis;
+        private final long mTabShownMillis;
+        private final long mFirstContentfulPaintMillis;
+        private final long mNavigationFinishedMillis;
+        @Nullable
+        private final LaunchTracer mLaunchTracer;
+
+        Report(@Nullable String provider, String splashMode, boolean coldStart,
+                boolean navigationSucceeded, long launchedMillis, long navigationStartedMillis,
+                long tabShownMillis, long firstContentfulPaintMillis,
+                long navigationFinishedMillis, @Nullable LaunchTracer launchTracer) {
+            mProvider = provider;
+            mSplashMode = splashMode;
+            mColdStart = coldStart;
+            mNavigationSucceeded = navigationSucceeded;
+            mLaunchedMillis = launchedMillis;
+            mNavigationStartedMillis = navigationStartedMillis;
+            mTabShownMillis = tabShownMillis;
+            mFirstContentfulPaintMillis = firstContentfulPaintMillis;
+            mNavigationFinishedMillis = navigationFinishedMillis;
+            mLaunchTracer = launchTracer;
+        }
+
+        /** The package of the browser the Trusted Web Activity was launched in. */
+        @Nullable
+        public String getProvider() {
+            return mProvider;
+        }
+
+        /** One of {@link #SPLASH_NONE}, {@link #SPLASH_IN_APP} and {@link #SPLASH_TRANSFERRED}. */
+        @NonNull
+        public String getSplashMode() {
+            return mSplashMode;
+        }
+
+        /** Whether this was the first launch since the app's process started. */
+        public boolean isColdStart() {
+            return mColdStart;
+        }
+
+        /** Whether the navigation finished, rather than failed or was aborted. */
+        public boolean isNavigationSucceeded() {
+            return mNavigationSucceeded;
+        }
+
+        /** When the Intent was sent to the browser. */
+        public long getLaunchedMillis() {
+            return mLaunchedMillis;
+        }
+
+        /** When the browser started loading the page. */
+        public long getNavigationStartedMillis() {
+            return mNavigationStartedMillis;
+        }
+
+        /** When the browser showed the tab. */
+        public long getTabShownMillis() {
+            return mTabShownMillis;
+        }
+
+        /** When the page first painted content, if the browser reports it. */
+        public long getFirstContentfulPaintMillis() {
+            return mFirstContentfulPaintMillis;
+        }
+
+        /** When the page finished loading, or failed to. */
+        public long getNavigationFinishedMillis() {
+            return mNavigationFinishedMillis;
+        }
+
+        /**
+         * The time to the first paint the user saw: the first contentful paint if the browser
+         * reported it, otherwise the end of the navigation.
+         */
+        public long getFirstPaintMillis() {
+            return mFirstContentfulPaintMillis != -1
+                    ? mFirstContentfulPaintMillis : mNavigationFinishedMillis;
+        }
+
+        /** The trace of the launch stages, if the launch was traced. */
+        @Nullable
+        public LaunchTracer getLaunchTracer() {
+            return mLaunchTracer;
+        }
+
+        @Override
+        public String toString() {
+            return "First paint after " + getFirstPaintMillis() + "ms (provider: " + mProvider
+                    + ", splash: " + mSplashMode + ", " + (mColdStart ? "cold" : "warm")
+                    + (mNavigationSucceeded ? "" : ", navigation failed")
+                    + "), launched: " + mLaunchedMillis
+                    + "ms, navigation started: " + mNavigationStartedMillis
+                    + "ms, tab shown: " + mTabShownMillis
+                    + "ms, first contentful paint: " + mFirstContentfulPaintMillis
+                    + "ms, navigation finished: " + mNavigationFinishedMillis + "ms";
+        }
+    }
+
+    /**
+     * Sets the listener that receives the reports of all launches in the process, {@code null}
+     * to only log them.
+     */
+    public static void setListener(@Nullable Listener listener) {
+        sListener = listener;
+    }
+
+    /**
+     * @param launchUptimeMillis When the launch started, in {@link SystemClock#uptimeMillis} time.
+     * @param coldStart Whether this is the first launch since the process started.
+     * @param launchTracer The trace of the launch, to be included in the report.
+     */
+    public FirstPaintTracker(long launchUptimeMillis, boolean coldStart,
+            @Nullable LaunchTracer launchTracer) {
+        mLaunchUptimeMillis = launchUptimeMillis;
+        mColdStart = coldStart;
+        mLaunchTracer = launchTracer;
+    }
+
+    /**
+     * Call once the Intent has been sent to the browser.
+     *
+     * @param provider The package of the browser.
+     * @param splashMode One of {@link #SPLASH_NONE}, {@link #SPLASH_IN_APP} and
+     * {@link #SPLASH_TRANSFERRED}.
+     */
+    public synchronized void onLaunched(@Nullable String provider, @NonNull String splashMode) {
+        if (mLaunchedUptimeMillis != -1) return;
+        mLaunchedUptimeMillis = SystemClock.uptimeMillis();
+        mProvider = provider;
+        mSplashMode = splashMode;
+    }
+
+    @Override
+    public void onNavigationEvent(int navigationEvent, @Nullable Bundle extras) {
+        Report report;
+        synchronized (this) {
+            if (mReported) return;
+
+            long now = SystemClock.uptimeMillis();
+            switch (navigationEvent) {
+                case NAVIGATION_STARTED:
+                    if (mNavigationStartedUptimeMillis == -1) {
+                        mNavigationStartedUptimeMillis = now;
+                    }
+                    return;
+                case TAB_SHOWN:
+                    if (mTabShownUptimeMillis == -1) mTabShownUptimeMillis = now;
+                    return;
+                case NAVIGATION_FINISHED:
+                case NAVIGATION_FAILED:
+                case NAVIGATION_ABORTED:
+                    mReported = true;
+                    report = createReport(navigationEvent == NAVIGATION_FINISHED, now);
+                    break;
+                default:
+                    return;
+            }
+        }
+
+        Listener listener = sListener;
+        if (listener != null) {
+            listener.onReport(report);
+        } else {
+            Log.d(TAG, report.toString());
+        }
+    }
+
+    @Override
+    public void extraCallback(@NonNull String callbackName, @Nullable Bundle args) {
+        if (!NAVIGATION_METRICS_CALLBACK.equals(callbackName) || args == null) return;
+
+        long firstContentfulPaint = args.getLong(KEY_FIRST_CONTENTFUL_PAINT, -1);
+        long navigationStart = args.getLong(KEY_NAVIGATION_START, -1);
+        if (firstContentfulPaint == -1 || navigationStart == -1) return;
+
+        synchronized (this) {
+            if (mReported || mFirstContentfulPaintUptimeMillis != -1) return;
+            mFirstContentfulPaintUptimeMillis = navigationStart + firstContentfulPaint;
+        }
+    }
+
+    private Report createReport(boolean navigationSucceeded, long navigationFinishedUptimeMillis) {
+        return new Report(mProvider, mSplashMode, mColdStart, navigationSucceeded,
+                sinceLaunch(mLaunchedUptimeMillis),
+                sinceLaunch(mNavigationStartedUptimeMillis),
+                sinceLaunch(mTabShownUptimeMillis),
+                sinceLaunch(mFirstContentfulPaintUptimeMillis),
+                sinceLaunch(navigationFinishedUptimeMillis),
+                mLaunchTracer);
+    }
+
+    private long sinceLaunch(long uptimeMillis) {
+        return uptimeMillis == -1 ? -1 : uptimeMillis - mLaunchUptimeMillis;
+    }
+}
@@ -34,13 +34,23 @@ public class FocusActivity extends Activity {
 
     private static Boolean mActivityExistsCached;
 
+    /**
+     * Lets the caller provide whether this Activity is declared in the app's manifest (e.g.
+     * because it has been checked during a previous launch), saving a query to the PackageManager.
+     */
+    static void setActivityExists(boolean activityExists) {
+        mActivityExistsCached = activityExists;
+    }
+
     public static void addToIntent(Intent containerIntent, Context context) {
         Intent focusIntent = new Intent(context, FocusActivity.class);
 
         // This class may not be included in app's manifest, don't add it in that case.
         if (mActivityExistsCached == null) {
+            long ipcStart = LaunchTracer.startIpc();
             mActivityExistsCached =
                     focusIntent.resolveActivityInfo(context.getPackageManager(), 0) != null;
+            LaunchTracer.endIpc("PackageManager.resolveActivityInfo", ipcStart);
         }
         if (Boolean.FALSE.equals(mActivityExistsCached)) return;
 
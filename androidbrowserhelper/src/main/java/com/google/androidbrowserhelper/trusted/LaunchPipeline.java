@@ -0,0 +1,493 @@
+// Copyright 2026 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.androidbrowserhelper.trusted;
+
+import android.os.CancellationSignal;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.IntDef;
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Runs the steps of a launch as a graph of named {@link Stage}s. A stage starts as soon as all of
+ * the stages it depends on have completed, so independent stages run concurrently: on the main
+ * thread they are interleaved, on the background executor they run in parallel.
+ *
+ * Each stage finishes by calling {@link StageContext#complete} (possibly asynchronously and from
+ * any thread) with a result that the stages depending on it can read. A stage may have a deadline
+ * and a fallback result: if it fails or misses its deadline, it completes with the fallback
+ * instead. A stage without a fallback that fails or misses its deadline fails the whole pipeline.
+ *
+ * Work a stage has in flight when its result stops being wanted (because the stage missed its
+ * deadline, or the pipeline was cancelled or failed) can be stopped through the stage's
+ * {@link StageContext#getCancellationSignal}.
+ *
+ * The pipeline must be configured and started on the main thread, and the {@link Listener} is
+ * notified on the main thread.
+ */
+public class LaunchPipeline {
+    private static final String TAG = "LaunchPipeline";
+
+    /** Where a {@link Stage} runs. */
+    @IntDef({RunOn.MAIN_THREAD, RunOn.BACKGROUND})
+    @Retention(RetentionPolicy.SOURCE)
+    public @interface RunOn {
+        /** The stage runs on the main thread, e.g. because it touches the UI. */
+        int MAIN_THREAD = 0;
+        /** The stage runs on the pipeline's background executor, e.g. because it does I/O. */
+        int BACKGROUND = 1;
+    }
+
+    /** The work of a {@link Stage}. */
+    public interface Task {
+        /**
+         * Performs the stage. Implementations must eventually call {@link StageContext#complete}
+         * or {@link StageContext#fail}, either before returning or later from any thread.
+         * Throwing a {@link RuntimeException} is equivalent to calling {@link StageContext#fail}.
+         */
+        void run(@NonNull StageContext context);
+    }
+
+    /** Notified on the main thread once the pipeline has run to the end. */
+    public interface Listener {
+        /** All stages have completed. */
+        void onCompleted();
+
+        /**
+         * A stage without a fallback has failed or missed its deadline. No further stages are
+         * started.
+         */
+        void onFailed(@NonNull String stageName, @Nullable Throwable error);
+    }
+
+    private static final int STATE_PENDING = 0;
+    private static final int STATE_RUNNING = 1;
+    private static final int STATE_DONE = 2;
+
+    private final Executor mExecutor;
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final Map<String, Stage> mStages = new LinkedHashMap<>();
+
+    @Nullable
+    private Listener mListener;
+    @Nullable
+    private LaunchTracer mTracer;
+
+    private boolean mStarted;
+    // Read by background stages through StageContext#isCancelled.
+    private volatile boolean mFinished;
+    private boolean mCancelled;
+
+    private boolean mScheduling;
+    private boolean mRescheduleNeeded;
+
+    /**
+     * A step of the launch. Create it with the work it performs, then declare its dependencies,
+     * deadline and fallback before adding it to a {@link LaunchPipeline}.
+     */
+    public static final class Stage {
+        private final String mName;
+        @RunOn
+        private final int mRunOn;
+        private final Task mTask;
+        private final Set<String> mDependencies = new HashSet<>();
+        private final CancellationSignal mCancellationSignal = new CancellationSignal();
+
+        private long mDeadlineMillis;
+        private boolean mHasFallback;
+        @Nullable
+        private Object mFallbackResult;
+
+        private int mState = STATE_PENDING;
+        @Nullable
+        private Object mResult;
+        @Nullable
+        private Runnable mDeadlineRunnable;
+        private long mStartUptimeMillis;
+        private long mEndUptimeMillis;
+
+        /**
+         * @param name Name of the stage, unique within a pipeline.
+         * @param runOn Where the {@link Task} is run.
+         * @param task The work this stage performs.
+         */
+        public Stage(@NonNull String name, @RunOn int runOn, @NonNull Task task) {
+            mName = name;
+            mRunOn = runOn;
+            mTask = task;
+        }
+
+        /** Declares that this stage may only start once the given stages have completed. */
+        @NonNull
+        public Stage dependsOn(@NonNull String... stageNames) {
+            mDependencies.addAll(Arrays.asList(stageNames));
+            return this;
+        }
+
+        /**
+         * Sets how long this stage may take once it has started. When the deadline is missed,
+         * the stage completes with its fallback result, or fails the pipeline if it has none.
+         * Zero (the default) means no deadline.
+         */
+        @NonNull
+        public Stage setDeadlineMillis(long deadlineMillis) {
+            mDeadlineMillis = deadlineMillis;
+            return this;
+        }
+
+        /**
+         * Sets the result this stage completes with if it fails or misses its deadline, which
+         * makes the stage optional for the rest of the pipeline.
+         */
+        @NonNull
+        public Stage setFallback(@Nullable Object fallbackResult) {
+            mHasFallback = true;
+            mFallbackResult = fallbackResult;
+            return this;
+        }
+
+        @NonNull
+        public String getName() {
+            return mName;
+        }
+
+        /** Returns the names of the stages this stage depends on. */
+        @NonNull
+        public Set<String> getDependencies() {
+            return Collections.unmodifiableSet(mDependencies);
+        }
+
+        /** Returns how long the stage took to complete, or -1 if it hasn't completed. */
+        public long getDurationMillis() {
+            if (mState != STATE_DONE) return -1;
+            return mEndUptimeMillis - mStartUptimeMillis;
+        }
+    }
+
+    /** Handed to a {@link Task} to read the results of other stages and report its own. */
+    public final class StageContext {
+        private final Stage mStage;
+
+        private StageContext(Stage stage) {
+            mStage = stage;
+        }
+
+        /**
+         * Returns the result of a stage this stage depends on.
+         */
+        @Nullable
+        @SuppressWarnings("unchecked")
+        public <T> T getResult(@NonNull String stageName) {
+            Stage stage = mStages.get(stageName);
+            if (stage == null || !mStage.mDependencies.contains(stageName)) {
+                throw new IllegalArgumentException(
+                        mStage.mName + " doesn't depend on " + stageName);
+            }
+            return (T) stage.mResult;
+        }
+
+        /**
+         * Whether the pipeline has been cancelled or has failed, or this stage has failed or
+         * missed its deadline, so the work can be dropped.
+         */
+        public boolean isCancelled() {
+            return mFinished || mStage.mCancellationSignal.isCanceled();
+        }
+
+        /**
+         * Returns the signal that is cancelled, on the main thread, when the result of this stage
+         * is no longer wanted: the stage has failed or missed its deadline, or the pipeline has
+         * been cancelled or has failed. Hand it to the work the stage has in flight so that it
+         * stops and releases what it holds. A {@link CancellationSignal} only takes one listener,
+         * so a stage can only hand it to one piece of work.
+         */
+        @NonNull
+        public CancellationSignal getCancellationSignal() {
+            return mStage.mCancellationSignal;
+        }
+
+        /** Completes the stage with the given result. Can be called from any thread. */
+        public void complete(@Nullable Object result) {
+            runOnMainThread(() -> onStageCompleted(mStage, result));
+        }
+
+        /** Fails the stage. Can be called from any thread. */
+        public void fail(@Nullable Throwable error) {
+            runOnMainThread(() -> onStageFailed(mStage, error));
+        }
+    }
+
+    /** Creates a pipeline that runs background stages on the library's thread pool. */
+    public LaunchPipeline() {
+        this(BackgroundExecutors.getPool());
+    }
+
+    /** Creates a pipeline that runs background stages on the given {@link Executor}. */
+    public LaunchPipeline(@NonNull Executor executor) {
+        mExecutor = executor;
+    }
+
+    /**
+     * Adds a stage. Stages must be added before the pipeline is started, and stages that are
+     * ready at the same time are started in the order they were added.
+     */
+    @MainThread
+    public void addStage(@NonNull Stage stage) {
+        if (mStarted) {
+            throw new IllegalStateException("Can't add " + stage.mName + ", already started");
+        }
+        if (mStages.containsKey(stage.mName)) {
+            throw new IllegalArgumentException("Duplicate stage " + stage.mName);
+        }
+        mStages.put(stage.mName, stage);
+    }
+
+    /**
+     * Returns the stage with the given name, e.g. to make it depend on an additional stage, or
+     * {@code null} if there is none.
+     */
+    @Nullable
+    public Stage getStage(@NonNull String stageName) {
+        return mStages.get(stageName);
+    }
+
+    /**
+     * Records the stage durations in the given tracer, and attributes the calls made while a
+     * stage runs to that stage.
+     */
+    @MainThread
+    public void setTracer(@Nullable LaunchTracer tracer) {
+        mTracer = tracer;
+    }
+
+    /**
+     * Starts running the stages.
+     *
+     * @throws IllegalStateException if a stage depends on an unknown stage, or if the
+     * dependencies form a cycle.
+     */
+    @MainThread
+    public void start(@NonNull Listener listener) {
+        if (mStarted) throw new IllegalStateException("Already started");
+        checkDependencies();
+        mStarted = true;
+        mListener = listener;
+        scheduleReadyStages();
+    }
+
+    /**
+     * Stops the pipeline: no further stages are started, and the results of the stages in flight
+     * are ignored. The {@link Listener} isn't notified.
+     */
+    @MainThread
+    public void cancel() {
+        if (mFinished) return;
+        mCancelled = true;
+        finish();
+    }
+
+    /** Whether {@link #cancel} has been called. */
+    public boolean isCancelled() {
+        return mCancelled;
+    }
+
+    /**
+     * Returns the result of the given stage, or {@code null} if it hasn't completed.
+     */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public <T> T getResult(@NonNull String stageName) {
+        Stage stage = mStages.get(stageName);
+        if (stage == null || stage.mState != STATE_DONE) return null;
+        return (T) stage.mResult;
+    }
+
+    private void checkDependencies() {
+        for (Stage stage : mStages.values()) {
+            for (String dependency : stage.mDependencies) {
+                if (!mStages.containsKey(dependency)) {
+                    throw new IllegalStateException(
+                            stage.mName + " depends on unknown stage " + dependency);
+                }
+            }
+        }
+
+        // Repeatedly drop the stages whose dependencies have all been dropped, whatever is left
+        // is part of a cycle.
+        Set<String> resolved = new HashSet<>();
+        List<Stage> unresolved = new ArrayList<>(mStages.values());
+        boolean progress = true;
+        while (progress && !unresolved.isEmpty()) {
+            progress = false;
+            for (int i = unresolved.size() - 1; i >= 0; i--) {
+                Stage stage = unresolved.get(i);
+                if (resolved.containsAll(stage.mDependencies)) {
+                    resolved.add(stage.mName);
+                    unresolved.remove(i);
+                    progress = true;
+                }
+            }
+        }
+        if (!unresolved.isEmpty()) {
+            throw new IllegalStateException("Stage " + unresolved.get(0).mName
+                    + " is part of a dependency cycle");
+        }
+    }
+
+    private void scheduleReadyStages() {
+        // Main thread stages may complete synchronously, which brings us back here.
+        if (mScheduling) {
+            mRescheduleNeeded = true;
+            return;
+        }
+
+        mScheduling = true;
+        do {
+            mRescheduleNeeded = false;
+            for (Stage stage : mStages.values()) {
+                if (mFinished) break;
+                if (stage.mState == STATE_PENDING && dependenciesDone(stage)) {
+                    startStage(stage);
+                }
+            }
+        } while (mRescheduleNeeded && !mFinished);
+        mScheduling = false;
+
+        if (!mFinished && allStagesDone()) {
+            finish();
+            if (mListener != null) mListener.onCompleted();
+        }
+    }
+
+    private void startStage(Stage stage) {
+        stage.mState = STATE_RUNNING;
+        stage.mStartUptimeMillis = SystemClock.uptimeMillis();
+
+        if (stage.mDeadlineMillis > 0) {
+            stage.mDeadlineRunnable = () -> onStageTimedOut(stage);
+            mHandler.postDelayed(stage.mDeadlineRunnable, stage.mDeadlineMillis);
+        }
+
+        StageContext context = new StageContext(stage);
+        Runnable runTask = () -> {
+            String previousStage = LaunchTracer.enterStage(stage.mName);
+            try {
+                stage.mTask.run(context);
+            } catch (RuntimeException e) {
+                context.fail(e);
+            } finally {
+                LaunchTracer.exitStage(previousStage);
+            }
+        };
+
+        if (stage.mRunOn == RunOn.BACKGROUND) {
+            mExecutor.execute(runTask);
+        } else {
+            runTask.run();
+        }
+    }
+
+    private void onStageCompleted(Stage stage, @Nullable Object result) {
+        if (mFinished || stage.mState != STATE_RUNNING) return;
+
+        stage.mState = STATE_DONE;
+        stage.mResult = result;
+        stage.mEndUptimeMillis = SystemClock.uptimeMillis();
+        if (stage.mDeadlineRunnable != null) {
+            mHandler.removeCallbacks(stage.mDeadlineRunnable);
+            stage.mDeadlineRunnable = null;
+        }
+        Log.d(TAG, "Stage " + stage.mName + " completed in " + stage.getDurationMillis() + "ms");
+        if (mTracer != null) mTracer.recordStageDuration(stage.mName, stage.getDurationMillis());
+
+        scheduleReadyStages();
+    }
+
+    private void onStageFailed(Stage stage, @Nullable Throwable error) {
+        if (mFinished || stage.mState != STATE_RUNNING) return;
+
+        stage.mCancellationSignal.cancel();
+        if (stage.mHasFallback) {
+            Log.w(TAG, "Stage " + stage.mName + " failed, using its fallback.", error);
+            onStageCompleted(stage, stage.mFallbackResult);
+            return;
+        }
+
+        Log.w(TAG, "Stage " + stage.mName + " failed.", error);
+        finish();
+        if (mListener != null) mListener.onFailed(stage.mName, error);
+    }
+
+    private void onStageTimedOut(Stage stage) {
+        stage.mDeadlineRunnable = null;
+        onStageFailed(stage, new TimeoutException(
+                stage.mName + " missed its deadline of " + stage.mDeadlineMillis + "ms"));
+    }
+
+    private void finish() {
+        mFinished = true;
+        for (Stage stage : mStages.values()) {
+            if (stage.mDeadlineRunnable != null) {
+                mHandler.removeCallbacks(stage.mDeadlineRunnable);
+                stage.mDeadlineRunnable = null;
+            }
+            // Only the stages still running when the pipeline is cancelled or fails have work
+            // in flight that is no longer wanted.
+            if (stage.mState == STATE_RUNNING) {
+                stage.mCancellationSignal.cancel();
+            }
+        }
+    }
+
+    private boolean dependenciesDone(Stage stage) {
+        for (String dependency : stage.mDependencies) {
+            if (mStages.get(dependency).mState != STATE_DONE) return false;
+        }
+        return true;
+    }
+
+    private boolean allStagesDone() {
+        for (Stage stage : mStages.values()) {
+            if (stage.mState != STATE_DONE) return false;
+        }
+        return true;
+    }
+
+    private void runOnMainThread(Runnable runnable) {
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            runnable.run();
+        } else {
+            mHandler.post(runnable);
+        }
+    }
+}
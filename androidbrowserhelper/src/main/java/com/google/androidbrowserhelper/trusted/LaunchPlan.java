@@ -0,0 +1,540 @@
+// Copyright 2026 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.androidbrowserhelper.trusted;
+
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.content.pm.PackageManager;
+import android.content.pm.ResolveInfo;
+import android.os.Bundle;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import androidx.annotation.WorkerThread;
+import androidx.browser.customtabs.TrustedWebUtils;
+import androidx.browser.trusted.splashscreens.SplashScreenVersion;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A snapshot of the parts of a Trusted Web Activity launch that are the same from one launch to the
+ * next: the {@link LauncherActivity} metadata, the chosen provider and its launch mode, the other
+ * Trusted Web Activity providers to fail over to, whether the provider supports splash screens and
+ * whether {@link FocusActivity} is declared.
+ *
+ * The plan is serialized into the {@link LaunchStateStore} after a launch, and read back along
+ * with the rest of the library's state on the next cold start. Each section is validated before
+ * use:
+ * - The metadata section is tied to the launching component and this app's APK, so it goes stale
+ *   when the app is updated.
+ * - The provider section is tied to the provider's last update time and to the user's default
+ *   browser, so it goes stale when either changes.
+ * Stale sections are simply ignored, and recomputed the usual way.
+ *
+ * All file access happens on a background thread, see {@link #preload}.
+ */
+class LaunchPlan {
+    private static final String TAG = "LaunchPlan";
+
+    private static final int FORMAT_VERSION = 2;
+
+    private static final byte TYPE_STRING = 0;
+    private static final byte TYPE_INT = 1;
+    private static final byte TYPE_BOOLEAN = 2;
+    private static final byte TYPE_FLOAT = 3;
+
+    private static final byte UNKNOWN = -1;
+
+    private static final Executor sExecutor = BackgroundExecutors.newSequentialExecutor();
+
+    /** Whether we've attempted to read the plan in this process. */
+    private static boolean sLoaded;
+
+    /** Reads the plan from the {@link LaunchStateStore}, started by {@link #preload}. */
+    @Nullable
+    private static FutureTask<LaunchPlan> sLoadTask;
+
+    /** The modification time of this app's APK, read along with the plan, -1 if not read yet. */
+    private static volatile long sAppApkLastModified = -1;
+
+    /** Incremented by {@link #clear}, so that saves scheduled before it are dropped. */
+    private static final AtomicInteger sGeneration = new AtomicInteger();
+
+    @Nullable
+    private static volatile LaunchPlan sLaunchPlan;
+
+    private final String mComponentName;
+    private final String mAppSourceDir;
+    private final long mAppApkLastModified;
+    private final Bundle mMetaData;
+    private final byte mFocusActivityDeclared;
+
+    @Nullable
+    private final String mProviderPackage;
+    @TwaProviderPicker.LaunchMode
+    private final int mLaunchMode;
+    private final long mProviderLastUpdateTime;
+    @Nullable
+    private final String mDefaultBrowserPackage;
+    private final byte mProviderSupportsSplashScreens;
+    private final List<String> mAlternativeTwaProviders;
+
+    @VisibleForTesting
+    LaunchPlan(String componentName, String appSourceDir, long appApkLastModified,
+            Bundle metaData, byte focusActivityDeclared, @Nullable String providerPackage,
+            @TwaProviderPicker.LaunchMode int launchMode, long providerLastUpdateTime,
+            @Nullable String defaultBrowserPackage, byte providerSupportsSplashScreens,
+            List<String> alternativeTwaProviders) {
+        mComponentName = componentName;
+        mAppSourceDir = appSourceDir;
+        mAppApkLastModified = appApkLastModified;
+        mMetaData = metaData;
+        mFocusActivityDeclared = focusActivityDeclared;
+        mProviderPackage = providerPackage;
+        mLaunchMode = launchMode;
+        mProviderLastUpdateTime = providerLastUpdateTime;
+        mDefaultBrowserPackage = defaultBrowserPackage;
+        mProviderSupportsSplashScreens = providerSupportsSplashScreens;
+        mAlternativeTwaProviders =
+                Collections.unmodifiableList(new ArrayList<>(alternativeTwaProviders));
+    }
+
+    /**
+     * Starts reading the launch plan on a background thread, if that hasn't been done yet in this
+     * process. Call this as early as possible so that {@link #get} doesn't have to wait.
+     */
+    static void preload(Context context) {
+        startLoad(context);
+    }
+
+    /**
+     * Returns the launch plan saved by a previous launch, or {@code null} if there is none. The
+     * plan is only read the first time this is called in a process, on a background thread that
+     * this waits for.
+     */
+    @WorkerThread
+    @Nullable
+    static LaunchPlan get(Context context) {
+        if (!sLoaded) finishLoad(startLoad(context));
+        return sLaunchPlan;
+    }
+
+    /**
+     * Returns the launch plan like {@link #get}, if it has already been read in this process.
+     * Returns {@code null} rather than waiting otherwise, so this may be called on the main thread.
+     */
+    @Nullable
+    static LaunchPlan getIfLoaded() {
+        FutureTask<LaunchPlan> loadTask;
+        synchronized (LaunchPlan.class) {
+            if (sLoaded) return sLaunchPlan;
+            loadTask = sLoadTask;
+        }
+        if (loadTask == null || !loadTask.isDone()) return null;
+        finishLoad(loadTask);
+        return sLaunchPlan;
+    }
+
+    /** Forgets the plan read in this process, so that it is read again from the store. */
+    @VisibleForTesting
+    static synchronized void resetForTesting() {
+        sGeneration.incrementAndGet();
+        sLaunchPlan = null;
+        sLoaded = false;
+        sLoadTask = null;
+    }
+
+    /**
+     * Returns the metadata of the given component, if it was recorded by this version of the app.
+     */
+    @Nullable
+    Bundle getMetaData(Context context, ComponentName componentName) {
+        if (!isAppSectionValid(context, componentName)) return null;
+        return new Bundle(mMetaData);
+    }
+
+    /**
+     * Returns whether {@link FocusActivity} is declared in the manifest, or {@code null} if that is
+     * not known for this version of the app.
+     */
+    @Nullable
+    Boolean isFocusActivityDeclared(Context context, ComponentName componentName) {
+        if (!isAppSectionValid(context, componentName)) return null;
+        return toBoolean(mFocusActivityDeclared);
+    }
+
+    /**
+     * Returns the Trusted Web Activity provider chosen by the previous launch, provided that it is
+     * still installed at the same version and the user's default browser hasn't changed since.
+     * Returns {@code null} otherwise, or if the previous launch didn't use a Trusted Web Activity.
+     */
+    @Nullable
+    String getTwaProvider(PackageManager pm) {
+        if (mLaunchMode != TwaProviderPicker.LaunchMode.TRUSTED_WEB_ACTIVITY) return null;
+        if (mProviderPackage == null) return null;
+        if (getLastUpdateTime(pm, mProviderPackage) != mProviderLastUpdateTime) return null;
+        if (!equals(mDefaultBrowserPackage, getDefaultBrowserPackage(pm))) return null;
+        return mProviderPackage;
+    }
+
+    /**
+     * Returns how to launch the provider returned by {@link #getTwaProvider}, along with the other
+     * Trusted Web Activity providers to fail over to, in the order {@link TwaProviderPicker} found
+     * them in. Returns {@code null} if there is no valid provider or the policy rejects it. The
+     * alternatives that the policy rejects are left out.
+     */
+    @Nullable
+    TwaProviderPicker.Action getTwaAction(PackageManager pm,
+            @Nullable TwaProviderPicker.ProviderPolicy policy) {
+        String provider = getTwaProvider(pm);
+        if (provider == null || (policy != null && !policy.canLaunchTwa(provider))) return null;
+
+        List<String> alternatives = new ArrayList<>();
+        for (String alternative : mAlternativeTwaProviders) {
+            if (policy == null || policy.canLaunchTwa(alternative)) alternatives.add(alternative);
+        }
+        return new TwaProviderPicker.Action(TwaProviderPicker.LaunchMode.TRUSTED_WEB_ACTIVITY,
+                provider, alternatives);
+    }
+
+    /**
+     * Returns whether the provider returned by {@link #getTwaProvider} supports splash screens, or
+     * {@code null} if not known.
+     */
+    @Nullable
+    Boolean providerSupportsSplashScreens() {
+        return toBoolean(mProviderSupportsSplashScreens);
+    }
+
+    /**
+     * Records the launch that has just happened, if it differs from the current plan. The work is
+     * done on a background thread.
+     */
+    static void save(Context context, ComponentName componentName, Bundle metaData,
+            @Nullable String providerPackage, @TwaProviderPicker.LaunchMode int launchMode,
+            List<String> alternativeTwaProviders) {
+        Context appContext = context.getApplicationContext();
+        LaunchPlan current = sLaunchPlan;
+        Bundle metaDataCopy = new Bundle(metaData);
+        int generation = sGeneration.get();
+        sExecutor.execute(() -> {
+            LaunchPlan plan = create(appContext, componentName.flattenToString(), metaDataCopy,
+                    providerPackage, launchMode, alternativeTwaProviders, current);
+            if (plan == current) return;
+
+            synchronized (LaunchPlan.class) {
+                if (generation != sGeneration.get()) return;
+                sLaunchPlan = plan;
+            }
+            plan.write(LaunchStateStore.getInstance(appContext));
+        });
+    }
+
+    /** Deletes the saved launch plan, e.g. because using it has led to a failed launch. */
+    static void clear(Context context) {
+        synchronized (LaunchPlan.class) {
+            sGeneration.incrementAndGet();
+            sLaunchPlan = null;
+            sLoaded = true;
+        }
+        LaunchStateStore.getInstance(context).setLaunchPlan(null);
+    }
+
+    /**
+     * Creates a plan for the given launch. Returns {@code current} if it is already up to date, so
+     * that features that are expensive to query are only checked when something has changed.
+     */
+    @WorkerThread
+    private static LaunchPlan create(Context context, String componentName, Bundle metaData,
+            @Nullable String providerPackage, @TwaProviderPicker.LaunchMode int launchMode,
+            List<String> alternativeTwaProviders, @Nullable LaunchPlan current) {
+        PackageManager pm = context.getPackageManager();
+        String appSourceDir = getAppSourceDir(context);
+        long appApkLastModified = new File(appSourceDir).lastModified();
+        long providerLastUpdateTime =
+                providerPackage == null ? 0 : getLastUpdateTime(pm, providerPackage);
+        String defaultBrowserPackage = getDefaultBrowserPackage(pm);
+
+        if (current != null
+                && current.mComponentName.equals(componentName)
+                && current.mAppSourceDir.equals(appSourceDir)
+                && current.mAppApkLastModified == appApkLastModified
+                && equals(current.mProviderPackage, providerPackage)
+                && current.mLaunchMode == launchMode
+                && current.mProviderLastUpdateTime == providerLastUpdateTime
+                && equals(current.mDefaultBrowserPackage, defaultBrowserPackage)
+                && current.mAlternativeTwaProviders.equals(alternativeTwaProviders)) {
+            return current;
+        }
+
+        long ipcStart = LaunchTracer.startIpc();
+        boolean focusActivityDeclared = new Intent(context, FocusActivity.class)
+                .resolveActivityInfo(pm, 0) != null;
+        LaunchTracer.endIpc("PackageManager.resolveActivityInfo", ipcStart);
+        byte supportsSplashScreens = UNKNOWN;
+        if (providerPackage != null
+                && launchMode == TwaProviderPicker.LaunchMode.TRUSTED_WEB_ACTIVITY) {
+            ipcStart = LaunchTracer.startIpc();
+            supportsSplashScreens = fromBoolean(TrustedWebUtils.areSplashScreensSupported(
+                    context, providerPackage, SplashScreenVersion.V1));
+            LaunchTracer.endIpc("PackageManager.queryIntentServices", ipcStart);
+        }
+
+        return new LaunchPlan(componentName, appSourceDir, appApkLastModified, metaData,
+                fromBoolean(focusActivityDeclared), providerPackage, launchMode,
+                providerLastUpdateTime, defaultBrowserPackage, supportsSplashScreens,
+                alternativeTwaProviders);
+    }
+
+    private boolean isAppSectionValid(Context context, ComponentName componentName) {
+        if (!mComponentName.equals(componentName.flattenToString())) return false;
+
+        // The APK's path and modification time change whenever the app is updated, and reading
+        // them doesn't involve a call to the PackageManager.
+        String appSourceDir = getAppSourceDir(context);
+        return mAppSourceDir.equals(appSourceDir)
+                && mAppApkLastModified == getAppApkLastModified(appSourceDir);
+    }
+
+    @VisibleForTesting
+    byte[] serialize() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(FORMAT_VERSION);
+        out.writeUTF(mComponentName);
+        out.writeUTF(mAppSourceDir);
+        out.writeLong(mAppApkLastModified);
+        writeMetaData(out, mMetaData);
+        out.writeByte(mFocusActivityDeclared);
+        writeNullableString(out, mProviderPackage);
+        out.writeInt(mLaunchMode);
+        out.writeLong(mProviderLastUpdateTime);
+        writeNullableString(out, mDefaultBrowserPackage);
+        out.writeByte(mProviderSupportsSplashScreens);
+        out.writeInt(mAlternativeTwaProviders.size());
+        for (String provider : mAlternativeTwaProviders) {
+            out.writeUTF(provider);
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    @VisibleForTesting
+    @Nullable
+    static LaunchPlan deserialize(byte[] data) {
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+            if (in.readInt() != FORMAT_VERSION) return null;
+            return new LaunchPlan(
+                    in.readUTF(),
+                    in.readUTF(),
+                    in.readLong(),
+                    readMetaData(in),
+                    in.readByte(),
+                    readNullableString(in),
+                    in.readInt(),
+                    in.readLong(),
+                    readNullableString(in),
+                    in.readByte(),
+                    readStringList(in));
+        } catch (IOException e) {
+            Log.w(TAG, "Ignoring malformed launch plan.", e);
+            return null;
+        }
+    }
+
+    private static synchronized FutureTask<LaunchPlan> startLoad(Context context) {
+        if (sLoadTask == null) {
+            Context appContext = context.getApplicationContext();
+            sLoadTask = new FutureTask<>(() -> {
+                sAppApkLastModified = new File(getAppSourceDir(appContext)).lastModified();
+                byte[] data = LaunchStateStore.getInstance(appContext).getLaunchPlan();
+                return data == null ? null : deserialize(data);
+            });
+            sExecutor.execute(sLoadTask);
+        }
+        return sLoadTask;
+    }
+
+    private static void finishLoad(FutureTask<LaunchPlan> loadTask) {
+        LaunchPlan plan = awaitLoad(loadTask);
+        synchronized (LaunchPlan.class) {
+            // The plan may have been replaced or cleared while we were waiting.
+            if (!sLoaded) sLaunchPlan = plan;
+            sLoaded = true;
+        }
+    }
+
+    @Nullable
+    private static LaunchPlan awaitLoad(FutureTask<LaunchPlan> loadTask) {
+        if (!loadTask.isDone()) BackgroundExecutors.noteWait("LaunchPlan waiting for load");
+        // Load the plan here if that hasn't started yet, rather than waiting for the executor to
+        // get to it, which it may not while its threads are taken by tasks waiting like us. This
+        // does nothing if the load has started, or finished, already.
+        loadTask.run();
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return loadTask.get();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } catch (ExecutionException e) {
+            Log.w(TAG, "Failed to read the launch plan.", e.getCause());
+            return null;
+        } finally {
+            if (interrupted) Thread.currentThread().interrupt();
+        }
+    }
+
+    @WorkerThread
+    private void write(LaunchStateStore store) {
+        try {
+            store.setLaunchPlan(serialize());
+        } catch (IOException e) {
+            // Not expected when writing to memory.
+            Log.w(TAG, "Failed to serialize the launch plan.", e);
+        }
+    }
+
+    private static void writeMetaData(DataOutputStream out, Bundle metaData) throws IOException {
+        out.writeInt(metaData.size());
+        for (String key : metaData.keySet()) {
+            Object value = metaData.get(key);
+            out.writeUTF(key);
+            if (value instanceof Integer) {
+                out.writeByte(TYPE_INT);
+                out.writeInt((Integer) value);
+            } else if (value instanceof Boolean) {
+                out.writeByte(TYPE_BOOLEAN);
+                out.writeBoolean((Boolean) value);
+            } else if (value instanceof Float) {
+                out.writeByte(TYPE_FLOAT);
+                out.writeFloat((Float) value);
+            } else {
+                // Manifest meta-data can only contain the types above and Strings.
+                out.writeByte(TYPE_STRING);
+                out.writeUTF(String.valueOf(value));
+            }
+        }
+    }
+
+    private static Bundle readMetaData(DataInputStream in) throws IOException {
+        Bundle metaData = new Bundle();
+        int size = in.readInt();
+        for (int i = 0; i < size; i++) {
+            String key = in.readUTF();
+            byte type = in.readByte();
+            switch (type) {
+                case TYPE_INT:
+                    metaData.putInt(key, in.readInt());
+                    break;
+                case TYPE_BOOLEAN:
+                    metaData.putBoolean(key, in.readBoolean());
+                    break;
+                case TYPE_FLOAT:
+                    metaData.putFloat(key, in.readFloat());
+                    break;
+                case TYPE_STRING:
+                    metaData.putString(key, in.readUTF());
+                    break;
+                default:
+                    throw new IOException("Unknown meta-data type: " + type);
+            }
+        }
+        return metaData;
+    }
+
+    private static void writeNullableString(DataOutputStream out, @Nullable String value)
+            throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) out.writeUTF(value);
+    }
+
+    @Nullable
+    private static String readNullableString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static List<String> readStringList(DataInputStream in) throws IOException {
+        int size = in.readInt();
+        if (size < 0) throw new IOException("Negative list size: " + size);
+        List<String> list = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            list.add(in.readUTF());
+        }
+        return list;
+    }
+
+    private static long getLastUpdateTime(PackageManager pm, String packageName) {
+        long ipcStart = LaunchTracer.startIpc();
+        try {
+            return pm.getPackageInfo(packageName, 0).lastUpdateTime;
+        } catch (PackageManager.NameNotFoundException e) {
+            return 0;
+        } finally {
+            LaunchTracer.endIpc("PackageManager.getPackageInfo", ipcStart);
+        }
+    }
+
+    @Nullable
+    private static String getDefaultBrowserPackage(PackageManager pm) {
+        long ipcStart = LaunchTracer.startIpc();
+        ResolveInfo info = pm.resolveActivity(TwaProviderPicker.createBrowserQueryIntent(),
+                PackageManager.MATCH_DEFAULT_ONLY);
+        LaunchTracer.endIpc("PackageManager.resolveActivity", ipcStart);
+        return info == null || info.activityInfo == null ? null : info.activityInfo.packageName;
+    }
+
+    private static String getAppSourceDir(Context context) {
+        String sourceDir = context.getApplicationInfo().sourceDir;
+        return sourceDir == null ? "" : sourceDir;
+    }
+
+    private static long getAppApkLastModified(String appSourceDir) {
+        // Updating the app kills its process, so the value read along with the plan stays valid.
+        long lastModified = sAppApkLastModified;
+        return lastModified != -1 ? lastModified : new File(appSourceDir).lastModified();
+    }
+
+    private static byte fromBoolean(boolean value) {
+        return (byte) (value ? 1 : 0);
+    }
+
+    @Nullable
+    private static Boolean toBoolean(byte value) {
+        return value == UNKNOWN ? null : value == 1;
+    }
+
+    private static boolean equals(@Nullable String a, @Nullable String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+}
@@ -0,0 +1,94 @@
+// Copyright 2026 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.androidbrowserhelper.trusted;
+
+import android.net.Uri;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.browser.trusted.TrustedWebActivityIntentBuilder;
+
+/**
+ * Asynchronous work that {@link LauncherActivity} waits for before launching the Trusted Web
+ * Activity, such as fetching an analytics id to add to the URL or checking whether the device is
+ * online. See {@link LauncherActivity#getLaunchPrerequisites}.
+ *
+ * Prerequisites run in parallel with the launch preparation done by the library (picking the
+ * browser, connecting to it and showing the splash screen). If they haven't all reported a
+ * result by the deadline, the launch proceeds with the results reported so far.
+ */
+public interface LaunchPrerequisite {
+    /**
+     * Starts the work. Called on the main thread, must not block.
+     *
+     * @param callback To be called exactly once, from any thread, when the work is done.
+     */
+    void start(@NonNull Callback callback);
+
+    /** Receives the outcome of a {@link LaunchPrerequisite}. */
+    interface Callback {
+        /**
+         * @param result How the launch should be changed, or {@code null} if it shouldn't.
+         */
+        void onReady(@Nullable Result result);
+    }
+
+    /**
+     * How a {@link LaunchPrerequisite} changes the launch. Results are merged in the order the
+     * prerequisites were returned from {@link LauncherActivity#getLaunchPrerequisites}.
+     */
+    interface Result {
+        /** A result that stops the launch, e.g. to show an offline screen instead. */
+        Result CANCEL_LAUNCH = new Result() {
+            @Override
+            public boolean shouldLaunch() {
+                return false;
+            }
+        };
+
+        /** Returns the URL to launch, given the URL the launch would otherwise use. */
+        @NonNull
+        default Uri transformLaunchUrl(@NonNull Uri launchUrl) {
+            return launchUrl;
+        }
+
+        /**
+         * Adds to the {@link TrustedWebActivityIntentBuilder} that is going to be launched, after
+         * the launch URL has been decided.
+         */
+        default void applyTo(@NonNull TrustedWebActivityIntentBuilder builder) {}
+
+        /**
+         * Returns whether the Trusted Web Activity should be launched at all. If not, the launch
+         * stops and the {@link LauncherActivity} stays open, it is up to the prerequisite to show
+         * something in it and to call {@link LauncherActivity#launchTwa} if needed later.
+         */
+        default boolean shouldLaunch() {
+            return true;
+        }
+
+        /** Returns a result that adds a query parameter to the launch URL. */
+        @NonNull
+        static Result appendQueryParameter(@NonNull String key, @Nullable String value) {
+            return new Result() {
+                @NonNull
+                @Override
+                public Uri transformLaunchUrl(@NonNull Uri launchUrl) {
+                    return launchUrl.buildUpon().appendQueryParameter(key, value).build();
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,111 @@
+// Copyright 2026 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.androidbrowserhelper.trusted;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A {@link LaunchPipeline.Task} that starts a set of {@link LaunchPrerequisite}s and completes
+ * with the list of their non-null results once they have all reported, or once the deadline has
+ * passed.
+ */
+class LaunchPrerequisitesTask implements LaunchPipeline.Task {
+    private static final String TAG = "LaunchPrerequisites";
+
+    private final List<LaunchPrerequisite> mPrerequisites;
+    private final long mDeadlineMillis;
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+    // Guarded by this.
+    private final LaunchPrerequisite.Result[] mResults;
+    private int mPending;
+    private boolean mDone;
+
+    LaunchPrerequisitesTask(List<LaunchPrerequisite> prerequisites, long deadlineMillis) {
+        mPrerequisites = new ArrayList<>(prerequisites);
+        mDeadlineMillis = deadlineMillis;
+        mResults = new LaunchPrerequisite.Result[mPrerequisites.size()];
+    }
+
+    @Override
+    public void run(@NonNull LaunchPipeline.StageContext context) {
+        synchronized (this) {
+            mPending = mPrerequisites.size();
+        }
+        if (mPrerequisites.isEmpty()) {
+            context.complete(new ArrayList<LaunchPrerequisite.Result>());
+            return;
+        }
+
+        mHandler.postDelayed(() -> {
+            synchronized (this) {
+                if (mDone) return;
+                mDone = true;
+            }
+            Log.w(TAG, "Launch prerequisites missed the deadline of " + mDeadlineMillis
+                    + "ms, launching without them.");
+            context.complete(collectResults());
+        }, mDeadlineMillis);
+
+        for (int i = 0; i < mPrerequisites.size(); i++) {
+            int index = i;
+            AtomicBoolean reported = new AtomicBoolean();
+            LaunchPrerequisite.Callback callback = result -> {
+                if (reported.getAndSet(true)) {
+                    Log.w(TAG, "Launch prerequisite reported more than once.");
+                    return;
+                }
+                onReady(context, index, result);
+            };
+
+            try {
+                mPrerequisites.get(i).start(callback);
+            } catch (RuntimeException e) {
+                Log.w(TAG, "Launch prerequisite failed to start.", e);
+                callback.onReady(null);
+            }
+        }
+    }
+
+    private void onReady(LaunchPipeline.StageContext context, int index,
+            @Nullable LaunchPrerequisite.Result result) {
+        synchronized (this) {
+            if (mDone) return;
+            mResults[index] = result;
+            mPending--;
+            if (mPending > 0) return;
+            mDone = true;
+        }
+        mHandler.removeCallbacksAndMessages(null);
+        context.complete(collectResults());
+    }
+
+    private synchronized List<LaunchPrerequisite.Result> collectResults() {
+        List<LaunchPrerequisite.Result> results = new ArrayList<>();
+        for (LaunchPrerequisite.Result result : mResults) {
+            if (result != null) results.add(result);
+        }
+        return results;
+    }
+}
@@ -0,0 +1,259 @@
+// Copyright 2026 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.androidbrowserhelper.trusted;
+
+import android.os.SystemClock;
+
+import androidx.annotation.IntDef;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.concurrent.futures.CallbackToFutureAdapter;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Describes how a launch started with {@link TwaLauncher#launchAsync} went: how the web app was
+ * opened and in which browser, how long each step took and which of the work was saved by reusing
+ * the session of an earlier launch.
+ */
+public final class LaunchResult {
+    @IntDef({Mode.NONE, Mode.TRUSTED_WEB_ACTIVITY, Mode.CUSTOM_TAB, Mode.WEBVIEW,
+            Mode.BLOCKED_DIALOG, Mode.OTHER})
+    @Retention(RetentionPolicy.SOURCE)
+    public @interface Mode {
+        /** Nothing was opened, see {@link #getError}. */
+        int NONE = -1;
+        /** The web app was opened in a Trusted Web Activity. */
+        int TRUSTED_WEB_ACTIVITY = 0;
+        /** The web app was opened in a Custom Tab by {@link TwaLauncher#CCT_FALLBACK_STRATEGY}. */
+        int CUSTOM_TAB = 1;
+        /** The web app was opened by {@link TwaLauncher#WEBVIEW_FALLBACK_STRATEGY}. */
+        int WEBVIEW = 2;
+        /** A dialog telling the user that no suitable browser is available was shown. */
+        int BLOCKED_DIALOG = 3;
+        /** The web app was opened by a fallback strategy provided by the app. */
+        int OTHER = 4;
+    }
+
+    /** From the start of the launch until the session was created, or creating it failed. */
+    public static final String STAGE_CONNECT = "connect";
+    /** Preparing the splash screen for the browser, see {@link #isSplashImageTransferred}. */
+    public static final String STAGE_SPLASH_SCREEN = "splashScreen";
+    /** Building the Intent and starting the Trusted Web Activity. */
+    public static final String STAGE_LAUNCH = "launch";
+    /** Running the fallback strategy. */
+    public static final String STAGE_FALLBACK = "fallback";
+
+    /** The session established by an earlier launch with the same TwaLauncher was reused. */
+    public static final String CACHE_SESSION = "session";
+    /** The launch joined the connection started with {@link TwaLauncher#connect}. */
+    public static final String CACHE_CONNECTION = "connection";
+
+    @Mode
+    private final int mMode;
+    @Nullable
+    private final String mProvider;
+    private final long mDurationMillis;
+    private final Map<String, Long> mStageDurations;
+    private final Set<String> mCacheHits;
+    private final boolean mFailedOver;
+    private final boolean mSplashImageTransferred;
+    @Nullable
+    private final LaunchTracer mLaunchTracer;
+    @Nullable
+    private final Throwable mError;
+
+    LaunchResult(@Mode int mode, @Nullable String provider, long durationMillis,
+            Map<String, Long> stageDurations, Set<String> cacheHits, boolean failedOver,
+            boolean splashImageTransferred, @Nullable LaunchTracer launchTracer,
+            @Nullable Throwable error) {
+        mMode = mode;
+        mProvider = provider;
+        mDurationMillis = durationMillis;
+        mStageDurations = Collections.unmodifiableMap(new LinkedHashMap<>(stageDurations));
+        mCacheHits = Collections.unmodifiableSet(new LinkedHashSet<>(cacheHits));
+        mFailedOver = failedOver;
+        mSplashImageTransferred = splashImageTransferred;
+        mLaunchTracer = launchTracer;
+        mError = error;
+    }
+
+    /** How the web app was opened. */
+    @Mode
+    public int getMode() {
+        return mMode;
+    }
+
+    /** The package of the browser the web app was opened in, if known. */
+    @Nullable
+    public String getProvider() {
+        return mProvider;
+    }
+
+    /** How long the whole launch took. */
+    public long getDurationMillis() {
+        return mDurationMillis;
+    }
+
+    /**
+     * How long each step of the launch took, by stage (e.g. {@link #STAGE_CONNECT}), in the
+     * order they ran. Stages that didn't run are left out.
+     */
+    @NonNull
+    public Map<String, Long> getStageDurations() {
+        return mStageDurations;
+    }
+
+    /** The work that was saved by reusing earlier work, e.g. {@link #CACHE_SESSION}. */
+    @NonNull
+    public Set<String> getCacheHits() {
+        return mCacheHits;
+    }
+
+    /**
+     * Whether the browser picked first failed to create a session and another one was used, see
+     * {@link TwaProviderPicker.Action#alternativeTwaProviders}.
+     */
+    public boolean isFailedOver() {
+        return mFailedOver;
+    }
+
+    /** Whether the splash screen image was transferred to the browser. */
+    public boolean isSplashImageTransferred() {
+        return mSplashImageTransferred;
+    }
+
+    /**
+     * The trace of the calls to system services made during the launch, if it was being traced
+     * (see {@link LaunchTracer#setActive}).
+     */
+    @Nullable
+    public LaunchTracer getLaunchTracer() {
+        return mLaunchTracer;
+    }
+
+    /**
+     * The error the launch ran into, if any. If the Trusted Web Activity couldn't be launched
+     * this may be set while the web app has still been opened by the fallback strategy.
+     */
+    @Nullable
+    public Throwable getError() {
+        return mError;
+    }
+
+    @Override
+    public String toString() {
+        return "LaunchResult{mode: " + mMode + ", provider: " + mProvider
+                + ", duration: " + mDurationMillis + "ms, stages: " + mStageDurations
+                + ", cache hits: " + mCacheHits + ", failed over: " + mFailedOver
+                + ", splash image transferred: " + mSplashImageTransferred
+                + ", error: " + mError + "}";
+    }
+
+    /**
+     * Collects the result while {@link TwaLauncher} goes through the launch, and resolves the
+     * future returned by {@link TwaLauncher#launchAsync} once it is done. Stages don't overlap,
+     * entering one ends the previous one.
+     */
+    static class Recorder {
+        private final CallbackToFutureAdapter.Completer<LaunchResult> mCompleter;
+        @Nullable
+        private final LaunchTracer mLaunchTracer;
+        private final long mStartUptimeMillis = SystemClock.uptimeMillis();
+
+        // Guarded by this.
+        private final Map<String, Long> mStageDurations = new LinkedHashMap<>();
+        private final Set<String> mCacheHits = new LinkedHashSet<>();
+        @Nullable
+        private String mCurrentStage;
+        private long mStageStartUptimeMillis;
+        private boolean mSplashImageTransferred;
+        @Nullable
+        private Throwable mError;
+        private boolean mDone;
+
+        Recorder(CallbackToFutureAdapter.Completer<LaunchResult> completer,
+                @Nullable LaunchTracer launchTracer) {
+            mCompleter = completer;
+            mLaunchTracer = launchTracer;
+        }
+
+        synchronized void enterStage(String stage) {
+            if (mDone || stage.equals(mCurrentStage)) return;
+            exitStage();
+            mCurrentStage = stage;
+            mStageStartUptimeMillis = SystemClock.uptimeMillis();
+        }
+
+        synchronized void recordCacheHit(String cache) {
+            mCacheHits.add(cache);
+        }
+
+        synchronized void recordSplashImageTransferred(boolean transferred) {
+            mSplashImageTransferred = transferred;
+        }
+
+        /** Records the error, keeping the first one if there are several. */
+        synchronized void recordError(Throwable error) {
+            if (mError == null) mError = error;
+        }
+
+        synchronized boolean isDone() {
+            return mDone;
+        }
+
+        /** Resolves the future, unless it already has been. */
+        void complete(@Mode int mode, @Nullable String provider, boolean failedOver) {
+            LaunchResult result;
+            synchronized (this) {
+                if (mDone) return;
+                mDone = true;
+                exitStage();
+                result = new LaunchResult(mode, provider,
+                        SystemClock.uptimeMillis() - mStartUptimeMillis, mStageDurations,
+                        mCacheHits, failedOver, mSplashImageTransferred, mLaunchTracer, mError);
+            }
+            mCompleter.set(result);
+        }
+
+        /** Resolves the future with {@link Mode#NONE}, after recording the error. */
+        void fail(Throwable error, @Nullable String provider, boolean failedOver) {
+            recordError(error);
+            complete(Mode.NONE, provider, failedOver);
+        }
+
+        /** Cancels the future, e.g. because the TwaLauncher was destroyed before launching. */
+        void cancel() {
+            synchronized (this) {
+                if (mDone) return;
+                mDone = true;
+            }
+            mCompleter.setCancelled();
+        }
+
+        private void exitStage() {
+            if (mCurrentStage == null) return;
+            mStageDurations.put(mCurrentStage,
+                    SystemClock.uptimeMillis() - mStageStartUptimeMillis);
+            mCurrentStage = null;
+        }
+    }
+}
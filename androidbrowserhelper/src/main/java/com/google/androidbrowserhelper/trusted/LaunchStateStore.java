@@ -0,0 +1,600 @@
+// Copyright 2026 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.androidbrowserhelper.trusted;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.text.TextUtils;
+import android.util.AtomicFile;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+
+/**
+ * Holds the library's state: the provider that was launched last, the serialized verification
+ * {@link androidx.browser.trusted.Token}, the time the splash image was last saved, the state the
+ * site settings shortcut was last set up for, the session ids handed out by {@link SessionStore},
+ * whether the notification permission has been requested, and the state of {@link LaunchPlan},
+ * {@link ProviderHealth} and {@link WarmupScheduler}, which they serialize themselves.
+ *
+ * Values are cached in memory, so writing a value that hasn't changed costs nothing. Changed
+ * values are written back on a background thread, with all the changes made in the meantime
+ * written together. The state is loaded as soon as the store is created, so that by the time a
+ * launch reads or writes it, it's usually in memory already. It's loaded on a thread of its own,
+ * since tasks on the shared pool wait for it. The store never
+ * touches the disk on the calling thread: reads wait for the background load, and writes made
+ * before it has finished are kept and take precedence over what it reads.
+ *
+ * The state is kept in a single small binary file, rather than in three SharedPreferences files
+ * that each had to be parsed from XML. The file is replaced atomically with {@link AtomicFile},
+ * so a crash while writing leaves the previous state in place. State written by previous versions
+ * of the library to the SharedPreferences files is copied into it the first time it's loaded, and
+ * removed from them once the state file has been written, so the state file is the only source
+ * from then on. An app downgraded to such a version starts afresh, like a new install: it picks
+ * the provider again and stores a new token on its next launch. State it writes is not copied
+ * back when the app is upgraded again.
+ */
+public class LaunchStateStore {
+    private static final String TAG = "LaunchStateStore";
+
+    @VisibleForTesting
+    static final String STATE_FILE_NAME = "com.google.androidbrowserhelper.state";
+    /** Bumped on changes that older versions can't read, new fields are fine without. */
+    private static final int FORMAT_VERSION = 1;
+
+    // The fields in the state file, each written as its tag, its length and its value.
+    private static final byte FIELD_PROVIDER_PACKAGE = 1;
+    private static final byte FIELD_TOKEN = 2;
+    private static final byte FIELD_SPLASH_IMAGE_UPDATE_TIME = 3;
+    private static final byte FIELD_SITE_SETTINGS_SHORTCUT_STATE = 4;
+    private static final byte FIELD_SESSION_IDS = 5;
+    private static final byte FIELD_HAS_REQUESTED_NOTIFICATION_PERMISSION = 6;
+    private static final byte FIELD_LAUNCH_PLAN = 7;
+    private static final byte FIELD_PROVIDER_HEALTH = 8;
+    private static final byte FIELD_WARMUP_SCHEDULE = 9;
+
+    // Where previous versions of the library kept the state.
+    @VisibleForTesting
+    static final String PROVIDER_PREFS_NAME = "TrustedWebActivityLauncherPrefs";
+    @VisibleForTesting
+    static final String KEY_PROVIDER_PACKAGE = "KEY_PROVIDER_PACKAGE";
+    private static final String KEY_SITE_SETTINGS_SHORTCUT_STATE =
+            "KEY_SITE_SETTINGS_SHORTCUT_STATE";
+    private static final String KEY_SESSION_IDS = "KEY_SESSION_IDS";
+    /** Stored in the {@link PrefUtils#getAppSharedPreferences app preferences}. */
+    @VisibleForTesting
+    static final String KEY_TOKEN = "SharedPreferencesTokenStore.TOKEN";
+    /** Stored in the {@link PrefUtils#getAppSharedPreferences app preferences}. */
+    @VisibleForTesting
+    static final String KEY_HAS_REQUESTED_NOTIFICATION_PERMISSION =
+            "HAS_REQUESTED_NOTIFICATION_PERMISSION";
+    @VisibleForTesting
+    static final String SPLASH_PREFS_NAME = "splashImagePrefs";
+    @VisibleForTesting
+    static final String KEY_SPLASH_IMAGE_UPDATE_TIME = "lastUpdateTime";
+
+    private static final int CHANGED_PROVIDER_PACKAGE = 1;
+    private static final int CHANGED_TOKEN = 1 << 1;
+    private static final int CHANGED_SPLASH_IMAGE_UPDATE_TIME = 1 << 2;
+    private static final int CHANGED_SITE_SETTINGS_SHORTCUT_STATE = 1 << 3;
+    private static final int CHANGED_SESSION_IDS = 1 << 4;
+    private static final int CHANGED_HAS_REQUESTED_NOTIFICATION_PERMISSION = 1 << 5;
+    private static final int CHANGED_LAUNCH_PLAN = 1 << 6;
+    private static final int CHANGED_PROVIDER_HEALTH = 1 << 7;
+    private static final int CHANGED_WARMUP_SCHEDULE = 1 << 8;
+
+    private static LaunchStateStore sInstance;
+
+    private final Context mContext;
+    private final Executor mExecutor;
+
+    // Guarded by this.
+    private boolean mLoaded;
+    private int mChanges;
+    /** Whether the legacy SharedPreferences are to be cleared once the state has been written. */
+    private boolean mClearLegacyPreferences;
+    private final State mState = new State();
+
+    /** The values of the state, as held in memory and written to the state file. */
+    private static class State {
+        @Nullable
+        String providerPackage;
+        @Nullable
+        String token;
+        long splashImageUpdateTime;
+        @Nullable
+        String siteSettingsShortcutState;
+        @Nullable
+        String sessionIds;
+        boolean hasRequestedNotificationPermission;
+        @Nullable
+        byte[] launchPlan;
+        @Nullable
+        byte[] providerHealth;
+        @Nullable
+        byte[] warmupSchedule;
+
+        State() {}
+
+        State(State other) {
+            providerPackage = other.providerPackage;
+            token = other.token;
+            splashImageUpdateTime = other.splashImageUpdateTime;
+            siteSettingsShortcutState = other.siteSettingsShortcutState;
+            sessionIds = other.sessionIds;
+            hasRequestedNotificationPermission = other.hasRequestedNotificationPermission;
+            // The arrays are replaced rather than modified, so they can be shared.
+            launchPlan = other.launchPlan;
+            providerHealth = other.providerHealth;
+            warmupSchedule = other.warmupSchedule;
+        }
+    }
+
+    /**
+     * Returns the process-wide instance, starting to load it in the background when it's first
+     * created.
+     */
+    public static synchronized LaunchStateStore getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new LaunchStateStore(context.getApplicationContext(),
+                    task -> BackgroundExecutors.startThread(TAG, task),
+                    BackgroundExecutors.newSequentialExecutor());
+        }
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    LaunchStateStore(Context context, Executor executor) {
+        this(context, executor, executor);
+    }
+
+    private LaunchStateStore(Context context, Executor loadExecutor, Executor executor) {
+        mContext = context;
+        mExecutor = executor;
+        loadExecutor.execute(this::load);
+    }
+
+    /** Returns the package name of the provider in which a TWA was launched the last time. */
+    @Nullable
+    public synchronized String getLastLaunchedProviderPackage() {
+        waitUntilLoaded();
+        return mState.providerPackage;
+    }
+
+    /** Sets the package name of the provider in which a TWA was launched the last time. */
+    public synchronized void setLastLaunchedProviderPackage(@Nullable String packageName) {
+        if (mLoaded && TextUtils.equals(mState.providerPackage, packageName)) return;
+        mState.providerPackage = packageName;
+        onChanged(CHANGED_PROVIDER_PACKAGE);
+    }
+
+    /** Returns the Base64 encoded verification token, or {@code null} if there is none. */
+    @Nullable
+    public synchronized String getToken() {
+        waitUntilLoaded();
+        return mState.token;
+    }
+
+    /** Sets the Base64 encoded verification token, {@code null} clears it. */
+    public synchronized void setToken(@Nullable String encodedToken) {
+        if (mLoaded && TextUtils.equals(mState.token, encodedToken)) return;
+        mState.token = encodedToken;
+        onChanged(CHANGED_TOKEN);
+    }
+
+    /**
+     * Returns the last update time of the app when the splash image was saved, 0 if it never
+     * has been.
+     */
+    public synchronized long getSplashImageUpdateTime() {
+        waitUntilLoaded();
+        return mState.splashImageUpdateTime;
+    }
+
+    /** Sets the last update time of the app when the splash image was saved. */
+    public synchronized void setSplashImageUpdateTime(long updateTime) {
+        if (mLoaded && mState.splashImageUpdateTime == updateTime) return;
+        mState.splashImageUpdateTime = updateTime;
+        onChanged(CHANGED_SPLASH_IMAGE_UPDATE_TIME);
+    }
+
+    /**
+     * Returns the description of the provider and app the site settings shortcut was last set up
+     * for, see {@link ManageDataLauncherActivity#syncSiteSettingsShortcut}.
+     */
+    @Nullable
+    public synchronized String getSiteSettingsShortcutState() {
+        waitUntilLoaded();
+        return mState.siteSettingsShortcutState;
+    }
+
+    /** Sets the description of the provider and app the site settings shortcut was set up for. */
+    public synchronized void setSiteSettingsShortcutState(@Nullable String state) {
+        if (mLoaded && TextUtils.equals(mState.siteSettingsShortcutState, state)) return;
+        mState.siteSettingsShortcutState = state;
+        onChanged(CHANGED_SITE_SETTINGS_SHORTCUT_STATE);
+    }
+
+    /** Returns the task to session id mapping serialized by {@link SessionStore}, if any. */
+    @Nullable
+    public synchronized String getSessionIds() {
+        waitUntilLoaded();
+        return mState.sessionIds;
+    }
+
+    /** Sets the task to session id mapping serialized by {@link SessionStore}. */
+    public synchronized void setSessionIds(@Nullable String sessionIds) {
+        if (mLoaded && TextUtils.equals(mState.sessionIds, sessionIds)) return;
+        mState.sessionIds = sessionIds;
+        onChanged(CHANGED_SESSION_IDS);
+    }
+
+    /** Returns whether the notification permission has been requested from the user. */
+    public synchronized boolean hasRequestedNotificationPermission() {
+        waitUntilLoaded();
+        return mState.hasRequestedNotificationPermission;
+    }
+
+    /** Records that the notification permission has been requested from the user. */
+    public synchronized void setHasRequestedNotificationPermission() {
+        if (mLoaded && mState.hasRequestedNotificationPermission) return;
+        mState.hasRequestedNotificationPermission = true;
+        onChanged(CHANGED_HAS_REQUESTED_NOTIFICATION_PERMISSION);
+    }
+
+    /** Returns the launch plan serialized by {@link LaunchPlan}, if any. */
+    @Nullable
+    synchronized byte[] getLaunchPlan() {
+        waitUntilLoaded();
+        return copyOf(mState.launchPlan);
+    }
+
+    /** Sets the launch plan serialized by {@link LaunchPlan}, {@code null} clears it. */
+    synchronized void setLaunchPlan(@Nullable byte[] launchPlan) {
+        if (mLoaded && Arrays.equals(mState.launchPlan, launchPlan)) return;
+        mState.launchPlan = copyOf(launchPlan);
+        onChanged(CHANGED_LAUNCH_PLAN);
+    }
+
+    /** Returns the provider statistics serialized by {@link ProviderHealth}, if any. */
+    @Nullable
+    synchronized byte[] getProviderHealth() {
+        waitUntilLoaded();
+        return copyOf(mState.providerHealth);
+    }
+
+    /** Sets the provider statistics serialized by {@link ProviderHealth}. */
+    synchronized void setProviderHealth(@Nullable byte[] providerHealth) {
+        if (mLoaded && Arrays.equals(mState.providerHealth, providerHealth)) return;
+        mState.providerHealth = copyOf(providerHealth);
+        onChanged(CHANGED_PROVIDER_HEALTH);
+    }
+
+    /** Returns the launch times and settings serialized by {@link WarmupScheduler}, if any. */
+    @Nullable
+    synchronized byte[] getWarmupSchedule() {
+        waitUntilLoaded();
+        return copyOf(mState.warmupSchedule);
+    }
+
+    /** Sets the launch times and settings serialized by {@link WarmupScheduler}. */
+    synchronized void setWarmupSchedule(@Nullable byte[] warmupSchedule) {
+        if (mLoaded && Arrays.equals(mState.warmupSchedule, warmupSchedule)) return;
+        mState.warmupSchedule = copyOf(warmupSchedule);
+        onChanged(CHANGED_WARMUP_SCHEDULE);
+    }
+
+    private void load() {
+        // Read without holding the lock, so that values can be set in the meantime.
+        State loaded = readStateFile();
+        // Only a state file that doesn't exist yet means we haven't migrated. The legacy values
+        // stopped being updated when we did, so they mustn't replace one we can't read.
+        boolean migrate = loaded == null;
+        if (migrate) loaded = readLegacyPreferences();
+
+        synchronized (this) {
+            // Values set while we were reading are newer than the ones on disk.
+            if ((mChanges & CHANGED_PROVIDER_PACKAGE) == 0) {
+                mState.providerPackage = loaded.providerPackage;
+            }
+            if ((mChanges & CHANGED_TOKEN) == 0) mState.token = loaded.token;
+            if ((mChanges & CHANGED_SPLASH_IMAGE_UPDATE_TIME) == 0) {
+                mState.splashImageUpdateTime = loaded.splashImageUpdateTime;
+            }
+            if ((mChanges & CHANGED_SITE_SETTINGS_SHORTCUT_STATE) == 0) {
+                mState.siteSettingsShortcutState = loaded.siteSettingsShortcutState;
+            }
+            if ((mChanges & CHANGED_SESSION_IDS) == 0) mState.sessionIds = loaded.sessionIds;
+            if ((mChanges & CHANGED_HAS_REQUESTED_NOTIFICATION_PERMISSION) == 0) {
+                mState.hasRequestedNotificationPermission =
+                        loaded.hasRequestedNotificationPermission;
+            }
+            if ((mChanges & CHANGED_LAUNCH_PLAN) == 0) mState.launchPlan = loaded.launchPlan;
+            if ((mChanges & CHANGED_PROVIDER_HEALTH) == 0) {
+                mState.providerHealth = loaded.providerHealth;
+            }
+            if ((mChanges & CHANGED_WARMUP_SCHEDULE) == 0) {
+                mState.warmupSchedule = loaded.warmupSchedule;
+            }
+            mLoaded = true;
+            notifyAll();
+
+            // Changes made while we were reading haven't been written yet, see onChanged.
+            mClearLegacyPreferences = migrate;
+            if (migrate || mChanges != 0) mExecutor.execute(this::flush);
+        }
+    }
+
+    /**
+     * Waits for the background load to finish. Called with the lock held, which wait() releases.
+     * Waiting is cheaper than reading the file on the calling thread, as the load will usually
+     * be well under way, and it keeps disk access off the main thread.
+     */
+    private void waitUntilLoaded() {
+        if (!mLoaded) BackgroundExecutors.noteWait("LaunchStateStore waiting for load");
+        boolean interrupted = false;
+        while (!mLoaded) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+    }
+
+    private void onChanged(int change) {
+        boolean flushPending = mChanges != 0;
+        mChanges |= change;
+        // The pending flush will pick this change up as well. Until the state has been loaded,
+        // load() schedules the flush, so that the values on disk aren't replaced by this one alone.
+        if (mLoaded && !flushPending) mExecutor.execute(this::flush);
+    }
+
+    private void flush() {
+        State state;
+        boolean clearLegacyPreferences;
+        synchronized (this) {
+            mChanges = 0;
+            state = new State(mState);
+            clearLegacyPreferences = mClearLegacyPreferences;
+            mClearLegacyPreferences = false;
+        }
+        // If writing fails, the next process migrates from the legacy values again.
+        if (writeStateFile(state) && clearLegacyPreferences) clearLegacyPreferences();
+    }
+
+    private AtomicFile getStateFile() {
+        return new AtomicFile(new File(mContext.getFilesDir(), STATE_FILE_NAME));
+    }
+
+    /**
+     * Returns the state in the state file, or {@code null} if there is no state file. Returns an
+     * empty state if the file can't be read, is malformed or has been written in a format we
+     * don't know.
+     */
+    @Nullable
+    private State readStateFile() {
+        byte[] bytes;
+        try {
+            bytes = getStateFile().readFully();
+        } catch (FileNotFoundException e) {
+            return null;
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to read the launch state.", e);
+            return new State();
+        }
+
+        try {
+            return parse(ByteBuffer.wrap(bytes));
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            Log.w(TAG, "Ignoring malformed launch state.", e);
+            return new State();
+        }
+    }
+
+    private static State parse(ByteBuffer buffer) {
+        int formatVersion = buffer.getInt();
+        if (formatVersion != FORMAT_VERSION) {
+            Log.w(TAG, "Ignoring launch state of format " + formatVersion);
+            return new State();
+        }
+
+        State state = new State();
+        while (buffer.hasRemaining()) {
+            byte field = buffer.get();
+            int length = buffer.getInt();
+            if (length < 0 || length > buffer.remaining()) {
+                throw new IllegalArgumentException("Bad length " + length + " of " + field);
+            }
+            int end = buffer.position() + length;
+            switch (field) {
+                case FIELD_PROVIDER_PACKAGE:
+                    state.providerPackage = readString(buffer, length);
+                    break;
+                case FIELD_TOKEN:
+                    state.token = readString(buffer, length);
+                    break;
+                case FIELD_SPLASH_IMAGE_UPDATE_TIME:
+                    state.splashImageUpdateTime = buffer.getLong();
+                    break;
+                case FIELD_SITE_SETTINGS_SHORTCUT_STATE:
+                    state.siteSettingsShortcutState = readString(buffer, length);
+                    break;
+                case FIELD_SESSION_IDS:
+                    state.sessionIds = readString(buffer, length);
+                    break;
+                case FIELD_HAS_REQUESTED_NOTIFICATION_PERMISSION:
+                    state.hasRequestedNotificationPermission = buffer.get() != 0;
+                    break;
+                case FIELD_LAUNCH_PLAN:
+                    state.launchPlan = readBytes(buffer, length);
+                    break;
+                case FIELD_PROVIDER_HEALTH:
+                    state.providerHealth = readBytes(buffer, length);
+                    break;
+                case FIELD_WARMUP_SCHEDULE:
+                    state.warmupSchedule = readBytes(buffer, length);
+                    break;
+                default:
+                    // Written by a newer version of the library.
+                    break;
+            }
+            buffer.position(end);
+        }
+        return state;
+    }
+
+    private static String readString(ByteBuffer buffer, int length) {
+        String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(),
+                length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    private static byte[] readBytes(ByteBuffer buffer, int length) {
+        byte[] value = new byte[length];
+        buffer.get(value);
+        return value;
+    }
+
+    /** Replaces the state file with the given state, returning whether that succeeded. */
+    private boolean writeStateFile(State state) {
+        byte[] bytes;
+        try {
+            bytes = serialize(state);
+        } catch (IOException e) {
+            // Not expected when writing to memory.
+            Log.w(TAG, "Failed to serialize the launch state.", e);
+            return false;
+        }
+
+        AtomicFile file = getStateFile();
+        FileOutputStream out = null;
+        try {
+            out = file.startWrite();
+            out.write(bytes);
+            file.finishWrite(out);
+            return true;
+        } catch (IOException e) {
+            if (out != null) file.failWrite(out);
+            Log.w(TAG, "Failed to write the launch state.", e);
+            return false;
+        }
+    }
+
+    private static byte[] serialize(State state) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(FORMAT_VERSION);
+        writeString(out, FIELD_PROVIDER_PACKAGE, state.providerPackage);
+        writeString(out, FIELD_TOKEN, state.token);
+        if (state.splashImageUpdateTime != 0) {
+            out.writeByte(FIELD_SPLASH_IMAGE_UPDATE_TIME);
+            out.writeInt(8);
+            out.writeLong(state.splashImageUpdateTime);
+        }
+        writeString(out, FIELD_SITE_SETTINGS_SHORTCUT_STATE, state.siteSettingsShortcutState);
+        writeString(out, FIELD_SESSION_IDS, state.sessionIds);
+        if (state.hasRequestedNotificationPermission) {
+            out.writeByte(FIELD_HAS_REQUESTED_NOTIFICATION_PERMISSION);
+            out.writeInt(1);
+            out.writeByte(1);
+        }
+        writeBytes(out, FIELD_LAUNCH_PLAN, state.launchPlan);
+        writeBytes(out, FIELD_PROVIDER_HEALTH, state.providerHealth);
+        writeBytes(out, FIELD_WARMUP_SCHEDULE, state.warmupSchedule);
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    /** Writes nothing for {@code null}, which is what a missing field is read as. */
+    private static void writeString(DataOutputStream out, byte field, @Nullable String value)
+            throws IOException {
+        if (value == null) return;
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        out.writeByte(field);
+        out.writeInt(utf8.length);
+        out.write(utf8);
+    }
+
+    /** Writes nothing for {@code null}, which is what a missing field is read as. */
+    private static void writeBytes(DataOutputStream out, byte field, @Nullable byte[] value)
+            throws IOException {
+        if (value == null) return;
+        out.writeByte(field);
+        out.writeInt(value.length);
+        out.write(value);
+    }
+
+    @Nullable
+    private static byte[] copyOf(@Nullable byte[] value) {
+        return value == null ? null : value.clone();
+    }
+
+    /** Reads the state from where previous versions of the library kept it. */
+    private State readLegacyPreferences() {
+        State state = new State();
+        SharedPreferences providerPreferences = getProviderPreferences();
+        state.providerPackage = providerPreferences.getString(KEY_PROVIDER_PACKAGE, null);
+        state.siteSettingsShortcutState =
+                providerPreferences.getString(KEY_SITE_SETTINGS_SHORTCUT_STATE, null);
+        state.sessionIds = providerPreferences.getString(KEY_SESSION_IDS, null);
+        SharedPreferences appPreferences = PrefUtils.getAppSharedPreferences(mContext);
+        state.token = appPreferences.getString(KEY_TOKEN, null);
+        state.hasRequestedNotificationPermission =
+                appPreferences.getBoolean(KEY_HAS_REQUESTED_NOTIFICATION_PERMISSION, false);
+        state.splashImageUpdateTime =
+                getSplashPreferences().getLong(KEY_SPLASH_IMAGE_UPDATE_TIME, 0);
+        return state;
+    }
+
+    /** Removes the values {@link #readLegacyPreferences} reads, leaving the app's own alone. */
+    private void clearLegacyPreferences() {
+        getProviderPreferences().edit()
+                .remove(KEY_PROVIDER_PACKAGE)
+                .remove(KEY_SITE_SETTINGS_SHORTCUT_STATE)
+                .remove(KEY_SESSION_IDS)
+                .apply();
+        PrefUtils.getAppSharedPreferences(mContext).edit()
+                .remove(KEY_TOKEN)
+                .remove(KEY_HAS_REQUESTED_NOTIFICATION_PERMISSION)
+                .apply();
+        getSplashPreferences().edit()
+                .remove(KEY_SPLASH_IMAGE_UPDATE_TIME)
+                .apply();
+    }
+
+    private SharedPreferences getProviderPreferences() {
+        return mContext.getSharedPreferences(PROVIDER_PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    private SharedPreferences getSplashPreferences() {
+        return mContext.getSharedPreferences(SPLASH_PREFS_NAME, Context.MODE_PRIVATE);
+    }
+}
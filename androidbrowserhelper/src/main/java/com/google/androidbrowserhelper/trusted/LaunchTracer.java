@@ -0,0 +1,195 @@
+// Copyright 2026 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.androidbrowserhelper.trusted;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Records what a {@link LauncherActivity} launch spends its time on: how long each
+ * {@link LaunchPipeline} stage took, and how many calls to the PackageManager and other system
+ * services (each of which is a binder call to another process) were made in each stage, and how
+ * long those took.
+ *
+ * The library reports its calls with {@link #startIpc} and {@link #endIpc}, which do nothing when
+ * no launch is being traced. Calls made outside of a stage, e.g. by callbacks or on other threads
+ * while the launch is in progress, are attributed to {@link #NO_STAGE}.
+ */
+public class LaunchTracer {
+    /** The stage that calls made outside of any {@link LaunchPipeline} stage are recorded in. */
+    public static final String NO_STAGE = "(none)";
+
+    @Nullable
+    private static volatile LaunchTracer sActiveTracer;
+
+    private static final ThreadLocal<String> sCurrentStage = new ThreadLocal<>();
+
+    // Guarded by this.
+    private final Map<String, IpcStats> mIpcStats = new LinkedHashMap<>();
+    private final Map<String, Long> mStageDurations = new LinkedHashMap<>();
+
+    /** The calls made in a stage. */
+    public static final class IpcStats {
+        private int mCount;
+        private long mDurationNanos;
+        private final Map<String, Integer> mCallCounts = new TreeMap<>();
+
+        IpcStats() {}
+
+        IpcStats(IpcStats other) {
+            mCount = other.mCount;
+            mDurationNanos = other.mDurationNanos;
+            mCallCounts.putAll(other.mCallCounts);
+        }
+
+        /** The number of calls. */
+        public int getCount() {
+            return mCount;
+        }
+
+        /** The total time spent in the calls. */
+        public long getDurationMillis() {
+            return mDurationNanos / 1000000;
+        }
+
+        /** The number of calls by call name, e.g. "PackageManager.getPackageInfo". */
+        @NonNull
+        public Map<String, Integer> getCallCounts() {
+            return Collections.unmodifiableMap(mCallCounts);
+        }
+
+        @Override
+        public String toString() {
+            return mCount + " calls in " + getDurationMillis() + "ms " + mCallCounts;
+        }
+    }
+
+    /**
+     * Makes this the tracer that calls are recorded in, replacing the previous one. Pass
+     * {@code null} to stop recording.
+     */
+    public static void setActive(@Nullable LaunchTracer tracer) {
+        sActiveTracer = tracer;
+    }
+
+    /** Returns the tracer that calls are being recorded in, if any. */
+    @Nullable
+    public static LaunchTracer getActive() {
+        return sActiveTracer;
+    }
+
+    /**
+     * Call before making a call to the PackageManager or another system service, passing the
+     * result to {@link #endIpc} once it returns.
+     */
+    public static long startIpc() {
+        return sActiveTracer == null ? 0 : System.nanoTime();
+    }
+
+    /**
+     * Records a call to the PackageManager or another system service in the current stage.
+     *
+     * @param call Name of the call, e.g. "PackageManager.getPackageInfo".
+     * @param startNanos The value returned by {@link #startIpc}.
+     */
+    public static void endIpc(@NonNull String call, long startNanos) {
+        LaunchTracer tracer = sActiveTracer;
+        if (tracer == null || startNanos == 0) return;
+
+        String stage = sCurrentStage.get();
+        tracer.recordIpc(stage == null ? NO_STAGE : stage, call, System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Attributes the calls made on the current thread to the given stage, returning the stage
+     * they were attributed to so far, to be passed to {@link #exitStage}.
+     */
+    @Nullable
+    static String enterStage(String stage) {
+        String previous = sCurrentStage.get();
+        sCurrentStage.set(stage);
+        return previous;
+    }
+
+    static void exitStage(@Nullable String previous) {
+        sCurrentStage.set(previous);
+    }
+
+    synchronized void recordStageDuration(String stage, long durationMillis) {
+        mStageDurations.put(stage, durationMillis);
+    }
+
+    private synchronized void recordIpc(String stage, String call, long durationNanos) {
+        IpcStats stats = mIpcStats.get(stage);
+        if (stats == null) {
+            stats = new IpcStats();
+            mIpcStats.put(stage, stats);
+        }
+        stats.mCount++;
+        stats.mDurationNanos += durationNanos;
+        Integer count = stats.mCallCounts.get(call);
+        stats.mCallCounts.put(call, count == null ? 1 : count + 1);
+    }
+
+    /** Returns the names of the stages that have completed or made calls, in that order. */
+    @NonNull
+    public synchronized List<String> getStages() {
+        List<String> stages = new ArrayList<>(mStageDurations.keySet());
+        for (String stage : mIpcStats.keySet()) {
+            if (!stages.contains(stage)) stages.add(stage);
+        }
+        return stages;
+    }
+
+    /** Returns how long the stage took, or -1 if it hasn't completed. */
+    public synchronized long getStageDurationMillis(@NonNull String stage) {
+        Long duration = mStageDurations.get(stage);
+        return duration == null ? -1 : duration;
+    }
+
+    /** Returns a snapshot of the calls made in the given stage. */
+    @NonNull
+    public synchronized IpcStats getIpcStats(@NonNull String stage) {
+        IpcStats stats = mIpcStats.get(stage);
+        return stats == null ? new IpcStats() : new IpcStats(stats);
+    }
+
+    /** Returns the number of calls made in all stages. */
+    public synchronized int getIpcCount() {
+        int count = 0;
+        for (IpcStats stats : mIpcStats.values()) {
+            count += stats.mCount;
+        }
+        return count;
+    }
+
+    @Override
+    public synchronized String toString() {
+        StringBuilder builder = new StringBuilder("Launch trace:");
+        for (String stage : getStages()) {
+            builder.append("\n  ").append(stage)
+                    .append(": ").append(getStageDurationMillis(stage)).append("ms, ")
+                    .append(getIpcStats(stage));
+        }
+        return builder.toString();
+    }
+}
@@ -15,12 +15,14 @@
 package com.google.androidbrowserhelper.trusted;
 
 import android.app.Activity;
+import android.content.ComponentName;
 import android.content.Intent;
 import android.content.pm.PackageManager;
 import android.graphics.Matrix;
 import android.net.Uri;
 import android.os.Bundle;
 import android.os.SystemClock;
+import android.text.TextUtils;
 import android.util.Log;
 import android.view.WindowManager;
 import android.widget.ImageView;
@@ -30,6 +32,7 @@ import androidx.annotation.Nullable;
 import androidx.browser.customtabs.CustomTabColorSchemeParams;
 import androidx.browser.customtabs.CustomTabsCallback;
 import androidx.browser.customtabs.CustomTabsIntent;
+import androidx.browser.customtabs.CustomTabsSession;
 import androidx.browser.trusted.FileHandlingData;
 import androidx.browser.trusted.TrustedWebActivityDisplayMode;
 import androidx.browser.trusted.TrustedWebActivityIntentBuilder;
@@ -43,6 +46,7 @@ import com.google.androidbrowserhelper.trusted.splashscreens.PwaWrapperSplashScr
 
 import org.json.JSONException;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -84,7 +88,7 @@ import java.util.Map;
  *
  * Recommended theme for this Activity is:
  * <pre>{@code
- * <style name="LauncherActivityTheme" parent="Theme.AppCompat.NoActionBar">
+ * <style name="LauncherActivityTheme" parent="android:Theme.DeviceDefault.NoActionBar">
  *     <item name="android:windowIsTranslucent">true</item>
  *     <item name="android:windowBackground">@android:color/transparent</item>
  *     <item name="android:statusBarColor">@android:color/transparent</item>
@@ -111,16 +115,108 @@ public class LauncherActivity extends Activity {
 
     private static final String FALLBACK_TYPE_WEBVIEW = "webview";
 
+    private static final long DEFAULT_LAUNCH_PREREQUISITES_DEADLINE_MILLIS = 3000;
+
+    /**
+     * Launch stage waiting for the {@link #getLaunchPrerequisites()}, providing the list of their
+     * {@link LaunchPrerequisite.Result}s.
+     */
+    public static final String STAGE_PREREQUISITES = "prerequisites";
+
+    /**
+     * Launch stage merging the prerequisite results, providing the
+     * {@link TrustedWebActivityIntentBuilder} that is going to be launched.
+     */
+    public static final String STAGE_BUILDER = "builder";
+
+    /** Launch stage providing the {@link LauncherActivityMetadata}. */
+    public static final String STAGE_METADATA = "metadata";
+
+    /**
+     * Launch stage picking the browser on a background thread, providing a
+     * {@link TwaProviderPicker.Action}.
+     */
+    public static final String STAGE_PROVIDER = "provider";
+
+    /**
+     * Launch stage binding to the browser and establishing a session, providing the
+     * {@link TwaLauncher}.
+     */
+    public static final String STAGE_SESSION = "session";
+
+    /** Launch stage showing the splash screen, which rasterizes the splash image. */
+    public static final String STAGE_SPLASH_SCREEN = "splashScreen";
+
+    /** Launch stage transferring the splash image to the browser. */
+    public static final String STAGE_SPLASH_TRANSFER = "splashTransfer";
+
+    /** Launch stage adding share and file handling data from the launching Intent. */
+    public static final String STAGE_INTENT_DATA = "intentData";
+
+    /** Launch stage launching the Trusted Web Activity, or the fallback. */
+    public static final String STAGE_LAUNCH = "launch";
+
     /** We only want to show the update prompt once per instance of this application. */
     private static boolean sChromeVersionChecked;
 
     /** See comment in onCreate. */
     private static int sLauncherActivitiesAlive;
 
+    /** Whether a Trusted Web Activity has been launched since the process started. */
+    private static boolean sTwaLaunchedInProcess;
+
+    /** Metadata doesn't change for the lifetime of the process, so we only parse it once. */
+    @Nullable
+    private static LauncherActivityMetadata sCachedMetadata;
+
+    @Nullable
+    private static ComponentName sCachedMetadataComponent;
+
     private LauncherActivityMetadata mMetadata;
 
     private boolean mBrowserWasLaunched;
 
+    /**
+     * Whether this Activity is only delivering a new Intent to a Trusted Web Activity that is
+     * already running.
+     */
+    private boolean mDeliveringToRunningTwa;
+
+    /**
+     * The launch plan recorded by a previous launch, see {@link LaunchPlan}. Read by
+     * {@link #STAGE_PROVIDER} on a background thread, only read on the main thread once that stage
+     * has completed, like the fields below.
+     */
+    @Nullable
+    private LaunchPlan mLaunchPlan;
+
+    /** The provider taken from {@link #mLaunchPlan} for this launch, if still valid. */
+    @Nullable
+    private String mPlannedProvider;
+
+    /** The session id of this Activity's task, see {@link SessionStore}. */
+    @Nullable
+    private Integer mSessionId;
+
+    /** The provider picked by {@link #STAGE_PROVIDER}. */
+    @Nullable
+    private TwaProviderPicker.Action mProviderAction;
+
+    @Nullable
+    private LaunchPipeline mLaunchPipeline;
+
+    private final LaunchTracer mLaunchTracer = new LaunchTracer();
+
+    /** Measures the time to the first paint of the launch, see {@link #getSessionCallback}. */
+    @Nullable
+    private FirstPaintTracker mFirstPaintTracker;
+
+    @Nullable
+    private CustomTabsCallback mSessionCallback;
+
+    /** Whether launching a Trusted Web Activity has failed and a fallback was used instead. */
+    private boolean mTwaLaunchFailed;
+
     @Nullable
     private PwaWrapperSplashScreenStrategy mSplashScreenStrategy;
 
@@ -132,6 +228,13 @@ public class LauncherActivity extends Activity {
     @Override
     protected void onCreate(@Nullable Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        LaunchTracer.setActive(mLaunchTracer);
+
+        // Start reading persisted state in the background. The launch neither touches the disk
+        // nor waits for it to be read on the main thread, the state is used by the background
+        // STAGE_PROVIDER.
+        LaunchPlan.preload(this);
+        LaunchStateStore.getInstance(this);
 
         WindowCompat.enableEdgeToEdge(getWindow());
         getWindow().addFlags(WindowManager.LayoutParams.FLAG_DRAWS_SYSTEM_BAR_BACKGROUNDS);
@@ -168,9 +271,13 @@ public class LauncherActivity extends Activity {
             return;
         }
 
-        mMetadata = LauncherActivityMetadata.parse(this);
+        mMetadata = getMetadata();
+
+        // If this Activity isn't the root of its task, it has been started on top of a Trusted Web
+        // Activity that is already running (see restartInNewTask).
+        mDeliveringToRunningTwa = RunningTwaSession.getInstance() != null && !isTaskRoot();
 
-        if (splashScreenNeeded()) {
+        if (!mDeliveringToRunningTwa && splashScreenNeeded()) {
             mSplashScreenStrategy = new PwaWrapperSplashScreenStrategy(this,
                     mMetadata.splashImageDrawableId,
                     getColorCompat(mMetadata.splashScreenBackgroundColorId),
@@ -191,6 +298,9 @@ public class LauncherActivity extends Activity {
      * {@link #onCreate(Bundle)}. Return {@code false} when a subclass needs to perform an asynchronous
      * task before launching the Trusted Web Activity. The subclass will then be responsible for
      * calling {@link #launchTwa()} itself once the asynchronous task is finished.
+     *
+     * Consider using {@link #getLaunchPrerequisites()} instead, which lets the launch preparation
+     * run while the asynchronous task is in progress.
      */
     protected boolean shouldLaunchImmediately() {
         return true;
@@ -198,7 +308,8 @@ public class LauncherActivity extends Activity {
 
     /**
      * Launches the Trusted Web Activity. This methods should only be called when
-     * {@link #shouldLaunchImmediately()} returns {@code false}.
+     * {@link #shouldLaunchImmediately()} returns {@code false}, or after a
+     * {@link LaunchPrerequisite} has cancelled the launch.
      */
     protected void launchTwa() {
         // When launching asynchronously, developers should check if the Activity is finishing
@@ -209,6 +320,58 @@ public class LauncherActivity extends Activity {
             return;
         }
 
+        // A previous attempt may have been stopped by a prerequisite, start afresh.
+        if (mLaunchPipeline != null) {
+            mLaunchPipeline.cancel();
+        }
+        if (mTwaLauncher != null) {
+            mTwaLauncher.destroy();
+            mTwaLauncher = null;
+        }
+
+        TrustedWebActivityIntentBuilder twaBuilder = createTwaBuilder(getLaunchingUrl());
+        List<LaunchPrerequisite> prerequisites = getLaunchPrerequisites();
+
+        // Prerequisites may change the URL, so they need the full launch.
+        if (mDeliveringToRunningTwa && prerequisites.isEmpty()) {
+            addShareDataIfPresent(twaBuilder);
+            addFileDataIfPresent(twaBuilder);
+            if (deliverToRunningTwa(twaBuilder)) return;
+        }
+
+        mFirstPaintTracker = new FirstPaintTracker(mStartupUptimeMillis, !sTwaLaunchedInProcess,
+                mLaunchTracer);
+        mSessionCallback = null;
+
+        LaunchPipeline pipeline = createLaunchPipeline(twaBuilder, prerequisites);
+        mLaunchPipeline = pipeline;
+        pipeline.setTracer(mLaunchTracer);
+        onConfigureLaunchPipeline(pipeline);
+        pipeline.start(new LaunchPipeline.Listener() {
+            @Override
+            public void onCompleted() {
+                Log.d(TAG, mLaunchTracer.toString());
+            }
+
+            @Override
+            public void onFailed(@NonNull String stageName, @Nullable Throwable error) {
+                if (mBrowserWasLaunched || isFinishing()) return;
+
+                Log.w(TAG, "Launch failed at stage " + stageName + ", using the fallback.");
+                TrustedWebActivityIntentBuilder builder = pipeline.getResult(STAGE_BUILDER);
+                String providerPackage =
+                        mTwaLauncher == null ? null : mTwaLauncher.getProviderPackage();
+                getFallbackStrategy().launch(LauncherActivity.this,
+                        builder != null ? builder : twaBuilder, providerPackage,
+                        () -> {
+                            mBrowserWasLaunched = true;
+                            finish();
+                        });
+            }
+        });
+    }
+
+    private TrustedWebActivityIntentBuilder createTwaBuilder(Uri launchUrl) {
         CustomTabColorSchemeParams defaultColorScheme = new CustomTabColorSchemeParams.Builder()
                 .setNavigationBarColor(getColorCompat(mMetadata.navigationBarColorId))
                 .setNavigationBarDividerColor(getColorCompat(mMetadata.navigationBarDividerColorId))
@@ -221,7 +384,6 @@ public class LauncherActivity extends Activity {
                         getColorCompat(mMetadata.navigationBarDividerColorDarkId))
                 .build();
 
-        Uri launchUrl = getLaunchingUrl();
         TrustedWebActivityIntentBuilder twaBuilder =
                 new TrustedWebActivityIntentBuilder(launchUrl)
                         .setDefaultColorSchemeParams(defaultColorScheme)
@@ -241,27 +403,262 @@ public class LauncherActivity extends Activity {
         if (mMetadata.additionalTrustedOrigins != null) {
             twaBuilder.setAdditionalTrustedOrigins(mMetadata.additionalTrustedOrigins);
         }
+        return twaBuilder;
+    }
 
-        addShareDataIfPresent(twaBuilder);
-        addFileDataIfPresent(twaBuilder);
+    /**
+     * Override to have the launch wait for asynchronous work, such as fetching data to add to
+     * the launch URL or deciding whether to launch at all (see {@link LaunchPrerequisite}). The
+     * prerequisites are started when the launch starts and run in parallel with picking the
+     * browser, connecting to it and showing the splash screen. Their results are merged into the
+     * {@link TrustedWebActivityIntentBuilder} once they have all reported, or once
+     * {@link #getLaunchPrerequisitesDeadlineMillis()} has passed, whichever comes first.
+     *
+     * This replaces returning {@code false} from {@link #shouldLaunchImmediately()} and calling
+     * {@link #launchTwa()} later, which delays the whole launch preparation.
+     */
+    @NonNull
+    protected List<LaunchPrerequisite> getLaunchPrerequisites() {
+        return Collections.emptyList();
+    }
 
-        mTwaLauncher = createTwaLauncher();
-        mTwaLauncher.setStartupUptimeMillis(mStartupUptimeMillis);
+    /**
+     * Returns how long the launch waits for the {@link #getLaunchPrerequisites()} before
+     * proceeding without the ones that haven't reported.
+     */
+    protected long getLaunchPrerequisitesDeadlineMillis() {
+        return DEFAULT_LAUNCH_PREREQUISITES_DEADLINE_MILLIS;
+    }
+
+    /**
+     * Override to add stages to the launch pipeline. To make the launch wait for a stage, use
+     * {@code pipeline.getStage(STAGE_LAUNCH).dependsOn(stageName)}. Stages running on the main
+     * thread that depend on {@link #STAGE_BUILDER} may modify the
+     * {@link TrustedWebActivityIntentBuilder} it provides. For the common case of waiting for
+     * asynchronous data, {@link #getLaunchPrerequisites()} is simpler.
+     *
+     * Stages added here should have a deadline and a fallback (see {@link LaunchPipeline.Stage}),
+     * otherwise a slow or failing stage delays or prevents the launch.
+     */
+    protected void onConfigureLaunchPipeline(@NonNull LaunchPipeline pipeline) {
+    }
+
+    /**
+     * Returns the trace of this Activity's launch: how long each stage took, and the calls to the
+     * PackageManager and other system services made in each stage. It's logged once the launch
+     * has completed.
+     */
+    @NonNull
+    protected LaunchTracer getLaunchTracer() {
+        return mLaunchTracer;
+    }
+
+    private LaunchPipeline createLaunchPipeline(TrustedWebActivityIntentBuilder twaBuilder,
+            List<LaunchPrerequisite> prerequisites) {
+        LaunchPipeline pipeline = new LaunchPipeline();
+
+        pipeline.addStage(new LaunchPipeline.Stage(STAGE_PREREQUISITES,
+                LaunchPipeline.RunOn.MAIN_THREAD,
+                new LaunchPrerequisitesTask(prerequisites,
+                        getLaunchPrerequisitesDeadlineMillis())));
+
+        pipeline.addStage(new LaunchPipeline.Stage(STAGE_BUILDER,
+                LaunchPipeline.RunOn.MAIN_THREAD,
+                context -> {
+                    List<LaunchPrerequisite.Result> results =
+                            context.getResult(STAGE_PREREQUISITES);
+                    TrustedWebActivityIntentBuilder builder =
+                            applyPrerequisiteResults(twaBuilder, results);
+                    if (builder == null) {
+                        Log.d(TAG, "Launch cancelled by a launch prerequisite.");
+                        pipeline.cancel();
+                        return;
+                    }
+                    context.complete(builder);
+                }));
+
+        pipeline.addStage(new LaunchPipeline.Stage(STAGE_METADATA,
+                LaunchPipeline.RunOn.MAIN_THREAD,
+                context -> context.complete(mMetadata)));
+
+        int taskId = getTaskId();
+        pipeline.addStage(new LaunchPipeline.Stage(STAGE_PROVIDER,
+                LaunchPipeline.RunOn.BACKGROUND,
+                context -> {
+                    // These may have to wait for the state to be read from disk.
+                    mLaunchPlan = LaunchPlan.get(this);
+                    mSessionId = SessionStore.makeSessionId(this, taskId);
+                    context.complete(pickProvider(mLaunchPlan));
+                })
+                .dependsOn(STAGE_METADATA));
+
+        pipeline.addStage(new LaunchPipeline.Stage(STAGE_SESSION,
+                LaunchPipeline.RunOn.MAIN_THREAD,
+                context -> {
+                    mProviderAction = context.getResult(STAGE_PROVIDER);
+                    mTwaLauncher = createTwaLauncher();
+                    mTwaLauncher.setStartupUptimeMillis(mStartupUptimeMillis);
+                    mTwaLauncher.connect(getSessionCallback(),
+                            () -> context.complete(mTwaLauncher),
+                            context.getCancellationSignal());
+                })
+                .dependsOn(STAGE_PROVIDER));
+
+        pipeline.addStage(new LaunchPipeline.Stage(STAGE_SPLASH_SCREEN,
+                LaunchPipeline.RunOn.MAIN_THREAD,
+                context -> {
+                    TwaProviderPicker.Action action = context.getResult(STAGE_PROVIDER);
+                    if (mSplashScreenStrategy != null && action.launchMode
+                            == TwaProviderPicker.LaunchMode.TRUSTED_WEB_ACTIVITY) {
+                        showSplashScreen(action.provider, twaBuilder);
+                    }
+                    context.complete(null);
+                })
+                .dependsOn(STAGE_PROVIDER));
+
+        pipeline.addStage(new LaunchPipeline.Stage(STAGE_SPLASH_TRANSFER,
+                LaunchPipeline.RunOn.MAIN_THREAD,
+                context -> {
+                    TwaLauncher twaLauncher = context.getResult(STAGE_SESSION);
+                    TwaProviderPicker.Action action = context.getResult(STAGE_PROVIDER);
+                    TrustedWebActivityIntentBuilder builder = context.getResult(STAGE_BUILDER);
+                    CustomTabsSession session = twaLauncher.getSession();
+                    // The splash screen was prepared for the picked provider, if we've failed
+                    // over to another one the image can't be transferred to it.
+                    if (mSplashScreenStrategy == null || session == null
+                            || !TextUtils.equals(action.provider,
+                                    twaLauncher.getProviderPackage())) {
+                        context.complete(null);
+                        return;
+                    }
+                    mSplashScreenStrategy.configureTwaBuilder(builder, session,
+                            () -> context.complete(null), context.getCancellationSignal());
+                })
+                .dependsOn(STAGE_PROVIDER, STAGE_SESSION, STAGE_SPLASH_SCREEN, STAGE_BUILDER));
+
+        pipeline.addStage(new LaunchPipeline.Stage(STAGE_INTENT_DATA,
+                LaunchPipeline.RunOn.MAIN_THREAD,
+                context -> {
+                    TrustedWebActivityIntentBuilder builder = context.getResult(STAGE_BUILDER);
+                    addShareDataIfPresent(builder);
+                    addFileDataIfPresent(builder);
+                    context.complete(null);
+                })
+                .dependsOn(STAGE_METADATA, STAGE_BUILDER));
+
+        pipeline.addStage(new LaunchPipeline.Stage(STAGE_LAUNCH,
+                LaunchPipeline.RunOn.MAIN_THREAD,
+                context -> {
+                    launchInSession(context.getResult(STAGE_BUILDER));
+                    context.complete(null);
+                })
+                .dependsOn(STAGE_SESSION, STAGE_SPLASH_TRANSFER, STAGE_INTENT_DATA,
+                        STAGE_BUILDER));
+
+        return pipeline;
+    }
+
+    /**
+     * Merges the results of the launch prerequisites into the builder, creating a new one if the
+     * URL has changed. Returns {@code null} if a prerequisite has cancelled the launch.
+     */
+    @Nullable
+    private TrustedWebActivityIntentBuilder applyPrerequisiteResults(
+            TrustedWebActivityIntentBuilder twaBuilder, List<LaunchPrerequisite.Result> results) {
+        if (results.isEmpty()) return twaBuilder;
+
+        Uri launchUrl = twaBuilder.getUri();
+        for (LaunchPrerequisite.Result result : results) {
+            if (!result.shouldLaunch()) return null;
+            launchUrl = result.transformLaunchUrl(launchUrl);
+        }
+
+        TrustedWebActivityIntentBuilder builder = launchUrl.equals(twaBuilder.getUri())
+                ? twaBuilder : createTwaBuilder(launchUrl);
+        for (LaunchPrerequisite.Result result : results) {
+            result.applyTo(builder);
+        }
+        return builder;
+    }
+
+    /** Picks the browser to launch, using the given plan if it's still valid. */
+    private TwaProviderPicker.Action pickProvider(@Nullable LaunchPlan launchPlan) {
+        if (mMetadata.launchingBrowser != null) {
+            return new TwaProviderPicker.Action(TwaProviderPicker.LaunchMode.TRUSTED_WEB_ACTIVITY,
+                    mMetadata.launchingBrowser);
+        }
+
+        TwaProviderPicker.ProviderPolicy policy = getProviderPolicy();
+        if (launchPlan != null) {
+            TwaProviderPicker.Action plannedAction =
+                    launchPlan.getTwaAction(getPackageManager(), policy);
+            if (plannedAction != null) {
+                // Only read on the main thread once this stage has completed.
+                mPlannedProvider = plannedAction.provider;
+                return plannedAction;
+            }
+        }
+        return TwaProviderPicker.pickProvider(getPackageManager(), policy);
+    }
+
+    /**
+     * Override to have the choice of browser take into account how the browsers behaved in
+     * previous launches, for example by returning a {@link CircuitBreakerProviderPolicy} so that
+     * a browser that keeps failing to launch Trusted Web Activities is skipped for a while. This
+     * is called on a background thread. Returns {@code null} by default, in which case the user's
+     * preferred browser is always used if it supports Trusted Web Activities.
+     */
+    @Nullable
+    protected TwaProviderPicker.ProviderPolicy getProviderPolicy() {
+        return null;
+    }
+
+    private void showSplashScreen(String providerPackage,
+            TrustedWebActivityIntentBuilder twaBuilder) {
+        Boolean supportsSplashScreens =
+                mLaunchPlan == null ? null : mLaunchPlan.providerSupportsSplashScreens();
+        if (providerPackage.equals(mPlannedProvider) && supportsSplashScreens != null) {
+            mSplashScreenStrategy.setProviderSupportsSplashScreens(providerPackage,
+                    supportsSplashScreens);
+        }
+        mSplashScreenStrategy.onTwaLaunchInitiated(providerPackage, twaBuilder);
+    }
+
+    /**
+     * Launches the Trusted Web Activity (or the fallback) once the session has been established
+     * and the splash screen has been prepared.
+     */
+    private void launchInSession(TrustedWebActivityIntentBuilder twaBuilder) {
+        TwaLauncher.FallbackStrategy fallbackStrategy = getFallbackStrategy();
+        // The splash screen has already been taken care of by the pipeline.
         mTwaLauncher.launch(twaBuilder,
-                getCustomTabsCallback(),
-                mSplashScreenStrategy,
+                getSessionCallback(),
+                null,
                 () -> {
+                    onTwaLaunched();
                     mBrowserWasLaunched = true;
+                    retainRunningTwaSession();
+                    saveLaunchPlan();
                     finish();
                 },
-                getFallbackStrategy());
+                (context, builder, providerPackage, completionCallback) -> {
+                    if (mTwaLauncher.getLaunchMode()
+                            == TwaProviderPicker.LaunchMode.TRUSTED_WEB_ACTIVITY) {
+                        // The provider we've picked (or remembered) is unable to launch Trusted
+                        // Web Activities, make sure we don't stick with it next time.
+                        mTwaLaunchFailed = true;
+                        LaunchPlan.clear(this);
+                    }
+                    fallbackStrategy.launch(context, builder, providerPackage,
+                            completionCallback);
+                });
 
         if (!sChromeVersionChecked) {
             ChromeUpdatePrompt.promptIfNeeded(this, mTwaLauncher.getProviderPackage());
             sChromeVersionChecked = true;
         }
 
-        if (ChromeOsSupport.isRunningOnArc(getApplicationContext().getPackageManager())) {
+        if (DeviceProfile.getInstance(this).isRunningOnArc()) {
             new TwaSharedPreferencesManager(this)
                     .writeLastLaunchedProviderPackageName(ChromeOsSupport.ARC_PAYMENT_APP);
         } else {
@@ -269,17 +666,158 @@ public class LauncherActivity extends Activity {
                     .writeLastLaunchedProviderPackageName(mTwaLauncher.getProviderPackage());
         }
 
-        ManageDataLauncherActivity.addSiteSettingsShortcut(this,
+        ManageDataLauncherActivity.syncSiteSettingsShortcut(this,
                 mTwaLauncher.getProviderPackage());
+
+        WarmupScheduler.onAppLaunched(this);
+    }
+
+    /** Records the launch in the {@link FirstPaintTracker}, unless the fallback was used. */
+    private void onTwaLaunched() {
+        if (mFirstPaintTracker == null || mTwaLaunchFailed || mTwaLauncher.getLaunchMode()
+                != TwaProviderPicker.LaunchMode.TRUSTED_WEB_ACTIVITY) {
+            return;
+        }
+
+        String splashMode = FirstPaintTracker.SPLASH_NONE;
+        if (mSplashScreenStrategy != null && mSplashScreenStrategy.isSplashImageTransferred()) {
+            splashMode = FirstPaintTracker.SPLASH_TRANSFERRED;
+        } else if (mSplashScreenStrategy != null && mSplashScreenStrategy.isSplashScreenShown()) {
+            splashMode = FirstPaintTracker.SPLASH_IN_APP;
+        }
+        mFirstPaintTracker.onLaunched(mTwaLauncher.getProviderPackage(), splashMode);
+        sTwaLaunchedInProcess = true;
+    }
+
+    /**
+     * Forwards the navigation to the Trusted Web Activity that is already running, reusing the
+     * provider, session and metadata of the LauncherActivity that launched it. The splash screen,
+     * the update prompt, the preference writes and the shortcut updates are all skipped since they
+     * have been taken care of by that launch.
+     *
+     * Returns {@code false} if the running Trusted Web Activity doesn't have a live session, in
+     * which case the full launch sequence should be used instead.
+     */
+    private boolean deliverToRunningTwa(TrustedWebActivityIntentBuilder twaBuilder) {
+        RunningTwaSession runningSession = RunningTwaSession.getInstance();
+        if (runningSession == null || runningSession.taskId != getTaskId()) return false;
+
+        // The TwaLauncher uses the kept session rather than connecting to the provider.
+        mProviderAction = new TwaProviderPicker.Action(
+                TwaProviderPicker.LaunchMode.TRUSTED_WEB_ACTIVITY, runningSession.providerPackage);
+        mSessionId = runningSession.sessionId;
+        mTwaLauncher = createTwaLauncher();
+        mTwaLauncher.setEstablishedSession(runningSession.session);
+        boolean launched = mTwaLauncher.launchInEstablishedSession(this, twaBuilder,
+                mStartupUptimeMillis,
+                () -> {
+                    mBrowserWasLaunched = true;
+                    finish();
+                });
+        if (launched) {
+            Log.d(TAG, "Delivered Intent to the running Trusted Web Activity.");
+        } else {
+            mTwaLauncher.destroy();
+            mTwaLauncher = null;
+            mProviderAction = null;
+            mSessionId = null;
+        }
+        return launched;
+    }
+
+    /**
+     * Keeps the session of {@link #mTwaLauncher} after this Activity finishes, see
+     * {@link RunningTwaSession}, replacing the one kept before.
+     */
+    private void retainRunningTwaSession() {
+        CustomTabsSession session = mTwaLauncher == null ? null : mTwaLauncher.getSession();
+        if (session == null || mSessionId == null) return;
+
+        RunningTwaSession.retain(this, session, mTwaLauncher.getProviderPackage(), mSessionId,
+                getTaskId());
     }
 
+    private LauncherActivityMetadata getMetadata() {
+        ComponentName componentName = getComponentName();
+        if (sCachedMetadata != null && componentName.equals(sCachedMetadataComponent)) {
+            return sCachedMetadata;
+        }
+
+        // The plan is only used if it has been read by now, e.g. by a previous launch in this
+        // process, reading the metadata is quicker than waiting for it.
+        LaunchPlan launchPlan = LaunchPlan.getIfLoaded();
+        Bundle metaData = null;
+        if (launchPlan != null) {
+            metaData = launchPlan.getMetaData(this, componentName);
+            Boolean focusActivityDeclared =
+                    launchPlan.isFocusActivityDeclared(this, componentName);
+            if (focusActivityDeclared != null) {
+                FocusActivity.setActivityExists(focusActivityDeclared);
+            }
+        }
+        if (metaData == null) {
+            metaData = LauncherActivityMetadata.readMetaData(this);
+        }
+
+        sCachedMetadata = LauncherActivityMetadata.fromMetaData(metaData, getResources());
+        sCachedMetadataComponent = componentName;
+        return sCachedMetadata;
+    }
+
+    /** Records this launch so that the next cold start can skip most of the preparation. */
+    private void saveLaunchPlan() {
+        if (mTwaLauncher == null || mTwaLaunchFailed) return;
+
+        // The providers that could have been launched instead, including the one we've failed
+        // over from, if any.
+        List<String> alternativeTwaProviders = new ArrayList<>();
+        if (mProviderAction != null && mProviderAction.launchMode
+                == TwaProviderPicker.LaunchMode.TRUSTED_WEB_ACTIVITY) {
+            alternativeTwaProviders.add(mProviderAction.provider);
+            alternativeTwaProviders.addAll(mProviderAction.alternativeTwaProviders);
+        }
+        alternativeTwaProviders.remove(mTwaLauncher.getProviderPackage());
+
+        LaunchPlan.save(this, getComponentName(), mMetadata.metaData,
+                mTwaLauncher.getProviderPackage(), mTwaLauncher.getLaunchMode(),
+                alternativeTwaProviders);
+    }
+
+    /**
+     * Override to receive messages from the browser, e.g. to replace the {@link QualityEnforcer}.
+     * The callback is chained with the {@link FirstPaintTracker} of the launch, so overriding
+     * this doesn't stop the time to the first paint from being measured.
+     */
     protected CustomTabsCallback getCustomTabsCallback() {
         return new QualityEnforcer();
     }
 
+    /**
+     * Returns the callback the session is created with: the one from
+     * {@link #getCustomTabsCallback()} chained with the {@link FirstPaintTracker}.
+     */
+    private CustomTabsCallback getSessionCallback() {
+        if (mSessionCallback == null) {
+            CustomTabsCallback callback = getCustomTabsCallback();
+            if (mFirstPaintTracker == null) {
+                mSessionCallback = callback;
+            } else if (callback == null) {
+                mSessionCallback = mFirstPaintTracker;
+            } else {
+                mSessionCallback = new CompositeCustomTabsCallback(callback, mFirstPaintTracker);
+            }
+        }
+        return mSessionCallback;
+    }
+
     protected TwaLauncher createTwaLauncher() {
-        return new TwaLauncher(this, mMetadata.launchingBrowser, SessionStore.makeSessionId(getTaskId()),
-                new SharedPreferencesTokenStore(this));
+        // Outside of the launch pipeline, e.g. when called by a subclass, the provider and session
+        // id haven't been prepared in the background.
+        TwaProviderPicker.Action action = mProviderAction != null
+                ? mProviderAction : pickProvider(LaunchPlan.getIfLoaded());
+        int sessionId = mSessionId != null
+                ? mSessionId : SessionStore.makeSessionId(this, getTaskId());
+        return new TwaLauncher(this, action, sessionId, new SharedPreferencesTokenStore(this));
     }
 
     private boolean splashScreenNeeded() {
@@ -373,6 +911,14 @@ public class LauncherActivity extends Activity {
 
         sLauncherActivitiesAlive--;
 
+        if (mLaunchPipeline != null) {
+            mLaunchPipeline.cancel();
+        }
+        if (LaunchTracer.getActive() == mLaunchTracer) {
+            LaunchTracer.setActive(null);
+        }
+
+        // The session outlives the TwaLauncher if it has been kept, see RunningTwaSession.
         if (mTwaLauncher != null) {
             mTwaLauncher.destroy();
         }
@@ -30,11 +30,11 @@ import androidx.browser.trusted.TrustedWebActivityDisplayMode;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-import com.google.common.collect.ImmutableMap;
-
 import static android.view.WindowManager.LayoutParams.LAYOUT_IN_DISPLAY_CUTOUT_MODE_DEFAULT;
 
 /**
@@ -171,12 +171,16 @@ public class LauncherActivityMetadata {
      */
     private static final String LAUNCH_HANDLER_CLIENT_MODE_METADATA_NAME
             = "android.support.customtabs.trusted.LAUNCH_HANDLER_CLIENT_MODE";
-    private static final Map<String, Integer> LAUNCH_HANDLER_CLIENT_MODE_MAP =
-            ImmutableMap.of(
-                    "navigate-existing", LaunchHandlerClientMode.NAVIGATE_EXISTING,
-                    "focus-existing", LaunchHandlerClientMode.FOCUS_EXISTING,
-                    "navigate-new", LaunchHandlerClientMode.NAVIGATE_NEW,
-                    "auto", LaunchHandlerClientMode.AUTO);
+    private static final Map<String, Integer> LAUNCH_HANDLER_CLIENT_MODE_MAP;
+    static {
+        Map<String, Integer> launchHandlerClientModes = new HashMap<>();
+        launchHandlerClientModes.put("navigate-existing",
+                LaunchHandlerClientMode.NAVIGATE_EXISTING);
+        launchHandlerClientModes.put("focus-existing", LaunchHandlerClientMode.FOCUS_EXISTING);
+        launchHandlerClientModes.put("navigate-new", LaunchHandlerClientMode.NAVIGATE_NEW);
+        launchHandlerClientModes.put("auto", LaunchHandlerClientMode.AUTO);
+        LAUNCH_HANDLER_CLIENT_MODE_MAP = Collections.unmodifiableMap(launchHandlerClientModes);
+    }
     /**
     * Whether to start Chrome before the enter animation is complete. Default is false.
     */
@@ -221,7 +225,11 @@ public class LauncherActivityMetadata {
     @Nullable public final String launchingBrowser;
     @Nullable public final String launchingBrowserName;
 
+    /** The raw meta-data this instance has been parsed from. */
+    @NonNull final Bundle metaData;
+
     private LauncherActivityMetadata(@NonNull Bundle metaData, @NonNull Resources resources) {
+        this.metaData = metaData;
         defaultUrl = metaData.getString(METADATA_DEFAULT_URL);
         statusBarColorId = metaData.getInt(METADATA_STATUS_BAR_COLOR_ID, DEFAULT_COLOR_ID);
         statusBarColorDarkId = metaData.getInt(METADATA_STATUS_BAR_COLOR_DARK_ID, statusBarColorId);
@@ -346,8 +354,25 @@ public class LauncherActivityMetadata {
      * Creates LauncherActivityMetadata instance based on metadata of the passed Activity.
      */
     public static LauncherActivityMetadata parse(Context context) {
-        Resources resources = context.getResources();
+        return fromMetaData(readMetaData(context), context.getResources());
+    }
+
+    /**
+     * Creates LauncherActivityMetadata instance from meta-data previously read with
+     * {@link #readMetaData}.
+     */
+    static LauncherActivityMetadata fromMetaData(@NonNull Bundle metaData,
+            @NonNull Resources resources) {
+        return new LauncherActivityMetadata(metaData, resources);
+    }
+
+    /**
+     * Reads the meta-data of the passed Activity (and of the activity alias it was launched
+     * through, if any) from the PackageManager.
+     */
+    static Bundle readMetaData(Context context) {
         Bundle metaData = new Bundle();
+        long ipcStart = LaunchTracer.startIpc();
         try {
             Bundle launchedComponentMetaData = context.getPackageManager().getActivityInfo(
                 new ComponentName(context, context.getClass()),
@@ -356,11 +381,15 @@ public class LauncherActivityMetadata {
                 metaData.putAll(launchedComponentMetaData);
             }
 
+            LaunchTracer.endIpc("PackageManager.getActivityInfo", ipcStart);
+
             if (context instanceof Activity) {
                 Activity activity = (Activity) context;
+                ipcStart = LaunchTracer.startIpc();
                 ActivityInfo activityInfo = activity.getPackageManager().getActivityInfo(
                     activity.getComponentName(),
                     PackageManager.GET_META_DATA);
+                LaunchTracer.endIpc("PackageManager.getActivityInfo", ipcStart);
                 if (activityInfo.targetActivity != null && activityInfo.metaData != null) {
                     // The app was launched through the activity alias -
                     // get all the metadata from the alias too
@@ -371,6 +400,6 @@ public class LauncherActivityMetadata {
             // Will only happen if the package provided (the one we are running in) is not
             // installed - so should never happen.
         }
-        return new LauncherActivityMetadata(metaData, resources);
+        return metaData;
     }
 }
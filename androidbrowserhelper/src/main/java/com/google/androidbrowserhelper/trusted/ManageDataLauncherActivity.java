@@ -45,14 +45,17 @@ import com.google.androidbrowserhelper.R;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
 import androidx.browser.customtabs.CustomTabsCallback;
 import androidx.browser.customtabs.CustomTabsClient;
 import androidx.browser.customtabs.CustomTabsIntent;
 import androidx.browser.customtabs.CustomTabsService;
 import androidx.browser.customtabs.CustomTabsServiceConnection;
 import androidx.browser.customtabs.CustomTabsSession;
+import androidx.core.content.pm.PackageInfoCompat;
 
 /**
  * A convenience class for routing "Manage Space" clicks in the settings of apps hosting Trusted Web
@@ -89,7 +92,8 @@ public class ManageDataLauncherActivity extends Activity {
     public static final String OVERRIDE_IC_SITE_SETTINGS_ID =
             "drawable/override_ic_site_settings";
 
-    @Nullable
+    private static final Executor sShortcutExecutor = BackgroundExecutors.newSequentialExecutor();
+
     private String mProviderPackage;
 
     @Nullable
@@ -404,4 +408,63 @@ public class ManageDataLauncherActivity extends Activity {
         }
         shortcutManager.addDynamicShortcuts(Collections.singletonList(shortcut));
     }
+
+    /**
+     * Does what {@link #addSiteSettingsShortcut} does, but on a background thread and only if the
+     * provider, its version or this app have changed since the last time it was done. The
+     * outcome only depends on those, so there's no need to query the package manager and update
+     * the shortcut on every launch.
+     */
+    static void syncSiteSettingsShortcut(Context context, @Nullable String packageName) {
+        Context appContext = context.getApplicationContext();
+        syncSiteSettingsShortcut(appContext, packageName,
+                LaunchStateStore.getInstance(appContext), sShortcutExecutor);
+    }
+
+    @VisibleForTesting
+    static void syncSiteSettingsShortcut(Context context, @Nullable String packageName,
+            LaunchStateStore store, Executor executor) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.N_MR1) return;
+
+        executor.execute(() -> {
+            String state = getSiteSettingsShortcutState(context, packageName);
+            if (state.equals(store.getSiteSettingsShortcutState())) return;
+
+            addSiteSettingsShortcut(context, packageName);
+            store.setSiteSettingsShortcutState(state);
+        });
+    }
+
+    private static String getSiteSettingsShortcutState(Context context,
+            @Nullable String packageName) {
+        PackageManager packageManager = context.getPackageManager();
+        // Our own update time covers changes to the manifest and the shortcut icon.
+        return packageName + ":" + getVersionCode(packageManager, packageName) + ":"
+                + getLastUpdateTime(packageManager, context.getPackageName());
+    }
+
+    private static long getVersionCode(PackageManager packageManager,
+            @Nullable String packageName) {
+        if (packageName == null) return -1;
+        long ipcStart = LaunchTracer.startIpc();
+        try {
+            return PackageInfoCompat.getLongVersionCode(
+                    packageManager.getPackageInfo(packageName, 0));
+        } catch (PackageManager.NameNotFoundException e) {
+            return -1;
+        } finally {
+            LaunchTracer.endIpc("PackageManager.getPackageInfo", ipcStart);
+        }
+    }
+
+    private static long getLastUpdateTime(PackageManager packageManager, String packageName) {
+        long ipcStart = LaunchTracer.startIpc();
+        try {
+            return packageManager.getPackageInfo(packageName, 0).lastUpdateTime;
+        } catch (PackageManager.NameNotFoundException e) {
+            return -1;
+        } finally {
+            LaunchTracer.endIpc("PackageManager.getPackageInfo", ipcStart);
+        }
+    }
 }
@@ -22,6 +22,11 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.browser.trusted.TrustedWebActivityCallbackRemote;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
 /**
  * Handles extra commands related to notification delegation such as checking and requesting permission.
  */
@@ -33,6 +38,15 @@ public class NotificationDelegationExtraCommandHandler implements ExtraCommandHa
     private static final String KEY_NOTIFICATION_CHANNEL_NAME = "notificationChannelName";
     private static final String KEY_NOTIFICATION_PERMISSION_REQUEST_PENDING_INTENT =
             "notificationPermissionRequestPendingIntent";
+    private static final Set<String> COMMAND_NAMES = Collections.unmodifiableSet(new HashSet<>(
+            Arrays.asList(COMMAND_CHECK_NOTIFICATION_PERMISSION,
+                    COMMAND_GET_NOTIFICATION_PERMISSION_REQUEST_PENDING_INTENT)));
+
+    @NonNull
+    @Override
+    public Set<String> getCommandNames() {
+        return COMMAND_NAMES;
+    }
 
     @NonNull
     @Override
@@ -84,6 +84,9 @@ public class NotificationPermissionRequestActivity extends Activity {
 
     @Override
     public void onRequestPermissionsResult(int requestCode, String[] permissions, int[] grantResults) {
+        // Whatever the user chose, what NotificationUtils remembers may no longer hold.
+        NotificationUtils.onNotificationStateChanged();
+
         boolean enabled = false;
         for (int i = 0; i < permissions.length; i++) {
             if (!permissions[i].equals(PERMISSION_POST_NOTIFICATIONS)) continue;
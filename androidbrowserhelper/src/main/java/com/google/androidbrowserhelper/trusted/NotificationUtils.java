@@ -16,28 +16,68 @@ package com.google.androidbrowserhelper.trusted;
 
 import android.app.NotificationChannel;
 import android.app.NotificationManager;
+import android.content.BroadcastReceiver;
 import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
 import android.os.Build;
+
+import androidx.annotation.VisibleForTesting;
 import androidx.core.app.NotificationManagerCompat;
+
+import java.util.HashMap;
 import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Helper for interacting with the notification manager and channels.
+ *
+ * From Android P, whether notifications are enabled is remembered per channel, as the browser asks
+ * for it often and each check takes two calls to the NotificationManager. The system tells us when
+ * the user blocks or unblocks the app or one of its channels, and we forget what we remembered
+ * then, as well as when we create a channel or the user answers our permission request. Before
+ * P there are no such broadcasts, so nothing is remembered.
  */
 public class NotificationUtils {
+    private static final AtomicBoolean sRegisteringBlockStateReceiver = new AtomicBoolean();
+    /** Nothing is remembered until the receiver that tells us to forget it is registered. */
+    private static volatile boolean sBlockStateReceiverRegistered;
+
+    // Guarded by NotificationUtils.class.
+    private static final Map<String, Boolean> sEnabledByChannelId = new HashMap<>();
+    /** Incremented whenever the remembered states are dropped. */
+    private static int sGeneration;
+
     private NotificationUtils() {}
 
     /**
      * Returns true if notifications are enabled and either the channel does not exist or it has not been disabled.
      */
     public static boolean areNotificationsEnabled(Context context, String channelName) {
-        if (!NotificationManagerCompat.from(context).areNotificationsEnabled()) return false;
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.P) {
+            return queryNotificationsEnabled(context, channelName);
+        }
 
-        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.O) return true;
+        // Registering is a call to the system, so it's done without holding the lock.
+        registerBlockStateReceiverIfNeeded(context);
 
-        NotificationChannel channel =
-                    NotificationManagerCompat.from(context).getNotificationChannel(channelNameToId(channelName));
-        return channel == null || channel.getImportance() != NotificationManager.IMPORTANCE_NONE;
+        String channelId = channelNameToId(channelName);
+        int generation;
+        synchronized (NotificationUtils.class) {
+            Boolean enabled = sEnabledByChannelId.get(channelId);
+            if (enabled != null) return enabled;
+            generation = sGeneration;
+        }
+
+        boolean enabled = queryNotificationsEnabled(context, channelName);
+        synchronized (NotificationUtils.class) {
+            // Don't remember the result if things have changed while we were checking.
+            if (generation == sGeneration && sBlockStateReceiverRegistered) {
+                sEnabledByChannelId.put(channelId, enabled);
+            }
+        }
+        return enabled;
     }
 
     /**
@@ -49,6 +89,61 @@ public class NotificationUtils {
         NotificationChannel channel = new NotificationChannel(channelNameToId(channelName),
                 channelName, NotificationManager.IMPORTANCE_DEFAULT);
         NotificationManagerCompat.from(context).createNotificationChannel(channel);
+        // On T, creating the first channel may make the system ask for the permission.
+        onNotificationStateChanged();
+    }
+
+    /**
+     * Forgets whether notifications are enabled, to be called when that may have changed in a way
+     * the system doesn't tell us about, e.g. after asking the user for the permission.
+     */
+    static synchronized void onNotificationStateChanged() {
+        sEnabledByChannelId.clear();
+        sGeneration++;
+    }
+
+    @VisibleForTesting
+    static synchronized void resetForTesting() {
+        onNotificationStateChanged();
+        sRegisteringBlockStateReceiver.set(false);
+        sBlockStateReceiverRegistered = false;
+    }
+
+    private static boolean queryNotificationsEnabled(Context context, String channelName) {
+        if (!NotificationManagerCompat.from(context).areNotificationsEnabled()) return false;
+
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.O) return true;
+
+        NotificationChannel channel =
+                    NotificationManagerCompat.from(context).getNotificationChannel(channelNameToId(channelName));
+        return channel == null || channel.getImportance() != NotificationManager.IMPORTANCE_NONE;
+    }
+
+    private static void registerBlockStateReceiverIfNeeded(Context context) {
+        if (!sRegisteringBlockStateReceiver.compareAndSet(false, true)) return;
+
+        IntentFilter filter = new IntentFilter();
+        filter.addAction(NotificationManager.ACTION_APP_BLOCK_STATE_CHANGED);
+        filter.addAction(NotificationManager.ACTION_NOTIFICATION_CHANNEL_BLOCK_STATE_CHANGED);
+        context.getApplicationContext().registerReceiver(new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                String channelId =
+                        intent.getStringExtra(NotificationManager.EXTRA_NOTIFICATION_CHANNEL_ID);
+                if (NotificationManager.ACTION_NOTIFICATION_CHANNEL_BLOCK_STATE_CHANGED
+                        .equals(intent.getAction()) && channelId != null) {
+                    onChannelStateChanged(channelId);
+                } else {
+                    onNotificationStateChanged();
+                }
+            }
+        }, filter);
+        sBlockStateReceiverRegistered = true;
+    }
+
+    private static synchronized void onChannelStateChanged(String channelId) {
+        sEnabledByChannelId.remove(channelId);
+        sGeneration++;
     }
 
     /**
@@ -25,7 +25,6 @@ public class PrefUtils {
     private PrefUtils() {}
 
     private static final String SHARED_PREFERENCES_NAME = "com.google.androidbrowserhelper";
-    private static final String KEY_HAS_REQUESTED_NOTIFICATION_PERMISSION = "HAS_REQUESTED_NOTIFICATION_PERMISSION";
 
     /**
      * Returns the application level {@link SharedPreferences} using the application context.
@@ -35,11 +34,15 @@ public class PrefUtils {
                 Context.MODE_PRIVATE);
     }
 
+    /**
+     * Returns whether the notification permission has been requested. The flag is held by the
+     * {@link LaunchStateStore}, along with the rest of the library's state.
+     */
     public static boolean hasRequestedNotificationPermission(Context context) {
-        return getAppSharedPreferences(context).getBoolean(KEY_HAS_REQUESTED_NOTIFICATION_PERMISSION, false);
+        return LaunchStateStore.getInstance(context).hasRequestedNotificationPermission();
     }
 
     public static void setHasRequestedNotificationPermission(Context context) {
-        getAppSharedPreferences(context).edit().putBoolean(KEY_HAS_REQUESTED_NOTIFICATION_PERMISSION, true).apply();
+        LaunchStateStore.getInstance(context).setHasRequestedNotificationPermission();
     }
 }
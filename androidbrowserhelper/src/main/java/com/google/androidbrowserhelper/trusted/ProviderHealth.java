@@ -0,0 +1,242 @@
+// Copyright 2026 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.androidbrowserhelper.trusted;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import androidx.annotation.WorkerThread;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * Keeps track of how well each Trusted Web Activity provider has behaved in previous launches:
+ * how long binding to it took, whether it created a session and whether a fallback had to be
+ * launched instead. {@link TwaLauncher} records these, and a
+ * {@link TwaProviderPicker.ProviderPolicy} such as {@link CircuitBreakerProviderPolicy} can use
+ * them to avoid providers that keep failing.
+ *
+ * Records are made on a background thread, and kept with the rest of the library's state in the
+ * {@link LaunchStateStore}.
+ */
+public class ProviderHealth {
+    private static final String TAG = "ProviderHealth";
+
+    private static final int FORMAT_VERSION = 1;
+
+    private static ProviderHealth sInstance;
+
+    private final LaunchStateStore mStore;
+    private final Executor mExecutor;
+    private final Clock mClock;
+
+    // Guarded by this, null until read from the store.
+    @Nullable
+    private Map<String, Record> mRecords;
+
+    /** Provides the wall clock time, to allow testing. */
+    interface Clock {
+        long currentTimeMillis();
+    }
+
+    /** The statistics recorded for a provider. */
+    public static class Stats {
+        /** Smoothed time between binding to the provider and being connected, -1 if unknown. */
+        public final long bindLatencyMillis;
+        /** Number of times in a row the provider has failed to create a session. */
+        public final int consecutiveFailures;
+        /** When the provider last failed to create a session, 0 if never. */
+        public final long lastFailureTimeMillis;
+        /** Number of times a fallback had to be launched because of the provider. */
+        public final int fallbacks;
+
+        Stats(long bindLatencyMillis, int consecutiveFailures, long lastFailureTimeMillis,
+                int fallbacks) {
+            this.bindLatencyMillis = bindLatencyMillis;
+            this.consecutiveFailures = consecutiveFailures;
+            this.lastFailureTimeMillis = lastFailureTimeMillis;
+            this.fallbacks = fallbacks;
+        }
+    }
+
+    /** The live statistics of a provider. */
+    private static class Record {
+        long bindLatencyMillis = -1;
+        int consecutiveFailures;
+        long lastFailureTimeMillis;
+        int fallbacks;
+    }
+
+    /** Returns the process-wide instance. */
+    public static synchronized ProviderHealth getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new ProviderHealth(LaunchStateStore.getInstance(context),
+                    BackgroundExecutors.newSequentialExecutor(), System::currentTimeMillis);
+        }
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    ProviderHealth(LaunchStateStore store, Executor executor, Clock clock) {
+        mStore = store;
+        mExecutor = executor;
+        mClock = clock;
+    }
+
+    /** Records how long it took for the provider's service to connect after binding. */
+    public void recordBindLatency(String providerPackage, long latencyMillis) {
+        mExecutor.execute(() -> {
+            synchronized (this) {
+                Record record = getRecord(providerPackage);
+                long previous = record.bindLatencyMillis;
+                // Smooth out the odd slow start, we're interested in how the provider usually
+                // does.
+                record.bindLatencyMillis =
+                        previous < 0 ? latencyMillis : (previous * 3 + latencyMillis) / 4;
+                save();
+            }
+        });
+    }
+
+    /** Records that the provider has created a session, which resets its failure count. */
+    public void recordSessionCreated(String providerPackage) {
+        mExecutor.execute(() -> {
+            synchronized (this) {
+                Record record = getRecord(providerPackage);
+                if (record.consecutiveFailures == 0) return;
+                record.consecutiveFailures = 0;
+                save();
+            }
+        });
+    }
+
+    /** Records that binding to the provider or creating a session with it has failed. */
+    public void recordSessionFailure(String providerPackage) {
+        long now = mClock.currentTimeMillis();
+        mExecutor.execute(() -> {
+            synchronized (this) {
+                Record record = getRecord(providerPackage);
+                record.consecutiveFailures++;
+                record.lastFailureTimeMillis = now;
+                save();
+            }
+        });
+    }
+
+    /** Records that a fallback was launched because the provider couldn't launch a TWA. */
+    public void recordFallback(String providerPackage) {
+        mExecutor.execute(() -> {
+            synchronized (this) {
+                getRecord(providerPackage).fallbacks++;
+                save();
+            }
+        });
+    }
+
+    /**
+     * Returns the statistics recorded for the provider. The first call in a process waits for the
+     * {@link LaunchStateStore} to be loaded, so it should be made on a background thread.
+     */
+    @NonNull
+    @WorkerThread
+    public synchronized Stats getStats(String providerPackage) {
+        Record record = getRecords().get(providerPackage);
+        if (record == null) return new Stats(-1, 0, 0, 0);
+        return new Stats(record.bindLatencyMillis, record.consecutiveFailures,
+                record.lastFailureTimeMillis, record.fallbacks);
+    }
+
+    long currentTimeMillis() {
+        return mClock.currentTimeMillis();
+    }
+
+    /** Returns the record of the provider, creating it if needed. Call with the lock held. */
+    private Record getRecord(String providerPackage) {
+        Map<String, Record> records = getRecords();
+        Record record = records.get(providerPackage);
+        if (record == null) {
+            record = new Record();
+            records.put(providerPackage, record);
+        }
+        return record;
+    }
+
+    /** Call with the lock held. */
+    private Map<String, Record> getRecords() {
+        if (mRecords == null) mRecords = deserialize(mStore.getProviderHealth());
+        return mRecords;
+    }
+
+    /** Call with the lock held. */
+    private void save() {
+        try {
+            mStore.setProviderHealth(serialize(mRecords));
+        } catch (IOException e) {
+            // Not expected when writing to memory.
+            Log.w(TAG, "Failed to serialize the provider health.", e);
+        }
+    }
+
+    private static byte[] serialize(Map<String, Record> records) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(FORMAT_VERSION);
+        out.writeInt(records.size());
+        for (Map.Entry<String, Record> entry : records.entrySet()) {
+            Record record = entry.getValue();
+            out.writeUTF(entry.getKey());
+            out.writeLong(record.bindLatencyMillis);
+            out.writeInt(record.consecutiveFailures);
+            out.writeLong(record.lastFailureTimeMillis);
+            out.writeInt(record.fallbacks);
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static Map<String, Record> deserialize(@Nullable byte[] data) {
+        Map<String, Record> records = new HashMap<>();
+        if (data == null) return records;
+
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+            if (in.readInt() != FORMAT_VERSION) return records;
+            int size = in.readInt();
+            for (int i = 0; i < size; i++) {
+                String providerPackage = in.readUTF();
+                Record record = new Record();
+                record.bindLatencyMillis = in.readLong();
+                record.consecutiveFailures = in.readInt();
+                record.lastFailureTimeMillis = in.readLong();
+                record.fallbacks = in.readInt();
+                records.put(providerPackage, record);
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Ignoring malformed provider health.", e);
+            records.clear();
+        }
+        return records;
+    }
+}
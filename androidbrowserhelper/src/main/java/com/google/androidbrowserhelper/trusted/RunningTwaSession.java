@@ -0,0 +1,196 @@
+// Copyright 2026 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.androidbrowserhelper.trusted;
+
+import android.app.ActivityManager;
+import android.content.ComponentName;
+import android.content.Context;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import androidx.browser.customtabs.CustomTabsClient;
+import androidx.browser.customtabs.CustomTabsServiceConnection;
+import androidx.browser.customtabs.CustomTabsSession;
+
+import java.util.List;
+
+/**
+ * The session of the Trusted Web Activity that {@link LauncherActivity} launched last, kept after
+ * the LauncherActivity has finished so that Intents delivered to the running Trusted Web Activity
+ * can reuse it rather than connecting to the browser again.
+ *
+ * Only the session and the provider are kept, with a binding of the application Context, so the
+ * LauncherActivity and its {@link TwaLauncher} can be collected. The session is released once the
+ * task of the Trusted Web Activity has gone away, once it hasn't been used for
+ * {@link #IDLE_TIMEOUT_MILLIS}, or once the provider disconnects.
+ *
+ * Only accessed on the main thread.
+ */
+@MainThread
+class RunningTwaSession {
+    private static final String TAG = "RunningTwaSession";
+
+    /** How long the session is kept without being used. */
+    @VisibleForTesting
+    static final long IDLE_TIMEOUT_MILLIS = 10 * 60 * 1000;
+
+    /** How often we check whether the session should be released. */
+    @VisibleForTesting
+    static final long CHECK_INTERVAL_MILLIS = 60 * 1000;
+
+    @Nullable
+    private static RunningTwaSession sInstance;
+
+    /** The session with the provider. */
+    final CustomTabsSession session;
+
+    /** The package of the provider the session is with. */
+    final String providerPackage;
+
+    /** The id the session was created with, see {@link SessionStore}. */
+    final int sessionId;
+
+    /** The task the Trusted Web Activity runs in. */
+    final int taskId;
+
+    private final Context mAppContext;
+    private final Connection mConnection = new Connection();
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final Runnable mCheckTask = this::check;
+
+    private long mLastUsedUptimeMillis;
+
+    private RunningTwaSession(Context appContext, CustomTabsSession session,
+            String providerPackage, int sessionId, int taskId) {
+        mAppContext = appContext;
+        this.session = session;
+        this.providerPackage = providerPackage;
+        this.sessionId = sessionId;
+        this.taskId = taskId;
+    }
+
+    /**
+     * Keeps the given session for the Trusted Web Activity that has just been launched in the
+     * given task, replacing the one kept before.
+     */
+    static void retain(Context context, CustomTabsSession session, String providerPackage,
+            int sessionId, int taskId) {
+        release();
+
+        RunningTwaSession runningSession = new RunningTwaSession(context.getApplicationContext(),
+                session, providerPackage, sessionId, taskId);
+        // Binding again keeps the provider bound once the TwaLauncher that established the
+        // session unbinds.
+        boolean bound;
+        try {
+            bound = CustomTabsClient.bindCustomTabsServicePreservePriority(
+                    runningSession.mAppContext, providerPackage, runningSession.mConnection);
+        } catch (SecurityException e) {
+            bound = false;
+        }
+        if (!bound) {
+            Log.d(TAG, "Couldn't bind to " + providerPackage + ", not keeping the session.");
+            return;
+        }
+
+        sInstance = runningSession;
+        runningSession.markUsed();
+        runningSession.scheduleCheck();
+    }
+
+    /** Returns the kept session, or {@code null} if there is none. */
+    @Nullable
+    static RunningTwaSession getInstance() {
+        if (sInstance != null) sInstance.markUsed();
+        return sInstance;
+    }
+
+    /** Releases the kept session, if any. */
+    static void release() {
+        if (sInstance == null) return;
+
+        RunningTwaSession runningSession = sInstance;
+        sInstance = null;
+        runningSession.mHandler.removeCallbacks(runningSession.mCheckTask);
+        runningSession.mAppContext.unbindService(runningSession.mConnection);
+    }
+
+    private void markUsed() {
+        mLastUsedUptimeMillis = SystemClock.uptimeMillis();
+    }
+
+    private void scheduleCheck() {
+        mHandler.postDelayed(mCheckTask, CHECK_INTERVAL_MILLIS);
+    }
+
+    private void check() {
+        if (sInstance != this) return;
+
+        if (SystemClock.uptimeMillis() - mLastUsedUptimeMillis >= IDLE_TIMEOUT_MILLIS) {
+            Log.d(TAG, "Releasing the session, it hasn't been used for a while.");
+            release();
+        } else if (!isTaskAlive()) {
+            Log.d(TAG, "Releasing the session, its task has gone away.");
+            release();
+        } else {
+            scheduleCheck();
+        }
+    }
+
+    private boolean isTaskAlive() {
+        ActivityManager activityManager =
+                (ActivityManager) mAppContext.getSystemService(Context.ACTIVITY_SERVICE);
+        if (activityManager == null) return true;
+
+        // LauncherActivity is the root of the task, so the task is one of the app's own.
+        try {
+            List<ActivityManager.AppTask> tasks = activityManager.getAppTasks();
+            for (ActivityManager.AppTask task : tasks) {
+                if (getTaskId(task.getTaskInfo()) == taskId) return true;
+            }
+            return false;
+        } catch (RuntimeException e) {
+            // The task may have gone away while we were looking at it. We'll try again next time.
+            Log.w(TAG, "Couldn't get the app's tasks", e);
+            return true;
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    private static int getTaskId(ActivityManager.RecentTaskInfo info) {
+        // Both are the id returned by Activity#getTaskId(), persistentId is deprecated from Q.
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q ? info.taskId : info.persistentId;
+    }
+
+    /** Keeps the provider bound, the session was created by another connection. */
+    private static class Connection extends CustomTabsServiceConnection {
+        @Override
+        public void onCustomTabsServiceConnected(@NonNull ComponentName name,
+                @NonNull CustomTabsClient client) {}
+
+        @Override
+        public void onServiceDisconnected(ComponentName name) {
+            // The provider has gone away, and the session with it.
+            if (sInstance != null && sInstance.mConnection == this) release();
+        }
+    }
+}
@@ -1,34 +1,138 @@
 package com.google.androidbrowserhelper.trusted;
 
+import android.content.Context;
+import android.text.TextUtils;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
 
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Random;
 
 /**
  * Manages and persists session IDs for given task IDs.
+ *
+ * Each task gets its own session, so that several Trusted Web Activities can run side by side,
+ * and keeps it for as long as it exists, so that a launch into a task that already shows a Trusted
+ * Web Activity reuses it. The mapping is kept in the {@link LaunchStateStore}, so that this still
+ * works after the process has been killed. At most {@link #MAX_SESSIONS} are kept, those of the
+ * tasks that asked for a session most recently. Task ids can't tell which tasks are newest, they
+ * start again from low values after a reboot, and the mapping outlives reboots.
+ *
+ * Entries aren't dropped when their task seems to have finished: the app can only list the tasks
+ * it owns, and a Trusted Web Activity launched from another app, e.g. from a link in the browser,
+ * runs in a task owned by that app.
  */
 public class SessionStore {
-    private static final Map<Integer, Integer> mTaskIdToSessionId = new HashMap<>();
+    private static final String TAG = "SessionStore";
+
+    /** The most tasks we keep the session of, the least recently used ones are dropped. */
+    @VisibleForTesting
+    static final int MAX_SESSIONS = 16;
+
+    private static final Random sRandom = new Random();
+
+    // Guarded by SessionStore.class. In access order, the least recently used task comes first.
+    private static final LinkedHashMap<Integer, Integer> sTaskIdToSessionId =
+            new LinkedHashMap<Integer, Integer>(MAX_SESSIONS + 1, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Integer, Integer> eldest) {
+                    return size() > MAX_SESSIONS;
+                }
+            };
+    private static boolean sRestored;
 
     /**
      * Gets or creates a session ID for a given task ID. If the task ID is null,
      * returns {Integer.MAX_VALUE}.
      *
+     * The mapping is only kept in memory, use {@link #makeSessionId(Context, int)} to have it
+     * survive the process being killed.
+     *
      * @param taskId The unique ID for the task, may be null.
      * @return The corresponding session ID, or {Integer.MAX_VALUE} if taskId is null.
      */
-    public static Integer makeSessionId(@Nullable Integer taskId) {
-        if(taskId == null) return Integer.MAX_VALUE;
-
-        Integer sessionId = mTaskIdToSessionId.get(taskId);
-        if(sessionId == null) {
-            Random random = new Random();
-            sessionId = random.nextInt(Integer.MAX_VALUE);
-            mTaskIdToSessionId.put(taskId, sessionId);
+    public static synchronized Integer makeSessionId(@Nullable Integer taskId) {
+        if (taskId == null) return Integer.MAX_VALUE;
+
+        Integer sessionId = sTaskIdToSessionId.get(taskId);
+        if (sessionId != null) return sessionId;
+
+        sessionId = sRandom.nextInt(Integer.MAX_VALUE);
+        sTaskIdToSessionId.put(taskId, sessionId);
+        return sessionId;
+    }
+
+    /**
+     * Gets or creates the session ID for the given task, e.g. {@code Activity#getTaskId()}. The
+     * mapping is persisted, so that the same session ID is returned for the task after the
+     * process has been restarted.
+     *
+     * The first call in a process waits for the {@link LaunchStateStore} to be loaded, so it's
+     * best made on a background thread.
+     */
+    public static int makeSessionId(@NonNull Context context, int taskId) {
+        return makeSessionId(taskId, LaunchStateStore.getInstance(context));
+    }
+
+    @VisibleForTesting
+    static synchronized int makeSessionId(int taskId, LaunchStateStore store) {
+        if (!sRestored) {
+            restore(store.getSessionIds());
+            sRestored = true;
         }
 
+        Integer sessionId = sTaskIdToSessionId.get(taskId);
+        if (sessionId == null) {
+            sessionId = sRandom.nextInt(Integer.MAX_VALUE);
+            sTaskIdToSessionId.put(taskId, sessionId);
+        }
+        // Persist the new order too, the store drops the write if it hasn't changed.
+        store.setSessionIds(serialize());
         return sessionId;
     }
+
+    @VisibleForTesting
+    static synchronized void resetForTesting() {
+        sTaskIdToSessionId.clear();
+        sRestored = false;
+    }
+
+    /**
+     * Serializes the mapping as "taskId:sessionId" pairs separated by commas, least recently used
+     * first.
+     */
+    private static String serialize() {
+        StringBuilder builder = new StringBuilder();
+        for (Map.Entry<Integer, Integer> entry : sTaskIdToSessionId.entrySet()) {
+            if (builder.length() > 0) builder.append(',');
+            builder.append(entry.getKey()).append(':').append(entry.getValue());
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Adds the mapping written by {@link #serialize}. The entries we already have were used more
+     * recently, so they are kept and stay the most recently used.
+     */
+    private static void restore(@Nullable String serialized) {
+        if (TextUtils.isEmpty(serialized)) return;
+
+        Map<Integer, Integer> current = new LinkedHashMap<>(sTaskIdToSessionId);
+        sTaskIdToSessionId.clear();
+        for (String entry : serialized.split(",")) {
+            int separator = entry.indexOf(':');
+            try {
+                int taskId = Integer.parseInt(entry.substring(0, separator));
+                int sessionId = Integer.parseInt(entry.substring(separator + 1));
+                sTaskIdToSessionId.put(taskId, sessionId);
+            } catch (NumberFormatException | StringIndexOutOfBoundsException e) {
+                Log.w(TAG, "Ignoring malformed session entry: " + entry);
+            }
+        }
+        sTaskIdToSessionId.putAll(current);
+    }
 }
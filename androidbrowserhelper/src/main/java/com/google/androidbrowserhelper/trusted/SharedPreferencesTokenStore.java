@@ -15,7 +15,6 @@
 package com.google.androidbrowserhelper.trusted;
 
 import android.content.Context;
-import android.content.SharedPreferences;
 import android.content.pm.PackageManager;
 import android.util.Base64;
 
@@ -24,47 +23,60 @@ import androidx.browser.trusted.Token;
 import androidx.browser.trusted.TokenStore;
 
 /**
- * Implements a {@link TokenStore} that uses {@link SharedPreferences} as the storage mechanism
- * for the {@link Token}.
- * Since it is backed by SharedPreferences, all instances of this class share state (if you call
+ * Implements a {@link TokenStore} that keeps the {@link Token} in the {@link LaunchStateStore}.
+ * The name is historical, the token used to be stored in SharedPreferences and is moved from there
+ * by the LaunchStateStore.
+ * Since the LaunchStateStore is shared, all instances of this class share state (if you call
  * {@link #setVerifiedProvider} on one, subsequent calls to {@link #load()} on other instances will
  * return the new value).
+ * The token is cached by the {@link LaunchStateStore}, which only writes it back when it changes.
+ * The decoded {@link Token} is cached for the whole process as well, so that {@link #load} only
+ * decodes it again once it has changed.
  */
 public class SharedPreferencesTokenStore implements TokenStore {
-    private static final String KEY_TOKEN = "SharedPreferencesTokenStore.TOKEN";
+    /** The last token stored or loaded by any instance, along with its encoded form. */
+    @Nullable
+    private static volatile CachedToken sCachedToken;
 
     private final Context mContext;
 
+    private static class CachedToken {
+        final String mEncodedToken;
+        final Token mToken;
+
+        CachedToken(String encodedToken, Token token) {
+            mEncodedToken = encodedToken;
+            mToken = token;
+        }
+    }
+
     /**
      * Creates a new SharedPreferencesTokenStore.
      *
-     * @param mContext The {@link Context} where the {@link SharedPreferences} will be stored.
+     * @param mContext The {@link Context} of the app the token is stored for.
      */
     public SharedPreferencesTokenStore(Context mContext) {
         this.mContext = mContext.getApplicationContext();
     }
 
     /**
-     * This persists the given {@link Token} on a {@link SharedPreferences}.
+     * This persists the given {@link Token} in the {@link LaunchStateStore}.
      * Subsequent calls will overwrite the previously given {@link Token}.
      *
      * @param token The token to persist. It may be {@code null} to clear the storage.
      */
     @Override
     public void store(@Nullable Token token) {
-        SharedPreferences preferences = PrefUtils.getAppSharedPreferences(mContext);
-
-        // Clear the preference if the token is null
+        // Clear the stored token if the token is null
         if (token == null) {
-            preferences.edit().remove(KEY_TOKEN).apply();
+            LaunchStateStore.getInstance(mContext).setToken(null);
             return;
         }
 
         String encodedToken =
                 Base64.encodeToString(token.serialize(), Base64.NO_WRAP | Base64.NO_PADDING);
-        preferences.edit()
-                .putString(KEY_TOKEN, encodedToken)
-                .apply();
+        sCachedToken = new CachedToken(encodedToken, token);
+        LaunchStateStore.getInstance(mContext).setToken(encodedToken);
     }
 
     /**
@@ -76,15 +88,21 @@ public class SharedPreferencesTokenStore implements TokenStore {
     @Nullable
     @Override
     public Token load() {
-        SharedPreferences preferences = PrefUtils.getAppSharedPreferences(mContext);
-        String stringifiedToken = preferences.getString(KEY_TOKEN, null);
+        String stringifiedToken = LaunchStateStore.getInstance(mContext).getToken();
         if (stringifiedToken == null) {
             return null;
         }
 
+        CachedToken cachedToken = sCachedToken;
+        if (cachedToken != null && cachedToken.mEncodedToken.equals(stringifiedToken)) {
+            return cachedToken.mToken;
+        }
+
         byte[] serializedToken =
                 Base64.decode(stringifiedToken, Base64.NO_WRAP | Base64.NO_PADDING);
-        return Token.deserialize(serializedToken);
+        Token token = Token.deserialize(serializedToken);
+        sCachedToken = new CachedToken(stringifiedToken, token);
+        return token;
     }
 
     public void setVerifiedProvider(String providerPackage, PackageManager packageManager) {
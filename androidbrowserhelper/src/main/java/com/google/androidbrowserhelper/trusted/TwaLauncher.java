@@ -26,6 +26,8 @@ import android.content.Intent;
 import android.content.pm.PackageManager;
 import android.content.pm.ResolveInfo;
 import android.net.Uri;
+import android.os.CancellationSignal;
+import android.os.SystemClock;
 import android.text.TextUtils;
 import android.util.Log;
 
@@ -43,11 +45,15 @@ import androidx.browser.trusted.Token;
 import androidx.browser.trusted.TokenStore;
 import androidx.browser.trusted.TrustedWebActivityIntent;
 import androidx.browser.trusted.TrustedWebActivityIntentBuilder;
+import androidx.concurrent.futures.CallbackToFutureAdapter;
 
 import com.google.androidbrowserhelper.BuildConfig;
 import com.google.androidbrowserhelper.R;
+import com.google.androidbrowserhelper.trusted.splashscreens.PwaWrapperSplashScreenStrategy;
 import com.google.androidbrowserhelper.trusted.splashscreens.SplashScreenStrategy;
+import com.google.common.util.concurrent.ListenableFuture;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -59,6 +65,9 @@ public class TwaLauncher {
 
     private static final int DEFAULT_SESSION_ID = 96375;
 
+    /** See {@link #setFailoverDeadlineMillis}. */
+    private static final long DEFAULT_FAILOVER_DEADLINE_MILLIS = 3000;
+
     private static final String EXTRA_STARTUP_UPTIME_MILLIS =
             "org.chromium.chrome.browser.customtabs.trusted.STARTUP_UPTIME_MILLIS";
 
@@ -88,13 +97,27 @@ public class TwaLauncher {
      * Returns a FallbackStrategy that shows the browser unavailable dialog with the specified browser name.
      */
     public static FallbackStrategy getBlockedDialogFallbackStrategy(@Nullable String browserName) {
-        return (context, twaBuilder, providerPackage, completionCallback) -> {
+        return new BlockedDialogFallbackStrategy(browserName);
+    }
+
+    /** A class rather than a lambda so that {@link #launchAsync} can tell what it does. */
+    private static class BlockedDialogFallbackStrategy implements FallbackStrategy {
+        @Nullable
+        private final String mBrowserName;
+
+        BlockedDialogFallbackStrategy(@Nullable String browserName) {
+            mBrowserName = browserName;
+        }
+
+        @Override
+        public void launch(Context context, TrustedWebActivityIntentBuilder twaBuilder,
+                @Nullable String providerPackage, @Nullable Runnable completionCallback) {
             if (context instanceof Activity) {
-                sDialogStrategy.show((Activity) context, false, browserName);
+                sDialogStrategy.show((Activity) context, false, mBrowserName);
             } else {
                 Log.e(TAG, "Cannot show browser unavailable dialog without an Activity context.");
             }
-        };
+        }
     }
 
     public static final FallbackStrategy CCT_FALLBACK_STRATEGY =
@@ -116,7 +139,7 @@ public class TwaLauncher {
         if (providerPackage != null) {
             intent.intent.setPackage(providerPackage);
         }
-        if (ChromeOsSupport.isRunningOnArc(context.getPackageManager())) {
+        if (DeviceProfile.getInstance(context).isRunningOnArc()) {
             // Work around as ARC++ does not support native TWAs at the moment.
             intent.intent.putExtra(TrustedWebUtils.EXTRA_LAUNCH_AS_TRUSTED_WEB_ACTIVITY, true);
         }
@@ -138,8 +161,27 @@ public class TwaLauncher {
 
     private Context mContext;
 
+    /**
+     * The Context the provider's service is bound with. We use the application Context so that
+     * the binding doesn't hold on to the Activity that established it.
+     */
     @Nullable
-    private final String mProviderPackage;
+    private Context mBindingContext;
+
+    /** The provider being connected to, which changes when failing over to the next one. */
+    @Nullable
+    private String mProviderPackage;
+
+    /** The Trusted Web Activity providers still to fail over to, in order of preference. */
+    private final List<String> mAlternativeProviders;
+
+    private long mFailoverDeadlineMillis = DEFAULT_FAILOVER_DEADLINE_MILLIS;
+
+    /** When the first provider was bound, in SystemClock.uptimeMillis() time. */
+    private long mFirstBindUptimeMillis;
+
+    /** Whether {@link #mProviderPackage} isn't the provider that was picked first. */
+    private boolean mFailedOver;
 
     @TwaProviderPicker.LaunchMode
     private final int mLaunchMode;
@@ -154,10 +196,22 @@ public class TwaLauncher {
 
     private final TokenStore mTokenStore;
 
+    private final ProviderHealth mProviderHealth;
+
     private boolean mDestroyed;
 
+    /** Whether {@link #connect} is waiting for the session to be created. */
+    private boolean mConnecting;
+
+    /** Whether {@link #connect} has failed to create a session. */
+    private boolean mSessionCreationFailed;
+
     private long mStartupUptimeMillis;
 
+    /** Collects the result of the latest {@link #launchAsync}, if any. */
+    @Nullable
+    private LaunchResult.Recorder mResultRecorder;
+
     public interface FallbackStrategy {
         void launch(Context context,
                     TrustedWebActivityIntentBuilder twaBuilder,
@@ -207,18 +261,27 @@ public class TwaLauncher {
      */
     public TwaLauncher(Context context, @Nullable String providerPackage, @Nullable Integer sessionId,
                        TokenStore tokenStore) {
+        this(context, providerPackage == null
+                        ? TwaProviderPicker.pickProvider(context.getPackageManager())
+                        : new TwaProviderPicker.Action(
+                                TwaProviderPicker.LaunchMode.TRUSTED_WEB_ACTIVITY,
+                                providerPackage),
+                sessionId, tokenStore);
+    }
+
+    /**
+     * Same as above, but uses a provider and launch mode that have already been picked (e.g. on
+     * a background thread with {@link TwaProviderPicker#pickProvider}).
+     */
+    public TwaLauncher(Context context, TwaProviderPicker.Action action,
+            @Nullable Integer sessionId, TokenStore tokenStore) {
         mContext = context;
         mSessionId = sessionId;
         mTokenStore = tokenStore;
-        if (providerPackage == null) {
-            TwaProviderPicker.Action action =
-                    TwaProviderPicker.pickProvider(context.getPackageManager());
-            mProviderPackage = action.provider;
-            mLaunchMode = action.launchMode;
-        } else {
-            mProviderPackage = providerPackage;
-            mLaunchMode = TwaProviderPicker.LaunchMode.TRUSTED_WEB_ACTIVITY;
-        }
+        mProviderPackage = action.provider;
+        mLaunchMode = action.launchMode;
+        mAlternativeProviders = new ArrayList<>(action.alternativeTwaProviders);
+        mProviderHealth = ProviderHealth.getInstance(context);
     }
 
     /**
@@ -263,12 +326,85 @@ public class TwaLauncher {
             fallbackStrategy.launch(mContext, twaBuilder, mProviderPackage, completionCallback);
         }
 
-        // Remember who we connect to as the package that is allowed to delegate notifications
-        // to us.
-        if (!ChromeOsSupport.isRunningOnArc(mContext.getPackageManager()) && mProviderPackage != null) {
+        storeProviderToken();
+    }
+
+    /**
+     * Same as {@link #launch(TrustedWebActivityIntentBuilder, CustomTabsCallback,
+     * SplashScreenStrategy, Runnable, FallbackStrategy)}, but returns a future that resolves to a
+     * {@link LaunchResult} once the web app has been opened, telling how it was opened and how long
+     * that took, so that follow-up work can be started at the right time.
+     *
+     * The future is cancelled if this TwaLauncher is destroyed before the launch completes. With
+     * a fallback strategy provided by the app, it is resolved when the strategy calls its
+     * completion callback, with {@link LaunchResult.Mode#OTHER}.
+     */
+    @NonNull
+    public ListenableFuture<LaunchResult> launchAsync(TrustedWebActivityIntentBuilder twaBuilder,
+            CustomTabsCallback customTabsCallback,
+            @Nullable SplashScreenStrategy splashScreenStrategy,
+            FallbackStrategy fallbackStrategy) {
+        return CallbackToFutureAdapter.getFuture(completer -> {
+            if (mDestroyed) {
+                throw new IllegalStateException("TwaLauncher already destroyed");
+            }
+
+            LaunchResult.Recorder recorder =
+                    new LaunchResult.Recorder(completer, LaunchTracer.getActive());
+            mResultRecorder = recorder;
+            try {
+                launch(twaBuilder, customTabsCallback, splashScreenStrategy,
+                        () -> recorder.complete(LaunchResult.Mode.TRUSTED_WEB_ACTIVITY,
+                                mProviderPackage, mFailedOver),
+                        recordingFallbackStrategy(fallbackStrategy, recorder));
+            } catch (RuntimeException e) {
+                Log.w(TAG, e);
+                recorder.fail(e, mProviderPackage, mFailedOver);
+            }
+            return "TwaLauncher.launchAsync";
+        });
+    }
+
+    /** Wraps the fallback strategy so that it resolves the future of {@link #launchAsync}. */
+    private FallbackStrategy recordingFallbackStrategy(FallbackStrategy fallbackStrategy,
+            LaunchResult.Recorder recorder) {
+        @LaunchResult.Mode int mode = getFallbackMode(fallbackStrategy);
+        return (context, twaBuilder, providerPackage, completionCallback) -> {
+            recorder.enterStage(LaunchResult.STAGE_FALLBACK);
+            fallbackStrategy.launch(context, twaBuilder, providerPackage,
+                    () -> recorder.complete(mode, providerPackage, mFailedOver));
+            if (mode != LaunchResult.Mode.OTHER && !recorder.isDone()) {
+                // Our strategies complete synchronously unless they've shown the dialog instead.
+                recorder.complete(LaunchResult.Mode.BLOCKED_DIALOG, providerPackage, mFailedOver);
+            }
+        };
+    }
+
+    @LaunchResult.Mode
+    private static int getFallbackMode(FallbackStrategy fallbackStrategy) {
+        if (fallbackStrategy == CCT_FALLBACK_STRATEGY) return LaunchResult.Mode.CUSTOM_TAB;
+        if (fallbackStrategy == WEBVIEW_FALLBACK_STRATEGY) return LaunchResult.Mode.WEBVIEW;
+        if (fallbackStrategy instanceof BlockedDialogFallbackStrategy) {
+            return LaunchResult.Mode.BLOCKED_DIALOG;
+        }
+        return LaunchResult.Mode.OTHER;
+    }
+
+    private void enterResultStage(String stage) {
+        if (mResultRecorder != null) mResultRecorder.enterStage(stage);
+    }
+
+    /**
+     * Remembers who we connect to as the package that is allowed to delegate notifications to us.
+     */
+    private void storeProviderToken() {
+        if (!DeviceProfile.getInstance(mContext).isRunningOnArc() && mProviderPackage != null) {
             // Since ChromeOS may not follow this path when launching a TWA, we set the verified
             // provider in DelegationService instead.
-            mTokenStore.store(Token.create(mProviderPackage, mContext.getPackageManager()));
+            long ipcStart = LaunchTracer.startIpc();
+            Token token = Token.create(mProviderPackage, mContext.getPackageManager());
+            LaunchTracer.endIpc("PackageManager.getPackageInfo", ipcStart);
+            mTokenStore.store(token);
         }
     }
 
@@ -292,6 +428,82 @@ public class TwaLauncher {
                 CCT_FALLBACK_STRATEGY);
     }
 
+    /**
+     * Starts connecting to the provider's {@link CustomTabsService} ahead of {@link #launch}, so
+     * that the provider can start up while the rest of the launch is being prepared. Does nothing
+     * if the web app isn't going to be launched in a Trusted Web Activity.
+     *
+     * @param customTabsCallback {@link CustomTabsCallback} to get messages from the browser, it
+     * replaces the one later passed to {@link #launch}.
+     * @param onConnectedCallback Callback triggered once a session has been created or has failed
+     * to be created. In the latter case {@link #launch} will use the fallback strategy.
+     */
+    public void connect(CustomTabsCallback customTabsCallback,
+            @Nullable Runnable onConnectedCallback) {
+        connect(customTabsCallback, onConnectedCallback, null);
+    }
+
+    /**
+     * Like {@link #connect(CustomTabsCallback, Runnable)}, but stops connecting when the given
+     * signal is cancelled, e.g. because the launch has been abandoned: the provider's service is
+     * unbound and {@code onConnectedCallback} isn't called. A session that has already been
+     * created is kept, it is released by {@link #destroy}.
+     */
+    public void connect(CustomTabsCallback customTabsCallback,
+            @Nullable Runnable onConnectedCallback,
+            @Nullable CancellationSignal cancellationSignal) {
+        if (mDestroyed) {
+            throw new IllegalStateException("TwaLauncher already destroyed");
+        }
+        if (cancellationSignal != null && cancellationSignal.isCanceled()) {
+            return;
+        }
+
+        if (mLaunchMode != TwaProviderPicker.LaunchMode.TRUSTED_WEB_ACTIVITY || mSession != null
+                || mSessionCreationFailed || mConnecting) {
+            if (onConnectedCallback != null) onConnectedCallback.run();
+            return;
+        }
+
+        Runnable onFinished = () -> {
+            mConnecting = false;
+            if (onConnectedCallback != null) onConnectedCallback.run();
+        };
+        Runnable onFailed = () -> {
+            mSessionCreationFailed = true;
+            onFinished.run();
+        };
+
+        if (mServiceConnection == null) {
+            mServiceConnection = new TwaCustomTabsServiceConnection(customTabsCallback);
+        }
+        mServiceConnection.setSessionCreationRunnables(onFinished, onFailed);
+
+        mConnecting = true;
+        if (!bindService() && !failOverToNextProvider()) {
+            onFailed.run();
+            return;
+        }
+
+        if (cancellationSignal != null) {
+            cancellationSignal.setOnCancelListener(this::cancelConnecting);
+        }
+    }
+
+    /** Unbinds from the provider if the session hasn't been created yet. */
+    private void cancelConnecting() {
+        if (mDestroyed || !mConnecting || mSession != null) return;
+
+        Log.d(TAG, "Connecting to " + mProviderPackage + " cancelled.");
+        mServiceConnection.setSessionCreationRunnables(null, null);
+        if (mBindingContext != null) {
+            mBindingContext.unbindService(mServiceConnection);
+        }
+        mServiceConnection = null;
+        mBindingContext = null;
+        mConnecting = false;
+    }
+
     private void launchTwa(TrustedWebActivityIntentBuilder twaBuilder,
             CustomTabsCallback customTabsCallback,
             @Nullable SplashScreenStrategy splashScreenStrategy,
@@ -301,32 +513,109 @@ public class TwaLauncher {
             splashScreenStrategy.onTwaLaunchInitiated(mProviderPackage, twaBuilder);
         }
 
-        Runnable onSessionCreatedRunnable = () ->
-                launchWhenSessionEstablished(twaBuilder, splashScreenStrategy, completionCallback);
+        // The splash screen is prepared for this provider, and won't be used if we fail over.
+        String splashScreenProvider = mProviderPackage;
+        Runnable onSessionCreatedRunnable = () -> launchWhenSessionEstablished(twaBuilder,
+                TextUtils.equals(splashScreenProvider, mProviderPackage)
+                        ? splashScreenStrategy : null,
+                completionCallback);
 
         if (mSession != null) {
+            if (mResultRecorder != null) mResultRecorder.recordCacheHit(LaunchResult.CACHE_SESSION);
             onSessionCreatedRunnable.run();
             return;
         }
 
+        enterResultStage(LaunchResult.STAGE_CONNECT);
         Runnable onSessionCreationFailedRunnable = () -> {
             // The provider has been unable to create a session for us, we can't launch a
             // Trusted Web Activity. We launch a fallback specially designed to provide the
             // best user experience.
+            mProviderHealth.recordFallback(mProviderPackage);
             fallbackStrategy.launch(mContext, twaBuilder, mProviderPackage, completionCallback);
         };
 
+        if (mSessionCreationFailed) {
+            onSessionCreationFailedRunnable.run();
+            return;
+        }
+
+        if (mConnecting) {
+            // connect() has been called and the session is on its way.
+            if (mResultRecorder != null) {
+                mResultRecorder.recordCacheHit(LaunchResult.CACHE_CONNECTION);
+            }
+            mServiceConnection.addSessionCreationRunnables(
+                    onSessionCreatedRunnable, onSessionCreationFailedRunnable);
+            return;
+        }
+
         if (mServiceConnection == null) {
             mServiceConnection = new TwaCustomTabsServiceConnection(customTabsCallback);
         }
 
         mServiceConnection.setSessionCreationRunnables(
                 onSessionCreatedRunnable, onSessionCreationFailedRunnable);
+        if (!bindService() && !failOverToNextProvider()) {
+            onSessionCreationFailedRunnable.run();
+        }
+    }
+
+    /**
+     * Sets how long after the launch started (see {@link #setStartupUptimeMillis}, or else after
+     * the first provider was bound) the next Trusted Web Activity provider may still be tried if
+     * the current one fails to create a session. Once it has passed, the fallback strategy is
+     * used instead. Defaults to 3 seconds.
+     */
+    public void setFailoverDeadlineMillis(long failoverDeadlineMillis) {
+        mFailoverDeadlineMillis = failoverDeadlineMillis;
+    }
+
+    /**
+     * Unbinds from the current provider, which failed to create a session, and binds to the next
+     * Trusted Web Activity provider picked by {@link TwaProviderPicker}, carrying over the
+     * runnables waiting for the session. Returns {@code false} if there is no provider left to
+     * try or the failover deadline has passed, in which case the caller should use the fallback.
+     */
+    private boolean failOverToNextProvider() {
+        long launchStartUptimeMillis =
+                mStartupUptimeMillis != 0 ? mStartupUptimeMillis : mFirstBindUptimeMillis;
+        while (!mAlternativeProviders.isEmpty() && !mDestroyed
+                && SystemClock.uptimeMillis() < launchStartUptimeMillis + mFailoverDeadlineMillis) {
+            String nextProvider = mAlternativeProviders.remove(0);
+            Log.w(TAG, mProviderPackage + " failed to create a session, trying " + nextProvider);
+
+            TwaCustomTabsServiceConnection failedConnection = mServiceConnection;
+            if (mBindingContext != null) {
+                mBindingContext.unbindService(failedConnection);
+            }
+            mProviderPackage = nextProvider;
+            mFailedOver = true;
+            mSession = null;
+            mServiceConnection = new TwaCustomTabsServiceConnection(
+                    failedConnection.mCustomTabsCallback);
+            mServiceConnection.setSessionCreationRunnables(
+                    failedConnection.mOnSessionCreatedRunnable,
+                    failedConnection.mOnSessionCreationFailedRunnable);
+            failedConnection.setSessionCreationRunnables(null, null);
+
+            if (bindService()) return true;
+        }
+        return false;
+    }
+
+    private boolean bindService() {
+        if (mFirstBindUptimeMillis == 0) mFirstBindUptimeMillis = SystemClock.uptimeMillis();
+        mBindingContext = mContext.getApplicationContext();
+        mServiceConnection.mBindUptimeMillis = SystemClock.uptimeMillis();
+        long ipcStart = LaunchTracer.startIpc();
         boolean bound = CustomTabsClient.bindCustomTabsServicePreservePriority(
-                mContext, mProviderPackage, mServiceConnection);
+                mBindingContext, mProviderPackage, mServiceConnection);
+        LaunchTracer.endIpc("Context.bindService", ipcStart);
         if (!bound) {
-            onSessionCreationFailedRunnable.run();
+            mProviderHealth.recordSessionFailure(mProviderPackage);
         }
+        return bound;
     }
 
     private void launchWhenSessionEstablished(TrustedWebActivityIntentBuilder twaBuilder,
@@ -337,8 +626,16 @@ public class TwaLauncher {
         }
 
         if (splashScreenStrategy != null) {
-            splashScreenStrategy.configureTwaBuilder(twaBuilder, mSession,
-                    () -> launchWhenSplashScreenReady(twaBuilder, completionCallback));
+            enterResultStage(LaunchResult.STAGE_SPLASH_SCREEN);
+            splashScreenStrategy.configureTwaBuilder(twaBuilder, mSession, () -> {
+                if (mResultRecorder != null
+                        && splashScreenStrategy instanceof PwaWrapperSplashScreenStrategy) {
+                    mResultRecorder.recordSplashImageTransferred(
+                            ((PwaWrapperSplashScreenStrategy) splashScreenStrategy)
+                                    .isSplashImageTransferred());
+                }
+                launchWhenSplashScreenReady(twaBuilder, completionCallback);
+            });
         } else {
             launchWhenSplashScreenReady(twaBuilder, completionCallback);
         }
@@ -347,19 +644,54 @@ public class TwaLauncher {
     private void launchWhenSplashScreenReady(TrustedWebActivityIntentBuilder builder,
             @Nullable Runnable completionCallback) {
         if (mDestroyed || mSession == null) {
-            return;  // Service was disconnected and / or TwaLauncher was destroyed while preparing
-                     // the splash screen (e.g. user closed the app). See https://crbug.com/1052367
-                     // for further details.
+            // Service was disconnected and / or TwaLauncher was destroyed while preparing the
+            // splash screen (e.g. user closed the app). See https://crbug.com/1052367 for further
+            // details.
+            if (!mDestroyed && mResultRecorder != null) {
+                mResultRecorder.fail(new IllegalStateException("The provider disconnected"),
+                        mProviderPackage, mFailedOver);
+            }
+            return;
         }
+        launchInSession(mContext, builder, mStartupUptimeMillis, completionCallback);
+    }
+
+    /**
+     * Launches a Trusted Web Activity in the session this TwaLauncher has already established,
+     * skipping provider selection, binding to the provider and splash screen preparation. This is
+     * meant for delivering a new navigation (e.g. from a notification or an app link) to a Trusted
+     * Web Activity that is already running.
+     *
+     * @param context {@link Context} to launch the Trusted Web Activity from.
+     * @param twaBuilder {@link TrustedWebActivityIntentBuilder} containing the url to open.
+     * @param startupUptimeMillis See {@link #setStartupUptimeMillis}, 0 if unknown.
+     * @param completionCallback Callback triggered when the url has been opened.
+     * @return Whether the Trusted Web Activity was launched. If there is no live session (e.g. the
+     * TwaLauncher launched a fallback, or the provider has disconnected), nothing is launched
+     * and {@code false} is returned.
+     */
+    public boolean launchInEstablishedSession(Context context,
+            TrustedWebActivityIntentBuilder twaBuilder, long startupUptimeMillis,
+            @Nullable Runnable completionCallback) {
+        if (mDestroyed || mSession == null) {
+            return false;
+        }
+        launchInSession(context, twaBuilder, startupUptimeMillis, completionCallback);
+        return true;
+    }
+
+    private void launchInSession(Context context, TrustedWebActivityIntentBuilder builder,
+            long startupUptimeMillis, @Nullable Runnable completionCallback) {
         Log.d(TAG, "Launching Trusted Web Activity.");
+        enterResultStage(LaunchResult.STAGE_LAUNCH);
         TrustedWebActivityIntent intent = onPrepareIntent(builder.build(mSession));
-        if (mStartupUptimeMillis != 0) {
-            intent.getIntent().putExtra(EXTRA_STARTUP_UPTIME_MILLIS, mStartupUptimeMillis);
+        if (startupUptimeMillis != 0) {
+            intent.getIntent().putExtra(EXTRA_STARTUP_UPTIME_MILLIS, startupUptimeMillis);
         }
         intent.getIntent().putExtra(
                 EXTRA_ANDROID_BROWSER_HELPER_VERSION, BuildConfig.LIBRARY_VERSION);
-        FocusActivity.addToIntent(intent.getIntent(), mContext);
-        intent.launchTrustedWebActivity(mContext);
+        FocusActivity.addToIntent(intent.getIntent(), context);
+        intent.launchTrustedWebActivity(context);
 
         if (completionCallback != null) {
             completionCallback.run();
@@ -385,21 +717,53 @@ public class TwaLauncher {
         if (mDestroyed) {
             return;
         }
-        if (mServiceConnection != null) {
-            mContext.unbindService(mServiceConnection);
+        if (mServiceConnection != null && mBindingContext != null) {
+            mBindingContext.unbindService(mServiceConnection);
+        }
+        if (mResultRecorder != null) {
+            mResultRecorder.cancel();
+            mResultRecorder = null;
         }
         mContext = null;
+        mBindingContext = null;
         mDestroyed = true;
     }
 
     /**
-     * Returns package name of the browser this TwaLauncher is launching.
+     * Has {@link #launchInEstablishedSession} use a session established by another TwaLauncher,
+     * see {@link RunningTwaSession}. This TwaLauncher doesn't bind to the provider for it.
+     */
+    void setEstablishedSession(CustomTabsSession session) {
+        if (mDestroyed) return;
+        mSession = session;
+    }
+
+    /**
+     * Returns the session with the provider, or {@code null} if it hasn't been established.
+     */
+    @Nullable
+    CustomTabsSession getSession() {
+        return mDestroyed ? null : mSession;
+    }
+
+    /**
+     * Returns package name of the browser this TwaLauncher is launching. After failing over (see
+     * {@link TwaProviderPicker.Action#alternativeTwaProviders}), this is the provider that
+     * created the session.
      */
     @Nullable
     public String getProviderPackage() {
         return mProviderPackage;
     }
 
+    /**
+     * Returns how this TwaLauncher is launching the web app.
+     */
+    @TwaProviderPicker.LaunchMode
+    public int getLaunchMode() {
+        return mLaunchMode;
+    }
+
     /**
      * Sets the timestamp (in SystemClock.uptimeMillis()) when the TWA launcher
      * activity was created. This timestamp is used to report the full startup
@@ -456,6 +820,7 @@ public class TwaLauncher {
         private Runnable mOnSessionCreatedRunnable;
         private Runnable mOnSessionCreationFailedRunnable;
         private final CustomTabsCallback mCustomTabsCallback;
+        private long mBindUptimeMillis;
 
         TwaCustomTabsServiceConnection(CustomTabsCallback callback) {
             mCustomTabsCallback = callback;
@@ -467,9 +832,26 @@ public class TwaLauncher {
             mOnSessionCreationFailedRunnable = onFailure;
         }
 
+        /** Runs the given runnables after the ones that have already been set. */
+        private void addSessionCreationRunnables(Runnable onSuccess, Runnable onFailure) {
+            mOnSessionCreatedRunnable = chain(mOnSessionCreatedRunnable, onSuccess);
+            mOnSessionCreationFailedRunnable = chain(mOnSessionCreationFailedRunnable, onFailure);
+        }
+
+        private Runnable chain(@Nullable Runnable first, Runnable second) {
+            if (first == null) return second;
+            return () -> {
+                first.run();
+                second.run();
+            };
+        }
+
         @Override
         public void onCustomTabsServiceConnected(@NonNull ComponentName componentName,
                 @NonNull CustomTabsClient client) {
+            mProviderHealth.recordBindLatency(mProviderPackage,
+                    SystemClock.uptimeMillis() - mBindUptimeMillis);
+
             if (!ChromeLegacyUtils
                     .supportsLaunchWithoutWarmup(mContext.getPackageManager(), mProviderPackage)) {
                 client.warmup(0);
@@ -478,6 +860,18 @@ public class TwaLauncher {
             try {
                 mSession = client.newSession(mCustomTabsCallback, mSessionId);
 
+                if (mSession != null) {
+                    mProviderHealth.recordSessionCreated(mProviderPackage);
+                } else {
+                    mProviderHealth.recordSessionFailure(mProviderPackage);
+                    if (failOverToNextProvider()) return;
+                }
+
+                if (mSession != null && mFailedOver) {
+                    // We've failed over, the token stored by launch may be for another provider.
+                    storeProviderToken();
+                }
+
                 if (mSession != null && mOnSessionCreatedRunnable != null) {
                     mOnSessionCreatedRunnable.run();
                 } else if (mSession == null && mOnSessionCreationFailedRunnable != null) {
@@ -485,6 +879,9 @@ public class TwaLauncher {
                 }
             } catch (RuntimeException e) {
                 Log.w(TAG, e);
+                if (mResultRecorder != null) mResultRecorder.recordError(e);
+                mProviderHealth.recordSessionFailure(mProviderPackage);
+                if (failOverToNextProvider()) return;
                 mOnSessionCreationFailedRunnable.run();
             }
 
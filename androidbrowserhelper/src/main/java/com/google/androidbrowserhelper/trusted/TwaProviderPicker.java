@@ -25,11 +25,16 @@ import android.util.Log;
 
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import androidx.annotation.IntDef;
+import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.browser.customtabs.CustomTabsService;
 import androidx.browser.customtabs.TrustedWebUtils;
@@ -88,35 +93,69 @@ public class TwaProviderPicker {
         /** The provider package name, may be null when {@code launchMode == BROWSER}. */
         @Nullable
         public final String provider;
+        /**
+         * The other providers that support Trusted Web Activities, in order of preference, for
+         * {@link TwaLauncher} to fail over to if {@link #provider} can't create a session.
+         */
+        @NonNull
+        public final List<String> alternativeTwaProviders;
 
         /** Creates this object with the given parameters. */
         public Action(@LaunchMode int launchMode, @Nullable String provider) {
+            this(launchMode, provider, Collections.emptyList());
+        }
+
+        /** Creates this object with the given parameters. */
+        public Action(@LaunchMode int launchMode, @Nullable String provider,
+                @NonNull List<String> alternativeTwaProviders) {
             this.launchMode = launchMode;
             this.provider = provider;
+            this.alternativeTwaProviders =
+                    Collections.unmodifiableList(new ArrayList<>(alternativeTwaProviders));
         }
     }
 
+    /**
+     * Decides whether a provider that supports Trusted Web Activities should be used for them,
+     * e.g. based on how it behaved in previous launches (see {@link ProviderHealth}).
+     */
+    public interface ProviderPolicy {
+        /**
+         * Returns whether the provider should be used to launch a Trusted Web Activity. If not,
+         * the next Trusted Web Activity provider is considered, and the provider itself may still
+         * be used for a Custom Tab. Called on the thread {@link #pickProvider} is called on.
+         */
+        boolean canLaunchTwa(String providerPackage);
+    }
+
     /**
      * Chooses an appropriate provider (see class description) and the launch mode that browser
-     * supports.
+     * supports. When launching a Trusted Web Activity, the other providers that support them are
+     * returned too, see {@link Action#alternativeTwaProviders}.
      */
     public static Action pickProvider(PackageManager pm) {
-        // Setting the Intent Data as seen at
-        // https://cs.android.com/android/platform/superproject/+/fd994cf9ef8207ad03dc3a1d831e9263ddfd4469:packages/apps/PermissionController/src/com/android/packageinstaller/role/model/BrowserRoleBehavior.java
-        Intent queryBrowsersIntent = new Intent()
-                .setAction(Intent.ACTION_VIEW)
-                .addCategory(Intent.CATEGORY_BROWSABLE)
-                .setData(Uri.fromParts("http", "", null));
+        return pickProvider(pm, null);
+    }
+
+    /**
+     * Same as above, but only uses a Trusted Web Activity provider if the given policy allows it.
+     */
+    public static Action pickProvider(PackageManager pm, @Nullable ProviderPolicy policy) {
+        Intent queryBrowsersIntent = createBrowserQueryIntent();
         if (sPackageNameForTesting != null) {
             queryBrowsersIntent.setPackage(sPackageNameForTesting);
         }
 
         String bestCctProvider = null;
         String bestBrowserProvider = null;
+        // The user's default browser may be listed twice, see below.
+        Set<String> twaProviders = new LinkedHashSet<>();
 
         // These packages will be in order of Android's preference.
+        long ipcStart = LaunchTracer.startIpc();
         List<ResolveInfo> possibleProviders
                 = pm.queryIntentActivities(queryBrowsersIntent, PackageManager.MATCH_DEFAULT_ONLY);
+        LaunchTracer.endIpc("PackageManager.queryIntentActivities", ipcStart);
 
         // According to the documentation, the flag we want to use above is MATCH_DEFAULT_ONLY.
         // This would match all the browsers installed on the user's system whose intent handler
@@ -134,8 +173,10 @@ public class TwaProviderPicker {
         // This will result in the user's default browser being in the list twice, however that
         // shouldn't affect the correctness of the following code.
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+            ipcStart = LaunchTracer.startIpc();
             possibleProviders.addAll(pm.queryIntentActivities(queryBrowsersIntent,
                     PackageManager.MATCH_ALL));
+            LaunchTracer.endIpc("PackageManager.queryIntentActivities", ipcStart);
         }
 
         Map<String, Integer> customTabsServices = getLaunchModesForCustomTabsServices(pm);
@@ -146,10 +187,17 @@ public class TwaProviderPicker {
             @LaunchMode int launchMode = customTabsServices.containsKey(providerName)
                     ? customTabsServices.get(providerName) : LaunchMode.BROWSER;
 
+            if (launchMode == LaunchMode.TRUSTED_WEB_ACTIVITY && policy != null
+                    && !policy.canLaunchTwa(providerName)) {
+                Log.d(TAG, "TWA provider rejected by policy: " + providerName);
+                launchMode = LaunchMode.CUSTOM_TAB;
+            }
+
             switch (launchMode) {
                 case LaunchMode.TRUSTED_WEB_ACTIVITY:
-                    Log.d(TAG, "Found TWA provider, finishing search: " + providerName);
-                    return new Action(LaunchMode.TRUSTED_WEB_ACTIVITY, providerName);
+                    Log.d(TAG, "Found TWA provider: " + providerName);
+                    twaProviders.add(providerName);
+                    break;
                 case LaunchMode.CUSTOM_TAB:
                     Log.d(TAG, "Found Custom Tabs provider: " + providerName);
                     if (bestCctProvider == null) bestCctProvider = providerName;
@@ -161,6 +209,13 @@ public class TwaProviderPicker {
             }
         }
 
+        if (!twaProviders.isEmpty()) {
+            List<String> providers = new ArrayList<>(twaProviders);
+            Log.d(TAG, "Using first TWA provider of " + providers);
+            return new Action(LaunchMode.TRUSTED_WEB_ACTIVITY, providers.get(0),
+                    providers.subList(1, providers.size()));
+        }
+
         if (bestCctProvider != null) {
             Log.d(TAG, "Found no TWA providers, using first Custom Tabs provider: "
                     + bestCctProvider);
@@ -171,6 +226,16 @@ public class TwaProviderPicker {
         return new Action(LaunchMode.BROWSER, bestBrowserProvider);
     }
 
+    /** Returns an Intent that resolves to the browsers installed on the device. */
+    static Intent createBrowserQueryIntent() {
+        // Setting the Intent Data as seen at
+        // https://cs.android.com/android/platform/superproject/+/fd994cf9ef8207ad03dc3a1d831e9263ddfd4469:packages/apps/PermissionController/src/com/android/packageinstaller/role/model/BrowserRoleBehavior.java
+        return new Intent()
+                .setAction(Intent.ACTION_VIEW)
+                .addCategory(Intent.CATEGORY_BROWSABLE)
+                .setData(Uri.fromParts("http", "", null));
+    }
+
     /**
      * Restricts the logic to only consider providers from the given package. For use in testing.
      * Pass in {@code null} to reset.
@@ -181,9 +246,11 @@ public class TwaProviderPicker {
 
     /** Returns a map from package name to LaunchMode for all available Custom Tabs Services. */
     private static Map<String, Integer> getLaunchModesForCustomTabsServices(PackageManager pm) {
+        long ipcStart = LaunchTracer.startIpc();
         List<ResolveInfo> services = pm.queryIntentServices(
                 new Intent(CustomTabsService.ACTION_CUSTOM_TABS_CONNECTION),
                 PackageManager.GET_RESOLVED_FILTER);
+        LaunchTracer.endIpc("PackageManager.queryIntentServices", ipcStart);
 
         Map<String, Integer> customTabsServices = new HashMap<>();
         for (ResolveInfo service : services) {
@@ -1,27 +1,25 @@
 package com.google.androidbrowserhelper.trusted;
 
 import android.content.Context;
-import android.content.SharedPreferences;
 
 import androidx.annotation.Nullable;
 
 /**
- * Manages shared preferences for {@link LauncherActivity} and related infrastructure.
+ * Manages shared preferences for {@link LauncherActivity} and related infrastructure. The values
+ * are held by the {@link LaunchStateStore}, in the library's state file.
  */
 public class TwaSharedPreferencesManager {
-    private static final String PREFS_NAME = "TrustedWebActivityLauncherPrefs";
-    private static final String KEY_PROVIDER_PACKAGE = "KEY_PROVIDER_PACKAGE";
-    private final SharedPreferences mSharedPreferences;
+    private final LaunchStateStore mStore;
 
     public TwaSharedPreferencesManager(Context context) {
-        mSharedPreferences = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        mStore = LaunchStateStore.getInstance(context);
     }
 
     /**
      * Writes the package name of the provider in which a TWA was launched the last time.
      */
     public void writeLastLaunchedProviderPackageName(String packageName) {
-        mSharedPreferences.edit().putString(KEY_PROVIDER_PACKAGE, packageName).apply();
+        mStore.setLastLaunchedProviderPackage(packageName);
     }
 
     /**
@@ -29,6 +27,6 @@ public class TwaSharedPreferencesManager {
      */
     @Nullable
     public String readLastLaunchedProviderPackageName() {
-        return mSharedPreferences.getString(KEY_PROVIDER_PACKAGE, null);
+        return mStore.getLastLaunchedProviderPackage();
     }
 }
@@ -94,14 +94,26 @@ public class Utils {
      */
     @Nullable
     public static Bitmap convertDrawableToBitmap(Context context, int drawableId) {
+        return convertDrawableToBitmap(context, drawableId, 1);
+    }
+
+    /**
+     * Converts drawable located at given resource id into a Bitmap the given fraction of the
+     * drawable's intrinsic size. The drawable is drawn at that size, rather than a full size
+     * Bitmap being scaled down.
+     */
+    @Nullable
+    public static Bitmap convertDrawableToBitmap(Context context, int drawableId, float scale) {
         Drawable drawable = ContextCompat.getDrawable(context, drawableId);
         if (drawable == null) {
             return null;
         }
         drawable = DrawableCompat.wrap(drawable);
 
-        Bitmap bitmap = Bitmap.createBitmap(drawable.getIntrinsicWidth(),
-                drawable.getIntrinsicHeight(), Bitmap.Config.ARGB_8888);
+        Bitmap bitmap = Bitmap.createBitmap(
+                Math.max(1, Math.round(drawable.getIntrinsicWidth() * scale)),
+                Math.max(1, Math.round(drawable.getIntrinsicHeight() * scale)),
+                Bitmap.Config.ARGB_8888);
         Canvas canvas = new Canvas(bitmap);
         drawable.setBounds(0, 0, canvas.getWidth(), canvas.getHeight());
         drawable.draw(canvas);
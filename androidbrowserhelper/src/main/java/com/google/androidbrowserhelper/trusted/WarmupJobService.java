@@ -0,0 +1,85 @@
+// Copyright 2026 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.androidbrowserhelper.trusted;
+
+import android.app.job.JobParameters;
+import android.app.job.JobService;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.Nullable;
+
+/**
+ * Runs the browser warm-ups scheduled by {@link WarmupScheduler}. The job keeps running, and so
+ * keeps the browser bound, until the hour the warm-up was for starts.
+ */
+public class WarmupJobService extends JobService {
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+    // Only accessed on the main thread.
+    @Nullable
+    private WarmupScheduler.Warmup mWarmup;
+    @Nullable
+    private Runnable mFinishTask;
+    private boolean mStopped;
+
+    @Override
+    public boolean onStartJob(JobParameters params) {
+        mStopped = false;
+        // Reading the schedule touches the disk, so keep it off the main thread.
+        BackgroundExecutors.getPool().execute(() -> {
+            WarmupScheduler.Warmup warmup =
+                    WarmupScheduler.performWarmup(getApplicationContext());
+            mHandler.post(() -> onWarmedUp(params, warmup));
+        });
+        return true;
+    }
+
+    @Override
+    public boolean onStopJob(JobParameters params) {
+        mStopped = true;
+        if (mFinishTask != null) mHandler.removeCallbacks(mFinishTask);
+        mFinishTask = null;
+        release();
+        // The warm-up is a one-off, if it was interrupted the next one will do.
+        return false;
+    }
+
+    private void onWarmedUp(JobParameters params, @Nullable WarmupScheduler.Warmup warmup) {
+        mWarmup = warmup;
+        if (mStopped) {
+            release();
+            return;
+        }
+        if (warmup == null) {
+            jobFinished(params, false);
+            return;
+        }
+
+        mFinishTask = () -> {
+            mFinishTask = null;
+            release();
+            jobFinished(params, false);
+        };
+        mHandler.postDelayed(mFinishTask, warmup.holdMillis);
+    }
+
+    private void release() {
+        if (mWarmup == null) return;
+        // The browser was bound with the application context.
+        getApplicationContext().unbindService(mWarmup.connection);
+        mWarmup = null;
+    }
+}
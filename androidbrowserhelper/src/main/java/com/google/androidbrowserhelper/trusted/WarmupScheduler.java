@@ -0,0 +1,438 @@
+// Copyright 2026 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.androidbrowserhelper.trusted;
+
+import android.app.job.JobInfo;
+import android.app.job.JobScheduler;
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.ServiceConnection;
+import android.os.Build;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import androidx.annotation.WorkerThread;
+import androidx.browser.customtabs.CustomTabsClient;
+import androidx.browser.customtabs.CustomTabsServiceConnection;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Calendar;
+import java.util.TimeZone;
+import java.util.concurrent.Executor;
+
+/**
+ * Warms up the browser shortly before the user usually opens the app, so that the Trusted Web
+ * Activity launches into a browser process that is already running.
+ *
+ * The scheduler is opt-in: call {@link #enable} (e.g. from {@code Application#onCreate}) to turn
+ * it on. From then on, {@link LauncherActivity} records the hour of the day of each launch. The
+ * next warm-up is scheduled with {@link JobScheduler} a few minutes before the hour in which the
+ * app has been launched on the most recent days, provided it has been launched in that hour on a
+ * few of them. The job only runs when the battery isn't low, and no more than a given number of
+ * warm-ups happen per day. A warm-up binds to the browser and calls
+ * {@link CustomTabsClient#warmup}, which starts and initializes it, and stays bound until the
+ * hour starts, so that the browser isn't reclaimed in the meantime.
+ *
+ * Warm-ups are done by {@link WarmupJobService}, which is declared in the library's manifest. The
+ * scheduler's settings and the launch hours are kept in the {@link LaunchStateStore}.
+ */
+public class WarmupScheduler {
+    private static final String TAG = "WarmupScheduler";
+
+    private static final int FORMAT_VERSION = 1;
+
+    /** Default id of the warm-up job, override it if the app uses the same id for another job. */
+    public static final int DEFAULT_JOB_ID = 0x54574157;
+
+    /** Default number of warm-ups allowed per day. */
+    public static final int DEFAULT_MAX_WARMUPS_PER_DAY = 2;
+
+    /** Weight kept by the launches of previous days for every day that passes. */
+    private static final float DECAY = 0.9f;
+
+    /**
+     * An hour must score at least this much to be considered a likely launch time, i.e. the app
+     * must have been launched in it on three days, or more if they weren't recent.
+     */
+    @VisibleForTesting
+    static final float MIN_HOUR_SCORE = 2.0f;
+
+    /** How long before the likely launch hour the browser is warmed up. */
+    @VisibleForTesting
+    static final long LEAD_MILLIS = 5 * 60 * 1000;
+
+    /** A warm-up delayed by the job's constraints by more than this is skipped. */
+    private static final long MAX_DELAY_MILLIS = 30 * 60 * 1000;
+
+    private static final long DAY_MILLIS = 24 * 60 * 60 * 1000;
+
+    /** A browser warmed up by {@link #performWarmup}, kept bound for a while. */
+    static class Warmup {
+        /** Keeps the browser bound, to be unbound once {@link #holdMillis} have passed. */
+        final ServiceConnection connection;
+        final long holdMillis;
+
+        Warmup(ServiceConnection connection, long holdMillis) {
+            this.connection = connection;
+            this.holdMillis = holdMillis;
+        }
+    }
+
+    /**
+     * The scheduler's settings and what it knows about the user's habits, kept in the
+     * {@link LaunchStateStore}.
+     */
+    private static class Schedule {
+        boolean enabled;
+        int jobId = DEFAULT_JOB_ID;
+        int maxWarmupsPerDay = DEFAULT_MAX_WARMUPS_PER_DAY;
+        /** The score of each hour of the day, see {@link #recordLaunch}. */
+        final float[] hourScores = new float[24];
+        /** The day of the last recorded launch, see {@link #localDay}. */
+        long launchDay = -1;
+        /** The hours launched in on that day, one bit per hour. */
+        int launchHours;
+        /** The day of the last warm-up, see {@link #dayOfYear}. */
+        int warmupDay = -1;
+        int warmupsToday;
+        /** When the next warm-up is scheduled for. */
+        long targetTime;
+
+        static Schedule read(LaunchStateStore store) {
+            Schedule schedule = new Schedule();
+            byte[] data = store.getWarmupSchedule();
+            if (data == null) return schedule;
+
+            try {
+                DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+                if (in.readInt() != FORMAT_VERSION) return schedule;
+                schedule.enabled = in.readBoolean();
+                schedule.jobId = in.readInt();
+                schedule.maxWarmupsPerDay = in.readInt();
+                for (int hour = 0; hour < 24; hour++) {
+                    schedule.hourScores[hour] = in.readFloat();
+                }
+                schedule.launchDay = in.readLong();
+                schedule.launchHours = in.readInt();
+                schedule.warmupDay = in.readInt();
+                schedule.warmupsToday = in.readInt();
+                schedule.targetTime = in.readLong();
+                return schedule;
+            } catch (IOException e) {
+                Log.w(TAG, "Ignoring malformed warm-up schedule.", e);
+                return new Schedule();
+            }
+        }
+
+        void write(LaunchStateStore store) {
+            try {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                DataOutputStream out = new DataOutputStream(bytes);
+                out.writeInt(FORMAT_VERSION);
+                out.writeBoolean(enabled);
+                out.writeInt(jobId);
+                out.writeInt(maxWarmupsPerDay);
+                for (float score : hourScores) {
+                    out.writeFloat(score);
+                }
+                out.writeLong(launchDay);
+                out.writeInt(launchHours);
+                out.writeInt(warmupDay);
+                out.writeInt(warmupsToday);
+                out.writeLong(targetTime);
+                out.flush();
+                store.setWarmupSchedule(bytes.toByteArray());
+            } catch (IOException e) {
+                // Not expected when writing to memory.
+                Log.w(TAG, "Failed to serialize the warm-up schedule.", e);
+            }
+        }
+    }
+
+    private static final Executor sExecutor = BackgroundExecutors.newSequentialExecutor();
+
+    private WarmupScheduler() {}
+
+    /**
+     * Turns the scheduler on with {@link #DEFAULT_JOB_ID} and
+     * {@link #DEFAULT_MAX_WARMUPS_PER_DAY}.
+     */
+    public static void enable(Context context) {
+        enable(context, DEFAULT_JOB_ID, DEFAULT_MAX_WARMUPS_PER_DAY);
+    }
+
+    /**
+     * Turns the scheduler on.
+     *
+     * @param jobId Id for the {@link JobScheduler} job, unique within the app.
+     * @param maxWarmupsPerDay Battery budget: the maximum number of warm-ups per day.
+     */
+    public static void enable(Context context, int jobId, int maxWarmupsPerDay) {
+        Context appContext = context.getApplicationContext();
+        sExecutor.execute(() -> {
+            synchronized (WarmupScheduler.class) {
+                LaunchStateStore store = LaunchStateStore.getInstance(appContext);
+                Schedule schedule = Schedule.read(store);
+                schedule.enabled = true;
+                schedule.jobId = jobId;
+                schedule.maxWarmupsPerDay = maxWarmupsPerDay;
+                scheduleNextWarmup(appContext, schedule);
+                schedule.write(store);
+            }
+        });
+    }
+
+    /** Turns the scheduler off, cancelling the pending warm-up and forgetting launch times. */
+    public static void disable(Context context) {
+        Context appContext = context.getApplicationContext();
+        sExecutor.execute(() -> {
+            synchronized (WarmupScheduler.class) {
+                LaunchStateStore store = LaunchStateStore.getInstance(appContext);
+                Schedule schedule = Schedule.read(store);
+                if (!schedule.enabled) return;
+                getJobScheduler(appContext).cancel(schedule.jobId);
+                store.setWarmupSchedule(null);
+            }
+        });
+    }
+
+    /** Records that the app has been launched now, if the scheduler is enabled. */
+    static void onAppLaunched(Context context) {
+        Context appContext = context.getApplicationContext();
+        long now = System.currentTimeMillis();
+        sExecutor.execute(() -> {
+            synchronized (WarmupScheduler.class) {
+                LaunchStateStore store = LaunchStateStore.getInstance(appContext);
+                Schedule schedule = Schedule.read(store);
+                if (!schedule.enabled) return;
+
+                long today = localDay(now);
+                int elapsedDays = schedule.launchDay == -1 ? 0
+                        : (int) (today - schedule.launchDay);
+                schedule.launchHours = recordLaunch(schedule.hourScores, hourOfDay(now),
+                        elapsedDays, schedule.launchHours);
+                schedule.launchDay = today;
+                scheduleNextWarmup(appContext, schedule);
+                schedule.write(store);
+            }
+        });
+    }
+
+    /**
+     * Warms up the browser if the scheduler is still enabled and within its budget, then
+     * schedules the next warm-up. Called by {@link WarmupJobService}.
+     *
+     * @return The warm-up, which the caller must unbind, or {@code null} if there was none.
+     */
+    @WorkerThread
+    @Nullable
+    static synchronized Warmup performWarmup(Context context) {
+        LaunchStateStore store = LaunchStateStore.getInstance(context);
+        Schedule schedule = Schedule.read(store);
+        if (!schedule.enabled) return null;
+
+        long now = System.currentTimeMillis();
+        long targetTime = schedule.targetTime;
+        Warmup warmup = null;
+        if (now - targetTime > MAX_DELAY_MILLIS) {
+            Log.d(TAG, "Warm-up window missed, skipping.");
+        } else if (withinBudget(schedule, now)) {
+            ServiceConnection connection = warmUpBrowser(context);
+            if (connection != null) {
+                warmup = new Warmup(connection, computeHoldMillis(targetTime, now));
+            }
+        }
+        scheduleNextWarmup(context, schedule);
+        schedule.write(store);
+        return warmup;
+    }
+
+    /**
+     * Adds a launch in the given hour to the per-hour scores. The scores fade for every day that
+     * has passed since the previous launch, so that the schedule follows changes in the user's
+     * habits, and each hour counts once per day, so that a score tells on how many recent days
+     * the app was launched in the hour rather than how often.
+     *
+     * @param elapsedDays The number of days since the previous launch was recorded.
+     * @param launchHours The hours the app has been launched in on the day of the previous
+     *                    launch, as returned for it.
+     * @return The hours the app has been launched in today, one bit per hour.
+     */
+    @VisibleForTesting
+    static int recordLaunch(float[] scores, int hour, int elapsedDays, int launchHours) {
+        if (elapsedDays > 0) {
+            float decay = (float) Math.pow(DECAY, elapsedDays);
+            for (int i = 0; i < scores.length; i++) {
+                scores[i] *= decay;
+            }
+            launchHours = 0;
+        }
+
+        int hourBit = 1 << hour;
+        if ((launchHours & hourBit) == 0) scores[hour] += 1;
+        return launchHours | hourBit;
+    }
+
+    /**
+     * Returns how long to keep the browser bound after warming it up for a launch hour starting
+     * {@link #LEAD_MILLIS} after targetTime. A warm-up that ran late is kept for as long anyway,
+     * the user may still be about to launch the app.
+     */
+    @VisibleForTesting
+    static long computeHoldMillis(long targetTime, long nowMillis) {
+        long untilHour = targetTime + LEAD_MILLIS - nowMillis;
+        return untilHour > 0 ? untilHour : LEAD_MILLIS;
+    }
+
+    /**
+     * Returns when the next warm-up should happen: shortly before the start of the best scoring
+     * hour within the next 24 hours, or -1 if no hour scores high enough.
+     */
+    @VisibleForTesting
+    static long computeNextWarmupTime(float[] scores, long nowMillis) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(nowMillis);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+
+        long bestTime = -1;
+        float bestScore = MIN_HOUR_SCORE;
+        for (int i = 1; i <= 24; i++) {
+            calendar.add(Calendar.HOUR_OF_DAY, 1);
+            long warmupTime = calendar.getTimeInMillis() - LEAD_MILLIS;
+            if (warmupTime <= nowMillis) continue;
+
+            float score = scores[calendar.get(Calendar.HOUR_OF_DAY)];
+            if (score >= bestScore && (bestTime == -1 || score > bestScore)) {
+                bestScore = score;
+                bestTime = warmupTime;
+            }
+        }
+        return bestTime;
+    }
+
+    /** Schedules the next warm-up, recording its time in the given schedule. */
+    private static void scheduleNextWarmup(Context context, Schedule schedule) {
+        int jobId = schedule.jobId;
+        long now = System.currentTimeMillis();
+        long warmupTime = computeNextWarmupTime(schedule.hourScores, now);
+        JobScheduler jobScheduler = getJobScheduler(context);
+        if (warmupTime == -1) {
+            jobScheduler.cancel(jobId);
+            return;
+        }
+
+        if (warmupTime == schedule.targetTime && isPending(jobScheduler, jobId)) {
+            return;  // Already scheduled.
+        }
+
+        JobInfo.Builder builder = new JobInfo.Builder(jobId,
+                new ComponentName(context, WarmupJobService.class))
+                .setMinimumLatency(warmupTime - now);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            builder.setRequiresBatteryNotLow(true);
+        }
+        jobScheduler.schedule(builder.build());
+        schedule.targetTime = warmupTime;
+        Log.d(TAG, "Next warm-up in " + (warmupTime - now) / 60000 + " minutes.");
+    }
+
+    private static boolean isPending(JobScheduler jobScheduler, int jobId) {
+        // JobScheduler#getPendingJob requires Android N.
+        for (JobInfo job : jobScheduler.getAllPendingJobs()) {
+            if (job.getId() == jobId) return true;
+        }
+        return false;
+    }
+
+    private static boolean withinBudget(Schedule schedule, long now) {
+        int today = dayOfYear(now);
+        int warmupsToday = schedule.warmupDay == today ? schedule.warmupsToday : 0;
+        if (warmupsToday >= schedule.maxWarmupsPerDay) {
+            Log.d(TAG, "Warm-up budget for today used up, skipping.");
+            return false;
+        }
+        schedule.warmupDay = today;
+        schedule.warmupsToday = warmupsToday + 1;
+        return true;
+    }
+
+    @Nullable
+    private static ServiceConnection warmUpBrowser(Context context) {
+        // ChromeOS launches through a different path, see ChromeOsSupport. Constrained devices
+        // can't spare the memory for a browser process that may not be used.
+        DeviceProfile deviceProfile = DeviceProfile.getInstance(context);
+        if (deviceProfile.isRunningOnArc() || deviceProfile.isConstrained()) return null;
+
+        String providerPackage = new TwaSharedPreferencesManager(context)
+                .readLastLaunchedProviderPackageName();
+        if (providerPackage == null) {
+            TwaProviderPicker.Action action =
+                    TwaProviderPicker.pickProvider(context.getPackageManager());
+            if (action.launchMode == TwaProviderPicker.LaunchMode.BROWSER) return null;
+            providerPackage = action.provider;
+        }
+        if (providerPackage == null) return null;
+
+        // Like CustomTabsClient#connectAndInitialize, but without unbinding once connected, a
+        // browser nobody is bound to may be reclaimed before the user gets to it.
+        CustomTabsServiceConnection connection = new CustomTabsServiceConnection() {
+            @Override
+            public void onCustomTabsServiceConnected(@NonNull ComponentName name,
+                    @NonNull CustomTabsClient client) {
+                client.warmup(0);
+            }
+
+            @Override
+            public void onServiceDisconnected(ComponentName name) {}
+        };
+        boolean started;
+        try {
+            started = CustomTabsClient.bindCustomTabsService(context, providerPackage, connection);
+        } catch (SecurityException e) {
+            started = false;
+        }
+        Log.d(TAG, "Warming up " + providerPackage + ", started: " + started);
+        return started ? connection : null;
+    }
+
+    private static int hourOfDay(long timeMillis) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(timeMillis);
+        return calendar.get(Calendar.HOUR_OF_DAY);
+    }
+
+    /** Returns the number of the day in the local time zone, counting from the epoch. */
+    private static long localDay(long timeMillis) {
+        return (timeMillis + TimeZone.getDefault().getOffset(timeMillis)) / DAY_MILLIS;
+    }
+
+    private static int dayOfYear(long timeMillis) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(timeMillis);
+        return calendar.get(Calendar.YEAR) * 1000 + calendar.get(Calendar.DAY_OF_YEAR);
+    }
+
+    private static JobScheduler getJobScheduler(Context context) {
+        return (JobScheduler) context.getSystemService(Context.JOB_SCHEDULER_SERVICE);
+    }
+}
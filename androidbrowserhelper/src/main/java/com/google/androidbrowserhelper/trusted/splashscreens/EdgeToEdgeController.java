@@ -12,7 +12,7 @@ import androidx.core.view.WindowInsetsCompat;
 import androidx.core.view.insets.ColorProtection;
 import androidx.core.view.insets.ProtectionLayout;
 
-import com.google.common.collect.ImmutableList;
+import java.util.Arrays;
 
 /**
  * A helper class to control the color of system bars in edge-to-edge mode.
@@ -33,7 +33,7 @@ public class EdgeToEdgeController {
         mRootView.setLayoutParams(new ViewGroup.LayoutParams(MATCH_PARENT, MATCH_PARENT));
 
         mProtectionLayout = new ProtectionLayout(activity,
-                ImmutableList.of(mStatusBarProtection, mNavigationBarProtection));
+                Arrays.asList(mStatusBarProtection, mNavigationBarProtection));
         mRootView.addView(mProtectionLayout);
         mProtectionLayout.setVisibility(View.VISIBLE);
     }
@@ -22,11 +22,14 @@ import android.graphics.Matrix;
 import android.net.Uri;
 import android.os.Build;
 import android.os.Bundle;
+import android.os.CancellationSignal;
 import android.text.TextUtils;
 import android.util.Log;
 import android.view.ViewGroup;
 import android.widget.ImageView;
 
+import com.google.androidbrowserhelper.trusted.DeviceProfile;
+import com.google.androidbrowserhelper.trusted.LaunchTracer;
 import com.google.androidbrowserhelper.trusted.Utils;
 
 import androidx.annotation.ColorInt;
@@ -57,6 +60,9 @@ public class PwaWrapperSplashScreenStrategy implements SplashScreenStrategy {
 
     private static final String TAG = "SplashScreenStrategy";
 
+    /** The resolution the splash image is drawn at on constrained devices, see DeviceProfile. */
+    private static final float CONSTRAINED_SPLASH_IMAGE_SCALE = 0.5f;
+
     private static SystemBarColorPredictor sSystemBarColorPredictor = new SystemBarColorPredictor();
 
     private final Activity mActivity;
@@ -76,11 +82,20 @@ public class PwaWrapperSplashScreenStrategy implements SplashScreenStrategy {
     @Nullable
     private SplashImageTransferTask mSplashImageTransferTask;
 
+    /** Cancelled when the launch the splash image is being transferred for is abandoned. */
+    @Nullable
+    private CancellationSignal mCancellationSignal;
+
     @Nullable
     private String mProviderPackage;
 
     private boolean mProviderSupportsSplashScreens;
 
+    @Nullable
+    private String mKnownSplashScreenSupportProvider;
+
+    private boolean mKnownSplashScreenSupport;
+
     // Defaulting to true for pre-L because enter animations were introduced in L.
     private boolean mEnterAnimationComplete = Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP;
 
@@ -91,6 +106,8 @@ public class PwaWrapperSplashScreenStrategy implements SplashScreenStrategy {
 
     private EdgeToEdgeController mEdgeToEdgeController;
 
+    private boolean mSplashImageTransferred;
+
     /**
      * @param activity {@link Activity} on top of which a TWA is going to be launched.
      * @param drawableId Resource id of the Drawable of an image (e.g. logo) displayed in the
@@ -121,11 +138,38 @@ public class PwaWrapperSplashScreenStrategy implements SplashScreenStrategy {
         mStartChromeBeforeAnimationComplete = startChromeBeforeAnimationComplete;
     }
 
+    /** Whether the splash screen has been shown in the app. */
+    public boolean isSplashScreenShown() {
+        return mSplashImage != null;
+    }
+
+    /** Whether the splash screen has been transferred to the browser. */
+    public boolean isSplashImageTransferred() {
+        return mSplashImageTransferred;
+    }
+
+    /**
+     * Lets the caller provide whether the given provider supports splash screens (e.g. because
+     * it has been checked during a previous launch), saving a query to the PackageManager in
+     * {@link #onTwaLaunchInitiated}.
+     */
+    public void setProviderSupportsSplashScreens(String providerPackage, boolean supported) {
+        mKnownSplashScreenSupportProvider = providerPackage;
+        mKnownSplashScreenSupport = supported;
+    }
+
     @Override
     public void onTwaLaunchInitiated(String providerPackage, TrustedWebActivityIntentBuilder builder) {
         mProviderPackage = providerPackage;
-        mProviderSupportsSplashScreens = TrustedWebUtils.areSplashScreensSupported(mActivity,
-                providerPackage, SplashScreenVersion.V1);
+        if (providerPackage != null
+                && providerPackage.equals(mKnownSplashScreenSupportProvider)) {
+            mProviderSupportsSplashScreens = mKnownSplashScreenSupport;
+        } else {
+            long ipcStart = LaunchTracer.startIpc();
+            mProviderSupportsSplashScreens = TrustedWebUtils.areSplashScreensSupported(mActivity,
+                    providerPackage, SplashScreenVersion.V1);
+            LaunchTracer.endIpc("PackageManager.queryIntentServices", ipcStart);
+        }
 
         if (!mProviderSupportsSplashScreens) {
             Log.w(TAG, "Provider " + providerPackage + " doesn't support splash screens");
@@ -146,7 +190,15 @@ public class PwaWrapperSplashScreenStrategy implements SplashScreenStrategy {
      * This method shows the splash screen in the LauncherActivity.
      */
     private void showSplashScreen() {
-        mSplashImage = Utils.convertDrawableToBitmap(mActivity, mDrawableId);
+        // On constrained devices, draw the image at half the resolution if it is scaled to the
+        // size of the view anyway. That takes a quarter of the memory here, and makes the file
+        // it is transferred in, which stays in the app's files, smaller.
+        if (DeviceProfile.getInstance(mActivity).isConstrained() && scalesToView(mScaleType)) {
+            mSplashImage = Utils.convertDrawableToBitmap(mActivity, mDrawableId,
+                    CONSTRAINED_SPLASH_IMAGE_SCALE);
+        } else {
+            mSplashImage = Utils.convertDrawableToBitmap(mActivity, mDrawableId);
+        }
         if (mSplashImage == null) {
             Log.w(TAG, "Failed to retrieve splash image from provided drawable id");
             return;
@@ -188,6 +240,25 @@ public class PwaWrapperSplashScreenStrategy implements SplashScreenStrategy {
     public void configureTwaBuilder(TrustedWebActivityIntentBuilder builder,
             CustomTabsSession session,
             Runnable onReadyCallback) {
+        configureTwaBuilder(builder, session, onReadyCallback, null);
+    }
+
+    /**
+     * Like {@link #configureTwaBuilder(TrustedWebActivityIntentBuilder, CustomTabsSession,
+     * Runnable)}, but stops when the given signal is cancelled: encoding and transferring the
+     * splash image are abandoned, the URL isn't preloaded, and {@code onReadyCallback} isn't
+     * called.
+     */
+    public void configureTwaBuilder(TrustedWebActivityIntentBuilder builder,
+            CustomTabsSession session,
+            Runnable onReadyCallback,
+            @Nullable CancellationSignal cancellationSignal) {
+        mCancellationSignal = cancellationSignal;
+        if (cancellationSignal != null) {
+            if (cancellationSignal.isCanceled()) return;
+            cancellationSignal.setOnCancelListener(this::cancelSplashImageTransfer);
+        }
+
         if (!mProviderSupportsSplashScreens || mSplashImage == null) {
             onReadyCallback.run();
             return;
@@ -207,12 +278,15 @@ public class PwaWrapperSplashScreenStrategy implements SplashScreenStrategy {
 
     private void onSplashImageTransferred(TrustedWebActivityIntentBuilder builder, boolean success,
             Runnable onReadyCallback, CustomTabsSession session) {
+        mSplashImageTransferTask = null;
+        if (isCancelled()) return;
         if (!success) {
             Log.w(TAG, "Failed to transfer splash image.");
             onReadyCallback.run();
             return;
         }
         builder.setSplashScreenParams(makeSplashScreenParamsBundle());
+        mSplashImageTransferred = true;
 
         Runnable taskToRun = () -> {
           onReadyCallback.run();
@@ -232,6 +306,8 @@ public class PwaWrapperSplashScreenStrategy implements SplashScreenStrategy {
             runnable.run();
         } else {
             mOnEnterAnimationCompleteRunnable = runnable;
+            // Constrained devices can't spare the memory to load the page speculatively.
+            if (DeviceProfile.getInstance(mActivity).isConstrained() || isCancelled()) return;
             boolean preloadResult = session.mayLaunchUrl(uri, null, null);
             Log.i(TAG, "Enter animation not complete, try preload url. Result: " + preloadResult);
         }
@@ -264,12 +340,39 @@ public class PwaWrapperSplashScreenStrategy implements SplashScreenStrategy {
         }
     }
 
+    /** Whether the image is shown at the size of the view whatever its own size. */
+    private static boolean scalesToView(ImageView.ScaleType scaleType) {
+        switch (scaleType) {
+            case FIT_XY:
+            case FIT_START:
+            case FIT_CENTER:
+            case FIT_END:
+            case CENTER_CROP:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private boolean isCancelled() {
+        return mCancellationSignal != null && mCancellationSignal.isCanceled();
+    }
+
+    /** Stops the work done for a launch that has been abandoned. */
+    private void cancelSplashImageTransfer() {
+        if (mSplashImageTransferTask != null) {
+            mSplashImageTransferTask.cancel();
+            mSplashImageTransferTask = null;
+        }
+        mOnEnterAnimationCompleteRunnable = null;
+    }
+
     /**
      * Performs clean-up.
      */
     public void destroy() {
-        if (mSplashImageTransferTask != null) {
-            mSplashImageTransferTask.cancel();
-        }
+        cancelSplashImageTransfer();
+        // The image is only referenced by the view from now on, which goes with the Activity.
+        mSplashImage = null;
     }
 }
\ No newline at end of file
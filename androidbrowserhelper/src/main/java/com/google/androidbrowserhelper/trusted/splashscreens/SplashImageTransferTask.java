@@ -16,7 +16,6 @@ package com.google.androidbrowserhelper.trusted.splashscreens;
 
 import android.annotation.SuppressLint;
 import android.content.Context;
-import android.content.SharedPreferences;
 import android.content.pm.PackageManager;
 import android.graphics.Bitmap;
 import android.os.AsyncTask;
@@ -24,6 +23,9 @@ import android.util.Log;
 
 import java.io.File;
 import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
 
 import androidx.annotation.Nullable;
@@ -31,6 +33,9 @@ import androidx.browser.customtabs.CustomTabsSession;
 import androidx.browser.customtabs.TrustedWebUtils;
 import androidx.core.content.FileProvider;
 
+import com.google.androidbrowserhelper.trusted.LaunchStateStore;
+import com.google.androidbrowserhelper.trusted.LaunchTracer;
+
 /**
  * Saves the splash image to a file and transfers it to Custom Tabs provider.
  */
@@ -40,11 +45,11 @@ public class SplashImageTransferTask {
 
     private static final String FOLDER_NAME = "twa_splash";
     private static final String FILE_NAME = "splash_image.png";
-    private static final String PREFS_FILE = "splashImagePrefs";
-    private static final String PREF_LAST_UPDATE_TIME = "lastUpdateTime";
 
     private final Context mContext;
-    private final Bitmap mBitmap;
+    // Dropped when cancelled, so that the image can be collected while the task winds down.
+    @Nullable
+    private volatile Bitmap mBitmap;
     private final String mAuthority;
     private final CustomTabsSession mSession;
     private final String mProviderPackage;
@@ -80,11 +85,13 @@ public class SplashImageTransferTask {
 
     /**
      * Cancels the execution. The callback passed into {@link #execute} won't be called, and
-     * the references to it will be released.
+     * the references to it and to the image will be released. Encoding the image stops at the
+     * next chunk written, and the image isn't transferred if it hasn't been yet.
      */
     public void cancel() {
         mAsyncTask.cancel(true);
         mCallback = null;
+        mBitmap = null;
     }
 
     @SuppressLint("StaticFieldLeak") // No leaking should happen
@@ -92,7 +99,8 @@ public class SplashImageTransferTask {
 
         @Override
         protected Boolean doInBackground(Void... args) {
-            if (isCancelled()) return false;
+            Bitmap bitmap = mBitmap;
+            if (isCancelled() || bitmap == null) return false;
             File dir = new File(mContext.getFilesDir(), FOLDER_NAME);
             if (!dir.exists()) {
                 boolean mkDirSuccessful = dir.mkdir();
@@ -102,39 +110,61 @@ public class SplashImageTransferTask {
                 }
             }
             File file = new File(dir, FILE_NAME);
-            SharedPreferences prefs =
-                    mContext.getSharedPreferences(PREFS_FILE, Context.MODE_PRIVATE);
+            LaunchStateStore store = LaunchStateStore.getInstance(mContext);
             long lastUpdateTime = getLastAppUpdateTime();
-            if (file.exists() && lastUpdateTime == prefs.getLong(PREF_LAST_UPDATE_TIME, 0)) {
+            if (file.exists() && lastUpdateTime == store.getSplashImageUpdateTime()) {
                 // Don't overwrite existing file, if it was saved later than the last time app was
                 // updated
                 return transferToCustomTabsProvider(file);
             }
-            try(OutputStream os = new FileOutputStream(file)) {
+            boolean written;
+            try(OutputStream os = new CancellableOutputStream(new FileOutputStream(file))) {
                 if (isCancelled()) return false;
-                mBitmap.compress(Bitmap.CompressFormat.PNG, 100, os);
+                written = bitmap.compress(Bitmap.CompressFormat.PNG, 100, os);
                 os.flush();
-                prefs.edit().putLong(PREF_LAST_UPDATE_TIME, lastUpdateTime).commit();
-
-                if (isCancelled()) return false;
-                return transferToCustomTabsProvider(file);
+            } catch (InterruptedIOException e) {
+                written = false;
             } catch (Exception e) {
                 throw new RuntimeException(e);
             }
+            if (!written || isCancelled()) {
+                // Don't leave a partially written image for the next launch to pick up.
+                file.delete();
+                return false;
+            }
+            store.setSplashImageUpdateTime(lastUpdateTime);
+            return transferToCustomTabsProvider(file);
+        }
+
+        /** Aborts encoding the image once the task has been cancelled. */
+        private class CancellableOutputStream extends FilterOutputStream {
+            CancellableOutputStream(OutputStream out) {
+                super(out);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                if (isCancelled()) throw new InterruptedIOException("Cancelled");
+                out.write(b, off, len);
+            }
         }
 
         private boolean transferToCustomTabsProvider(File file) {
+            if (isCancelled()) return false;
             return TrustedWebUtils.transferSplashImage(mContext, file, mAuthority, mProviderPackage,
                     mSession);
         }
 
         private long getLastAppUpdateTime() {
+            long ipcStart = LaunchTracer.startIpc();
             try {
                 return mContext.getPackageManager()
                         .getPackageInfo(mContext.getPackageName(), 0).lastUpdateTime;
             } catch (PackageManager.NameNotFoundException e) {
                 // Should not happen
                 throw new RuntimeException(e);
+            } finally {
+                LaunchTracer.endIpc("PackageManager.getPackageInfo", ipcStart);
             }
         }
 
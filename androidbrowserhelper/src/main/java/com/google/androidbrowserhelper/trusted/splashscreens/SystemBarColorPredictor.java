@@ -18,11 +18,12 @@ import android.content.Context;
 import android.content.Intent;
 import android.content.pm.PackageManager;
 import android.content.pm.ResolveInfo;
-import android.content.res.Configuration;
 import android.graphics.Color;
 import android.os.Bundle;
 
 import com.google.androidbrowserhelper.trusted.ChromeLegacyUtils;
+import com.google.androidbrowserhelper.trusted.DeviceProfile;
+import com.google.androidbrowserhelper.trusted.LaunchTracer;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -111,8 +112,10 @@ class SystemBarColorPredictor {
         Intent serviceIntent = new Intent()
                 .setAction(CustomTabsService.ACTION_CUSTOM_TABS_CONNECTION)
                 .setPackage(providerPackage);
+        long ipcStart = LaunchTracer.startIpc();
         ResolveInfo resolveInfo = context.getPackageManager().resolveService(serviceIntent,
                 PackageManager.GET_RESOLVED_FILTER);
+        LaunchTracer.endIpc("PackageManager.resolveService", ipcStart);
 
         SupportedFeatures features = new SupportedFeatures(
                 hasCategory(resolveInfo, CustomTabsService.CATEGORY_NAVBAR_COLOR_CUSTOMIZATION),
@@ -134,8 +137,7 @@ class SystemBarColorPredictor {
         if (scheme != null && scheme != CustomTabsIntent.COLOR_SCHEME_SYSTEM) {
             return scheme;
         }
-        boolean systemIsInDarkMode = (context.getResources().getConfiguration().uiMode
-                & Configuration.UI_MODE_NIGHT_MASK) == Configuration.UI_MODE_NIGHT_YES;
+        boolean systemIsInDarkMode = DeviceProfile.getInstance(context).isNightMode();
         return systemIsInDarkMode ? CustomTabsIntent.COLOR_SCHEME_DARK :
                 CustomTabsIntent.COLOR_SCHEME_LIGHT;
     }
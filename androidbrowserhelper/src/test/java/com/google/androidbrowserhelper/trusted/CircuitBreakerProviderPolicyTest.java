@@ -0,0 +1,109 @@
+// Copyright 2026 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.androidbrowserhelper.trusted;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import android.os.Build;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.internal.DoNotInstrument;
+
+/**
+ * Tests for {@link CircuitBreakerProviderPolicy} and the {@link ProviderHealth} it relies on.
+ */
+@RunWith(RobolectricTestRunner.class)
+@DoNotInstrument
+@Config(sdk = {Build.VERSION_CODES.O_MR1})
+public class CircuitBreakerProviderPolicyTest {
+    private static final String PROVIDER = "com.trustedweb.one";
+    private static final long COOL_DOWN_MILLIS = 1000;
+
+    private long mNow = 100000;
+    private LaunchStateStore mStore;
+    private ProviderHealth mProviderHealth;
+    private CircuitBreakerProviderPolicy mPolicy;
+
+    @Before
+    public void setUp() {
+        mStore = new LaunchStateStore(RuntimeEnvironment.application, Runnable::run);
+        mProviderHealth = new ProviderHealth(mStore, Runnable::run, () -> mNow);
+        mPolicy = new CircuitBreakerProviderPolicy(mProviderHealth, 2, COOL_DOWN_MILLIS);
+    }
+
+    @Test
+    public void allowsProvider_belowThreshold() {
+        mProviderHealth.recordSessionFailure(PROVIDER);
+
+        assertTrue(mPolicy.canLaunchTwa(PROVIDER));
+    }
+
+    @Test
+    public void rejectsProvider_atThreshold() {
+        mProviderHealth.recordSessionFailure(PROVIDER);
+        mProviderHealth.recordSessionFailure(PROVIDER);
+
+        assertFalse(mPolicy.canLaunchTwa(PROVIDER));
+    }
+
+    @Test
+    public void allowsProvider_afterCoolDown() {
+        mProviderHealth.recordSessionFailure(PROVIDER);
+        mProviderHealth.recordSessionFailure(PROVIDER);
+        mNow += COOL_DOWN_MILLIS;
+
+        assertTrue(mPolicy.canLaunchTwa(PROVIDER));
+
+        // Failing once more trips the breaker again.
+        mProviderHealth.recordSessionFailure(PROVIDER);
+        assertFalse(mPolicy.canLaunchTwa(PROVIDER));
+    }
+
+    @Test
+    public void resetsOnSuccess() {
+        mProviderHealth.recordSessionFailure(PROVIDER);
+        mProviderHealth.recordSessionFailure(PROVIDER);
+        mProviderHealth.recordSessionCreated(PROVIDER);
+
+        assertTrue(mPolicy.canLaunchTwa(PROVIDER));
+    }
+
+    @Test
+    public void smoothsBindLatency() {
+        mProviderHealth.recordBindLatency(PROVIDER, 100);
+        mProviderHealth.recordBindLatency(PROVIDER, 500);
+
+        assertEquals(200, mProviderHealth.getStats(PROVIDER).bindLatencyMillis);
+    }
+
+    @Test
+    public void keepsStats_inLaunchStateStore() {
+        mProviderHealth.recordSessionFailure(PROVIDER);
+        mProviderHealth.recordFallback(PROVIDER);
+
+        ProviderHealth.Stats stats =
+                new ProviderHealth(mStore, Runnable::run, () -> mNow).getStats(PROVIDER);
+        assertEquals(1, stats.consecutiveFailures);
+        assertEquals(mNow, stats.lastFailureTimeMillis);
+        assertEquals(1, stats.fallbacks);
+    }
+}
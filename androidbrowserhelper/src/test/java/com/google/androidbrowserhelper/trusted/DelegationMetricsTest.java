@@ -0,0 +1,92 @@
+// Copyright 2026 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.androidbrowserhelper.trusted;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import android.os.Build;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.internal.DoNotInstrument;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+/**
+ * Tests for {@link DelegationMetrics}.
+ */
+@RunWith(RobolectricTestRunner.class)
+@DoNotInstrument
+@Config(sdk = {Build.VERSION_CODES.O_MR1})
+public class DelegationMetricsTest {
+    private static final String OPERATION = DelegationMetrics.OPERATION_NOTIFY_NOTIFICATION;
+
+    private final DelegationMetrics mMetrics = new DelegationMetrics();
+
+    @Test
+    public void putsDurationsInBuckets() {
+        assertEquals(0, DelegationMetrics.getBucket(0));
+        assertEquals(0, DelegationMetrics.getBucket(1));
+        assertEquals(1, DelegationMetrics.getBucket(2));
+        assertEquals(2, DelegationMetrics.getBucket(3));
+        long[] bounds = DelegationMetrics.getBucketBoundsMillis();
+        assertEquals(bounds.length, DelegationMetrics.getBucket(bounds[bounds.length - 1] + 1));
+    }
+
+    @Test
+    public void countsCallsAndErrors() {
+        mMetrics.record(OPERATION, DelegationMetrics.start(), true);
+        mMetrics.record(OPERATION, DelegationMetrics.start(), true);
+        mMetrics.record(OPERATION, DelegationMetrics.start(), true);
+        mMetrics.record(OPERATION, DelegationMetrics.start(), false);
+
+        DelegationMetrics.OperationStats stats = mMetrics.getSnapshot().get(0);
+        assertEquals(OPERATION, stats.getOperation());
+        assertEquals(4, stats.getCount());
+        assertEquals(1, stats.getErrorCount());
+        assertEquals(0.25f, stats.getErrorRate(), 0.001f);
+        long histogramTotal = 0;
+        for (long count : stats.getHistogram()) histogramTotal += count;
+        assertEquals(4, histogramTotal);
+    }
+
+    @Test
+    public void estimatesPercentiles() {
+        // Falls in the bucket of calls that took between 500ms and a second.
+        long slowStart = System.nanoTime() - 900L * 1000000;
+        mMetrics.record(OPERATION, DelegationMetrics.start(), true);
+        mMetrics.record(OPERATION, slowStart, true);
+
+        DelegationMetrics.OperationStats stats = mMetrics.getSnapshot().get(0);
+        assertTrue(stats.getPercentileMillis(0.5f) < 1000);
+        assertEquals(1000, stats.getPercentileMillis(1f));
+    }
+
+    @Test
+    public void dumpsEveryOperation() {
+        mMetrics.record(OPERATION, DelegationMetrics.start(), true);
+        mMetrics.recordBusy(DelegationMetrics.OPERATION_EXTRA_COMMAND_PREFIX + "getDetails");
+
+        StringWriter output = new StringWriter();
+        mMetrics.dump(new PrintWriter(output));
+
+        assertTrue(output.toString().contains(OPERATION + ": 1 calls"));
+        assertTrue(output.toString().contains("extraCommand:getDetails: 0 calls, 0 errors, 1 busy"));
+    }
+}
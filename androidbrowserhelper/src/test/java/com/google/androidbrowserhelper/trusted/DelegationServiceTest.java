@@ -0,0 +1,329 @@
+// Copyright 2026 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.androidbrowserhelper.trusted;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import android.content.Context;
+import android.os.Build;
+import android.os.Bundle;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.browser.trusted.TrustedWebActivityCallbackRemote;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.internal.DoNotInstrument;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Tests for how {@link DelegationService} routes and runs extra commands.
+ */
+@RunWith(RobolectricTestRunner.class)
+@DoNotInstrument
+@Config(sdk = {Build.VERSION_CODES.O_MR1})
+public class DelegationServiceTest {
+    private static final int MAX_PENDING_COMMANDS = 4;
+
+    private final List<Runnable> mTasks = new ArrayList<>();
+    private final DelegationMetrics mMetrics = new DelegationMetrics();
+    private DelegationService mService;
+
+    @Before
+    public void setUp() {
+        mService = new DelegationService();
+        mService.setMetricsForTesting(mMetrics);
+        mService.setExtraCommandExecutorForTesting(
+                new ExtraCommandExecutor(mTasks::add, MAX_PENDING_COMMANDS, mMetrics));
+    }
+
+    @Test
+    public void routesCommand_onlyToDeclaringHandler() {
+        FakeHandler first = new FakeHandler("first");
+        FakeHandler second = new FakeHandler("second");
+        mService.registerExtraCommandHandler(first);
+        mService.registerExtraCommandHandler(second);
+
+        Bundle result = mService.onExtraCommand("second", new Bundle(), null);
+
+        assertTrue(result.getBoolean(ExtraCommandHandler.EXTRA_COMMAND_SUCCESS));
+        assertEquals(0, first.mCommands.size());
+        assertEquals(Arrays.asList("second"), second.mCommands);
+    }
+
+    @Test
+    public void passesUndeclaredCommands_toHandlersWithoutCommandNames() {
+        FakeHandler declared = new FakeHandler("declared");
+        FakeHandler catchAll = new FakeHandler();
+        mService.registerExtraCommandHandler(declared);
+        mService.registerExtraCommandHandler(catchAll);
+
+        mService.onExtraCommand("other", new Bundle(), null);
+
+        assertEquals(0, declared.mCommands.size());
+        assertEquals(Arrays.asList("other"), catchAll.mCommands);
+        assertEquals(0, mService.getUnknownCommandCount());
+    }
+
+    @Test
+    public void countsUnknownCommands() {
+        mService.registerExtraCommandHandler(new FakeHandler("known"));
+
+        assertSame(Bundle.EMPTY, mService.onExtraCommand("unknown", new Bundle(), null));
+        mService.onExtraCommand("unknown", new Bundle(), null);
+
+        assertEquals(2, mService.getUnknownCommandCount());
+    }
+
+    @Test
+    public void runsAsyncHandler_offBinderThread() throws Exception {
+        FakeHandler handler = new FakeHandler("slow");
+        mService.registerExtraCommandHandler(handler, names("slow"), 1);
+        TrustedWebActivityCallbackRemote callback = mock(TrustedWebActivityCallbackRemote.class);
+
+        Bundle result = mService.onExtraCommand("slow", new Bundle(), callback);
+
+        assertTrue(result.getBoolean(ExtraCommandHandler.EXTRA_COMMAND_SUCCESS));
+        assertTrue(result.getBoolean(ExtraCommandHandler.EXTRA_COMMAND_ASYNC));
+        assertEquals(0, handler.mCommands.size());
+
+        runTasks();
+
+        assertEquals(Arrays.asList("slow"), handler.mCommands);
+        ArgumentCaptor<Bundle> callbackArgs = ArgumentCaptor.forClass(Bundle.class);
+        verify(callback).runExtraCallback(
+                eq(ExtraCommandHandler.CALLBACK_EXTRA_COMMAND_RESULT), callbackArgs.capture());
+        assertEquals("slow",
+                callbackArgs.getValue().getString(ExtraCommandHandler.EXTRA_COMMAND_NAME));
+        assertTrue(callbackArgs.getValue().getBoolean(ExtraCommandHandler.EXTRA_COMMAND_SUCCESS));
+    }
+
+    @Test
+    public void reportsBusy_whenCommandLimitIsReached() {
+        mService.registerExtraCommandHandler(
+                new FakeHandler("slow", "other"), names("slow", "other"), 1);
+        TrustedWebActivityCallbackRemote callback = mock(TrustedWebActivityCallbackRemote.class);
+
+        mService.onExtraCommand("slow", new Bundle(), callback);
+        Bundle busy = mService.onExtraCommand("slow", new Bundle(), callback);
+        Bundle other = mService.onExtraCommand("other", new Bundle(), callback);
+
+        assertFalse(busy.getBoolean(ExtraCommandHandler.EXTRA_COMMAND_SUCCESS));
+        assertTrue(busy.getBoolean(ExtraCommandHandler.EXTRA_COMMAND_BUSY));
+        assertTrue(other.getBoolean(ExtraCommandHandler.EXTRA_COMMAND_SUCCESS));
+
+        runTasks();
+
+        Bundle result = mService.onExtraCommand("slow", new Bundle(), callback);
+        assertTrue(result.getBoolean(ExtraCommandHandler.EXTRA_COMMAND_SUCCESS));
+    }
+
+    @Test
+    public void reportsBusy_whenTooManyCommandsArePending() {
+        String[] commandNames = new String[MAX_PENDING_COMMANDS + 1];
+        for (int i = 0; i < commandNames.length; i++) commandNames[i] = "command" + i;
+        mService.registerExtraCommandHandler(
+                new FakeHandler(commandNames), names(commandNames), 1);
+        TrustedWebActivityCallbackRemote callback = mock(TrustedWebActivityCallbackRemote.class);
+
+        for (int i = 0; i < MAX_PENDING_COMMANDS; i++) {
+            mService.onExtraCommand(commandNames[i], new Bundle(), callback);
+        }
+        Bundle result =
+                mService.onExtraCommand(commandNames[MAX_PENDING_COMMANDS], new Bundle(), callback);
+
+        assertTrue(result.getBoolean(ExtraCommandHandler.EXTRA_COMMAND_BUSY));
+        assertEquals(MAX_PENDING_COMMANDS, mTasks.size());
+    }
+
+    @Test
+    public void runsAsyncHandler_onBinderThread_withoutCallback() {
+        FakeHandler handler = new FakeHandler("slow");
+        mService.registerExtraCommandHandler(handler, names("slow"), 1);
+
+        Bundle result = mService.onExtraCommand("slow", new Bundle(), null);
+
+        assertFalse(result.getBoolean(ExtraCommandHandler.EXTRA_COMMAND_ASYNC));
+        assertEquals(Arrays.asList("slow"), handler.mCommands);
+        assertEquals(0, mTasks.size());
+    }
+
+    @Test
+    public void handlesCommandsNotListedAsAsync_onBinderThread() {
+        FakeHandler handler = new FakeHandler("slow", "reply");
+        mService.registerExtraCommandHandler(handler, names("slow"), 1);
+        TrustedWebActivityCallbackRemote callback = mock(TrustedWebActivityCallbackRemote.class);
+
+        Bundle result = mService.onExtraCommand("reply", new Bundle(), callback);
+
+        assertFalse(result.getBoolean(ExtraCommandHandler.EXTRA_COMMAND_ASYNC));
+        assertEquals(Arrays.asList("reply"), handler.mCommands);
+        assertEquals(0, mTasks.size());
+    }
+
+    @Test
+    public void handlesCommands_onBinderThread_withoutConcurrentCommands() {
+        FakeHandler handler = new FakeHandler("slow");
+        mService.registerExtraCommandHandler(handler, names("slow"), 0);
+        TrustedWebActivityCallbackRemote callback = mock(TrustedWebActivityCallbackRemote.class);
+
+        Bundle result = mService.onExtraCommand("slow", new Bundle(), callback);
+
+        assertFalse(result.getBoolean(ExtraCommandHandler.EXTRA_COMMAND_ASYNC));
+        assertEquals(Arrays.asList("slow"), handler.mCommands);
+        assertEquals(0, mTasks.size());
+    }
+
+    @Test
+    public void createsFactoryHandler_onlyWhenItsCommandArrives() {
+        List<FakeHandler> created = new ArrayList<>();
+        mService.registerExtraCommandHandler(names("lazy"), () -> {
+            FakeHandler handler = new FakeHandler();
+            created.add(handler);
+            return handler;
+        });
+
+        mService.onExtraCommand("other", new Bundle(), null);
+        assertEquals(0, created.size());
+
+        mService.onExtraCommand("lazy", new Bundle(), null);
+        mService.onExtraCommand("lazy", new Bundle(), null);
+
+        assertEquals(1, created.size());
+        assertEquals(Arrays.asList("lazy", "lazy"), created.get(0).mCommands);
+    }
+
+    @Test
+    public void createsAsyncFactoryHandler_offBinderThread() {
+        List<FakeHandler> created = new ArrayList<>();
+        mService.registerExtraCommandHandler(names("lazy"), () -> {
+            FakeHandler handler = new FakeHandler();
+            created.add(handler);
+            return handler;
+        }, names("lazy"), 1);
+        TrustedWebActivityCallbackRemote callback = mock(TrustedWebActivityCallbackRemote.class);
+
+        mService.onExtraCommand("lazy", new Bundle(), callback);
+        assertEquals(0, created.size());
+
+        runTasks();
+        assertEquals(Arrays.asList("lazy"), created.get(0).mCommands);
+    }
+
+    @Test
+    public void recordsCommands() {
+        mService.registerExtraCommandHandler(new FakeHandler("known"));
+        List<String> operations = new ArrayList<>();
+        mMetrics.addListener((operation, durationMillis, success) -> operations.add(operation));
+
+        mService.onExtraCommand("known", new Bundle(), null);
+        mService.onExtraCommand("unknown", new Bundle(), null);
+
+        assertEquals(Arrays.asList(
+                DelegationMetrics.OPERATION_EXTRA_COMMAND_PREFIX + "known",
+                DelegationMetrics.OPERATION_UNKNOWN_EXTRA_COMMAND), operations);
+        List<DelegationMetrics.OperationStats> snapshot = mMetrics.getSnapshot();
+        assertEquals(2, snapshot.size());
+        // Ordered by name, "extraCommand (unknown)" comes before "extraCommand:known".
+        assertEquals(1, snapshot.get(0).getErrorCount());
+        assertEquals(0, snapshot.get(1).getErrorCount());
+    }
+
+    @Test
+    public void recordsCommandsOfUndeclaredHandlers_underTheirName() {
+        mService.registerExtraCommandHandler(new FakeHandler());
+
+        mService.onExtraCommand("legacy", new Bundle(), null);
+
+        List<DelegationMetrics.OperationStats> snapshot = mMetrics.getSnapshot();
+        assertEquals(1, snapshot.size());
+        assertEquals(DelegationMetrics.OPERATION_EXTRA_COMMAND_PREFIX + "legacy",
+                snapshot.get(0).getOperation());
+        assertEquals(0, snapshot.get(0).getErrorCount());
+    }
+
+    @Test
+    public void recordsAsyncCommands_onceTheyHaveRun() {
+        mService.registerExtraCommandHandler(new FakeHandler("slow"), names("slow"), 1);
+        TrustedWebActivityCallbackRemote callback = mock(TrustedWebActivityCallbackRemote.class);
+
+        mService.onExtraCommand("slow", new Bundle(), callback);
+        mService.onExtraCommand("slow", new Bundle(), callback);
+        assertEquals(0, mMetrics.getSnapshot().get(0).getCount());
+
+        runTasks();
+
+        DelegationMetrics.OperationStats stats = mMetrics.getSnapshot().get(0);
+        assertEquals(1, stats.getCount());
+        assertEquals(1, stats.getBusyCount());
+    }
+
+    private static Set<String> names(String... commandNames) {
+        return new HashSet<>(Arrays.asList(commandNames));
+    }
+
+    private void runTasks() {
+        List<Runnable> tasks = new ArrayList<>(mTasks);
+        mTasks.clear();
+        for (Runnable task : tasks) task.run();
+    }
+
+    private static class FakeHandler implements ExtraCommandHandler {
+        final List<String> mCommands = new ArrayList<>();
+        @Nullable
+        private final Set<String> mCommandNames;
+
+        /** A handler that doesn't declare its commands and handles all of them. */
+        FakeHandler() {
+            mCommandNames = null;
+        }
+
+        FakeHandler(String... commandNames) {
+            mCommandNames = new HashSet<>(Arrays.asList(commandNames));
+        }
+
+        @Nullable
+        @Override
+        public Set<String> getCommandNames() {
+            return mCommandNames;
+        }
+
+        @NonNull
+        @Override
+        public Bundle handleExtraCommand(Context context, String commandName, Bundle args,
+                @Nullable TrustedWebActivityCallbackRemote callback) {
+            mCommands.add(commandName);
+            Bundle result = new Bundle();
+            result.putBoolean(EXTRA_COMMAND_SUCCESS, true);
+            return result;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+// Copyright 2026 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.androidbrowserhelper.trusted;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import android.os.Build;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.internal.DoNotInstrument;
+
+/**
+ * Tests for {@link DeviceProfile}.
+ */
+@RunWith(RobolectricTestRunner.class)
+@DoNotInstrument
+@Config(sdk = {Build.VERSION_CODES.O_MR1})
+public class DeviceProfileTest {
+    private static final int ROOMY_MEMORY_CLASS_MB = 256;
+
+    @Before
+    public void setUp() {
+        DeviceProfile.setInstanceForTesting(null);
+    }
+
+    @After
+    public void tearDown() {
+        DeviceProfile.setInstanceForTesting(null);
+    }
+
+    @Test
+    public void isConstrained_onLowRamDevice() {
+        assertTrue(profile(true, ROOMY_MEMORY_CLASS_MB).isConstrained());
+    }
+
+    @Test
+    public void isConstrained_withSmallMemoryClass() {
+        assertTrue(profile(false, DeviceProfile.CONSTRAINED_MEMORY_CLASS_MB).isConstrained());
+        assertFalse(profile(false, DeviceProfile.CONSTRAINED_MEMORY_CLASS_MB + 1)
+                .isConstrained());
+    }
+
+    @Test
+    public void getInstance_isCached() {
+        DeviceProfile profile = DeviceProfile.getInstance(RuntimeEnvironment.application);
+        assertSame(profile, DeviceProfile.getInstance(RuntimeEnvironment.application));
+    }
+
+    @Test
+    public void getInstance_followsNightMode() {
+        DeviceProfile day = DeviceProfile.getInstance(RuntimeEnvironment.application);
+        assertFalse(day.isNightMode());
+
+        RuntimeEnvironment.setQualifiers("+night");
+        DeviceProfile night = DeviceProfile.getInstance(RuntimeEnvironment.application);
+
+        assertNotSame(day, night);
+        assertTrue(night.isNightMode());
+        assertEquals(day.isRunningOnArc(), night.isRunningOnArc());
+        assertEquals(day.isConstrained(), night.isConstrained());
+    }
+
+    private static DeviceProfile profile(boolean lowRamDevice, int memoryClassMb) {
+        return new DeviceProfile(false, Build.VERSION_CODES.O_MR1, lowRamDevice, memoryClassMb,
+                false);
+    }
+}
@@ -0,0 +1,155 @@
+// Copyright 2026 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.androidbrowserhelper.trusted;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.os.Build;
+import android.os.Bundle;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import androidx.browser.customtabs.CustomTabsCallback;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.internal.DoNotInstrument;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests for {@link FirstPaintTracker} and {@link CompositeCustomTabsCallback}.
+ */
+@RunWith(RobolectricTestRunner.class)
+@DoNotInstrument
+@Config(sdk = {Build.VERSION_CODES.O_MR1})
+public class FirstPaintTrackerTest {
+    private static final String PROVIDER = "com.browser.one";
+
+    private final List<FirstPaintTracker.Report> mReports = new ArrayList<>();
+    private final LaunchTracer mLaunchTracer = new LaunchTracer();
+
+    private long mLaunchUptimeMillis;
+    private FirstPaintTracker mTracker;
+
+    @Before
+    public void setUp() {
+        FirstPaintTracker.setListener(mReports::add);
+        mLaunchUptimeMillis = SystemClock.uptimeMillis();
+        mTracker = new FirstPaintTracker(mLaunchUptimeMillis, true, mLaunchTracer);
+    }
+
+    @After
+    public void tearDown() {
+        FirstPaintTracker.setListener(null);
+    }
+
+    @Test
+    public void reportsTimesSinceLaunch() {
+        advance(100);
+        mTracker.onLaunched(PROVIDER, FirstPaintTracker.SPLASH_TRANSFERRED);
+        advance(50);
+        mTracker.onNavigationEvent(CustomTabsCallback.NAVIGATION_STARTED, null);
+        advance(50);
+        mTracker.onNavigationEvent(CustomTabsCallback.TAB_SHOWN, null);
+        advance(300);
+        mTracker.onNavigationEvent(CustomTabsCallback.NAVIGATION_FINISHED, null);
+
+        assertEquals(1, mReports.size());
+        FirstPaintTracker.Report report = mReports.get(0);
+        assertEquals(PROVIDER, report.getProvider());
+        assertEquals(FirstPaintTracker.SPLASH_TRANSFERRED, report.getSplashMode());
+        assertTrue(report.isColdStart());
+        assertTrue(report.isNavigationSucceeded());
+        assertEquals(100, report.getLaunchedMillis());
+        assertEquals(150, report.getNavigationStartedMillis());
+        assertEquals(200, report.getTabShownMillis());
+        assertEquals(-1, report.getFirstContentfulPaintMillis());
+        assertEquals(500, report.getNavigationFinishedMillis());
+        assertEquals(500, report.getFirstPaintMillis());
+        assertSame(mLaunchTracer, report.getLaunchTracer());
+    }
+
+    @Test
+    public void usesFirstContentfulPaint_whenReported() {
+        mTracker.onLaunched(PROVIDER, FirstPaintTracker.SPLASH_NONE);
+        Bundle metrics = new Bundle();
+        metrics.putLong(FirstPaintTracker.KEY_NAVIGATION_START, mLaunchUptimeMillis + 200);
+        metrics.putLong(FirstPaintTracker.KEY_FIRST_CONTENTFUL_PAINT, 120);
+        mTracker.extraCallback(FirstPaintTracker.NAVIGATION_METRICS_CALLBACK, metrics);
+        advance(600);
+        mTracker.onNavigationEvent(CustomTabsCallback.NAVIGATION_FINISHED, null);
+
+        FirstPaintTracker.Report report = mReports.get(0);
+        assertEquals(320, report.getFirstContentfulPaintMillis());
+        assertEquals(320, report.getFirstPaintMillis());
+    }
+
+    @Test
+    public void onlyReportsFirstNavigation() {
+        mTracker.onNavigationEvent(CustomTabsCallback.NAVIGATION_STARTED, null);
+        mTracker.onNavigationEvent(CustomTabsCallback.NAVIGATION_FAILED, null);
+        mTracker.onNavigationEvent(CustomTabsCallback.NAVIGATION_STARTED, null);
+        mTracker.onNavigationEvent(CustomTabsCallback.NAVIGATION_FINISHED, null);
+
+        assertEquals(1, mReports.size());
+        assertFalse(mReports.get(0).isNavigationSucceeded());
+    }
+
+    @Test
+    public void compositeCallback_passesEventsToAll() {
+        FirstPaintTracker other = new FirstPaintTracker(mLaunchUptimeMillis, false, null);
+        CompositeCustomTabsCallback callback = new CompositeCustomTabsCallback(mTracker, other);
+
+        callback.onNavigationEvent(CustomTabsCallback.NAVIGATION_FINISHED, null);
+
+        assertEquals(2, mReports.size());
+        assertTrue(mReports.get(0).isColdStart());
+        assertFalse(mReports.get(1).isColdStart());
+    }
+
+    @Test
+    public void compositeCallback_returnsQualityEnforcerResult() {
+        List<String> crashes = new ArrayList<>();
+        CompositeCustomTabsCallback callback = new CompositeCustomTabsCallback(
+                mTracker, new QualityEnforcer(crashes::add));
+
+        Bundle args = new Bundle();
+        args.putString(QualityEnforcer.KEY_CRASH_REASON, "404");
+        Bundle result = callback.extraCallbackWithResult(QualityEnforcer.CRASH, args);
+
+        assertNotNull(result);
+        assertTrue(result.getBoolean(QualityEnforcer.KEY_SUCCESS));
+        assertEquals(1, crashes.size());
+        assertNull(new CompositeCustomTabsCallback(mTracker)
+                .extraCallbackWithResult(QualityEnforcer.CRASH, args));
+    }
+
+    private static void advance(long millis) {
+        shadowOf(Looper.getMainLooper()).idleFor(Duration.ofMillis(millis));
+    }
+}
@@ -0,0 +1,220 @@
+// Copyright 2026 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.androidbrowserhelper.trusted;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.os.Build;
+import android.os.CancellationSignal;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.internal.DoNotInstrument;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests for {@link LaunchPipeline}.
+ */
+@RunWith(RobolectricTestRunner.class)
+@DoNotInstrument
+@Config(sdk = {Build.VERSION_CODES.O_MR1})
+public class LaunchPipelineTest {
+    private final List<String> mOrder = new ArrayList<>();
+    private final List<Runnable> mBackgroundTasks = new ArrayList<>();
+    private LaunchPipeline mPipeline;
+    private RecordingListener mListener;
+
+    @Before
+    public void setUp() {
+        mPipeline = new LaunchPipeline(mBackgroundTasks::add);
+        mListener = new RecordingListener();
+    }
+
+    @Test
+    public void runsStagesAfterTheirDependencies() {
+        mPipeline.addStage(recordingStage("launch").dependsOn("session", "splash"));
+        mPipeline.addStage(recordingStage("session").dependsOn("provider"));
+        mPipeline.addStage(recordingStage("splash").dependsOn("provider"));
+        mPipeline.addStage(recordingStage("provider"));
+
+        mPipeline.start(mListener);
+
+        assertEquals(Arrays.asList("provider", "session", "splash", "launch"), mOrder);
+        assertTrue(mListener.mCompleted);
+    }
+
+    @Test
+    public void passesResultsToDependentStages() {
+        mPipeline.addStage(new LaunchPipeline.Stage("provider",
+                LaunchPipeline.RunOn.BACKGROUND, context -> context.complete("com.browser")));
+        mPipeline.addStage(new LaunchPipeline.Stage("launch",
+                LaunchPipeline.RunOn.MAIN_THREAD, context -> {
+                    mOrder.add(context.getResult("provider"));
+                    context.complete(null);
+                }).dependsOn("provider"));
+
+        mPipeline.start(mListener);
+        assertTrue(mOrder.isEmpty());
+
+        runBackgroundTasks();
+
+        assertEquals(Arrays.asList("com.browser"), mOrder);
+        assertTrue(mListener.mCompleted);
+    }
+
+    @Test
+    public void usesFallback_whenDeadlineMissed() {
+        mPipeline.addStage(new LaunchPipeline.Stage("prerequisite",
+                LaunchPipeline.RunOn.MAIN_THREAD, context -> {})
+                .setDeadlineMillis(100)
+                .setFallback("fallback"));
+
+        mPipeline.start(mListener);
+        assertFalse(mListener.mCompleted);
+
+        shadowOf(Looper.getMainLooper()).idleFor(Duration.ofMillis(100));
+
+        assertTrue(mListener.mCompleted);
+        assertEquals("fallback", mPipeline.getResult("prerequisite"));
+    }
+
+    @Test
+    public void fails_whenStageWithoutFallbackFails() {
+        mPipeline.addStage(new LaunchPipeline.Stage("provider",
+                LaunchPipeline.RunOn.MAIN_THREAD, context -> {
+                    throw new IllegalStateException();
+                }));
+        mPipeline.addStage(recordingStage("launch").dependsOn("provider"));
+
+        mPipeline.start(mListener);
+
+        assertEquals("provider", mListener.mFailedStage);
+        assertTrue(mListener.mError instanceof IllegalStateException);
+        assertTrue(mOrder.isEmpty());
+    }
+
+    @Test
+    public void ignoresResults_afterCancel() {
+        mPipeline.addStage(new LaunchPipeline.Stage("provider",
+                LaunchPipeline.RunOn.BACKGROUND, context -> context.complete(null)));
+        mPipeline.addStage(recordingStage("launch").dependsOn("provider"));
+
+        mPipeline.start(mListener);
+        mPipeline.cancel();
+        runBackgroundTasks();
+
+        assertTrue(mOrder.isEmpty());
+        assertFalse(mListener.mCompleted);
+        assertNull(mListener.mFailedStage);
+    }
+
+    @Test
+    public void cancelsSignalsOfRunningStages_onCancel() {
+        List<CancellationSignal> signals = new ArrayList<>();
+        mPipeline.addStage(new LaunchPipeline.Stage("metadata",
+                LaunchPipeline.RunOn.MAIN_THREAD, context -> {
+                    signals.add(context.getCancellationSignal());
+                    context.complete(null);
+                }));
+        mPipeline.addStage(new LaunchPipeline.Stage("session",
+                LaunchPipeline.RunOn.MAIN_THREAD,
+                context -> signals.add(context.getCancellationSignal())));
+
+        mPipeline.start(mListener);
+        mPipeline.cancel();
+
+        assertFalse(signals.get(0).isCanceled());
+        assertTrue(signals.get(1).isCanceled());
+    }
+
+    @Test
+    public void cancelsSignal_whenDeadlineMissed() {
+        List<CancellationSignal> signals = new ArrayList<>();
+        mPipeline.addStage(new LaunchPipeline.Stage("splashTransfer",
+                LaunchPipeline.RunOn.MAIN_THREAD,
+                context -> signals.add(context.getCancellationSignal()))
+                .setDeadlineMillis(100)
+                .setFallback(null));
+
+        mPipeline.start(mListener);
+        assertFalse(signals.get(0).isCanceled());
+
+        shadowOf(Looper.getMainLooper()).idleFor(Duration.ofMillis(100));
+
+        assertTrue(signals.get(0).isCanceled());
+        assertTrue(mListener.mCompleted);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void rejectsCycles() {
+        mPipeline.addStage(recordingStage("a").dependsOn("b"));
+        mPipeline.addStage(recordingStage("b").dependsOn("a"));
+
+        mPipeline.start(mListener);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void rejectsUnknownDependencies() {
+        mPipeline.addStage(recordingStage("launch").dependsOn("provider"));
+
+        mPipeline.start(mListener);
+    }
+
+    private LaunchPipeline.Stage recordingStage(String name) {
+        return new LaunchPipeline.Stage(name, LaunchPipeline.RunOn.MAIN_THREAD, context -> {
+            mOrder.add(name);
+            context.complete(null);
+        });
+    }
+
+    private void runBackgroundTasks() {
+        List<Runnable> tasks = new ArrayList<>(mBackgroundTasks);
+        mBackgroundTasks.clear();
+        for (Runnable task : tasks) task.run();
+        shadowOf(Looper.getMainLooper()).idle();
+    }
+
+    private static class RecordingListener implements LaunchPipeline.Listener {
+        boolean mCompleted;
+        @Nullable String mFailedStage;
+        @Nullable Throwable mError;
+
+        @Override
+        public void onCompleted() {
+            mCompleted = true;
+        }
+
+        @Override
+        public void onFailed(@NonNull String stageName, @Nullable Throwable error) {
+            mFailedStage = stageName;
+            mError = error;
+        }
+    }
+}
@@ -0,0 +1,174 @@
+// Copyright 2026 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.androidbrowserhelper.trusted;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
+import android.os.Build;
+import android.os.Bundle;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.internal.DoNotInstrument;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * Tests for {@link LaunchPlan}.
+ */
+@RunWith(RobolectricTestRunner.class)
+@DoNotInstrument
+@Config(sdk = {Build.VERSION_CODES.O_MR1})
+public class LaunchPlanTest {
+    private static final String COMPONENT = "com.example/.LauncherActivity";
+    private static final String PROVIDER = "com.browser.one";
+    private static final String ALTERNATIVE_PROVIDER = "com.browser.two";
+    private static final String OTHER_ALTERNATIVE_PROVIDER = "com.browser.three";
+    private static final long PROVIDER_LAST_UPDATE_TIME = 1234L;
+
+    private PackageManager mPackageManager;
+
+    @Before
+    public void setUp() {
+        mPackageManager = RuntimeEnvironment.application.getPackageManager();
+    }
+
+    @Test
+    public void roundTrips() throws Exception {
+        LaunchPlan plan = createPlan(TwaProviderPicker.LaunchMode.TRUSTED_WEB_ACTIVITY,
+                PROVIDER_LAST_UPDATE_TIME);
+        byte[] data = plan.serialize();
+
+        LaunchPlan copy = LaunchPlan.deserialize(data);
+
+        assertNotNull(copy);
+        assertArrayEquals(data, copy.serialize());
+        assertFalse(copy.providerSupportsSplashScreens());
+    }
+
+    @Test
+    public void rejectsOtherFormatVersion() throws Exception {
+        byte[] data = createPlan(TwaProviderPicker.LaunchMode.TRUSTED_WEB_ACTIVITY,
+                PROVIDER_LAST_UPDATE_TIME).serialize();
+        data[3]++;
+
+        assertNull(LaunchPlan.deserialize(data));
+    }
+
+    @Test
+    public void rejectsTruncatedData() throws Exception {
+        byte[] data = createPlan(TwaProviderPicker.LaunchMode.TRUSTED_WEB_ACTIVITY,
+                PROVIDER_LAST_UPDATE_TIME).serialize();
+
+        assertNull(LaunchPlan.deserialize(Arrays.copyOf(data, data.length - 4)));
+    }
+
+    @Test
+    public void reusesProvider_whenUnchanged() {
+        installProvider(PROVIDER_LAST_UPDATE_TIME);
+        LaunchPlan plan = createPlan(TwaProviderPicker.LaunchMode.TRUSTED_WEB_ACTIVITY,
+                PROVIDER_LAST_UPDATE_TIME);
+
+        assertEquals(PROVIDER, plan.getTwaProvider(mPackageManager));
+    }
+
+    @Test
+    public void ignoresProvider_whenUpdated() {
+        installProvider(PROVIDER_LAST_UPDATE_TIME + 1);
+        LaunchPlan plan = createPlan(TwaProviderPicker.LaunchMode.TRUSTED_WEB_ACTIVITY,
+                PROVIDER_LAST_UPDATE_TIME);
+
+        assertNull(plan.getTwaProvider(mPackageManager));
+    }
+
+    @Test
+    public void ignoresProvider_whenNotTwa() {
+        installProvider(PROVIDER_LAST_UPDATE_TIME);
+        LaunchPlan plan = createPlan(TwaProviderPicker.LaunchMode.CUSTOM_TAB,
+                PROVIDER_LAST_UPDATE_TIME);
+
+        assertNull(plan.getTwaProvider(mPackageManager));
+    }
+
+    @Test
+    public void failsOverToAlternativeProviders() throws Exception {
+        installProvider(PROVIDER_LAST_UPDATE_TIME);
+        LaunchPlan plan = LaunchPlan.deserialize(createPlan(
+                TwaProviderPicker.LaunchMode.TRUSTED_WEB_ACTIVITY, PROVIDER_LAST_UPDATE_TIME)
+                .serialize());
+
+        TwaProviderPicker.Action action = plan.getTwaAction(mPackageManager, null);
+
+        assertEquals(TwaProviderPicker.LaunchMode.TRUSTED_WEB_ACTIVITY, action.launchMode);
+        assertEquals(PROVIDER, action.provider);
+        assertEquals(Arrays.asList(ALTERNATIVE_PROVIDER, OTHER_ALTERNATIVE_PROVIDER),
+                action.alternativeTwaProviders);
+    }
+
+    @Test
+    public void leavesOutAlternativeProviders_rejectedByPolicy() {
+        installProvider(PROVIDER_LAST_UPDATE_TIME);
+        LaunchPlan plan = createPlan(TwaProviderPicker.LaunchMode.TRUSTED_WEB_ACTIVITY,
+                PROVIDER_LAST_UPDATE_TIME);
+
+        TwaProviderPicker.Action action = plan.getTwaAction(mPackageManager,
+                provider -> !provider.equals(ALTERNATIVE_PROVIDER));
+
+        assertEquals(PROVIDER, action.provider);
+        assertEquals(Collections.singletonList(OTHER_ALTERNATIVE_PROVIDER),
+                action.alternativeTwaProviders);
+    }
+
+    @Test
+    public void ignoresPlan_whenPolicyRejectsProvider() {
+        installProvider(PROVIDER_LAST_UPDATE_TIME);
+        LaunchPlan plan = createPlan(TwaProviderPicker.LaunchMode.TRUSTED_WEB_ACTIVITY,
+                PROVIDER_LAST_UPDATE_TIME);
+
+        assertNull(plan.getTwaAction(mPackageManager, provider -> !provider.equals(PROVIDER)));
+    }
+
+    private void installProvider(long lastUpdateTime) {
+        PackageInfo packageInfo = new PackageInfo();
+        packageInfo.packageName = PROVIDER;
+        packageInfo.lastUpdateTime = lastUpdateTime;
+        shadowOf(mPackageManager).addPackage(packageInfo);
+    }
+
+    private static LaunchPlan createPlan(@TwaProviderPicker.LaunchMode int launchMode,
+            long providerLastUpdateTime) {
+        Bundle metaData = new Bundle();
+        metaData.putString("android.support.customtabs.trusted.DEFAULT_URL", "https://example.com");
+        metaData.putInt("android.support.customtabs.trusted.STATUS_BAR_COLOR", 42);
+        metaData.putBoolean("android.support.customtabs.trusted.FALLBACK_TYPE_WEBVIEW", true);
+        metaData.putFloat("android.support.customtabs.trusted.SPLASH_SCREEN_FADE_OUT_DURATION",
+                0.5f);
+        return new LaunchPlan(COMPONENT, "/data/app/base.apk", 5678L, metaData, (byte) 1,
+                PROVIDER, launchMode, providerLastUpdateTime, null, (byte) 0,
+                Arrays.asList(ALTERNATIVE_PROVIDER, OTHER_ALTERNATIVE_PROVIDER));
+    }
+}
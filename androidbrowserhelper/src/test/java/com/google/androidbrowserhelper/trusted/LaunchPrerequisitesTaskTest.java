@@ -0,0 +1,114 @@
+// Copyright 2026 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.androidbrowserhelper.trusted;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.os.Build;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.internal.DoNotInstrument;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests for {@link LaunchPrerequisitesTask}.
+ */
+@RunWith(RobolectricTestRunner.class)
+@DoNotInstrument
+@Config(sdk = {Build.VERSION_CODES.O_MR1})
+public class LaunchPrerequisitesTaskTest {
+    private static final String STAGE = "prerequisites";
+    private static final long DEADLINE_MILLIS = 1000;
+
+    private final LaunchPrerequisite.Result mFirst = new LaunchPrerequisite.Result() {};
+    private final LaunchPrerequisite.Result mSecond = new LaunchPrerequisite.Result() {};
+
+    @Test
+    public void completesInRegistrationOrder() {
+        List<LaunchPrerequisite.Callback> callbacks = new ArrayList<>();
+        LaunchPipeline pipeline = start(Arrays.asList(callbacks::add, callbacks::add));
+
+        callbacks.get(1).onReady(mSecond);
+        assertNull(pipeline.getResult(STAGE));
+        callbacks.get(0).onReady(mFirst);
+
+        assertEquals(Arrays.asList(mFirst, mSecond), pipeline.getResult(STAGE));
+    }
+
+    @Test
+    public void dropsNullResults() {
+        LaunchPipeline pipeline = start(Arrays.asList(
+                callback -> callback.onReady(null),
+                callback -> callback.onReady(mSecond)));
+
+        assertEquals(Arrays.asList(mSecond), pipeline.getResult(STAGE));
+    }
+
+    @Test
+    public void proceedsWithoutLatePrerequisites() {
+        List<LaunchPrerequisite.Callback> callbacks = new ArrayList<>();
+        LaunchPipeline pipeline = start(Arrays.asList(
+                callback -> callback.onReady(mFirst),
+                callbacks::add));
+
+        shadowOf(Looper.getMainLooper()).idleFor(Duration.ofMillis(DEADLINE_MILLIS));
+        assertEquals(Arrays.asList(mFirst), pipeline.getResult(STAGE));
+
+        // A result arriving after the deadline is ignored.
+        callbacks.get(0).onReady(mSecond);
+        assertEquals(Arrays.asList(mFirst), pipeline.getResult(STAGE));
+    }
+
+    @Test
+    public void treatsThrowingPrerequisiteAsNoResult() {
+        LaunchPipeline pipeline = start(Arrays.asList(
+                callback -> {
+                    throw new IllegalStateException();
+                },
+                callback -> callback.onReady(mFirst)));
+
+        List<LaunchPrerequisite.Result> results = pipeline.getResult(STAGE);
+        assertEquals(1, results.size());
+        assertSame(mFirst, results.get(0));
+    }
+
+    private static LaunchPipeline start(List<LaunchPrerequisite> prerequisites) {
+        LaunchPipeline pipeline = new LaunchPipeline(Runnable::run);
+        pipeline.addStage(new LaunchPipeline.Stage(STAGE, LaunchPipeline.RunOn.MAIN_THREAD,
+                new LaunchPrerequisitesTask(prerequisites, DEADLINE_MILLIS)));
+        pipeline.start(new LaunchPipeline.Listener() {
+            @Override
+            public void onCompleted() {}
+
+            @Override
+            public void onFailed(@NonNull String stageName, @Nullable Throwable error) {}
+        });
+        return pipeline;
+    }
+}
@@ -0,0 +1,244 @@
+// Copyright 2026 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.androidbrowserhelper.trusted;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Build;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.internal.DoNotInstrument;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests for {@link LaunchStateStore}.
+ */
+@RunWith(RobolectricTestRunner.class)
+@DoNotInstrument
+@Config(sdk = {Build.VERSION_CODES.O_MR1})
+public class LaunchStateStoreTest {
+    private static final String PROVIDER = "com.example.browser";
+
+    private final List<Runnable> mTasks = new ArrayList<>();
+
+    private Context mContext;
+
+    @Before
+    public void setUp() {
+        mContext = RuntimeEnvironment.application;
+    }
+
+    @Test
+    public void loadsExistingState() {
+        getProviderPreferences().edit()
+                .putString(LaunchStateStore.KEY_PROVIDER_PACKAGE, PROVIDER).commit();
+        PrefUtils.getAppSharedPreferences(mContext).edit()
+                .putString(LaunchStateStore.KEY_TOKEN, "token").commit();
+
+        LaunchStateStore store = createStore();
+        runTasks();
+
+        assertEquals(PROVIDER, store.getLastLaunchedProviderPackage());
+        assertEquals("token", store.getToken());
+        assertEquals(0, store.getSplashImageUpdateTime());
+    }
+
+    @Test
+    public void writesChangesTogether() {
+        LaunchStateStore store = createStore();
+        runTasks();
+
+        store.setLastLaunchedProviderPackage(PROVIDER);
+        store.setToken("token");
+        store.setSplashImageUpdateTime(1234);
+        assertEquals(1, mTasks.size());
+        assertNull(getProviderPreferences().getString(LaunchStateStore.KEY_PROVIDER_PACKAGE, null));
+
+        runTasks();
+        LaunchStateStore reloaded = createStore();
+        runTasks();
+        assertEquals(PROVIDER, reloaded.getLastLaunchedProviderPackage());
+        assertEquals("token", reloaded.getToken());
+        assertEquals(1234, reloaded.getSplashImageUpdateTime());
+    }
+
+    @Test
+    public void dropsUnchangedWrites() {
+        getProviderPreferences().edit()
+                .putString(LaunchStateStore.KEY_PROVIDER_PACKAGE, PROVIDER).commit();
+        LaunchStateStore store = createStore();
+        runTasks();
+
+        store.setLastLaunchedProviderPackage(PROVIDER);
+        store.setToken(null);
+        store.setSplashImageUpdateTime(0);
+
+        assertEquals(0, mTasks.size());
+    }
+
+    @Test
+    public void clearsToken() {
+        PrefUtils.getAppSharedPreferences(mContext).edit()
+                .putString(LaunchStateStore.KEY_TOKEN, "token").commit();
+        LaunchStateStore store = createStore();
+        runTasks();
+
+        store.setToken(null);
+        runTasks();
+
+        assertNull(store.getToken());
+        LaunchStateStore reloaded = createStore();
+        runTasks();
+        assertNull(reloaded.getToken());
+    }
+
+    @Test
+    public void keepsValuesSetWhileLoading() {
+        getProviderPreferences().edit()
+                .putString(LaunchStateStore.KEY_PROVIDER_PACKAGE, "com.example.old").commit();
+        LaunchStateStore store = createStore();
+
+        // The store hasn't been loaded yet, this mustn't wait for it.
+        store.setLastLaunchedProviderPackage(PROVIDER);
+        runTasks();
+
+        assertEquals(PROVIDER, store.getLastLaunchedProviderPackage());
+        LaunchStateStore reloaded = createStore();
+        runTasks();
+        assertEquals(PROVIDER, reloaded.getLastLaunchedProviderPackage());
+    }
+
+    @Test
+    public void copiesLegacyPreferencesToStateFile() {
+        getProviderPreferences().edit()
+                .putString(LaunchStateStore.KEY_PROVIDER_PACKAGE, PROVIDER).commit();
+        PrefUtils.getAppSharedPreferences(mContext).edit()
+                .putString(LaunchStateStore.KEY_TOKEN, "token")
+                .putBoolean(LaunchStateStore.KEY_HAS_REQUESTED_NOTIFICATION_PERMISSION, true)
+                .putString("app.key", "app value")
+                .commit();
+
+        createStore();
+        runTasks();
+
+        assertTrue(getStateFile().exists());
+        // The old values go, the app's own stay.
+        assertFalse(getProviderPreferences().contains(LaunchStateStore.KEY_PROVIDER_PACKAGE));
+        SharedPreferences appPreferences = PrefUtils.getAppSharedPreferences(mContext);
+        assertFalse(appPreferences.contains(LaunchStateStore.KEY_TOKEN));
+        assertFalse(appPreferences.contains(
+                LaunchStateStore.KEY_HAS_REQUESTED_NOTIFICATION_PERMISSION));
+        assertEquals("app value", appPreferences.getString("app.key", null));
+
+        // The state is now read from the state file.
+        LaunchStateStore reloaded = createStore();
+        runTasks();
+        assertEquals(PROVIDER, reloaded.getLastLaunchedProviderPackage());
+        assertEquals("token", reloaded.getToken());
+        assertTrue(reloaded.hasRequestedNotificationPermission());
+    }
+
+    @Test
+    public void storesLibraryState() {
+        LaunchStateStore store = createStore();
+        runTasks();
+
+        store.setLaunchPlan(new byte[] {1, 2});
+        store.setProviderHealth(new byte[] {3});
+        store.setWarmupSchedule(new byte[0]);
+        runTasks();
+
+        LaunchStateStore reloaded = createStore();
+        runTasks();
+        assertArrayEquals(new byte[] {1, 2}, reloaded.getLaunchPlan());
+        assertArrayEquals(new byte[] {3}, reloaded.getProviderHealth());
+        assertArrayEquals(new byte[0], reloaded.getWarmupSchedule());
+    }
+
+    @Test
+    public void ignoresMalformedStateFile() throws Exception {
+        try (FileOutputStream out = new FileOutputStream(getStateFile())) {
+            out.write(new byte[] {0, 0, 0, 1, 2, 0, 0, 0x7f});
+        }
+
+        LaunchStateStore store = createStore();
+        runTasks();
+
+        assertNull(store.getToken());
+        assertFalse(store.hasRequestedNotificationPermission());
+    }
+
+    @Test
+    public void doesNotMigrate_whenStateFileIsMalformed() throws Exception {
+        try (FileOutputStream out = new FileOutputStream(getStateFile())) {
+            out.write(new byte[] {0, 0, 0, 1, 2, 0, 0, 0x7f});
+        }
+        // Left behind by a previous version, and stale since the state file was written.
+        PrefUtils.getAppSharedPreferences(mContext).edit()
+                .putString(LaunchStateStore.KEY_TOKEN, "revoked token").commit();
+
+        LaunchStateStore store = createStore();
+        runTasks();
+
+        assertNull(store.getToken());
+    }
+
+    @Test
+    public void doesNotMigrate_whenStateFileHasUnknownFormat() throws Exception {
+        try (FileOutputStream out = new FileOutputStream(getStateFile())) {
+            out.write(new byte[] {0, 0, 0x7f, 0x7f});
+        }
+        getProviderPreferences().edit()
+                .putString(LaunchStateStore.KEY_PROVIDER_PACKAGE, "com.example.old").commit();
+
+        LaunchStateStore store = createStore();
+        runTasks();
+
+        assertNull(store.getLastLaunchedProviderPackage());
+    }
+
+    private LaunchStateStore createStore() {
+        return new LaunchStateStore(mContext, mTasks::add);
+    }
+
+    /** Runs the queued tasks, including the ones they queue. */
+    private void runTasks() {
+        while (!mTasks.isEmpty()) mTasks.remove(0).run();
+    }
+
+    private File getStateFile() {
+        return new File(mContext.getFilesDir(), LaunchStateStore.STATE_FILE_NAME);
+    }
+
+    private SharedPreferences getProviderPreferences() {
+        return mContext.getSharedPreferences(LaunchStateStore.PROVIDER_PREFS_NAME,
+                Context.MODE_PRIVATE);
+    }
+}
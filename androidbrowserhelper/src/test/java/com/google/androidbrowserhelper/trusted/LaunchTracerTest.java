@@ -0,0 +1,343 @@
+// Copyright 2026 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.androidbrowserhelper.trusted;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+import static org.robolectric.Shadows.shadowOf;
+
+import static androidx.browser.customtabs.CustomTabsService.TRUSTED_WEB_ACTIVITY_CATEGORY;
+
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.pm.ActivityInfo;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
+import android.content.pm.ResolveInfo;
+import android.content.pm.ServiceInfo;
+import android.net.Uri;
+import android.os.Build;
+import android.os.Bundle;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.browser.customtabs.CustomTabsService;
+import androidx.browser.customtabs.CustomTabsSessionToken;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.android.controller.ActivityController;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.internal.DoNotInstrument;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+/**
+ * Tests for {@link LaunchTracer}, and the number of calls to the PackageManager and other system
+ * services a launch of {@link LauncherActivity} is allowed to make.
+ */
+@RunWith(RobolectricTestRunner.class)
+@DoNotInstrument
+@Config(sdk = {Build.VERSION_CODES.O_MR1})
+public class LaunchTracerTest {
+    private static final String PROVIDER = "com.browser.one";
+    private static final String DEFAULT_URL = "https://www.example.com/";
+    private static final long TIMEOUT_MILLIS = 5000;
+
+    /**
+     * The calls a cold launch, the first one in the process and without a launch plan, may make
+     * in each stage:
+     * - Reading the meta-data of the LauncherActivity (and of the alias it was launched through),
+     *   before the launch starts.
+     * - Picking a provider from scratch queries the browsers (twice, see TwaProviderPicker) and
+     *   the Custom Tabs services.
+     * - Binding to the provider.
+     * - Launching checks whether the FocusActivity is declared and whether we run on ChromeOS, and
+     *   reads the provider's signature for the token.
+     * - Once launched, saving the launch plan and updating the site settings shortcut, in the
+     *   background. These may or may not have happened by the time the launch is checked.
+     */
+    private static final Map<String, Integer> COLD_LAUNCH_IPC_BUDGETS = new HashMap<>();
+    static {
+        COLD_LAUNCH_IPC_BUDGETS.put(LauncherActivity.STAGE_PROVIDER, 3);
+        COLD_LAUNCH_IPC_BUDGETS.put(LauncherActivity.STAGE_SESSION, 1);
+        COLD_LAUNCH_IPC_BUDGETS.put(LauncherActivity.STAGE_LAUNCH, 3);
+        COLD_LAUNCH_IPC_BUDGETS.put(LaunchTracer.NO_STAGE, 8);
+    }
+    private static final int COLD_LAUNCH_IPC_BUDGET = 15;
+
+    /**
+     * The calls a warm launch, with the process still alive and the launch plan saved by the
+     * previous launch, may make. The meta-data and whether we run on ChromeOS are remembered, and
+     * only the planned provider's update time and the default browser are checked.
+     */
+    private static final Map<String, Integer> WARM_LAUNCH_IPC_BUDGETS = new HashMap<>();
+    static {
+        WARM_LAUNCH_IPC_BUDGETS.put(LauncherActivity.STAGE_PROVIDER, 2);
+        WARM_LAUNCH_IPC_BUDGETS.put(LauncherActivity.STAGE_SESSION, 1);
+        WARM_LAUNCH_IPC_BUDGETS.put(LauncherActivity.STAGE_LAUNCH, 1);
+        WARM_LAUNCH_IPC_BUDGETS.put(LaunchTracer.NO_STAGE, 4);
+    }
+    private static final int WARM_LAUNCH_IPC_BUDGET = 8;
+
+    private Context mContext;
+    private PackageManager mPackageManager;
+    private LaunchTracer mTracer;
+
+    @Before
+    public void setUp() {
+        mContext = RuntimeEnvironment.application;
+        mPackageManager = mContext.getPackageManager();
+        mTracer = new LaunchTracer();
+        LaunchTracer.setActive(mTracer);
+
+        LaunchPlan.resetForTesting();
+        LaunchPlan.clear(mContext);
+    }
+
+    @After
+    public void tearDown() {
+        LaunchTracer.setActive(null);
+        RunningTwaSession.release();
+    }
+
+    @Test
+    public void attributesCallsToStages() {
+        LaunchPipeline pipeline = new LaunchPipeline(Runnable::run);
+        pipeline.setTracer(mTracer);
+        pipeline.addStage(new LaunchPipeline.Stage("first", LaunchPipeline.RunOn.MAIN_THREAD,
+                context -> {
+                    recordCall("PackageManager.getPackageInfo");
+                    context.complete(null);
+                }));
+        pipeline.addStage(new LaunchPipeline.Stage("second", LaunchPipeline.RunOn.BACKGROUND,
+                context -> {
+                    recordCall("PackageManager.getPackageInfo");
+                    recordCall("PackageManager.resolveActivity");
+                    context.complete(null);
+                }).dependsOn("first"));
+        start(pipeline);
+        recordCall("Context.bindService");
+
+        assertEquals(1, mTracer.getIpcStats("first").getCount());
+        assertEquals(2, mTracer.getIpcStats("second").getCount());
+        assertEquals(1, (int) mTracer.getIpcStats("second").getCallCounts()
+                .get("PackageManager.resolveActivity"));
+        assertEquals(1, mTracer.getIpcStats(LaunchTracer.NO_STAGE).getCount());
+        assertEquals(4, mTracer.getIpcCount());
+        assertTrue(mTracer.getStageDurationMillis("second") >= 0);
+    }
+
+    @Test
+    public void recordsNothing_whenNotActive() {
+        LaunchTracer.setActive(null);
+        recordCall("PackageManager.getPackageInfo");
+
+        assertEquals(0, mTracer.getIpcCount());
+    }
+
+    @Test
+    public void coldLaunch_staysWithinBudget() throws Exception {
+        installLauncherActivity();
+        installTrustedWebActivityProvider(PROVIDER);
+
+        LaunchTracer tracer = launch();
+
+        assertWithinBudget(tracer, COLD_LAUNCH_IPC_BUDGETS, COLD_LAUNCH_IPC_BUDGET);
+    }
+
+    @Test
+    public void warmLaunch_staysWithinBudget() throws Exception {
+        installLauncherActivity();
+        installTrustedWebActivityProvider(PROVIDER);
+        launch();
+        waitUntil(() -> LaunchStateStore.getInstance(mContext).getLaunchPlan() != null);
+        // The Trusted Web Activity has been closed, so the next launch isn't delivered to it.
+        RunningTwaSession.release();
+
+        LaunchTracer tracer = launch();
+
+        assertWithinBudget(tracer, WARM_LAUNCH_IPC_BUDGETS, WARM_LAUNCH_IPC_BUDGET);
+    }
+
+    /**
+     * Launches the {@link LauncherActivity}, waits for it to launch the Trusted Web Activity and
+     * returns its tracer.
+     */
+    private LaunchTracer launch() throws Exception {
+        Intent intent = new Intent(mContext, LauncherActivity.class)
+                .addFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
+        ActivityController<LauncherActivity> controller =
+                Robolectric.buildActivity(LauncherActivity.class, intent).setup();
+        LauncherActivity activity = controller.get();
+        waitUntil(activity::isFinishing);
+
+        Intent launchIntent = shadowOf(activity).getNextStartedActivity();
+        assertNotNull(launchIntent);
+        assertEquals(PROVIDER, launchIntent.getPackage());
+
+        controller.destroy();
+        return activity.getLaunchTracer();
+    }
+
+    private static void assertWithinBudget(LaunchTracer tracer, Map<String, Integer> stageBudgets,
+            int budget) {
+        for (String stage : tracer.getStages()) {
+            Integer stageBudget = stageBudgets.get(stage);
+            int count = tracer.getIpcStats(stage).getCount();
+            assertTrue("Stage " + stage + " made " + count + " calls. " + tracer,
+                    count <= (stageBudget == null ? 0 : stageBudget));
+        }
+        int count = tracer.getIpcCount();
+        assertTrue("Launch made " + count + " calls. " + tracer, count <= budget);
+    }
+
+    /** Runs the main looper until the condition holds, giving background threads time to run. */
+    private static void waitUntil(Callable<Boolean> condition) throws Exception {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (!condition.call()) {
+            assertTrue("Timed out", System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+            shadowOf(Looper.getMainLooper()).idle();
+        }
+    }
+
+    private static void recordCall(String call) {
+        LaunchTracer.endIpc(call, LaunchTracer.startIpc());
+    }
+
+    private static void start(LaunchPipeline pipeline) {
+        pipeline.start(new LaunchPipeline.Listener() {
+            @Override
+            public void onCompleted() {}
+
+            @Override
+            public void onFailed(@NonNull String stageName, @Nullable Throwable error) {}
+        });
+    }
+
+    /** Declares the LauncherActivity, which isn't in the library's manifest. */
+    private void installLauncherActivity() {
+        ActivityInfo activityInfo = new ActivityInfo();
+        activityInfo.packageName = mContext.getPackageName();
+        activityInfo.name = LauncherActivity.class.getName();
+        activityInfo.applicationInfo = mContext.getApplicationInfo();
+        activityInfo.metaData = new Bundle();
+        activityInfo.metaData.putString("android.support.customtabs.trusted.DEFAULT_URL",
+                DEFAULT_URL);
+        shadowOf(mPackageManager).addOrUpdateActivity(activityInfo);
+    }
+
+    private void installTrustedWebActivityProvider(String packageName) {
+        Intent browserIntent = new Intent()
+                .setData(Uri.fromParts("http", "", null))
+                .setAction(Intent.ACTION_VIEW)
+                .addCategory(Intent.CATEGORY_BROWSABLE);
+        ResolveInfo browserInfo = new ResolveInfo();
+        browserInfo.activityInfo = new ActivityInfo();
+        browserInfo.activityInfo.packageName = packageName;
+        shadowOf(mPackageManager).addResolveInfoForIntent(browserIntent, browserInfo);
+
+        Intent serviceIntent = new Intent()
+                .setAction(CustomTabsService.ACTION_CUSTOM_TABS_CONNECTION);
+        ResolveInfo serviceInfo = new ResolveInfo();
+        serviceInfo.serviceInfo = new ServiceInfo();
+        serviceInfo.serviceInfo.packageName = packageName;
+        serviceInfo.filter = Mockito.mock(IntentFilter.class);
+        when(serviceInfo.filter.hasCategory(eq(TRUSTED_WEB_ACTIVITY_CATEGORY))).thenReturn(true);
+        shadowOf(mPackageManager).addResolveInfoForIntent(serviceIntent, serviceInfo);
+
+        PackageInfo packageInfo = new PackageInfo();
+        packageInfo.packageName = packageName;
+        packageInfo.lastUpdateTime = 1234L;
+        shadowOf(mPackageManager).addPackage(packageInfo);
+
+        // Binding to the provider connects to a service that creates sessions.
+        ComponentName service = new ComponentName(packageName, packageName + ".CustomTabsService");
+        shadowOf(RuntimeEnvironment.application).setComponentNameAndServiceForBindService(service,
+                new SessionCreatingService().onBind(serviceIntent));
+    }
+
+    /** A provider's {@link CustomTabsService} that creates sessions and does nothing else. */
+    private static class SessionCreatingService extends CustomTabsService {
+        @Override
+        protected boolean warmup(long flags) {
+            return false;
+        }
+
+        @Override
+        protected boolean newSession(@NonNull CustomTabsSessionToken sessionToken) {
+            return true;
+        }
+
+        @Override
+        protected boolean mayLaunchUrl(@NonNull CustomTabsSessionToken sessionToken,
+                @Nullable Uri url, @Nullable Bundle extras,
+                @Nullable List<Bundle> otherLikelyBundles) {
+            return false;
+        }
+
+        @Nullable
+        @Override
+        protected Bundle extraCommand(@NonNull String commandName, @Nullable Bundle args) {
+            return null;
+        }
+
+        @Override
+        protected boolean updateVisuals(@NonNull CustomTabsSessionToken sessionToken,
+                @Nullable Bundle bundle) {
+            return false;
+        }
+
+        @Override
+        protected boolean requestPostMessageChannel(@NonNull CustomTabsSessionToken sessionToken,
+                @NonNull Uri postMessageOrigin) {
+            return false;
+        }
+
+        @Override
+        protected int postMessage(@NonNull CustomTabsSessionToken sessionToken,
+                @NonNull String message, @Nullable Bundle extras) {
+            return CustomTabsService.RESULT_FAILURE_DISALLOWED;
+        }
+
+        @Override
+        protected boolean validateRelationship(@NonNull CustomTabsSessionToken sessionToken,
+                @Relation int relation, @NonNull Uri origin, @Nullable Bundle extras) {
+            return false;
+        }
+
+        @Override
+        protected boolean receiveFile(@NonNull CustomTabsSessionToken sessionToken,
+                @NonNull Uri uri, int purpose, @Nullable Bundle extras) {
+            return false;
+        }
+    }
+}
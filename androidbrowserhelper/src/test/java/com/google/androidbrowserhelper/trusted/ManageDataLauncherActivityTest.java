@@ -185,6 +185,37 @@ public class ManageDataLauncherActivityTest {
         assertEquals(PackageManager.COMPONENT_ENABLED_STATE_ENABLED, componentState);
     }
 
+    @Test
+    @Config(sdk = Build.VERSION_CODES.N_MR1)
+    public void syncsShortcutOnlyWhenProviderChanges() {
+        String provider = TWA_PROVIDER_PACKAGE;
+        installTrustedWebActivityProvider(provider);
+        LaunchStateStore store = new LaunchStateStore(mContext, Runnable::run);
+        ComponentName component = new ComponentName(mContext, ManageDataLauncherActivity.class);
+
+        ManageDataLauncherActivity.syncSiteSettingsShortcut(mContext, provider, store,
+                Runnable::run);
+        assertEquals(PackageManager.COMPONENT_ENABLED_STATE_DISABLED,
+                mPackageManager.getComponentEnabledSetting(component));
+
+        // Nothing is done while the provider version stays the same.
+        installTrustedWebActivityProviderWithSiteSettingsCategory(provider);
+        ManageDataLauncherActivity.syncSiteSettingsShortcut(mContext, provider, store,
+                Runnable::run);
+        assertEquals(PackageManager.COMPONENT_ENABLED_STATE_DISABLED,
+                mPackageManager.getComponentEnabledSetting(component));
+
+        // Once the provider has been updated, the shortcut state is synced.
+        PackageInfo packageInfo = new PackageInfo();
+        packageInfo.versionCode = 2;
+        packageInfo.packageName = provider;
+        mShadowPackageManager.addPackage(packageInfo);
+        ManageDataLauncherActivity.syncSiteSettingsShortcut(mContext, provider, store,
+                Runnable::run);
+        assertEquals(PackageManager.COMPONENT_ENABLED_STATE_ENABLED,
+                mPackageManager.getComponentEnabledSetting(component));
+    }
+
     private void installBrowser(String packageName) {
         Intent intent = new Intent()
                 .setData(Uri.fromParts("http", "", null))
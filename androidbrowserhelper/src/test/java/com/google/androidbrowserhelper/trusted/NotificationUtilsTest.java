@@ -0,0 +1,114 @@
+// Copyright 2026 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.androidbrowserhelper.trusted;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.content.Context;
+import android.content.Intent;
+import android.os.Build;
+import android.os.Looper;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.internal.DoNotInstrument;
+
+/**
+ * Tests for how {@link NotificationUtils} remembers whether notifications are enabled.
+ */
+@RunWith(RobolectricTestRunner.class)
+@DoNotInstrument
+@Config(sdk = {Build.VERSION_CODES.P})
+public class NotificationUtilsTest {
+    private static final String CHANNEL_NAME = "General News";
+    private static final String CHANNEL_ID = "general_news_channel_id";
+
+    private Context mContext;
+    private NotificationManager mNotificationManager;
+
+    @Before
+    public void setUp() {
+        mContext = RuntimeEnvironment.application;
+        mNotificationManager =
+                (NotificationManager) mContext.getSystemService(Context.NOTIFICATION_SERVICE);
+        NotificationUtils.resetForTesting();
+    }
+
+    @After
+    public void tearDown() {
+        NotificationUtils.resetForTesting();
+    }
+
+    @Test
+    public void remembersState_untilAppBlockStateChanges() {
+        assertTrue(NotificationUtils.areNotificationsEnabled(mContext, CHANNEL_NAME));
+
+        shadowOf(mNotificationManager).setNotificationsEnabled(false);
+        assertTrue(NotificationUtils.areNotificationsEnabled(mContext, CHANNEL_NAME));
+
+        sendBroadcast(new Intent(NotificationManager.ACTION_APP_BLOCK_STATE_CHANGED));
+        assertFalse(NotificationUtils.areNotificationsEnabled(mContext, CHANNEL_NAME));
+    }
+
+    @Test
+    public void forgetsChannelState_whenChannelBlockStateChanges() {
+        NotificationUtils.createNotificationChannel(mContext, CHANNEL_NAME);
+        assertTrue(NotificationUtils.areNotificationsEnabled(mContext, CHANNEL_NAME));
+
+        // The user blocks the channel.
+        mNotificationManager.createNotificationChannel(new NotificationChannel(
+                CHANNEL_ID, CHANNEL_NAME, NotificationManager.IMPORTANCE_NONE));
+        Intent intent =
+                new Intent(NotificationManager.ACTION_NOTIFICATION_CHANNEL_BLOCK_STATE_CHANGED);
+        intent.putExtra(NotificationManager.EXTRA_NOTIFICATION_CHANNEL_ID, CHANNEL_ID);
+        sendBroadcast(intent);
+
+        assertFalse(NotificationUtils.areNotificationsEnabled(mContext, CHANNEL_NAME));
+    }
+
+    @Test
+    public void forgetsState_afterPermissionRequest() {
+        assertTrue(NotificationUtils.areNotificationsEnabled(mContext, CHANNEL_NAME));
+
+        shadowOf(mNotificationManager).setNotificationsEnabled(false);
+        NotificationUtils.onNotificationStateChanged();
+
+        assertFalse(NotificationUtils.areNotificationsEnabled(mContext, CHANNEL_NAME));
+    }
+
+    @Test
+    @Config(sdk = {Build.VERSION_CODES.O_MR1})
+    public void doesNotRememberState_beforeP() {
+        assertTrue(NotificationUtils.areNotificationsEnabled(mContext, CHANNEL_NAME));
+
+        shadowOf(mNotificationManager).setNotificationsEnabled(false);
+
+        assertFalse(NotificationUtils.areNotificationsEnabled(mContext, CHANNEL_NAME));
+    }
+
+    private void sendBroadcast(Intent intent) {
+        mContext.sendBroadcast(intent);
+        shadowOf(Looper.getMainLooper()).idle();
+    }
+}
@@ -0,0 +1,150 @@
+// Copyright 2026 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.androidbrowserhelper.trusted;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.app.ActivityManager;
+import android.content.ComponentName;
+import android.content.Context;
+import android.os.Build;
+import android.os.Looper;
+
+import androidx.browser.customtabs.CustomTabsSession;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.internal.DoNotInstrument;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for {@link RunningTwaSession}.
+ */
+@RunWith(RobolectricTestRunner.class)
+@DoNotInstrument
+@Config(sdk = {Build.VERSION_CODES.O_MR1})
+public class RunningTwaSessionTest {
+    private static final String PROVIDER = "com.browser.one";
+    private static final int SESSION_ID = 42;
+    private static final int TASK_ID = 7;
+
+    private Context mContext;
+    private CustomTabsSession mSession;
+
+    @Before
+    public void setUp() {
+        mContext = RuntimeEnvironment.application;
+        mSession = CustomTabsSession.createMockSessionForTesting(
+                new ComponentName(PROVIDER, PROVIDER + ".CustomTabsService"));
+        setLiveTasks(TASK_ID);
+    }
+
+    @After
+    public void tearDown() {
+        RunningTwaSession.release();
+    }
+
+    @Test
+    public void keepsSession() {
+        RunningTwaSession.retain(mContext, mSession, PROVIDER, SESSION_ID, TASK_ID);
+
+        RunningTwaSession runningSession = RunningTwaSession.getInstance();
+        assertNotNull(runningSession);
+        assertSame(mSession, runningSession.session);
+        assertEquals(PROVIDER, runningSession.providerPackage);
+        assertEquals(SESSION_ID, runningSession.sessionId);
+        assertEquals(TASK_ID, runningSession.taskId);
+    }
+
+    @Test
+    public void keepsSession_whileTaskIsAlive() {
+        RunningTwaSession.retain(mContext, mSession, PROVIDER, SESSION_ID, TASK_ID);
+
+        idleFor(RunningTwaSession.CHECK_INTERVAL_MILLIS * 2);
+
+        assertNotNull(RunningTwaSession.getInstance());
+        assertEquals(0, shadowOf(RuntimeEnvironment.application)
+                .getUnboundServiceConnections().size());
+    }
+
+    @Test
+    public void releasesSession_whenTaskGoesAway() {
+        RunningTwaSession.retain(mContext, mSession, PROVIDER, SESSION_ID, TASK_ID);
+
+        setLiveTasks(TASK_ID + 1);
+        idleFor(RunningTwaSession.CHECK_INTERVAL_MILLIS);
+
+        assertNull(RunningTwaSession.getInstance());
+        assertEquals(1, shadowOf(RuntimeEnvironment.application)
+                .getUnboundServiceConnections().size());
+    }
+
+    @Test
+    public void releasesSession_whenIdle() {
+        RunningTwaSession.retain(mContext, mSession, PROVIDER, SESSION_ID, TASK_ID);
+
+        idleFor(RunningTwaSession.IDLE_TIMEOUT_MILLIS);
+
+        assertNull(RunningTwaSession.getInstance());
+        assertEquals(1, shadowOf(RuntimeEnvironment.application)
+                .getUnboundServiceConnections().size());
+    }
+
+    @Test
+    public void releasesPreviousSession_whenReplaced() {
+        RunningTwaSession.retain(mContext, mSession, PROVIDER, SESSION_ID, TASK_ID);
+        CustomTabsSession newSession = CustomTabsSession.createMockSessionForTesting(
+                new ComponentName(PROVIDER, PROVIDER + ".CustomTabsService"));
+
+        RunningTwaSession.retain(mContext, newSession, PROVIDER, SESSION_ID + 1, TASK_ID);
+
+        assertSame(newSession, RunningTwaSession.getInstance().session);
+        assertEquals(1, shadowOf(RuntimeEnvironment.application)
+                .getUnboundServiceConnections().size());
+    }
+
+    private static void idleFor(long millis) {
+        shadowOf(Looper.getMainLooper()).idleFor(millis, TimeUnit.MILLISECONDS);
+    }
+
+    @SuppressWarnings("deprecation")
+    private void setLiveTasks(int... taskIds) {
+        List<ActivityManager.AppTask> tasks = new ArrayList<>();
+        for (int taskId : taskIds) {
+            ActivityManager.RecentTaskInfo info = new ActivityManager.RecentTaskInfo();
+            info.persistentId = taskId;
+            ActivityManager.AppTask task = mock(ActivityManager.AppTask.class);
+            when(task.getTaskInfo()).thenReturn(info);
+            tasks.add(task);
+        }
+        ActivityManager activityManager =
+                (ActivityManager) mContext.getSystemService(Context.ACTIVITY_SERVICE);
+        shadowOf(activityManager).setAppTasks(tasks);
+    }
+}
@@ -0,0 +1,136 @@
+// Copyright 2026 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.androidbrowserhelper.trusted;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+import android.os.Build;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.internal.DoNotInstrument;
+
+/**
+ * Tests for {@link SessionStore}.
+ */
+@RunWith(RobolectricTestRunner.class)
+@DoNotInstrument
+@Config(sdk = {Build.VERSION_CODES.O_MR1})
+public class SessionStoreTest {
+    private Context mContext;
+
+    @Before
+    public void setUp() {
+        mContext = RuntimeEnvironment.application;
+        SessionStore.resetForTesting();
+    }
+
+    @After
+    public void tearDown() {
+        SessionStore.resetForTesting();
+    }
+
+    @Test
+    public void returnsSameSessionId_forSameTask() {
+        LaunchStateStore store = createStore();
+
+        int sessionId = SessionStore.makeSessionId(1, store);
+
+        assertEquals(sessionId, SessionStore.makeSessionId(1, store));
+    }
+
+    @Test
+    public void keepsSessionId_afterProcessRestart() {
+        int sessionId = SessionStore.makeSessionId(1, createStore());
+
+        // Forget everything that's held in memory.
+        SessionStore.resetForTesting();
+
+        assertEquals(sessionId, SessionStore.makeSessionId(1, createStore()));
+    }
+
+    @Test
+    public void keepsSessionIds_ofOtherTasks() {
+        LaunchStateStore store = createStore();
+        // The app can't tell whether a task it doesn't own, e.g. one started by the browser, is
+        // still running, so the session is kept.
+        int sessionId = SessionStore.makeSessionId(1, store);
+        SessionStore.makeSessionId(2, store);
+
+        assertEquals(sessionId, SessionStore.makeSessionId(1, store));
+        assertTrue(store.getSessionIds().contains("1:" + sessionId));
+    }
+
+    @Test
+    public void keepsRecentlyUsedTasks_whenFull() {
+        LaunchStateStore store = createStore();
+        int sessionId = SessionStore.makeSessionId(1, store);
+        for (int taskId = 2; taskId <= SessionStore.MAX_SESSIONS; taskId++) {
+            SessionStore.makeSessionId(taskId, store);
+        }
+
+        // Task 1 is used again, so task 2 is the least recently used one when we're full.
+        SessionStore.makeSessionId(1, store);
+        SessionStore.makeSessionId(SessionStore.MAX_SESSIONS + 1, store);
+
+        assertEquals(sessionId, SessionStore.makeSessionId(1, store));
+        assertFalse(store.getSessionIds().startsWith("2:"));
+    }
+
+    @Test
+    public void keepsSessionId_ofLowTaskId_afterReboot() {
+        // Task ids start again after a reboot, so a new task may have a lower id than the ones
+        // restored from before it.
+        StringBuilder sessionIds = new StringBuilder();
+        for (int i = 0; i < SessionStore.MAX_SESSIONS; i++) {
+            if (i > 0) sessionIds.append(',');
+            sessionIds.append(1000 + i).append(':').append(i);
+        }
+        LaunchStateStore store = createStore();
+        store.setSessionIds(sessionIds.toString());
+
+        int sessionId = SessionStore.makeSessionId(3, store);
+
+        assertEquals(sessionId, SessionStore.makeSessionId(3, store));
+        assertTrue(store.getSessionIds().endsWith("3:" + sessionId));
+        assertFalse(store.getSessionIds().startsWith("1000:"));
+    }
+
+    @Test
+    public void keepsNewestTasks_whenFull() {
+        int tasks = SessionStore.MAX_SESSIONS + 1;
+        int[] taskIds = new int[tasks];
+        for (int i = 0; i < tasks; i++) taskIds[i] = i + 1;
+        LaunchStateStore store = createStore();
+
+        for (int taskId : taskIds) SessionStore.makeSessionId(taskId, store);
+
+        String[] entries = store.getSessionIds().split(",");
+        assertEquals(SessionStore.MAX_SESSIONS, entries.length);
+        assertTrue(entries[0].startsWith("2:"));
+    }
+
+    private LaunchStateStore createStore() {
+        return new LaunchStateStore(mContext, Runnable::run);
+    }
+}
@@ -0,0 +1,116 @@
+// Copyright 2026 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.androidbrowserhelper.trusted;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertNull;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.content.Context;
+import android.content.pm.ApplicationInfo;
+import android.content.pm.PackageInfo;
+import android.content.pm.Signature;
+import android.os.Build;
+import android.util.Base64;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.internal.DoNotInstrument;
+
+import androidx.browser.trusted.Token;
+
+/**
+ * Tests for {@link SharedPreferencesTokenStore}, in particular that the token it caches for the
+ * process is the one that was stored last.
+ */
+@RunWith(RobolectricTestRunner.class)
+@DoNotInstrument
+@Config(sdk = {Build.VERSION_CODES.O_MR1})
+public class SharedPreferencesTokenStoreTest {
+    private static final String PROVIDER_PACKAGE = "com.example.provider";
+    private static final String OTHER_PACKAGE = "com.example.other";
+
+    private Context mContext;
+    private Token mProviderToken;
+    private Token mOtherToken;
+
+    @Before
+    public void setUp() {
+        mContext = RuntimeEnvironment.application;
+        installPackage(PROVIDER_PACKAGE, "provider signature");
+        installPackage(OTHER_PACKAGE, "other signature");
+        mProviderToken = Token.create(PROVIDER_PACKAGE, mContext.getPackageManager());
+        mOtherToken = Token.create(OTHER_PACKAGE, mContext.getPackageManager());
+    }
+
+    @After
+    public void tearDown() {
+        new SharedPreferencesTokenStore(mContext).store(null);
+    }
+
+    @Test
+    public void load_returnsTokenStoredByAnotherInstance() {
+        SharedPreferencesTokenStore first = new SharedPreferencesTokenStore(mContext);
+        SharedPreferencesTokenStore second = new SharedPreferencesTokenStore(mContext);
+
+        first.store(mProviderToken);
+        assertSameToken(mProviderToken, second.load());
+
+        second.store(mOtherToken);
+        assertSameToken(mOtherToken, first.load());
+        assertSameToken(mOtherToken, second.load());
+    }
+
+    @Test
+    public void load_returnsNull_afterAnotherInstanceClearsToken() {
+        SharedPreferencesTokenStore first = new SharedPreferencesTokenStore(mContext);
+        SharedPreferencesTokenStore second = new SharedPreferencesTokenStore(mContext);
+
+        first.store(mProviderToken);
+        assertSameToken(mProviderToken, first.load());
+
+        second.store(null);
+        assertNull(first.load());
+    }
+
+    @Test
+    public void load_returnsNewToken_whenChangedInLaunchStateStore() {
+        SharedPreferencesTokenStore store = new SharedPreferencesTokenStore(mContext);
+        store.store(mProviderToken);
+        assertSameToken(mProviderToken, store.load());
+
+        LaunchStateStore.getInstance(mContext).setToken(Base64.encodeToString(
+                mOtherToken.serialize(), Base64.NO_WRAP | Base64.NO_PADDING));
+        assertSameToken(mOtherToken, store.load());
+    }
+
+    private void installPackage(String packageName, String signature) {
+        PackageInfo packageInfo = new PackageInfo();
+        packageInfo.packageName = packageName;
+        packageInfo.applicationInfo = new ApplicationInfo();
+        packageInfo.applicationInfo.packageName = packageName;
+        packageInfo.signatures = new Signature[] { new Signature(signature.getBytes()) };
+        shadowOf(mContext.getPackageManager()).installPackage(packageInfo);
+    }
+
+    private static void assertSameToken(Token expected, Token actual) {
+        assertArrayEquals(expected.serialize(), actual.serialize());
+    }
+}
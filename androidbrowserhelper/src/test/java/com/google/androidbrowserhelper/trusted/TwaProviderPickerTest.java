@@ -32,6 +32,8 @@ import android.content.pm.ServiceInfo;
 import android.net.Uri;
 import android.os.Build;
 
+import java.util.Arrays;
+
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -60,6 +62,7 @@ public class TwaProviderPickerTest {
     private static final String CUSTOM_TABS_PROVIDER2 = "com.customtabs.two";
     private static final String TWA_PROVIDER1 = "com.trustedweb.one";
     private static final String TWA_PROVIDER2 = "com.trustedweb.two";
+    private static final String TWA_PROVIDER3 = "com.trustedweb.three";
 
     // TODO(peconn): Deduplicate these with members in TrustedWebUtils (should probably move
     // TrustedWebUtils into this package, which requires removing TrustedWebUtils' dependencies on
@@ -208,6 +211,58 @@ public class TwaProviderPickerTest {
         assertEquals(BROWSER2, action.provider);
     }
 
+    /**
+     * Tests that a Trusted Web Activity provider rejected by the policy is skipped in favour of
+     * the next one.
+     */
+    @Test
+    public void skipsTwaProviderRejectedByPolicy() {
+        installTrustedWebActivityProvider(TWA_PROVIDER1);
+        installTrustedWebActivityProvider(TWA_PROVIDER2);
+
+        TwaProviderPicker.Action action = TwaProviderPicker.pickProvider(mPackageManager,
+                provider -> !TWA_PROVIDER1.equals(provider));
+
+        assertEquals(TwaProviderPicker.LaunchMode.TRUSTED_WEB_ACTIVITY, action.launchMode);
+        assertEquals(TWA_PROVIDER2, action.provider);
+    }
+
+    /**
+     * Tests that a Trusted Web Activity provider rejected by the policy is still used for a
+     * Custom Tab if there is no other Trusted Web Activity provider.
+     */
+    @Test
+    public void usesRejectedTwaProviderForCustomTab() {
+        installBrowser(BROWSER1);
+        installTrustedWebActivityProvider(TWA_PROVIDER1);
+
+        TwaProviderPicker.Action action = TwaProviderPicker.pickProvider(mPackageManager,
+                provider -> false);
+
+        assertEquals(TwaProviderPicker.LaunchMode.CUSTOM_TAB, action.launchMode);
+        assertEquals(TWA_PROVIDER1, action.provider);
+    }
+
+    /**
+     * Tests that the other Trusted Web Activity providers are returned, once each and in order,
+     * to fail over to, leaving out the ones rejected by the policy.
+     */
+    @Test
+    public void returnsAlternativeTwaProviders() {
+        installBrowser(BROWSER1);
+        installTrustedWebActivityProvider(TWA_PROVIDER1);
+        installCustomTabsProvider(CUSTOM_TABS_PROVIDER1);
+        installTrustedWebActivityProvider(TWA_PROVIDER2);
+        installTrustedWebActivityProvider(TWA_PROVIDER3);
+
+        TwaProviderPicker.Action action = TwaProviderPicker.pickProvider(mPackageManager,
+                provider -> !TWA_PROVIDER3.equals(provider));
+
+        assertEquals(TwaProviderPicker.LaunchMode.TRUSTED_WEB_ACTIVITY, action.launchMode);
+        assertEquals(TWA_PROVIDER1, action.provider);
+        assertEquals(Arrays.asList(TWA_PROVIDER2), action.alternativeTwaProviders);
+    }
+
     private void installNonBrowser(String packageName) {
         Intent intent = new Intent()
                 .setData(Uri.parse("http://"))
@@ -0,0 +1,122 @@
+// Copyright 2026 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.androidbrowserhelper.trusted;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.Calendar;
+
+/**
+ * Tests for the scheduling logic of {@link WarmupScheduler}.
+ */
+@RunWith(JUnit4.class)
+public class WarmupSchedulerTest {
+    @Test
+    public void doesNotSchedule_withoutHabit() {
+        float[] scores = new float[24];
+        WarmupScheduler.recordLaunch(scores, 8, 0, 0);
+
+        assertEquals(-1, WarmupScheduler.computeNextWarmupTime(scores, timeOfDay(12, 0)));
+    }
+
+    @Test
+    public void schedulesBeforeUsualHour() {
+        float[] scores = new float[24];
+        launchDaily(scores, 8, 3);
+
+        long now = timeOfDay(12, 0);
+        long expected = timeOfDay(8, 0) + 24 * 60 * 60 * 1000 - WarmupScheduler.LEAD_MILLIS;
+        assertEquals(expected, WarmupScheduler.computeNextWarmupTime(scores, now));
+    }
+
+    @Test
+    public void countsHourOncePerDay() {
+        float[] scores = new float[24];
+        int launchHours = 0;
+        for (int i = 0; i < 5; i++) {
+            launchHours = WarmupScheduler.recordLaunch(scores, 8, 0, launchHours);
+        }
+
+        assertEquals(-1, WarmupScheduler.computeNextWarmupTime(scores, timeOfDay(12, 0)));
+    }
+
+    @Test
+    public void forgetsHabit_asDaysPass() {
+        float[] scores = new float[24];
+        int launchHours = 0;
+        for (int i = 0; i < 3; i++) {
+            launchHours = WarmupScheduler.recordLaunch(scores, 8, 30, launchHours);
+        }
+
+        assertEquals(-1, WarmupScheduler.computeNextWarmupTime(scores, timeOfDay(12, 0)));
+    }
+
+    @Test
+    public void prefersHourOfMostDays() {
+        float[] scores = new float[24];
+        int launchHours = 0;
+        for (int day = 0; day < 4; day++) {
+            launchHours = WarmupScheduler.recordLaunch(scores, 20, day == 0 ? 0 : 1, launchHours);
+            if (day > 0) launchHours = WarmupScheduler.recordLaunch(scores, 14, 0, launchHours);
+        }
+
+        long now = timeOfDay(12, 0);
+        assertEquals(timeOfDay(20, 0) - WarmupScheduler.LEAD_MILLIS,
+                WarmupScheduler.computeNextWarmupTime(scores, now));
+    }
+
+    @Test
+    public void skipsHourAlreadyStarted() {
+        float[] scores = new float[24];
+        launchDaily(scores, 12, 3);
+
+        // Too late for the warm-up of today's 12 o'clock hour, so tomorrow's.
+        long now = timeOfDay(11, 58);
+        long expected = timeOfDay(12, 0) + 24 * 60 * 60 * 1000 - WarmupScheduler.LEAD_MILLIS;
+        assertEquals(expected, WarmupScheduler.computeNextWarmupTime(scores, now));
+    }
+
+    @Test
+    public void holdsBrowser_untilHourStarts() {
+        long targetTime = timeOfDay(8, 0) - WarmupScheduler.LEAD_MILLIS;
+
+        assertEquals(WarmupScheduler.LEAD_MILLIS,
+                WarmupScheduler.computeHoldMillis(targetTime, targetTime));
+        assertEquals(60 * 1000,
+                WarmupScheduler.computeHoldMillis(targetTime, timeOfDay(7, 59)));
+        // Late warm-ups are held for as long as timely ones.
+        assertEquals(WarmupScheduler.LEAD_MILLIS,
+                WarmupScheduler.computeHoldMillis(targetTime, timeOfDay(8, 10)));
+    }
+
+    /** Records a launch in the given hour on each of the given number of consecutive days. */
+    private static void launchDaily(float[] scores, int hour, int days) {
+        int launchHours = 0;
+        for (int day = 0; day < days; day++) {
+            launchHours = WarmupScheduler.recordLaunch(scores, hour, day == 0 ? 0 : 1, launchHours);
+        }
+    }
+
+    private static long timeOfDay(int hour, int minute) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.set(2026, Calendar.MARCH, 10, hour, minute, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        return calendar.getTimeInMillis();
+    }
+}
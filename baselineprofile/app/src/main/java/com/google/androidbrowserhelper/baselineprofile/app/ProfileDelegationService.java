@@ -0,0 +1,35 @@
+// Copyright 2026 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.androidbrowserhelper.baselineprofile.app;
+
+import com.google.androidbrowserhelper.locationdelegation.LocationDelegationExtraCommandHandler;
+import com.google.androidbrowserhelper.playbilling.digitalgoods.DigitalGoodsRequestHandler;
+import com.google.androidbrowserhelper.trusted.DelegationService;
+
+/**
+ * The {@link DelegationService} the browser talks to while the Trusted Web Activity is open,
+ * set up with all of the libraries' command handlers.
+ */
+public class ProfileDelegationService extends DelegationService {
+    @Override
+    public void onCreate() {
+        super.onCreate();
+
+        registerExtraCommandHandler(DigitalGoodsRequestHandler.COMMAND_NAMES,
+                () -> new DigitalGoodsRequestHandler(getApplicationContext()));
+        registerExtraCommandHandler(LocationDelegationExtraCommandHandler.COMMAND_NAMES,
+                LocationDelegationExtraCommandHandler::new);
+    }
+}
@@ -0,0 +1,180 @@
+// Copyright 2026 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.androidbrowserhelper.baselineprofile.app;
+
+import android.app.Activity;
+import android.net.Uri;
+import android.os.Bundle;
+import android.os.RemoteException;
+import android.util.Log;
+import android.widget.TextView;
+
+import androidx.annotation.Nullable;
+import androidx.browser.trusted.Token;
+import androidx.browser.trusted.TrustedWebActivityCallback;
+import androidx.browser.trusted.TrustedWebActivityServiceConnection;
+import androidx.browser.trusted.TrustedWebActivityServiceConnectionPool;
+
+import com.google.androidbrowserhelper.playbilling.digitalgoods.GetDetailsCall;
+import com.google.androidbrowserhelper.playbilling.digitalgoods.ListPurchasesCall;
+import com.google.androidbrowserhelper.trusted.ExtraCommandHandler;
+import com.google.androidbrowserhelper.trusted.SharedPreferencesTokenStore;
+import com.google.common.util.concurrent.ListenableFuture;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Connects to the {@link ProfileDelegationService} the way a browser does and sends it the
+ * commands a browser sends while a Trusted Web Activity uses notifications, the Digital Goods API
+ * or geolocation, so that the service and its command handlers run without depending on a
+ * browser and a web page that use them.
+ *
+ * Shows {@link #STATUS_DONE} once all commands have been answered.
+ */
+public class ScenarioActivity extends Activity {
+    private static final String TAG = "ScenarioActivity";
+
+    /**
+     * A comma separated list of the scenarios to run, out of {@link #SCENARIO_NOTIFICATION},
+     * {@link #SCENARIO_BILLING} and {@link #SCENARIO_LOCATION}. All of them run if it's missing.
+     */
+    public static final String EXTRA_SCENARIOS = "scenarios";
+
+    public static final String SCENARIO_NOTIFICATION = "notification";
+    public static final String SCENARIO_BILLING = "billing";
+    public static final String SCENARIO_LOCATION = "location";
+
+    public static final String STATUS_DONE = "Done";
+
+    /** Must be handled by the LauncherActivity, which is how the service is found. */
+    private static final Uri SCOPE = Uri.parse("https://twa-tests.firebaseapp.com");
+
+    // The names and arguments of the commands, as sent by the browser.
+    private static final String COMMAND_CHECK_NOTIFICATION_PERMISSION =
+            "checkNotificationPermission";
+    private static final String COMMAND_GET_NOTIFICATION_PERMISSION_REQUEST_PENDING_INTENT =
+            "getNotificationPermissionRequestPendingIntent";
+    private static final String KEY_NOTIFICATION_CHANNEL_NAME = "notificationChannelName";
+    private static final String NOTIFICATION_CHANNEL_NAME = "General";
+    private static final String PARAM_GET_DETAILS_ITEM_IDS = "getDetails.itemIds";
+    private static final String COMMAND_START_LOCATION = "startLocation";
+    private static final String COMMAND_STOP_LOCATION = "stopLocation";
+
+    private static final Executor sExecutor = Executors.newSingleThreadExecutor();
+
+    /** Commands still to be answered, plus one until all of them have been sent. */
+    private final AtomicInteger mPendingResponses = new AtomicInteger(1);
+
+    private final TrustedWebActivityCallback mLoggingCallback = new TrustedWebActivityCallback() {
+        @Override
+        public void onExtraCallback(String callbackName, @Nullable Bundle args) {
+            Log.d(TAG, "Callback: " + callbackName);
+        }
+    };
+
+    private TextView mStatusView;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+
+        mStatusView = new TextView(this);
+        mStatusView.setText("Running");
+        setContentView(mStatusView);
+
+        String scenarios = getIntent().getStringExtra(EXTRA_SCENARIOS);
+        List<String> toRun = Arrays.asList(scenarios != null ? scenarios.split(",")
+                : new String[] {SCENARIO_NOTIFICATION, SCENARIO_BILLING, SCENARIO_LOCATION});
+
+        sExecutor.execute(() -> connect(toRun));
+    }
+
+    private void connect(List<String> scenarios) {
+        // The service only answers the browser the app was launched in last, so make that us.
+        Token self = Token.create(getPackageName(), getPackageManager());
+        if (self == null) {
+            Log.e(TAG, "Could not create a Token for this app.");
+            return;
+        }
+        new SharedPreferencesTokenStore(this).store(self);
+
+        ListenableFuture<TrustedWebActivityServiceConnection> future =
+                TrustedWebActivityServiceConnectionPool.create(this)
+                        .connect(SCOPE, Collections.singleton(self), sExecutor);
+        future.addListener(() -> {
+            try {
+                runScenarios(future.get(), scenarios);
+            } catch (ExecutionException | InterruptedException | RemoteException e) {
+                Log.e(TAG, "Failed to talk to the DelegationService.", e);
+            }
+            onResponse();
+        }, sExecutor);
+    }
+
+    private void runScenarios(TrustedWebActivityServiceConnection connection,
+            List<String> scenarios) throws RemoteException {
+        if (scenarios.contains(SCENARIO_NOTIFICATION)) {
+            connection.areNotificationsEnabled(NOTIFICATION_CHANNEL_NAME);
+
+            Bundle args = new Bundle();
+            args.putString(KEY_NOTIFICATION_CHANNEL_NAME, NOTIFICATION_CHANNEL_NAME);
+            connection.sendExtraCommand(COMMAND_CHECK_NOTIFICATION_PERMISSION, args, null);
+            connection.sendExtraCommand(
+                    COMMAND_GET_NOTIFICATION_PERMISSION_REQUEST_PENDING_INTENT, args, null);
+        }
+
+        if (scenarios.contains(SCENARIO_BILLING)) {
+            Bundle args = new Bundle();
+            args.putStringArray(PARAM_GET_DETAILS_ITEM_IDS, new String[] {"baseline_profile"});
+            sendCommandAwaitingResponse(connection, GetDetailsCall.COMMAND_NAME, args);
+            sendCommandAwaitingResponse(connection, ListPurchasesCall.COMMAND_NAME, new Bundle());
+        }
+
+        if (scenarios.contains(SCENARIO_LOCATION)) {
+            // Without the location permission, which we don't ask for, starting reports an error
+            // through the callback, if at all, so we don't wait for a response.
+            connection.sendExtraCommand(COMMAND_START_LOCATION, new Bundle(), mLoggingCallback);
+            connection.sendExtraCommand(COMMAND_STOP_LOCATION, new Bundle(), null);
+        }
+    }
+
+    private void sendCommandAwaitingResponse(TrustedWebActivityServiceConnection connection,
+            String command, Bundle args) throws RemoteException {
+        mPendingResponses.incrementAndGet();
+        Bundle result = connection.sendExtraCommand(command, args,
+                new TrustedWebActivityCallback() {
+                    @Override
+                    public void onExtraCallback(String callbackName,
+                            @Nullable Bundle callbackArgs) {
+                        Log.d(TAG, "Response to " + command + ": " + callbackName);
+                        onResponse();
+                    }
+                });
+        if (result == null || !result.getBoolean(ExtraCommandHandler.EXTRA_COMMAND_SUCCESS)) {
+            onResponse();
+        }
+    }
+
+    private void onResponse() {
+        if (mPendingResponses.decrementAndGet() != 0) return;
+        runOnUiThread(() -> mStatusView.setText(STATUS_DONE));
+    }
+}
@@ -0,0 +1,112 @@
+// Copyright 2026 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.androidbrowserhelper.baselineprofile.generator;
+
+import android.content.Intent;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.benchmark.macro.MacrobenchmarkScope;
+import androidx.benchmark.macro.junit4.BaselineProfileRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.LargeTest;
+import androidx.test.uiautomator.By;
+import androidx.test.uiautomator.UiDevice;
+import androidx.test.uiautomator.Until;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+
+import kotlin.Unit;
+
+/**
+ * Collects the Baseline Profiles of the libraries from the :baselineprofile:app, by launching a
+ * Trusted Web Activity from it, cold and warm, and by having it send the notification, Digital
+ * Goods and location commands to its DelegationService.
+ *
+ * Run it with {@code ./gradlew :androidbrowserhelper:generateBaselineProfile} (and likewise for
+ * :playbilling and :locationdelegation) on a device or emulator that has a browser supporting
+ * Trusted Web Activities, see baselineprofile/README.md.
+ */
+@LargeTest
+@RunWith(AndroidJUnit4.class)
+public class BaselineProfileGenerator {
+    private static final String TAG = "BaselineProfileGenerator";
+
+    private static final String PACKAGE_NAME =
+            "com.google.androidbrowserhelper.baselineprofile.app";
+    private static final String LAUNCHER_ACTIVITY =
+            "com.google.androidbrowserhelper.trusted.LauncherActivity";
+    private static final String SCENARIO_ACTIVITY = PACKAGE_NAME + ".ScenarioActivity";
+    /** ScenarioActivity#STATUS_DONE. */
+    private static final String SCENARIO_DONE = "Done";
+
+    /** How long a launch is given to bind to the browser, transfer the splash image etc. */
+    private static final long LAUNCH_SETTLE_MS = 5000;
+    private static final long SCENARIO_TIMEOUT_MS = 10000;
+
+    @Rule
+    public final BaselineProfileRule mRule = new BaselineProfileRule();
+
+    @Test
+    public void generate() {
+        mRule.collect(
+                /* packageName = */ PACKAGE_NAME,
+                /* maxIterations = */ 15,
+                /* stableIterations = */ 3,
+                /* outputFilePrefix = */ null,
+                // Startup profiles only affect the dex layout of apps, not of libraries.
+                /* includeInStartupProfile = */ false,
+                /* strictStability = */ false,
+                /* filterPredicate = */ rule -> true,
+                /* profileBlock = */ scope -> {
+                    // Each iteration starts with the app stopped, so the first launch is cold.
+                    scope.pressHome();
+                    launchTwa(scope);
+                    scope.pressHome();
+                    launchTwa(scope);
+                    runScenarios(scope);
+                    return Unit.INSTANCE;
+                });
+    }
+
+    private static void launchTwa(MacrobenchmarkScope scope) {
+        // The launch ends in the browser rather than in the app, which startActivityAndWait
+        // would wait for, so wait for the launch to settle instead.
+        UiDevice device = scope.getDevice();
+        try {
+            device.executeShellCommand("am start -W -n " + PACKAGE_NAME + "/" + LAUNCHER_ACTIVITY);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        device.waitForIdle();
+        SystemClock.sleep(LAUNCH_SETTLE_MS);
+    }
+
+    private static void runScenarios(MacrobenchmarkScope scope) {
+        Intent intent = new Intent();
+        intent.setClassName(PACKAGE_NAME, SCENARIO_ACTIVITY);
+        scope.startActivityAndWait(intent);
+
+        // Billing responses need Google Play, carry on without them where it's missing.
+        if (!scope.getDevice().wait(Until.hasObject(By.text(SCENARIO_DONE)),
+                SCENARIO_TIMEOUT_MS)) {
+            Log.w(TAG, "Not all scenario commands were answered.");
+        }
+    }
+}
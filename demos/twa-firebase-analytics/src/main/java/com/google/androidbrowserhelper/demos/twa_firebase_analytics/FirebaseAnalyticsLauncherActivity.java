@@ -14,58 +14,38 @@
 
 package com.google.androidbrowserhelper.demos.twa_firebase_analytics;
 
-import android.net.Uri;
-import android.os.Bundle;
-
 import androidx.annotation.NonNull;
-import androidx.annotation.Nullable;
 
-import com.google.android.gms.tasks.OnCompleteListener;
-import com.google.android.gms.tasks.Task;
+import com.google.androidbrowserhelper.trusted.LaunchPrerequisite;
 import com.google.androidbrowserhelper.trusted.LauncherActivity;
 import com.google.firebase.analytics.FirebaseAnalytics;
 
+import java.util.Collections;
+import java.util.List;
+
 /**
- * This is a custom LauncherActivity that gets the Firebase Instance ID asynchronously before
- * launching the Trusted Web Activity and ensures the information is always available.
+ * This is a custom LauncherActivity that gets the Firebase Instance ID asynchronously and adds it
+ * to the launch URL. The library picks and connects to the browser while the ID is being fetched,
+ * and launches without it if it takes too long.
  */
 public class FirebaseAnalyticsLauncherActivity extends LauncherActivity {
-    private String mAppInstanceId;
-
+    @NonNull
     @Override
-    protected void onCreate(@Nullable Bundle savedInstanceState) {
-        super.onCreate(savedInstanceState);
-
-        // `super.onCreate()` may have called `finish()`. In this case, we don't do any work.
-        if (isFinishing()) {
-            return;
-        }
-
-        FirebaseAnalytics firebaseAnalytics = FirebaseAnalytics.getInstance(this);
-
-        // Start the asynchronous task to get the Firebase application instance id.
-        firebaseAnalytics.getAppInstanceId().addOnCompleteListener(task -> {
-                // Once the task is complete, save the instance id so it can be used by
-                // getLaunchingUrl().
-                mAppInstanceId = task.getResult();
-                launchTwa();
+    protected List<LaunchPrerequisite> getLaunchPrerequisites() {
+        return Collections.singletonList(callback -> {
+            FirebaseAnalytics firebaseAnalytics = FirebaseAnalytics.getInstance(this);
+
+            // Start the asynchronous task to get the Firebase application instance id.
+            firebaseAnalytics.getAppInstanceId().addOnCompleteListener(task -> {
+                if (!task.isSuccessful()) {
+                    callback.onReady(null);
+                    return;
+                }
+                // Attach the Firebase instance Id to the launchUrl. This example uses
+                // "appInstanceId" as the parameter name.
+                callback.onReady(LaunchPrerequisite.Result.appendQueryParameter(
+                        "appInstanceId", task.getResult()));
+            });
         });
     }
-
-    @Override
-    protected boolean shouldLaunchImmediately() {
-        // launchImmediately() returns `false` so we can wait until Firebase Analytics is ready
-        // and then launch the Trusted Web Activity with `launch()`.
-        return false;
-    }
-
-    @Override
-    protected Uri getLaunchingUrl() {
-        Uri uri = super.getLaunchingUrl();
-        // Attach the Firebase instance Id to the launchUrl. This example uses "appInstanceId" as
-        // the parameter name.
-        return uri.buildUpon()
-                .appendQueryParameter("appInstanceId", mAppInstanceId)
-                .build();
-    }
 }
@@ -14,68 +14,56 @@
 
 package com.google.androidbrowserhelper.demos.twa_offline_first;
 
+import com.google.androidbrowserhelper.trusted.LaunchPrerequisite;
 import com.google.androidbrowserhelper.trusted.LauncherActivity;
 
 import android.content.Context;
 import android.content.SharedPreferences;
 import android.net.ConnectivityManager;
 import android.net.NetworkInfo;
-import android.os.Bundle;
-import android.os.StrictMode;
 import android.widget.Button;
 
-public class OfflineFirstTWALauncherActivity extends LauncherActivity {
+import androidx.annotation.NonNull;
 
-    @Override
-    protected void onCreate(Bundle savedInstanceState) {
-        super.onCreate(savedInstanceState);
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
 
-        // `super.onCreate()` may have called `finish()`. In this case, we don't do any work.
-        if (isFinishing()) {
-            return;
-        }
-        tryLaunchTwa();
-    }
+public class OfflineFirstTWALauncherActivity extends LauncherActivity {
+    private static final Executor sExecutor = Executors.newSingleThreadExecutor();
 
+    @NonNull
     @Override
-    protected boolean shouldLaunchImmediately() {
-        // launchImmediately() returns `false` so we can check connection
-        // and then render a fallback page or launch the Trusted Web Activity with `launchTwa()`.
-        return false;
-    }
-
-    private void tryLaunchTwa() {
-        // If TWA has already launched successfully, launch TWA immediately.
-        // Otherwise, check connection status. If online, launch the Trusted Web Activity with
-        // `launchTwa()`. Otherwise, if offline, render the offline fallback screen.
-        if (hasTwaLaunchedSuccessfully()) {
-            launchTwa();
-            return;
-        }
+    protected List<LaunchPrerequisite> getLaunchPrerequisites() {
+        // The connection check runs while the library prepares the launch. If we're offline, it
+        // cancels the launch and renders a fallback page instead. It runs on a background thread
+        // so that reading the preferences doesn't block the main thread.
+        return Collections.singletonList(callback -> sExecutor.execute(() -> {
+            // If TWA has already launched successfully, launch TWA immediately.
+            // Otherwise, check connection status. If online, launch the Trusted Web Activity.
+            // Otherwise, if offline, render the offline fallback screen.
+            if (hasTwaLaunchedSuccessfully()) {
+                callback.onReady(null);
+                return;
+            }
 
-        if (isOnline()) {
-            firstTimeLaunchTwa();
-            return;
-        }
+            if (isOnline()) {
+                markTwaLaunchedSuccessfully();
+                callback.onReady(null);
+                return;
+            }
 
-        renderOfflineFallback();
+            runOnUiThread(this::renderOfflineFallback);
+            callback.onReady(LaunchPrerequisite.Result.CANCEL_LAUNCH);
+        }));
     }
 
     private boolean hasTwaLaunchedSuccessfully() {
         // Return `true` if the preference "twa_launched_successfully" has already been set.
-        // The code to access shared preferences is surrounded by additional `ThreadPolicy` code to
-        // avoid the app breaking the first time it runs (as it requires a disk read, which might be
-        // slower the first time).
-        StrictMode.ThreadPolicy oldPolicy = StrictMode.getThreadPolicy();
-        try {
-            StrictMode.setThreadPolicy(StrictMode.ThreadPolicy.LAX);
-            SharedPreferences sharedPref = getSharedPreferences(
-                    getString(R.string.twa_offline_first_preferences_file_key),
-                    Context.MODE_PRIVATE);
-            return sharedPref.getBoolean(getString(R.string.twa_launched_successfully), false);
-        } finally {
-            StrictMode.setThreadPolicy(oldPolicy);
-        }
+        SharedPreferences sharedPref = getSharedPreferences(
+                getString(R.string.twa_offline_first_preferences_file_key), Context.MODE_PRIVATE);
+        return sharedPref.getBoolean(getString(R.string.twa_launched_successfully), false);
     }
 
     private void renderOfflineFallback() {
@@ -86,16 +74,14 @@ public class OfflineFirstTWALauncherActivity extends LauncherActivity {
             // Check connection status. If online, launch the Trusted Web Activity for the first
             // time.
             if (isOnline()) {
-                firstTimeLaunchTwa();
+                launchTwa();
             }
         });
     }
 
-    private void firstTimeLaunchTwa() {
-        // Launch the TWA and set the preference "twa_launched_successfully" to true, to indicate
-        // that it has launched successfully, at least, once.
-        launchTwa();
-
+    private void markTwaLaunchedSuccessfully() {
+        // Set the preference "twa_launched_successfully" to true, to indicate that the TWA has
+        // launched successfully, at least, once.
         SharedPreferences sharedPref = getSharedPreferences(
                 getString(R.string.twa_offline_first_preferences_file_key), Context.MODE_PRIVATE);
         SharedPreferences.Editor editor = sharedPref.edit();
@@ -24,13 +24,28 @@ import androidx.browser.trusted.TrustedWebActivityCallbackRemote;
 
 import com.google.androidbrowserhelper.trusted.ExtraCommandHandler;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
 public class LocationDelegationExtraCommandHandler implements ExtraCommandHandler {
     static final String CHECK_LOCATION_PERMISSION_COMMAND_NAME = "checkAndroidLocationPermission";
     private static final String START_LOCATION_COMMAND_NAME = "startLocation";
     private static final String STOP_LOCATION_COMMAND_NAME = "stopLocation";
+    /** The commands this handler handles, for registering it with a factory. */
+    public static final Set<String> COMMAND_NAMES = Collections.unmodifiableSet(new HashSet<>(
+            Arrays.asList(CHECK_LOCATION_PERMISSION_COMMAND_NAME, START_LOCATION_COMMAND_NAME,
+                    STOP_LOCATION_COMMAND_NAME)));
 
     private LocationProvider mLocationProvider;
 
+    // Not annotated with @Override, the release build is compiled against an
+    // androidbrowserhelper release from before ExtraCommandHandler#getCommandNames.
+    public Set<String> getCommandNames() {
+        return COMMAND_NAMES;
+    }
+
     public Bundle handleExtraCommand(Context context, String commandName, Bundle args,
             @Nullable TrustedWebActivityCallbackRemote callback) {
         TrustedWebActivityLocationCallback wrappedCallback = (callbackName, callbackArgs) -> {
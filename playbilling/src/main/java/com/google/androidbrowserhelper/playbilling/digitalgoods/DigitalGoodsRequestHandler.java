@@ -26,6 +26,11 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.browser.trusted.TrustedWebActivityCallbackRemote;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
 public class DigitalGoodsRequestHandler implements ExtraCommandHandler {
     /**
      * A version number used to track the communication format between the TWA shell and the
@@ -41,6 +46,15 @@ public class DigitalGoodsRequestHandler implements ExtraCommandHandler {
     private static final String EXTRA_DIGITAL_GOODS_API_VERSION = "digital_goods_api_version";
     private static final int DIGITAL_GOODS_API_VERSION = 2;
 
+    /**
+     * The commands this handler handles, for registering it with a factory, so that the billing
+     * client is only created once the first of them arrives.
+     */
+    public static final Set<String> COMMAND_NAMES = Collections.unmodifiableSet(new HashSet<>(
+            Arrays.asList(GetDetailsCall.COMMAND_NAME, AcknowledgeCall.COMMAND_NAME,
+                    ConsumeCall.COMMAND_NAME, ListPurchasesCall.COMMAND_NAME,
+                    ListPurchaseHistoryCall.COMMAND_NAME)));
+
     private final BillingWrapper mWrapper;
     private final BillingWrapper.Listener mListener = (result, token) -> { };
 
@@ -48,6 +62,12 @@ public class DigitalGoodsRequestHandler implements ExtraCommandHandler {
         mWrapper = new ConnectedBillingWrapper(BillingWrapperFactory.get(context, mListener));
     }
 
+    // Not annotated with @Override, the release build is compiled against an
+    // androidbrowserhelper release from before ExtraCommandHandler#getCommandNames.
+    public Set<String> getCommandNames() {
+        return COMMAND_NAMES;
+    }
+
     @NonNull
     @Override
     public Bundle handleExtraCommand(Context context, String commandName, Bundle args,
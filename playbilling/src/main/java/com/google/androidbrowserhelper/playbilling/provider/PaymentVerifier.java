@@ -14,7 +14,10 @@
 
 package com.google.androidbrowserhelper.playbilling.provider;
 
+import android.content.BroadcastReceiver;
 import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
 import android.util.Log;
 
 import com.google.androidbrowserhelper.trusted.ChromeOsSupport;
@@ -22,16 +25,41 @@ import com.google.androidbrowserhelper.trusted.SharedPreferencesTokenStore;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
 import androidx.browser.trusted.Token;
 import androidx.browser.trusted.TokenStore;
 
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
 /**
  * Contains logic for determining whether an app should be allowed to make a payment request.
+ *
+ * Checking a package against the verified provider's {@link Token} looks up its signatures, and
+ * the browser asks whether payments are allowed several times during a checkout. So the result
+ * is remembered per package until the verified provider changes or a package is installed,
+ * replaced or removed (which is the only way its signatures can change).
  */
 public class PaymentVerifier {
     // TODO: Should this be an instance class (eg PaymentStrategy)?
     // It would allow developers to override verification behaviour more easily.
 
+    private static final Object sLock = new Object();
+
+    private static final AtomicBoolean sRegisteringPackageReceiver = new AtomicBoolean();
+    /** Nothing is remembered until the receiver that tells us to forget it is registered. */
+    private static volatile boolean sPackageReceiverRegistered;
+
+    // Guarded by sLock.
+    /** The serialized token the results in {@link #sVerifiedPackages} were checked against. */
+    @Nullable
+    private static byte[] sVerifiedToken;
+    private static final Map<String, Boolean> sVerifiedPackages = new HashMap<>();
+    /** Incremented whenever the remembered results are dropped. */
+    private static int sGeneration;
+
     /**
      * Determines whether the given package name should be allowed to trigger Payment Requests.
      * A package can only trigger payment requests if it is the verified provider for the Trusted
@@ -54,7 +82,7 @@ public class PaymentVerifier {
             return false;
         }
 
-        boolean verified = verifiedPackage.matches(packageName, context.getPackageManager());
+        boolean verified = matches(context, verifiedPackage, packageName);
 
         if (!verified) {
             Log.w(logTag, "Denied payment to unverified app (" + packageName + ").");
@@ -62,4 +90,65 @@ public class PaymentVerifier {
 
         return verified;
     }
+
+    /** Calls {@link Token#matches}, unless it's been called for the package and token before. */
+    private static boolean matches(Context context, Token token, String packageName) {
+        // Registering is a call to the system, so it's done without holding the lock.
+        registerPackageReceiverIfNeeded(context);
+
+        byte[] serializedToken = token.serialize();
+        int generation;
+        synchronized (sLock) {
+            if (!Arrays.equals(sVerifiedToken, serializedToken)) {
+                clearVerifiedPackages();
+                sVerifiedToken = serializedToken;
+            }
+            Boolean verified = sVerifiedPackages.get(packageName);
+            if (verified != null) return verified;
+            generation = sGeneration;
+        }
+
+        boolean verified = token.matches(packageName, context.getPackageManager());
+        synchronized (sLock) {
+            // Don't remember the result if things have changed while we were checking.
+            if (generation == sGeneration && sPackageReceiverRegistered) {
+                sVerifiedPackages.put(packageName, verified);
+            }
+        }
+        return verified;
+    }
+
+    @VisibleForTesting
+    static void resetForTesting() {
+        synchronized (sLock) {
+            clearVerifiedPackages();
+            sVerifiedToken = null;
+        }
+        sRegisteringPackageReceiver.set(false);
+        sPackageReceiverRegistered = false;
+    }
+
+    private static void registerPackageReceiverIfNeeded(Context context) {
+        if (!sRegisteringPackageReceiver.compareAndSet(false, true)) return;
+
+        IntentFilter filter = new IntentFilter();
+        filter.addAction(Intent.ACTION_PACKAGE_ADDED);
+        filter.addAction(Intent.ACTION_PACKAGE_REPLACED);
+        filter.addAction(Intent.ACTION_PACKAGE_REMOVED);
+        filter.addDataScheme("package");
+        context.getApplicationContext().registerReceiver(new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                synchronized (sLock) {
+                    clearVerifiedPackages();
+                }
+            }
+        }, filter);
+        sPackageReceiverRegistered = true;
+    }
+
+    private static void clearVerifiedPackages() {
+        sVerifiedPackages.clear();
+        sGeneration++;
+    }
 }
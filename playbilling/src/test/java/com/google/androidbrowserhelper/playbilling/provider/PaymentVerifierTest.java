@@ -0,0 +1,130 @@
+// Copyright 2026 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.androidbrowserhelper.playbilling.provider;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.content.Context;
+import android.content.Intent;
+import android.content.pm.ApplicationInfo;
+import android.content.pm.PackageInfo;
+import android.content.pm.Signature;
+import android.net.Uri;
+import android.os.Build;
+import android.os.Looper;
+
+import com.google.androidbrowserhelper.trusted.SharedPreferencesTokenStore;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.internal.DoNotInstrument;
+
+import androidx.browser.trusted.Token;
+import androidx.browser.trusted.TokenStore;
+
+/**
+ * Tests for how {@link PaymentVerifier} remembers which packages it has verified.
+ */
+@RunWith(RobolectricTestRunner.class)
+@DoNotInstrument
+@Config(sdk = {Build.VERSION_CODES.O_MR1})
+public class PaymentVerifierTest {
+    private static final String TAG = "PaymentVerifierTest";
+    private static final String PROVIDER_PACKAGE = "com.example.provider";
+    private static final String OTHER_PACKAGE = "com.example.other";
+
+    private Context mContext;
+    private TokenStore mTokenStore;
+
+    @Before
+    public void setUp() {
+        mContext = RuntimeEnvironment.application;
+        PaymentVerifier.resetForTesting();
+
+        installPackage(PROVIDER_PACKAGE, "provider signature");
+        installPackage(OTHER_PACKAGE, "other signature");
+        mTokenStore = new SharedPreferencesTokenStore(mContext);
+        setVerifiedProvider(PROVIDER_PACKAGE);
+    }
+
+    @After
+    public void tearDown() {
+        mTokenStore.store(null);
+        PaymentVerifier.resetForTesting();
+    }
+
+    @Test
+    public void forgetsResults_whenVerifiedProviderChanges() {
+        assertTrue(shouldAllowPayments(PROVIDER_PACKAGE));
+        assertFalse(shouldAllowPayments(OTHER_PACKAGE));
+
+        setVerifiedProvider(OTHER_PACKAGE);
+        assertFalse(shouldAllowPayments(PROVIDER_PACKAGE));
+        assertTrue(shouldAllowPayments(OTHER_PACKAGE));
+    }
+
+    @Test
+    public void remembersResult_untilPackageIsReplaced() {
+        assertTrue(shouldAllowPayments(PROVIDER_PACKAGE));
+
+        // The provider is reinstalled with a different key.
+        installPackage(PROVIDER_PACKAGE, "another signature");
+        assertTrue(shouldAllowPayments(PROVIDER_PACKAGE));
+
+        sendPackageBroadcast(Intent.ACTION_PACKAGE_REPLACED, PROVIDER_PACKAGE);
+        assertFalse(shouldAllowPayments(PROVIDER_PACKAGE));
+    }
+
+    @Test
+    public void remembersResult_untilPackageIsRemoved() {
+        assertTrue(shouldAllowPayments(PROVIDER_PACKAGE));
+
+        shadowOf(mContext.getPackageManager()).removePackage(PROVIDER_PACKAGE);
+        assertTrue(shouldAllowPayments(PROVIDER_PACKAGE));
+
+        sendPackageBroadcast(Intent.ACTION_PACKAGE_REMOVED, PROVIDER_PACKAGE);
+        assertFalse(shouldAllowPayments(PROVIDER_PACKAGE));
+    }
+
+    private boolean shouldAllowPayments(String packageName) {
+        return PaymentVerifier.shouldAllowPayments(mContext, packageName, TAG);
+    }
+
+    private void setVerifiedProvider(String packageName) {
+        mTokenStore.store(Token.create(packageName, mContext.getPackageManager()));
+    }
+
+    private void installPackage(String packageName, String signature) {
+        PackageInfo packageInfo = new PackageInfo();
+        packageInfo.packageName = packageName;
+        packageInfo.applicationInfo = new ApplicationInfo();
+        packageInfo.applicationInfo.packageName = packageName;
+        packageInfo.signatures = new Signature[] { new Signature(signature.getBytes()) };
+        shadowOf(mContext.getPackageManager()).installPackage(packageInfo);
+    }
+
+    private void sendPackageBroadcast(String action, String packageName) {
+        mContext.sendBroadcast(
+                new Intent(action, Uri.fromParts("package", packageName, null)));
+        shadowOf(Looper.getMainLooper()).idle();
+    }
+}